@@ -0,0 +1,41 @@
+#!/usr/bin/env bash
+# Thread execution mode comparison: runs the packaged backend with platform threads (default)
+# and then with the virtual-threads profile, offering both the same open load with LoadTest
+# (benchmarks module) and printing throughput and latency percentiles side by side.
+#
+# Run it from backend/ after "mvn package", with the database configured in
+# application.properties reachable and some users imported, e.g.:
+#
+#   bench/compare_thread_modes.sh 500 30
+#
+# Arguments: offered rate in requests per second (default 500), measured seconds (default 30).
+# Admission control is disabled: the whole load comes from one client, whose rate it would limit.
+# Results are kept in benchmarks/target/load-<mode>.json.
+
+set -euo pipefail
+
+rate=${1:-500}
+duration=${2:-30}
+jar=$(ls target/fcg-users-app-*.jar | head -n 1)
+
+for mode in platform virtual-threads; do
+    profile_arg=()
+    if [ "$mode" = virtual-threads ]; then
+        profile_arg=(--spring.profiles.active=virtual-threads)
+    fi
+    java -jar "$jar" --app.admission.enabled=false "${profile_arg[@]}" > "target/load-$mode.log" 2>&1 &
+    pid=$!
+    trap 'kill $pid 2>/dev/null || true' EXIT
+    until curl -sf http://localhost:8080/actuator/health > /dev/null; do
+        sleep 1
+    done
+    (cd benchmarks && mvn -q exec:exec@load-test \
+        -Dload.args="--rate=$rate --duration=$duration --label=$mode --out=target/load-$mode.json" > /dev/null)
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+done
+
+for mode in platform virtual-threads; do
+    echo "== $mode"
+    grep -E '"(throughput|p50|p99|max)"' "benchmarks/target/load-$mode.json"
+done
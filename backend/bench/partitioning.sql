@@ -0,0 +1,155 @@
+-- Partitioning benchmark: the users table before and after V6__users_partitioned_by_id.sql.
+--
+-- Builds two scratch copies of public.users with :rows synthetic users: a single table with a
+-- unique email, as before V6, and a table range-partitioned by ID in 10 partitions, with its
+-- emails in a separate unique table, as after V6 (the same shape as a users table of 100 000 000
+-- IDs). Times the queries of the application on both, then the maintenance of the table after
+-- a round of updates of the newest users. Run it once per table size, e.g.:
+--
+--   psql -h localhost -U admin -d appusersdb -v rows=1000000  -f bench/partitioning.sql
+--   psql -h localhost -U admin -d appusersdb -v rows=10000000 -f bench/partitioning.sql
+--
+-- The scratch tables are dropped at the end, the real users table is never touched.
+
+\set ON_ERROR_STOP on
+\timing off
+
+drop table if exists bench_users_flat, bench_users_parted, bench_users_emails;
+
+create table bench_users_flat (like public.users including defaults including indexes);
+alter table bench_users_flat add unique (email);
+
+create table bench_users_parted (like public.users including defaults including indexes) partition by range (id);
+select format('create table bench_users_parted_p%s partition of bench_users_parted for values from (%s) to (%s)',
+              p, p * (:rows / 10) + 1, (p + 1) * (:rows / 10) + 1)
+from generate_series(0, 9) as p
+\gexec
+-- the remainder of the division, if any, and the IDs of the inserts below
+create table bench_users_parted_p10 partition of bench_users_parted for values from (:rows / 10 * 10 + 1) to (maxvalue);
+
+create table bench_users_emails
+(
+    email varchar primary key,
+    id    bigint not null
+);
+
+insert into bench_users_flat (id, email, name, surname, address)
+select g,
+       'user' || g || '@bench.it',
+       'nome' || md5(g::text),
+       'cognome' || md5((g * 7)::text),
+       'via ' || g
+from generate_series(1, :rows) as g;
+
+insert into bench_users_parted select * from bench_users_flat;
+insert into bench_users_emails select email, id from bench_users_flat;
+
+vacuum analyze bench_users_flat;
+vacuum analyze bench_users_parted;
+vacuum analyze bench_users_emails;
+
+\echo '== first page of GET /users (sort=id,desc): single table'
+explain (analyze, costs off, timing off, summary on)
+select id, email, name, surname, address from bench_users_flat
+order by id desc
+limit 51;
+
+\echo '== first page of GET /users (sort=id,desc): partitioned, only the newest partition is read'
+explain (analyze, costs off, timing off, summary on)
+select id, email, name, surname, address from bench_users_parted
+order by id desc
+limit 51;
+
+\echo '== next keyset page of GET /users/scroll, in the middle of the table: single table'
+explain (analyze, costs off, timing off, summary on)
+select * from bench_users_flat
+where id < :rows / 2
+order by id desc
+limit 51;
+
+\echo '== next keyset page of GET /users/scroll, in the middle of the table: partitioned'
+explain (analyze, costs off, timing off, summary on)
+select * from bench_users_parted
+where id < :rows / 2
+order by id desc
+limit 51;
+
+\echo '== GET /user/{id}: single table'
+explain (analyze, costs off, timing off, summary on)
+select * from bench_users_flat
+where id = :rows / 3;
+
+\echo '== GET /user/{id}: partitioned'
+explain (analyze, costs off, timing off, summary on)
+select * from bench_users_parted
+where id = :rows / 3;
+
+\echo '== GET /user?email=: single table, unique index'
+explain (analyze, costs off, timing off, summary on)
+select * from bench_users_flat
+where email = 'user' || :rows / 3 || '@bench.it';
+
+\echo '== GET /user?email=: partitioned, through the emails table'
+explain (analyze, costs off, timing off, summary on)
+select * from bench_users_parted
+where id = (select id from bench_users_emails where email = 'user' || :rows / 3 || '@bench.it');
+
+\echo '== search by name, trigram index: single table'
+explain (analyze, costs off, timing off, summary on)
+select * from bench_users_flat
+where lower(name) like '%abc1%' escape '\'
+order by id desc
+limit 50;
+
+\echo '== search by name, trigram index: partitioned'
+explain (analyze, costs off, timing off, summary on)
+select * from bench_users_parted
+where lower(name) like '%abc1%' escape '\'
+order by id desc
+limit 50;
+
+\echo '== insert of 10000 users, skipping used emails: single table'
+explain (analyze, costs off, timing off, summary on)
+insert into bench_users_flat (id, email, name, surname, address)
+select g, 'user' || g || '@bench.it', 'nome', 'cognome', 'via'
+from generate_series(:rows + 1, :rows + 10000) as g
+on conflict (email) do nothing;
+
+\echo '== insert of 10000 users, skipping used emails: partitioned, claiming the emails first'
+explain (analyze, costs off, timing off, summary on)
+with input as (select g as id, 'user' || g || '@bench.it' as email, 'nome' as name, 'cognome' as surname, 'via' as address
+               from generate_series(:rows + 1, :rows + 10000) as g),
+     claimed as (insert into bench_users_emails (email, id)
+                 select email, id from input
+                 on conflict (email) do nothing
+                 returning id)
+insert into bench_users_parted (id, email, name, surname, address)
+select input.* from input join claimed using (id);
+
+-- Maintenance: the newest tenth of the users is updated, as recent users are the most active,
+-- then the tables are vacuumed and reindexed. Timings are wall-clock times.
+update bench_users_flat set address = address || ' bis' where id > :rows / 10 * 9;
+update bench_users_parted set address = address || ' bis' where id > :rows / 10 * 9;
+
+\timing on
+\echo '== vacuum after the updates: single table, every index is scanned'
+vacuum bench_users_flat;
+\echo '== vacuum after the updates: partitioned, the untouched partitions are skipped'
+vacuum bench_users_parted;
+\echo '== analyze: single table'
+analyze bench_users_flat;
+\echo '== analyze: partitioned'
+analyze bench_users_parted;
+\echo '== reindex of the bloated indexes: single table, the whole table'
+reindex table bench_users_flat;
+\echo '== reindex of the bloated indexes: partitioned, the updated partition only'
+reindex table bench_users_parted_p9;
+\timing off
+
+\echo '== size of the tables and their indexes'
+select 'single table' as layout, pg_size_pretty(pg_total_relation_size('bench_users_flat')) as total_size
+union all
+select 'partitioned', pg_size_pretty(sum(pg_total_relation_size(relid)) + pg_total_relation_size('bench_users_emails'))
+from pg_partition_tree('bench_users_parted');
+
+drop table bench_users_flat, bench_users_parted, bench_users_emails;
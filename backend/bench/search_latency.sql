@@ -0,0 +1,58 @@
+-- Search latency benchmark for GET /users name/surname filters.
+--
+-- Builds a scratch copy of public.users (same columns and indexes) with :rows synthetic
+-- users and times the query generated by UserSearchFilter, with and without the trigram
+-- indexes added by V2__users_search_trgm_indexes.sql. Run it once per table size, e.g.:
+--
+--   psql -h localhost -U admin -d appusersdb -v rows=100000  -f bench/search_latency.sql
+--   psql -h localhost -U admin -d appusersdb -v rows=1000000 -f bench/search_latency.sql
+--
+-- The scratch table is dropped at the end, the real users table is never touched.
+
+\set ON_ERROR_STOP on
+\timing off
+
+drop table if exists bench_users;
+create table bench_users (like public.users including defaults including indexes);
+
+insert into bench_users (email, name, surname, address)
+select 'user' || g || '@bench.it',
+       'nome' || md5(g::text),
+       'cognome' || md5((g * 7)::text),
+       'via ' || g
+from generate_series(1, :rows) as g;
+analyze bench_users;
+
+\echo '== search by name, trigram index'
+explain (analyze, costs off, timing off, summary on)
+select * from bench_users
+where lower(name) like '%abc1%' escape '\'
+order by id desc
+limit 50;
+
+\echo '== search by name and surname, trigram indexes'
+explain (analyze, costs off, timing off, summary on)
+select * from bench_users
+where lower(name) like '%abc%' escape '\' and lower(surname) like '%f00%' escape '\'
+order by id desc
+limit 50;
+
+\echo '== count of the search by name, trigram index'
+explain (analyze, costs off, timing off, summary on)
+select count(*) from bench_users
+where lower(name) like '%abc1%' escape '\';
+
+\echo '== search by name, without trigram indexes (previous behaviour)'
+begin;
+set local enable_bitmapscan = off;
+explain (analyze, costs off, timing off, summary on)
+select * from bench_users
+where lower(name) like '%abc1%' escape '\'
+order by id desc
+limit 50;
+explain (analyze, costs off, timing off, summary on)
+select count(*) from bench_users
+where lower(name) like '%abc1%' escape '\';
+rollback;
+
+drop table bench_users;
@@ -0,0 +1,72 @@
+package com.example.fcgusersapp.benchmark;
+
+import com.example.fcgusersapp.FcgUsersAppApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The application context under benchmark, backed by a throwaway PostgreSQL.
+ * <p>
+ * By default an embedded PostgreSQL is extracted and started on a free local port, so no
+ * database nor network access is needed. Setting the {@code benchmark.datasource.url}
+ * system property (with {@code benchmark.datasource.username} and
+ * {@code benchmark.datasource.password}) runs against a locally launched server instead;
+ * its {@code users} table is emptied first.
+ */
+final class BenchmarkApplication implements AutoCloseable {
+
+    private final EmbeddedPostgres embeddedPostgres;
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkApplication(EmbeddedPostgres embeddedPostgres, ConfigurableApplicationContext context) {
+        this.embeddedPostgres = embeddedPostgres;
+        this.context = context;
+    }
+
+    /**
+     * Starts the database and the application, without the web server.
+     *
+     * @param properties additional application properties
+     */
+    static BenchmarkApplication start(Map<String, Object> properties) throws IOException {
+        Map<String, Object> all = new HashMap<>(properties);
+        EmbeddedPostgres embeddedPostgres = null;
+        String url = System.getProperty("benchmark.datasource.url");
+        if (url == null) {
+            embeddedPostgres = EmbeddedPostgres.builder().start();
+            all.put("spring.datasource.url", embeddedPostgres.getJdbcUrl("postgres", "postgres"));
+            all.put("spring.datasource.username", "postgres");
+            all.put("spring.datasource.password", "postgres");
+        } else {
+            all.put("spring.datasource.url", url);
+            all.put("spring.datasource.username", System.getProperty("benchmark.datasource.username", "admin"));
+            all.put("spring.datasource.password", System.getProperty("benchmark.datasource.password", "admin"));
+        }
+        // Passed as command line arguments to take precedence over application.properties
+        String[] args = all.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(FcgUsersAppApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args);
+        return new BenchmarkApplication(embeddedPostgres, context);
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        if (embeddedPostgres != null) {
+            embeddedPostgres.close();
+        }
+    }
+}
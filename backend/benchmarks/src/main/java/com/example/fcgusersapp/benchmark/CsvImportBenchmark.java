@@ -0,0 +1,86 @@
+package com.example.fcgusersapp.benchmark;
+
+import com.example.fcgusersapp.entity.User;
+import com.example.fcgusersapp.utils.CsvChunkReader;
+import com.example.fcgusersapp.utils.CsvFormat;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSV parsing and {@link User} building as done by the CSV import, without the database:
+ * the CPU time taken to read a file of {@code rows} rows before its batches are written,
+ * the header included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvImportBenchmark {
+
+    @Param({"1000", "100000"})
+    private int rows;
+
+    /**
+     * Whether every field is quoted, which takes the slower path of the parser.
+     */
+    @Param({"false", "true"})
+    private boolean quoted;
+
+    /**
+     * Size of the chunks the content is cut into, as {@code app.import.chunk-size}.
+     */
+    @Param({"1048576"})
+    private int chunkSize;
+
+    private byte[] csv;
+
+    @Setup
+    public void generateCsv() {
+        StringBuilder builder = new StringBuilder(CsvFormat.USERS_HEADER).append('\n');
+        String format = quoted ? "\"user%d@example.com\",\"Nome%d\",\"Cognome%d\",\"Via Roma %d, Milano\"\n"
+                : "user%d@example.com,Nome%d,Cognome%d,Via Roma %d\n";
+        for (int i = 0; i < rows; i++) {
+            builder.append(format.formatted(i, i, i, i));
+        }
+        csv = builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Tokenizes the whole content on the calling thread, as a single chunk.
+     */
+    @Benchmark
+    public void parseRecords(Blackhole blackhole) {
+        CsvFormat.parseRecords(csv, 0, csv.length, 1, (line, fields) -> blackhole.consume(toUser(fields)));
+    }
+
+    /**
+     * Cuts the content into chunks, then tokenizes them one after the other: the work of
+     * the importing thread plus the one of the parser pool.
+     */
+    @Benchmark
+    public void chunkAndParseRecords(Blackhole blackhole) throws IOException {
+        CsvChunkReader reader = new CsvChunkReader(new ByteArrayInputStream(csv), chunkSize);
+        CsvChunkReader.Chunk chunk;
+        while ((chunk = reader.next()) != null) {
+            CsvFormat.parseRecords(chunk.data(), 0, chunk.length(), chunk.firstLine(),
+                    (line, fields) -> blackhole.consume(toUser(fields)));
+        }
+    }
+
+    private static User toUser(List<String> fields) {
+        return User.builder()
+                .email(fields.get(0))
+                .name(fields.get(1))
+                .surname(fields.get(2))
+                .address(fields.get(3))
+                .build();
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.fcgusersapp.benchmark;
+
+import com.example.fcgusersapp.entity.User;
+import com.example.fcgusersapp.repository.UserView;
+import com.example.fcgusersapp.utils.ApiResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the response bodies returned by the users endpoints,
+ * with an {@link ObjectMapper} configured as Spring MVC does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    /**
+     * Number of users in the page, of duplicates in the import report and of bulk items.
+     */
+    @Param({"20", "1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private Page<User> page;
+    private Page<UserView> projectedPage;
+    private Map<String, Object> csvImportResponse;
+    private Map<String, Object> bulkResponse;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        List<User> users = new ArrayList<>(size);
+        List<UserView> views = new ArrayList<>(size);
+        List<Map<String, Object>> duplicates = new ArrayList<>(size);
+        List<Map<String, Object>> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            User user = User.builder().id((long) i).email("user" + i + "@example.com")
+                    .name("Nome" + i).surname("Cognome" + i).address("Via Roma " + i).build();
+            users.add(user);
+            views.add(new UserView(user.getId(), null, user.getName(), user.getSurname(), null, null, null));
+            duplicates.add(Map.of("email", user.getEmail()));
+            results.add(ApiResponse.bulkItemResult(i, user.getId(), user.getEmail(),
+                    i % 10 == 0 ? "conflict" : "created"));
+        }
+        page = new PageImpl<>(users, PageRequest.of(0, size), 200_000);
+        projectedPage = new PageImpl<>(views, PageRequest.of(0, size), 200_000);
+        csvImportResponse = ApiResponse.csvImportResponse(200_000 - size, duplicates);
+        bulkResponse = ApiResponse.bulkResponse(results);
+    }
+
+    @Benchmark
+    public byte[] page() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    /**
+     * {@link #page()} holding only the ID, name and surname of the users, as selected by {@code fields}.
+     */
+    @Benchmark
+    public byte[] projectedPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(projectedPage);
+    }
+
+    @Benchmark
+    public byte[] csvImportResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(csvImportResponse);
+    }
+
+    @Benchmark
+    public byte[] bulkResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(bulkResponse);
+    }
+
+    @Benchmark
+    public byte[] successResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(ApiResponse.successResponse("Utente inserito con successo", page.getContent().getFirst()));
+    }
+}
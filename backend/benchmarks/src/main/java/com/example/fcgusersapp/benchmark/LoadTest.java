@@ -0,0 +1,187 @@
+package com.example.fcgusersapp.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Open-model HTTP load test of a running backend, used to compare its thread execution modes.
+ * <p>
+ * Requests are started at a fixed rate whatever the response times, as bursty clients do, and
+ * their latency is measured from the time they were due: a server falling behind shows up in
+ * the latency instead of silently lowering the offered load. The mix is 70% lookups by ID,
+ * 15% page reads, 10% name searches and 5% user creations.
+ * <p>
+ * Options, as {@code --name=value}: {@code url} (default {@code http://localhost:8080}),
+ * {@code rate} in requests per second (500), {@code warmup} and {@code duration} in seconds
+ * (10 and 30), {@code timeout} in seconds (10), {@code label} (free text copied to the result)
+ * and {@code out} (result file, {@code target/load-result.json}).
+ */
+public final class LoadTest {
+
+    private static final String API = "/api/v1";
+
+    private final HttpClient client;
+    private final String url;
+    private final Duration timeout;
+    private final long minId;
+    private final long maxId;
+    private final AtomicLong createdUsers = new AtomicLong();
+
+    private LoadTest(String url, Duration timeout) throws IOException, InterruptedException {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(timeout)
+                .build();
+        this.url = url;
+        this.timeout = timeout;
+        this.minId = firstId("asc");
+        this.maxId = firstId("desc");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "true");
+        }
+        int rate = Integer.parseInt(options.getOrDefault("rate", "500"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        Duration timeout = Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout", "10")));
+        Path out = Path.of(options.getOrDefault("out", "target/load-result.json"));
+
+        LoadTest loadTest = new LoadTest(options.getOrDefault("url", "http://localhost:8080"), timeout);
+        System.out.printf("Warming up at %d req/s for %d s%n", rate, warmup);
+        loadTest.run(rate, warmup);
+        System.out.printf("Measuring at %d req/s for %d s%n", rate, duration);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("label", options.getOrDefault("label", ""));
+        result.putAll(loadTest.run(rate, duration));
+
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        String json = objectMapper.writeValueAsString(result);
+        System.out.println(json);
+        if (out.getParent() != null) {
+            Files.createDirectories(out.getParent());
+        }
+        Files.writeString(out, json);
+    }
+
+    /**
+     * Offers the load for the given time, then waits for the outstanding requests.
+     */
+    private Map<String, Object> run(int rate, int seconds) throws InterruptedException {
+        Recorder latencies = new Recorder(3);
+        Map<String, LongAdder> statuses = new ConcurrentHashMap<>();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long requests = (long) rate * seconds;
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i < requests; i++) {
+                long due = start + i * intervalNanos;
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                executor.execute(() -> {
+                    String status = send(nextRequest());
+                    latencies.recordValue(Math.max(0, (System.nanoTime() - due) / 1_000));
+                    statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+                });
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        Histogram histogram = latencies.getIntervalHistogram();
+        long succeeded = statuses.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith("2"))
+                .mapToLong(entry -> entry.getValue().sum())
+                .sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("offered_rate", rate);
+        result.put("requests", histogram.getTotalCount());
+        result.put("throughput", Math.round(succeeded / elapsedSeconds));
+        result.put("latency_ms", Map.of(
+                "p50", millis(histogram.getValueAtPercentile(50)),
+                "p90", millis(histogram.getValueAtPercentile(90)),
+                "p99", millis(histogram.getValueAtPercentile(99)),
+                "max", millis(histogram.getMaxValue())));
+        Map<String, Long> statusCounts = new TreeMap<>();
+        statuses.forEach((status, count) -> statusCounts.put(status, count.sum()));
+        result.put("statuses", statusCounts);
+        return result;
+    }
+
+    private HttpRequest nextRequest() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int dice = random.nextInt(100);
+        if (dice < 70) {
+            return get("/user/" + random.nextLong(minId, maxId + 1));
+        }
+        if (dice < 85) {
+            return get("/users?page=" + random.nextInt(100) + "&size=20");
+        }
+        if (dice < 95) {
+            return get("/users?name=nome" + random.nextInt(1000) + "&size=20");
+        }
+        String email = "load-" + ProcessHandle.current().pid() + "-" + createdUsers.incrementAndGet() + "@example.com";
+        return HttpRequest.newBuilder(URI.create(url + API + "/user"))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("""
+                        {"email":"%s","name":"Load","surname":"Test","address":"Via Roma 1"}""".formatted(email)))
+                .build();
+    }
+
+    private String send(HttpRequest request) {
+        try {
+            return String.valueOf(client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode());
+        } catch (IOException e) {
+            return e.getClass().getSimpleName();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "interrupted";
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(url + API + path)).timeout(timeout).GET().build();
+    }
+
+    /**
+     * Reads the lowest or highest user ID through the keyset endpoint.
+     */
+    private long firstId(String direction) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(get("/users/scroll?size=1&sort=id," + direction),
+                HttpResponse.BodyHandlers.ofString());
+        JsonNode content = new ObjectMapper().readTree(response.body()).path("content");
+        if (content.isEmpty()) {
+            throw new IllegalStateException("The backend has no users: import some before the load test");
+        }
+        return content.get(0).path("id").asLong();
+    }
+
+    private static double millis(long micros) {
+        return Math.round(micros / 10.0) / 100.0;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.fcgusersapp.benchmark;
+
+import com.example.fcgusersapp.entity.User;
+import com.example.fcgusersapp.repository.UserJdbcRepository;
+import com.example.fcgusersapp.repository.UserRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insertion of {@code rows} new users in one transaction against a real PostgreSQL: through JPA,
+ * which batches the inserts of sequence-identified entities every {@code batchSize} rows, and
+ * through the single multi-row statement of {@link UserJdbcRepository}, which does not depend on
+ * {@code batchSize}. The table is emptied after every iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserInsertBenchmark {
+
+    @Param({"1000"})
+    private int rows;
+
+    /**
+     * {@code hibernate.jdbc.batch_size}: {@code 1} sends every insert on its own.
+     */
+    @Param({"1", "50"})
+    private int batchSize;
+
+    private BenchmarkApplication application;
+    private JdbcTemplate jdbcTemplate;
+    private UserRepository userRepository;
+    private UserJdbcRepository userJdbcRepository;
+    private long sequence;
+
+    @Setup
+    public void setUp() throws IOException {
+        application = BenchmarkApplication.start(Map.of("spring.jpa.properties.hibernate.jdbc.batch_size", batchSize));
+        jdbcTemplate = application.getBean(JdbcTemplate.class);
+        userRepository = application.getBean(UserRepository.class);
+        userJdbcRepository = application.getBean(UserJdbcRepository.class);
+        emptyTable();
+    }
+
+    @TearDown(Level.Iteration)
+    public void emptyTable() {
+        jdbcTemplate.execute("truncate table public.users, public.users_emails");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        application.close();
+    }
+
+    @Benchmark
+    public List<User> saveAll() {
+        return userRepository.saveAll(newUsers());
+    }
+
+    @Benchmark
+    public Map<String, Long> insertIgnoringDuplicates() {
+        return userJdbcRepository.insertIgnoringDuplicates(newUsers());
+    }
+
+    private List<User> newUsers() {
+        List<User> users = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            long n = sequence++;
+            users.add(User.builder()
+                    .email("user" + n + "@example.com")
+                    .name("Nome" + n)
+                    .surname("Cognome" + n)
+                    .address("Via Roma " + n)
+                    .build());
+        }
+        return users;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.fcgusersapp.benchmark;
+
+import com.example.fcgusersapp.entity.User;
+import com.example.fcgusersapp.repository.UserField;
+import com.example.fcgusersapp.repository.UserView;
+import com.example.fcgusersapp.service.ImportMode;
+import com.example.fcgusersapp.service.UserCsvImporter;
+import com.example.fcgusersapp.service.UserService;
+import com.example.fcgusersapp.utils.CsvFormat;
+import com.example.fcgusersapp.utils.CursorPage;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link UserService} calls against a real PostgreSQL, seeded with
+ * {@code users} rows; see {@link BenchmarkApplication} for where the database comes from.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    private static final int IMPORT_ROWS = 1000;
+
+    /**
+     * Number of distinct users looked up by ID, small enough for them all to stay cached.
+     */
+    private static final int HOT_USERS = 1000;
+
+    private static final Set<UserField> LIST_VIEW_FIELDS = EnumSet.of(UserField.ID, UserField.NAME, UserField.SURNAME);
+
+    @Param({"100000"})
+    private int users;
+
+    /**
+     * {@code spring.cache.type}: {@code caffeine} as configured, or {@code none} to measure the database reads.
+     */
+    @Param({"caffeine", "none"})
+    private String cache;
+
+    private BenchmarkApplication application;
+    private UserService userService;
+    private UserCsvImporter userCsvImporter;
+    private long minId;
+    private byte[] importCsv;
+
+    @Setup
+    public void setUp() throws IOException {
+        application = BenchmarkApplication.start(Map.of("spring.cache.type", cache));
+        application.getBean(JdbcTemplate.class).execute("truncate table public.users, public.users_emails");
+        userService = application.getBean(UserService.class);
+        userCsvImporter = application.getBean(UserCsvImporter.class);
+        userCsvImporter.importUsers(new ByteArrayInputStream(csv(0, users)), ImportMode.INSERT_ONLY);
+        minId = application.getBean(JdbcTemplate.class).queryForObject("select min(id) from public.users", Long.class);
+        importCsv = csv(0, IMPORT_ROWS);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        application.close();
+    }
+
+    @Benchmark
+    public Optional<User> findUserById() {
+        return userService.findUserById(minId + ThreadLocalRandom.current().nextInt(Math.min(users, HOT_USERS)));
+    }
+
+    @Benchmark
+    public Page<UserView> searchUsers() {
+        return userService.searchUsers("nome" + ThreadLocalRandom.current().nextInt(users), null,
+                UserField.DEFAULT, PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public Page<UserView> listUsers() {
+        return userService.searchUsers(null, null, UserField.DEFAULT,
+                PageRequest.of(ThreadLocalRandom.current().nextInt(100), 20));
+    }
+
+    /**
+     * {@link #listUsers()} selecting only the fields of a list view.
+     */
+    @Benchmark
+    public Page<UserView> listUserNames() {
+        return userService.searchUsers(null, null, LIST_VIEW_FIELDS,
+                PageRequest.of(ThreadLocalRandom.current().nextInt(100), 20));
+    }
+
+    @Benchmark
+    public CursorPage<User> scrollUsers() {
+        return userService.scrollUsers(null, null, Sort.by(Sort.Direction.DESC, "id"), 20, null);
+    }
+
+    @Benchmark
+    public void saveAndDeleteUser() {
+        User user = User.builder()
+                .email("bench" + System.nanoTime() + "@example.com")
+                .name("Nome")
+                .surname("Cognome")
+                .address("Via Roma 1")
+                .build();
+        userService.saveUser(user);
+        userService.deleteUser(user.getId());
+    }
+
+    /**
+     * Re-imports {@value #IMPORT_ROWS} existing rows in upsert mode: parsing, batching and the
+     * conflict handling of the database, with nothing actually rewritten.
+     */
+    @Benchmark
+    public Map<String, Object> upsertUnchangedCsv() throws IOException {
+        return userCsvImporter.importUsers(new ByteArrayInputStream(importCsv), ImportMode.UPSERT);
+    }
+
+    private static byte[] csv(int from, int to) {
+        StringBuilder builder = new StringBuilder(CsvFormat.USERS_HEADER).append('\n');
+        for (int i = from; i < to; i++) {
+            builder.append("user").append(i).append("@example.com,Nome").append(i)
+                    .append(",Cognome").append(i).append(",Via Roma ").append(i).append('\n');
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
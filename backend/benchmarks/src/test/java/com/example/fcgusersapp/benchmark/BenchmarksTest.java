@@ -0,0 +1,45 @@
+package com.example.fcgusersapp.benchmark;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Collection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs every benchmark for a single short iteration, on the smallest data sets, so that a
+ * benchmark broken by a change of the application fails the build rather than the next measurement.
+ */
+class BenchmarksTest {
+
+    @Test
+    void runsEveryBenchmark() throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(BenchmarksTest.class.getPackageName() + "\\..*Benchmark\\.")
+                .forks(0)
+                .warmupIterations(0)
+                .measurementIterations(1)
+                .measurementTime(TimeValue.milliseconds(100))
+                .param("rows", "1000")
+                .param("users", "1000")
+                .param("size", "20")
+                .param("cache", "caffeine")
+                .param("quoted", "true")
+                .shouldFailOnError(true)
+                .build();
+
+        Collection<RunResult> results = new Runner(options).run();
+
+        assertThat(results).extracting(result -> result.getParams().getBenchmark().replaceAll(".*\\.(\\w+\\.\\w+)$", "$1"))
+                .contains("CsvImportBenchmark.parseRecords", "JsonSerializationBenchmark.page",
+                        "UserInsertBenchmark.saveAll", "UserServiceBenchmark.findUserById",
+                        "UserServiceBenchmark.upsertUnchangedCsv");
+        assertThat(results).allSatisfy(result -> assertThat(result.getPrimaryResult().getSampleCount()).isPositive());
+    }
+}
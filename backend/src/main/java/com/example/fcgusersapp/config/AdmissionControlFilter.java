@@ -0,0 +1,289 @@
+package com.example.fcgusersapp.config;
+
+import com.example.fcgusersapp.constants.Endpoint;
+import com.example.fcgusersapp.utils.AdaptiveConcurrencyLimit;
+import com.example.fcgusersapp.utils.ApiResponse;
+import com.example.fcgusersapp.utils.TokenBucket;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Refuses the API requests of an endpoint with {@code 429} when a client sends them too fast, or
+ * when the endpoint already serves as many as the database can take, so that a few heavy requests
+ * (CSV imports, unfiltered searches) cannot take all the pooled connections from the cheap ones.
+ * <p>
+ * Endpoints are configured by name in {@link AdmissionProperties#endpoints()}, each with:
+ * <ul>
+ *     <li>a request rate per client, enforced by a {@link TokenBucket} per client and endpoint;</li>
+ *     <li>a limit on the requests it serves at the same time, an {@link AdaptiveConcurrencyLimit}
+ *     fed with the mean time of the SQL statements of each request (see {@link DatabaseTime}), which
+ *     shrinks as the database slows down, and as soon as requests queue for a connection of the
+ *     primary pool: requests are turned away before the pool saturates.</li>
+ * </ul>
+ * Refused requests are counted in {@value #REJECTED_METRIC}, by endpoint and reason. Streamed
+ * responses hold their place in the limit until they complete.
+ * <p>
+ * When {@link RequestConcurrencyFilter} is enabled as well (virtual-threads profile), this filter
+ * runs first: requests over the rate of their client or the limit of their endpoint are refused
+ * with {@code 429} right away, and only the admitted ones then wait for one of the connections,
+ * refused with {@code 503} after {@link RequestConcurrencyProperties#acquireTimeout()}. The
+ * time waited there does not count in the latency of the endpoint, only its SQL statements do.
+ */
+@Component
+@Order(AdmissionControlFilter.ORDER)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "app.admission", name = "enabled", havingValue = "true")
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    static final String REJECTED_METRIC = "http.server.requests.admission.rejected";
+
+    /**
+     * Order of the filter, ahead of {@link RequestConcurrencyFilter}.
+     */
+    static final int ORDER = Ordered.LOWEST_PRECEDENCE - 2;
+
+    private static final String API_PATH_PREFIX = "/" + Endpoint.USERS_ENDPOINT_ROOT;
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final List<LimitedEndpoint> endpoints;
+    private final String clientHeader;
+    private final Set<String> trustedProxies;
+    private final HikariDataSource pool;
+    private final ObjectMapper objectMapper;
+
+    public AdmissionControlFilter(AdmissionProperties properties, DataSource dataSource,
+                                  ObjectMapper objectMapper, MeterRegistry meterRegistry) throws SQLException {
+        this.endpoints = properties.endpoints().entrySet().stream()
+                .map(entry -> new LimitedEndpoint(entry.getKey(), entry.getValue(), properties, meterRegistry))
+                .toList();
+        this.clientHeader = StringUtils.hasText(properties.clientHeader()) ? properties.clientHeader() : null;
+        this.trustedProxies = Set.copyOf(properties.trustedProxies());
+        this.pool = dataSource.unwrap(HikariDataSource.class);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(API_PATH_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        LimitedEndpoint endpoint = endpointOf(request);
+        if (endpoint == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (endpoint.clients != null) {
+            long wait = endpoint.clients.get(clientOf(request), client -> endpoint.newBucket()).tryConsume();
+            if (wait > 0) {
+                reject(response, endpoint.rateRejected, wait,
+                        "Troppe richieste al secondo per l'endpoint " + endpoint.name);
+                return;
+            }
+        }
+        AdaptiveConcurrencyLimit limit = endpoint.limit;
+        if (limit == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!limit.tryAcquire()) {
+            reject(response, endpoint.concurrencyRejected, NANOS_PER_SECOND,
+                    "Troppe richieste in corso per l'endpoint " + endpoint.name);
+            return;
+        }
+        long latency = 0;
+        try (DatabaseTime.Measurement measurement = DatabaseTime.measure()) {
+            chain.doFilter(request, response);
+            latency = measurement.meanNanos();
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnComplete(limit));
+            } else {
+                limit.release(latency, isPoolCongested());
+            }
+        }
+    }
+
+    private LimitedEndpoint endpointOf(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        for (LimitedEndpoint endpoint : endpoints) {
+            if (endpoint.matches(request.getMethod(), path)) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Identifies the client of a request: its remote address, or, for the requests of a trusted proxy,
+     * the last address of the client header not belonging to a trusted proxy. The addresses before it
+     * were sent by the client itself, which could change them at will to get a fresh rate.
+     */
+    String clientOf(HttpServletRequest request) {
+        String remoteAddress = request.getRemoteAddr();
+        if (clientHeader == null || !trustedProxies.contains(remoteAddress)) {
+            return remoteAddress;
+        }
+        String[] addresses = StringUtils.commaDelimitedListToStringArray(request.getHeader(clientHeader));
+        for (int i = addresses.length - 1; i >= 0; i--) {
+            String address = addresses[i].trim();
+            if (!address.isEmpty() && (!trustedProxies.contains(address) || i == 0)) {
+                return address;
+            }
+        }
+        return remoteAddress;
+    }
+
+    /**
+     * @return {@code true} if requests are waiting for a connection of the primary pool
+     */
+    private boolean isPoolCongested() {
+        HikariPoolMXBean poolBean = pool.getHikariPoolMXBean();
+        return poolBean != null && poolBean.getThreadsAwaitingConnection() > 0;
+    }
+
+    private void reject(HttpServletResponse response, Counter rejected, long retryAfterNanos, String error)
+            throws IOException {
+        rejected.increment();
+        response.setStatus(429);
+        response.setHeader("Retry-After", String.valueOf(Math.max(1, (retryAfterNanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                ApiResponse.errorResponse("Troppe richieste, riprovare più tardi", error));
+    }
+
+    /**
+     * An endpoint, with its limits and the request rates of its clients.
+     */
+    private static final class LimitedEndpoint {
+        private final String name;
+        private final Set<String> methods;
+        private final List<PathPattern> paths;
+        private final AdmissionProperties.EndpointLimits limits;
+        private final Cache<String, TokenBucket> clients;
+        private final AdaptiveConcurrencyLimit limit;
+        private final Counter rateRejected;
+        private final Counter concurrencyRejected;
+
+        private LimitedEndpoint(String name, AdmissionProperties.EndpointLimits limits,
+                                AdmissionProperties properties, MeterRegistry meterRegistry) {
+            if (limits.paths().isEmpty()) {
+                throw new IllegalArgumentException("No paths for the admission control of endpoint " + name);
+            }
+            this.name = name;
+            this.methods = limits.methods().stream().map(method -> method.toUpperCase(Locale.ROOT)).collect(Collectors.toSet());
+            this.paths = limits.paths().stream()
+                    .map(path -> PathPatternParser.defaultInstance.parse(API_PATH_PREFIX + StringUtils.trimLeadingCharacter(path, '/')))
+                    .toList();
+            this.limits = limits;
+            this.clients = limits.rate() > 0
+                    ? Caffeine.newBuilder()
+                    .expireAfterAccess(properties.clientIdleTimeout())
+                    .maximumSize(properties.maxClients())
+                    .build()
+                    : null;
+            this.limit = limits.maxConcurrency() > 0
+                    ? new AdaptiveConcurrencyLimit(Math.min(limits.minConcurrency(), limits.maxConcurrency()), limits.maxConcurrency())
+                    : null;
+            this.rateRejected = rejectedCounter(meterRegistry, "rate");
+            this.concurrencyRejected = rejectedCounter(meterRegistry, "concurrency");
+            if (limit != null) {
+                Gauge.builder("http.server.requests.admission.limit", limit, AdaptiveConcurrencyLimit::limit)
+                        .description("Requests an endpoint may currently serve at the same time")
+                        .tag("endpoint", name)
+                        .register(meterRegistry);
+                Gauge.builder("http.server.requests.admission.in.flight", limit, AdaptiveConcurrencyLimit::inFlight)
+                        .description("Requests an endpoint is serving")
+                        .tag("endpoint", name)
+                        .register(meterRegistry);
+            }
+        }
+
+        private Counter rejectedCounter(MeterRegistry meterRegistry, String reason) {
+            return Counter.builder(REJECTED_METRIC)
+                    .description("API requests refused by the admission control")
+                    .tag("endpoint", name)
+                    .tag("reason", reason)
+                    .register(meterRegistry);
+        }
+
+        private boolean matches(String method, PathContainer path) {
+            if (!methods.isEmpty() && !methods.contains(method)) {
+                return false;
+            }
+            for (PathPattern pattern : paths) {
+                if (pattern.matches(path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private TokenBucket newBucket() {
+            double burst = limits.burst() > 0 ? limits.burst() : Math.max(1, Math.ceil(limits.rate()));
+            return new TokenBucket(limits.rate(), burst);
+        }
+    }
+
+    /**
+     * Releases the place of a streamed response in the limit once it completes, successfully or not.
+     */
+    private final class ReleaseOnComplete implements AsyncListener {
+        private final AdaptiveConcurrencyLimit limit;
+
+        private ReleaseOnComplete(AdaptiveConcurrencyLimit limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            limit.release(0, isPoolCongested());
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
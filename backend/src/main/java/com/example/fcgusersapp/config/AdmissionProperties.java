@@ -0,0 +1,57 @@
+package com.example.fcgusersapp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Options of the admission control of the API requests, bound from the {@code app.admission.*}
+ * properties; see {@link AdmissionControlFilter}.
+ *
+ * @param enabled           whether requests beyond the limits are refused
+ * @param clientHeader      request header identifying the client, e.g. {@code X-Forwarded-For}, set by the
+ *                          proxies in front of the application; only read on the requests coming from one of
+ *                          the {@code trustedProxies}, since clients can send any value in it
+ * @param trustedProxies    addresses of the proxies trusted to set {@code clientHeader}; the header is ignored,
+ *                          and clients are told apart by their remote address, without any
+ * @param clientIdleTimeout how long the request rate of a client is remembered after its last request
+ * @param maxClients        maximum number of clients whose request rate is remembered, per endpoint
+ * @param endpoints         the limited endpoints by name; a request is limited by the first endpoint
+ *                          matching it, and not at all if none does
+ */
+@ConfigurationProperties(prefix = "app.admission")
+public record AdmissionProperties(
+        @DefaultValue("false") boolean enabled,
+        String clientHeader,
+        @DefaultValue List<String> trustedProxies,
+        @DefaultValue("10m") Duration clientIdleTimeout,
+        @DefaultValue("100000") long maxClients,
+        @DefaultValue Map<String, EndpointLimits> endpoints
+) {
+
+    /**
+     * Limits of an endpoint.
+     *
+     * @param methods        HTTP methods of the endpoint; all of them if empty
+     * @param paths          path patterns of the endpoint, relative to the API root (e.g. {@code /user/{id}})
+     * @param rate           requests per second allowed to each client; 0 for no limit
+     * @param burst          requests a client may send at once above the rate; 0 for the rate, rounded up
+     * @param minConcurrency lowest number of requests the endpoint serves at the same time,
+     *                       however slow the database gets
+     * @param maxConcurrency highest number of requests the endpoint serves at the same time, among all
+     *                       the clients; the limit moves between the two with the database latency.
+     *                       0 for no limit
+     */
+    public record EndpointLimits(
+            @DefaultValue List<String> methods,
+            @DefaultValue List<String> paths,
+            @DefaultValue("0") double rate,
+            @DefaultValue("0") int burst,
+            @DefaultValue("1") int minConcurrency,
+            @DefaultValue("0") int maxConcurrency
+    ) {
+    }
+}
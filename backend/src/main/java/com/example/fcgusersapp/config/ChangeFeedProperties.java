@@ -0,0 +1,26 @@
+package com.example.fcgusersapp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Options of the users change feed, bound from the {@code app.changes.*} properties.
+ *
+ * @param settleDelay        how old a change must be before the feed returns it. A change is
+ *                           stamped with the start time of its transaction, but only becomes
+ *                           visible when it commits: a cursor must not move past changes that
+ *                           may still be committed, so transactions are expected to be shorter
+ *                           than this delay
+ * @param tombstoneRetention how long deletions are kept; older cursors are rejected, since the
+ *                           deletions they would need to see may be gone
+ * @param purgeInterval      how often expired deletions are removed
+ */
+@ConfigurationProperties(prefix = "app.changes")
+public record ChangeFeedProperties(
+        @DefaultValue("5s") Duration settleDelay,
+        @DefaultValue("30d") Duration tombstoneRetention,
+        @DefaultValue("1h") Duration purgeInterval
+) {
+}
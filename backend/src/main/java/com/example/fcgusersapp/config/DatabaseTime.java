@@ -0,0 +1,90 @@
+package com.example.fcgusersapp.config;
+
+/**
+ * Measures the time the SQL statements run by the current thread spend in the database, as
+ * reported by {@link SqlStatementMetrics}, for {@link AdmissionControlFilter}.
+ * <p>
+ * This is a utility class and cannot be instantiated.
+ */
+public final class DatabaseTime {
+
+    private static final ThreadLocal<Measurement> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Private constructor to prevent instantiation.
+     *
+     * @throws IllegalStateException always, since this class is a utility
+     *                               class and should not be instantiated.
+     */
+    private DatabaseTime() {
+        throw new IllegalStateException("This class is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Measures the statements run by the current thread until the returned measurement is closed.
+     *
+     * @return the measurement, to be closed by the same thread
+     */
+    public static Measurement measure() {
+        Measurement measurement = new Measurement();
+        CURRENT.set(measurement);
+        return measurement;
+    }
+
+    /**
+     * Called before a statement runs.
+     */
+    static void statementStarted() {
+        Measurement measurement = CURRENT.get();
+        if (measurement != null) {
+            measurement.startedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Called after a statement ran.
+     *
+     * @param statements the number of statements run, more than one for a batch
+     */
+    static void statementEnded(int statements) {
+        Measurement measurement = CURRENT.get();
+        if (measurement != null && measurement.startedAt != 0) {
+            measurement.nanos += System.nanoTime() - measurement.startedAt;
+            measurement.statements += statements;
+            measurement.startedAt = 0;
+        }
+    }
+
+    /**
+     * Time spent in the database by the statements of a thread, from {@link #measure()} to {@link #close()}.
+     */
+    public static final class Measurement implements AutoCloseable {
+        private long startedAt;
+        private long nanos;
+        private int statements;
+
+        private Measurement() {
+        }
+
+        /**
+         * @return the number of statements run
+         */
+        public int statements() {
+            return statements;
+        }
+
+        /**
+         * @return the mean time of the statements run, in nanoseconds; 0 if none ran
+         */
+        public long meanNanos() {
+            return statements == 0 ? 0 : nanos / statements;
+        }
+
+        @Override
+        public void close() {
+            if (CURRENT.get() == this) {
+                CURRENT.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.fcgusersapp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Options of the in-memory index of the user emails, bound from the {@code app.email-index.*} properties.
+ *
+ * @param enabled           whether the emails are loaded at startup and used to answer email lookups
+ *                          and detect duplicate emails before writing
+ * @param falsePositiveRate probability that an unused email has to be looked up in the database anyway
+ * @param minCapacity       minimum number of emails the index is sized for; it is otherwise sized for
+ *                          half as many emails again as there are users when it is built
+ * @param refreshInterval   how often the emails written by the other instances are read; until then,
+ *                          lookups of those emails may answer that they do not exist
+ * @param rebuildInterval   how often the index is rebuilt from scratch, dropping the emails no longer used
+ */
+@ConfigurationProperties(prefix = "app.email-index")
+public record EmailIndexProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("0.01") double falsePositiveRate,
+        @DefaultValue("100000") long minCapacity,
+        @DefaultValue("5s") Duration refreshInterval,
+        @DefaultValue("6h") Duration rebuildInterval
+) {
+}
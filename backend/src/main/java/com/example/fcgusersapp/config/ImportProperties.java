@@ -0,0 +1,48 @@
+package com.example.fcgusersapp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+/**
+ * Tuning options of the CSV import pipeline, bound from the {@code app.import.*} properties.
+ *
+ * @param batchSize     number of CSV rows written to the database with a single statement
+ * @param chunkSize     size of the pieces of a CSV file parsed in parallel
+ * @param parserThreads number of threads parsing CSV chunks, shared by all imports;
+ *                      0 for one per available processor
+ * @param maxUploadSize maximum size of an uploaded file as sent, compressed or not; it also bounds
+ *                      the multipart uploads, see {@code spring.servlet.multipart.*}
+ * @param maxCsvSize    maximum size of the CSV content of an upload once decompressed, so that a
+ *                      small compressed file cannot expand without bounds
+ * @param async         options of the asynchronous import jobs
+ */
+@ConfigurationProperties(prefix = "app.import")
+public record ImportProperties(
+        @DefaultValue("1000") int batchSize,
+        @DefaultValue("1MB") DataSize chunkSize,
+        @DefaultValue("0") int parserThreads,
+        @DefaultValue("10GB") DataSize maxUploadSize,
+        @DefaultValue("50GB") DataSize maxCsvSize,
+        @DefaultValue Async async
+) {
+
+    /**
+     * Options of the asynchronous import jobs.
+     *
+     * @param spoolDirectory    directory where uploaded files are stored until their job completes
+     * @param maxConcurrentJobs number of imports running at the same time; each holds at most
+     *                          one database connection, the rest of the pool stays free for CRUD traffic
+     * @param maxQueuedJobs     number of accepted jobs waiting for a free slot before new uploads are refused
+     * @param retainedJobs      number of finished jobs kept in memory for progress polling
+     */
+    public record Async(
+            Path spoolDirectory,
+            @DefaultValue("2") int maxConcurrentJobs,
+            @DefaultValue("10") int maxQueuedJobs,
+            @DefaultValue("100") int retainedJobs
+    ) {
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.fcgusersapp.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+/**
+ * Application metrics on top of the ones auto-configured by Actuator
+ * (HTTP requests, Spring Data repository invocations, HikariCP pool, caches).
+ * <p>
+ * Enables {@link io.micrometer.core.annotation.Timed} on beans and counts the SQL
+ * statements sent through the {@link DataSource}, globally and per HTTP request.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfiguration implements WebMvcConfigurer {
+
+    private final SqlStatementMetrics sqlStatementMetrics;
+
+    public MetricsConfiguration(SqlStatementMetrics sqlStatementMetrics) {
+        this.sqlStatementMetrics = sqlStatementMetrics;
+    }
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    /**
+     * Wraps the auto-configured {@link DataSource} so that every statement executed
+     * through it is reported to {@link SqlStatementMetrics}.
+     */
+    @Bean
+    public static BeanPostProcessor sqlStatementMetricsDataSourceWrapper(ObjectProvider<SqlStatementMetrics> metrics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name(beanName)
+                            .listener(metrics.getObject())
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(sqlStatementMetrics);
+    }
+}
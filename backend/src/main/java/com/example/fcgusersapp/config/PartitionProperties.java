@@ -0,0 +1,20 @@
+package com.example.fcgusersapp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Options of the partitions of the users table, bound from the {@code app.partitions.*} properties.
+ *
+ * @param ahead         how many partitions are kept ready after the one receiving the new users,
+ *                      each holding 10 000 000 IDs; inserts fail once the IDs run past the last one
+ * @param checkInterval how often the missing partitions are created
+ */
+@ConfigurationProperties(prefix = "app.partitions")
+public record PartitionProperties(
+        @DefaultValue("2") int ahead,
+        @DefaultValue("1h") Duration checkInterval
+) {
+}
@@ -0,0 +1,57 @@
+package com.example.fcgusersapp.config;
+
+/**
+ * Keeps the read-only transactions of the current thread on the primary database, for reads that
+ * must see every committed write, see {@link ReplicaRoutingDataSource}.
+ * <p>
+ * This is a utility class and cannot be instantiated.
+ */
+public final class ReadRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    /**
+     * Private constructor to prevent instantiation.
+     *
+     * @throws IllegalStateException always, since this class is a utility
+     *                               class and should not be instantiated.
+     */
+    private ReadRouting() {
+        throw new IllegalStateException("This class is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Routes the transactions started by the current thread to the primary until the returned
+     * scope is closed. Only applies to the connections obtained meanwhile, i.e. to transactions
+     * started within the scope.
+     *
+     * @return the scope, to be closed by the same thread
+     */
+    public static Scope primary() {
+        Boolean previous = PRIMARY_REQUIRED.get();
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+        return () -> {
+            if (previous == null) {
+                PRIMARY_REQUIRED.remove();
+            } else {
+                PRIMARY_REQUIRED.set(previous);
+            }
+        };
+    }
+
+    /**
+     * @return {@code true} if the current thread is within a {@link #primary()} scope
+     */
+    public static boolean isPrimaryRequired() {
+        return PRIMARY_REQUIRED.get() != null;
+    }
+
+    /**
+     * A {@link #primary()} scope.
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
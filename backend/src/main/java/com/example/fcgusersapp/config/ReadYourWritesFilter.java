@@ -0,0 +1,80 @@
+package com.example.fcgusersapp.config;
+
+import com.example.fcgusersapp.constants.Endpoint;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Serves the reads of a client from the primary right after its own writes, which the
+ * replicas may not have replayed yet.
+ * <p>
+ * Every API request that may write sets the {@value #COOKIE_NAME} cookie, holding the time until which the
+ * replicas may miss the write, {@link ReplicaProperties#maxStaleness()} later; the requests
+ * carrying it until then run within a {@link ReadRouting#primary()} scope. Clients that do not keep
+ * cookies, or send them across origins without credentials, may not read their own writes.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE_NAME = "users-read-primary-until";
+
+    private static final String API_PATH_PREFIX = "/" + Endpoint.USERS_ENDPOINT_ROOT;
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+    private final Duration window;
+
+    public ReadYourWritesFilter(ReplicaProperties properties) {
+        this.window = properties.maxStaleness();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(API_PATH_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        if (!SAFE_METHODS.contains(request.getMethod())) {
+            response.addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(COOKIE_NAME, String.valueOf(now + window.toMillis()))
+                    .path("/")
+                    .maxAge(window.plusMillis(999).toSeconds())
+                    .httpOnly(true)
+                    .sameSite("Lax")
+                    .build()
+                    .toString());
+        } else if (primaryUntil(request) <= now) {
+            chain.doFilter(request, response);
+            return;
+        }
+        try (ReadRouting.Scope ignored = ReadRouting.primary()) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    private static long primaryUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE_NAME.equals(cookie.getName())) {
+                    try {
+                        return Long.parseLong(cookie.getValue());
+                    } catch (NumberFormatException e) {
+                        return 0;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+}
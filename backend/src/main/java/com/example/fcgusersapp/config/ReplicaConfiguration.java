@@ -0,0 +1,67 @@
+package com.example.fcgusersapp.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas, when {@link ReplicaProperties#urls()} lists any: the auto-configured data source
+ * is replaced by a {@link ReplicaRoutingDataSource} over a pool of the primary, configured as the
+ * auto-configured one from the {@code spring.datasource.*} properties, and a pool per replica.
+ * <p>
+ * The replica pools share the {@code spring.datasource.hikari.*} settings of the primary, except for
+ * their size, and a connection timeout within {@link ReplicaProperties#checkInterval()} so that a replica
+ * going down holds neither the reads nor the checks of the others for long. They are created without
+ * connecting, so that the application starts while a replica is down.
+ * Only the servlet stack is routed: the reactive one keeps all its R2DBC statements on the primary.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "app.replicas", name = "urls")
+public class ReplicaConfiguration {
+
+    private static final String HIKARI_PROPERTIES = "spring.datasource.hikari";
+    private static final long MIN_CONNECTION_TIMEOUT_MILLIS = 250;
+
+    @Bean
+    public ReplicaRoutingDataSource dataSource(DataSourceProperties dataSourceProperties, ReplicaProperties properties,
+                                               Environment environment, MeterRegistry meterRegistry) {
+        Binder binder = Binder.get(environment);
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind(HIKARI_PROPERTIES, Bindable.ofInstance(primary));
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : properties.urls()) {
+            HikariDataSource replica = new HikariDataSource();
+            binder.bind(HIKARI_PROPERTIES, Bindable.ofInstance(replica));
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setJdbcUrl(url);
+            replica.setUsername(properties.username() != null ? properties.username() : dataSourceProperties.determineUsername());
+            replica.setPassword(properties.password() != null ? properties.password() : dataSourceProperties.determinePassword());
+            replica.setMaximumPoolSize(properties.maximumPoolSize());
+            replica.setConnectionTimeout(Math.min(replica.getConnectionTimeout(),
+                    Math.max(MIN_CONNECTION_TIMEOUT_MILLIS, properties.checkInterval().toMillis())));
+            replica.setReadOnly(true);
+            replica.setInitializationFailTimeout(-1);
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, properties, meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.replicas", name = "read-your-writes", havingValue = "true", matchIfMissing = true)
+    public ReadYourWritesFilter readYourWritesFilter(ReplicaProperties properties) {
+        return new ReadYourWritesFilter(properties);
+    }
+}
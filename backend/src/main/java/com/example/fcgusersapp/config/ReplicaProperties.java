@@ -0,0 +1,50 @@
+package com.example.fcgusersapp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Read replicas of the database, bound from the {@code app.replicas.*} properties; read-only
+ * transactions are routed to them by {@link ReplicaRoutingDataSource}.
+ *
+ * @param urls            JDBC URLs of the replicas; none to run everything on the primary
+ * @param username        user of the replicas, the one of the primary if not set
+ * @param password        password of the replicas, the one of the primary if not set
+ * @param maximumPoolSize maximum number of connections to each replica
+ * @param maxLag          how far behind the primary a replica may be and still serve reads
+ * @param checkInterval   how often the replicas are checked
+ * @param receiverTimeout how long a replica may go without a message from the primary and still serve
+ *                        reads; an idle primary only sends keepalives every {@code wal_sender_timeout} / 2
+ * @param readYourWrites  whether the reads of a client that just wrote are served by the primary
+ *                        until the replicas may have caught up, see {@link ReadYourWritesFilter}
+ */
+@ConfigurationProperties(prefix = "app.replicas")
+public record ReplicaProperties(
+        @DefaultValue List<String> urls,
+        String username,
+        String password,
+        @DefaultValue("10") int maximumPoolSize,
+        @DefaultValue("5s") Duration maxLag,
+        @DefaultValue("1s") Duration checkInterval,
+        @DefaultValue("60s") Duration receiverTimeout,
+        @DefaultValue("true") boolean readYourWrites
+) {
+
+    /**
+     * @return {@code true} if any replica is configured
+     */
+    public boolean enabled() {
+        return !urls.isEmpty();
+    }
+
+    /**
+     * @return how long after a commit a replica serving reads may still miss it: a replica is
+     * only found lagging more than {@link #maxLag()} by the next check
+     */
+    public Duration maxStaleness() {
+        return maxLag.plus(checkInterval);
+    }
+}
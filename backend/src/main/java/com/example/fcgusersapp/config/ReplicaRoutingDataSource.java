@@ -0,0 +1,182 @@
+package com.example.fcgusersapp.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Data source sending read-only transactions to the read replicas, and everything else to the primary.
+ * <p>
+ * Connections are only obtained when their first statement runs, once the transaction manager has
+ * marked them read-only or not: {@code @Transactional(readOnly = true)} methods, and the read
+ * methods of the Spring Data repositories, then get a connection to a replica. The replicas are
+ * taken in turn, skipping those that do not answer, do not stream from the primary or lag more than
+ * {@link ReplicaProperties#maxLag()} behind it, as measured every {@link ReplicaProperties#checkInterval()}; without any
+ * available replica, or within a {@link ReadRouting#primary()} scope, reads go to the primary.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    /**
+     * Whether a replica is streaming from the primary, i.e. its WAL receiver is connected and got
+     * a message within the receiver timeout, and its replication lag in milliseconds: none if it
+     * replayed everything it received, otherwise the age of the last transaction it replayed;
+     * {@code null} if it replayed none yet. A server that is not a replica streams and has no lag.
+     * A replica that does not stream may have replayed all it received long ago, so its lag is
+     * unknown. The WAL receiver status is only visible to users with the privileges of
+     * {@code pg_read_all_stats}.
+     */
+    private static final String LAG_SQL = """
+            select not pg_is_in_recovery()
+                       or exists (select 1 from pg_stat_wal_receiver
+                                  where status = 'streaming'
+                                    and last_msg_receipt_time > now() - ? * interval '1 millisecond') as streaming,
+                   case when not pg_is_in_recovery() or pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0
+                        else (extract(epoch from now() - pg_last_xact_replay_timestamp()) * 1000)::bigint end as lag
+            """;
+
+    private final HikariDataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagMillis;
+    private final long receiverTimeoutMillis;
+    private final ScheduledExecutorService checker;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param primary       the pool of the primary
+     * @param replicaPools  the pools of the replicas, which may not be reachable yet
+     * @param properties    the replicas options
+     * @param meterRegistry the registry of the available replicas gauge
+     */
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicaPools,
+                                    ReplicaProperties properties, MeterRegistry meterRegistry) {
+        super(primary);
+        this.primary = primary;
+        this.replicas = replicaPools.stream().map(Replica::new).toList();
+        this.maxLagMillis = properties.maxLag().toMillis();
+        this.receiverTimeoutMillis = properties.receiverTimeout().toMillis();
+        setReadOnlyDataSource(new ReplicaDataSource());
+        setDefaultAutoCommit(true);
+        setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        Gauge.builder("db.replicas.available", replicas, list -> list.stream().filter(replica -> replica.available).count())
+                .description("Read replicas currently serving the read-only transactions")
+                .register(meterRegistry);
+        long interval = properties.checkInterval().toMillis();
+        this.checker = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("db-replicas-check").daemon().factory());
+        checker.scheduleWithFixedDelay(this::checkReplicas, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Number of connections requests can hold at the same time: those of the primary pool and of
+     * the pools of the replicas available when last checked.
+     */
+    public int getMaximumPoolSize() {
+        int size = primary.getMaximumPoolSize();
+        for (Replica replica : replicas) {
+            if (replica.available) {
+                size += replica.pool.getMaximumPoolSize();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void close() {
+        checker.shutdownNow();
+        replicas.forEach(replica -> replica.pool.close());
+        primary.close();
+    }
+
+    private void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean streaming = false;
+            Long lag = null;
+            Exception error = null;
+            try (Connection connection = replica.pool.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(LAG_SQL)) {
+                statement.setQueryTimeout(1);
+                statement.setLong(1, receiverTimeoutMillis);
+                try (ResultSet rs = statement.executeQuery()) {
+                    rs.next();
+                    streaming = rs.getBoolean("streaming");
+                    lag = rs.getObject("lag", Long.class);
+                }
+            } catch (SQLException | RuntimeException e) {
+                error = e;
+            }
+            boolean available = streaming && lag != null && lag <= maxLagMillis;
+            if (available != replica.available || !replica.checked) {
+                if (available) {
+                    log.info("Replica {} available, {} ms behind the primary", replica.pool.getPoolName(), lag);
+                } else if (error != null) {
+                    log.warn("Replica {} unavailable: {}", replica.pool.getPoolName(), error.getMessage());
+                } else if (!streaming) {
+                    log.warn("Replica {} unavailable: not streaming from the primary", replica.pool.getPoolName());
+                } else {
+                    log.warn("Replica {} unavailable, {} ms behind the primary", replica.pool.getPoolName(),
+                            lag == null ? "unknown" : lag);
+                }
+                replica.available = available;
+                replica.checked = true;
+            }
+        }
+    }
+
+    /**
+     * A replica and whether it was available when last checked.
+     */
+    private static final class Replica {
+        private final HikariDataSource pool;
+        private volatile boolean available;
+        private boolean checked;
+
+        private Replica(HikariDataSource pool) {
+            this.pool = pool;
+        }
+    }
+
+    /**
+     * Gives out connections to the available replicas in turn, or to the primary.
+     */
+    private final class ReplicaDataSource extends AbstractDataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (!ReadRouting.isPrimaryRequired()) {
+                int first = next.getAndIncrement();
+                for (int i = 0; i < replicas.size(); i++) {
+                    Replica replica = replicas.get(Math.floorMod(first + i, replicas.size()));
+                    if (replica.available) {
+                        try {
+                            return replica.pool.getConnection();
+                        } catch (SQLException e) {
+                            log.warn("Replica {} unavailable: {}", replica.pool.getPoolName(), e.getMessage());
+                            replica.available = false;
+                        }
+                    }
+                }
+            }
+            return primary.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return getConnection();
+        }
+    }
+}
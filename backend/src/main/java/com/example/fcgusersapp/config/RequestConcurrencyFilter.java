@@ -0,0 +1,152 @@
+package com.example.fcgusersapp.config;
+
+import com.example.fcgusersapp.constants.Endpoint;
+import com.example.fcgusersapp.utils.ApiResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Bounds the number of API requests served at the same time.
+ * <p>
+ * With virtual threads every request gets its own thread, so a burst no longer queues in
+ * front of Tomcat but inside HikariCP, where requests wait for a connection until the pool
+ * times out. Requests beyond {@link RequestConcurrencyProperties#maxInFlight()} wait here
+ * instead, in arrival order, and are refused with {@code 503} once
+ * {@link RequestConcurrencyProperties#acquireTimeout()} elapses. Streamed exports only
+ * count until their response starts.
+ * <p>
+ * Without an explicit limit, requests are bounded by the connections they can get: the HikariCP
+ * pool, or with read replicas the pool of the primary plus those of the replicas currently
+ * available, the limit following the replicas as they become available or not.
+ * <p>
+ * It runs after {@link AdmissionControlFilter}, if enabled: requests refused there with
+ * {@code 429} never wait here.
+ */
+@Component
+@Order(AdmissionControlFilter.ORDER + 1)
+@ConditionalOnProperty(prefix = "app.web.concurrency", name = "enabled", havingValue = "true")
+public class RequestConcurrencyFilter extends OncePerRequestFilter {
+
+    private static final String API_PATH_PREFIX = "/" + Endpoint.USERS_ENDPOINT_ROOT;
+
+    private final IntSupplier maxInFlight;
+    private final Permits permits;
+    private volatile int limit;
+    private final long acquireTimeoutNanos;
+    private final ObjectMapper objectMapper;
+    private final Counter rejected;
+
+    public RequestConcurrencyFilter(RequestConcurrencyProperties properties, DataSource dataSource,
+                                    ObjectMapper objectMapper, MeterRegistry meterRegistry) throws SQLException {
+        this.maxInFlight = maxInFlight(properties, dataSource);
+        this.limit = maxInFlight.getAsInt();
+        this.permits = new Permits(limit);
+        this.acquireTimeoutNanos = properties.acquireTimeout().toNanos();
+        this.objectMapper = objectMapper;
+        this.rejected = Counter.builder("http.server.requests.rejected")
+                .description("API requests refused because too many were being served")
+                .register(meterRegistry);
+        Gauge.builder("http.server.requests.waiting", permits, Semaphore::getQueueLength)
+                .description("API requests waiting for their turn to be served")
+                .register(meterRegistry);
+    }
+
+    private static IntSupplier maxInFlight(RequestConcurrencyProperties properties, DataSource dataSource)
+            throws SQLException {
+        if (properties.maxInFlight() > 0) {
+            int maxInFlight = properties.maxInFlight();
+            return () -> maxInFlight;
+        }
+        if (dataSource.isWrapperFor(ReplicaRoutingDataSource.class)) {
+            return dataSource.unwrap(ReplicaRoutingDataSource.class)::getMaximumPoolSize;
+        }
+        int poolSize = dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+        return () -> poolSize;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(API_PATH_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        resize();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.increment();
+            response.setStatus(503);
+            response.setHeader("Retry-After", "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(),
+                    ApiResponse.errorResponse("Servizio sovraccarico, riprovare più tardi", "Troppe richieste in corso"));
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Follows changes of the limit, letting waiting requests in when it grows; when it shrinks,
+     * requests in flight keep their permits and the next ones wait for them to be released.
+     */
+    private void resize() {
+        int target = maxInFlight.getAsInt();
+        if (target == limit) {
+            return;
+        }
+        synchronized (this) {
+            int delta = target - limit;
+            if (delta > 0) {
+                permits.release(delta);
+            } else if (delta < 0) {
+                permits.reducePermits(-delta);
+            }
+            limit = target;
+        }
+    }
+
+    /**
+     * Fair semaphore whose permits can be taken away.
+     */
+    private static final class Permits extends Semaphore {
+
+        private Permits(int permits) {
+            super(permits, true);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
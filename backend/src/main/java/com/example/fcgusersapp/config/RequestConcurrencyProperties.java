@@ -0,0 +1,25 @@
+package com.example.fcgusersapp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Options of the limit on concurrently served API requests, bound from the
+ * {@code app.web.concurrency.*} properties; see {@link RequestConcurrencyFilter}.
+ *
+ * @param enabled        whether the limit applies; meant for the virtual-thread mode, where
+ *                       requests are no longer bounded by the size of the Tomcat thread pool
+ * @param maxInFlight    number of API requests served at the same time; 0 for the connections
+ *                       requests can hold, since every request holds at most one: the maximum size
+ *                       of the HikariCP pool, plus those of the available read replicas' pools
+ * @param acquireTimeout how long a request may wait for its turn before being refused
+ */
+@ConfigurationProperties(prefix = "app.web.concurrency")
+public record RequestConcurrencyProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("0") int maxInFlight,
+        @DefaultValue("2s") Duration acquireTimeout
+) {
+}
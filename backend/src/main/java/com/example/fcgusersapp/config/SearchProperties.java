@@ -0,0 +1,18 @@
+package com.example.fcgusersapp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Options of the paged users search, bound from the {@code app.search.*} properties.
+ *
+ * @param exactCountThreshold number of matches up to which the total of a search is counted
+ *                            exactly; larger totals are taken from the planner estimate and
+ *                            flagged as approximate, since counting them would cost more than
+ *                            reading the page
+ */
+@ConfigurationProperties(prefix = "app.search")
+public record SearchProperties(
+        @DefaultValue("100000") long exactCountThreshold
+) {
+}
@@ -0,0 +1,106 @@
+package com.example.fcgusersapp.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.QueryType;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts the SQL statements executed by the application.
+ * <p>
+ * Every statement increments {@value #STATEMENTS_METRIC}, tagged by statement type, and
+ * the statements run by the thread serving an HTTP request are recorded per endpoint in
+ * {@value #REQUEST_STATEMENTS_METRIC}: an endpoint whose count grows with the size of its
+ * input or output is issuing one query per row (N+1) instead of set-based statements.
+ * Statements run by background threads (async imports, streamed exports) only count globally.
+ * The duration of every statement is also reported to {@link DatabaseTime}.
+ */
+@Component
+public class SqlStatementMetrics implements QueryExecutionListener, AsyncHandlerInterceptor {
+
+    static final String STATEMENTS_METRIC = "db.sql.statements";
+    static final String REQUEST_STATEMENTS_METRIC = "http.server.requests.sql.statements";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final ThreadLocal<int[]> requestStatements = new ThreadLocal<>();
+    /**
+     * Meters already registered, by statement type and by request method and URI pattern, so that
+     * a statement does not look its meter up in the registry.
+     */
+    private final Map<QueryType, Counter> statementCounters = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> requestSummaries = new ConcurrentHashMap<>();
+
+    public SqlStatementMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        DatabaseTime.statementStarted();
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        int statements = execInfo.isBatch() ? Math.max(1, execInfo.getBatchSize()) : queryInfoList.size();
+        DatabaseTime.statementEnded(statements);
+        int[] count = requestStatements.get();
+        if (count != null) {
+            count[0] += statements;
+        }
+        QueryType type = queryInfoList.isEmpty() ? QueryType.OTHER : QueryUtils.getQueryType(queryInfoList.getFirst().getQuery());
+        statementCounters.computeIfAbsent(type, this::statementCounter).increment(statements);
+    }
+
+    private Counter statementCounter(QueryType type) {
+        return Counter.builder(STATEMENTS_METRIC)
+                .description("SQL statements executed through the application data source")
+                .tag("type", type.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry.getObject());
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        requestStatements.set(new int[1]);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        requestStatements.remove();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        int[] count = requestStatements.get();
+        if (count == null) {
+            return;
+        }
+        requestStatements.remove();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String method = request.getMethod();
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        requestSummaries.computeIfAbsent(method + ' ' + uri, key -> DistributionSummary.builder(REQUEST_STATEMENTS_METRIC)
+                        .description("SQL statements executed while serving an HTTP request")
+                        .tag("method", method)
+                        .tag("uri", uri)
+                        .register(meterRegistry.getObject()))
+                .record(count[0]);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.fcgusersapp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Options of the user cache, bound from the {@code app.cache.users.*} properties.
+ * <p>
+ * Size, expiration and statistics of the cache itself are configured through
+ * {@code spring.cache.caffeine.spec}.
+ *
+ * @param notifyEnabled whether invalidations are broadcast to the other backend
+ *                      instances through PostgreSQL {@code LISTEN/NOTIFY}
+ * @param notifyChannel the PostgreSQL channel used for the invalidations
+ */
+@ConfigurationProperties(prefix = "app.cache.users")
+public record UserCacheProperties(
+        @DefaultValue("false") boolean notifyEnabled,
+        @DefaultValue("users_cache") String notifyChannel
+) {
+}
@@ -0,0 +1,28 @@
+package com.example.fcgusersapp.config;
+
+import com.example.fcgusersapp.constants.Endpoint;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+
+/**
+ * Adds a strong {@code ETag} to the pages of users, computed from the response body, and
+ * answers the requests whose {@code If-None-Match} holds it with {@code 304 Not Modified}.
+ * <p>
+ * A page has no version of its own, so it is still read and serialized; only the unchanged
+ * bytes are spared to the network. Single users carry the version of their row as
+ * {@code ETag} instead, see {@link com.example.fcgusersapp.utils.VersionETags}.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class UserPageETagFilter extends ShallowEtagHeaderFilter {
+
+    private static final String USERS_PAGE_PATH = "/" + Endpoint.USERS_ENDPOINT_ROOT + Endpoint.GET_USERS.substring(1);
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.GET.matches(request.getMethod()) || !USERS_PAGE_PATH.equals(request.getRequestURI());
+    }
+}
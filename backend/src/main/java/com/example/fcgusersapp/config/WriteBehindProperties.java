@@ -0,0 +1,34 @@
+package com.example.fcgusersapp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Options of the write-behind mode of {@code PUT /user/{id}}, bound from the
+ * {@code app.write-behind.*} properties.
+ *
+ * @param enabled          whether updates without {@code If-Match} are queued and written in batches
+ *                         rather than in their own transaction
+ * @param flushInterval    how long an update may wait in the queue before being written
+ * @param flushSize        number of queued users triggering a write before the interval elapses
+ * @param stripes          number of independently locked parts of the queue
+ * @param journalDirectory directory of the journal of the queued updates, replayed at startup; it must
+ *                         survive a restart, so it should not be on a temporary file system, and has no
+ *                         default: the application does not start with write-behind enabled without it
+ * @param journalSync      whether every journal write is forced to the storage device, so that queued
+ *                         updates also survive a crash of the host and not only of the application;
+ *                         turning it off trades that for the cost of a sync per update
+ */
+@ConfigurationProperties(prefix = "app.write-behind")
+public record WriteBehindProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("200ms") Duration flushInterval,
+        @DefaultValue("500") int flushSize,
+        @DefaultValue("16") int stripes,
+        Path journalDirectory,
+        @DefaultValue("true") boolean journalSync
+) {
+}
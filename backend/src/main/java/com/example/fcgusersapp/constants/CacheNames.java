@@ -0,0 +1,29 @@
+package com.example.fcgusersapp.constants;
+
+/**
+ * Holds the names of the caches used in the application.
+ * <p>
+ * This is a utility class and cannot be instantiated.
+ */
+public class CacheNames {
+
+    /**
+     * Cache of the users looked up by ID, keyed by user ID.
+     */
+    public static final String USERS = "users";
+
+    /**
+     * Cache of the totals of the paged users search, keyed by search filter.
+     */
+    public static final String USER_COUNTS = "userCounts";
+
+    /**
+     * Private constructor to prevent instantiation.
+     *
+     * @throws IllegalStateException always, since this class is a utility
+     *                               class and should not be instantiated.
+     */
+    private CacheNames() {
+        throw new IllegalStateException("This class is a utility class and cannot be instantiated");
+    }
+}
@@ -18,6 +18,16 @@ public class DatabaseTableColumns {
      */
     public static final String USERS_TABLE_SCHEMA = "public";
 
+    /**
+     * Sequence allocating the IDs of the users.
+     */
+    public static final String USERS_ID_SEQUENCE = "users_id_seq";
+
+    /**
+     * Number of IDs reserved by every call to {@link #USERS_ID_SEQUENCE}, i.e. its increment.
+     */
+    public static final int USERS_ID_ALLOCATION_SIZE = 50;
+
     /**
      * Column name for the user's email address.
      */
@@ -38,6 +48,21 @@ public class DatabaseTableColumns {
      */
     public static final String USER_ADDRESS_COLUMN = "address";
 
+    /**
+     * Column name for the creation time of the user, set by the database.
+     */
+    public static final String USER_CREATED_AT_COLUMN = "created_at";
+
+    /**
+     * Column name for the last modification time of the user, set by the database.
+     */
+    public static final String USER_UPDATED_AT_COLUMN = "updated_at";
+
+    /**
+     * Column name for the version of the user, bumped by the database on every update.
+     */
+    public static final String USER_VERSION_COLUMN = "version";
+
     /**
      * Private constructor to prevent instantiation.
      *
@@ -31,6 +31,11 @@ public class Endpoint {
      */
     public static final String FIND_OR_UPDATE_USER = "/user/{id}";
 
+    /**
+     * Endpoint for finding a user by email, given as the {@code email} query parameter.
+     */
+    public static final String FIND_USER_BY_EMAIL = "/user";
+
     /**
      * Endpoint for deleting a user by ID.
      */
@@ -41,11 +46,51 @@ public class Endpoint {
      */
     public static final String GET_USERS = "/users";
 
+    /**
+     * Endpoint for retrieving all users with keyset (cursor) pagination.
+     */
+    public static final String SCROLL_USERS = "/users/scroll";
+
+    /**
+     * Endpoint for exporting all users as CSV or NDJSON.
+     */
+    public static final String EXPORT_USERS = "/users/export";
+
+    /**
+     * Endpoint for streaming the changes of the users after a cursor.
+     */
+    public static final String USER_CHANGES = "/users/changes";
+
+    /**
+     * Endpoint for creating (POST) or updating (PUT) several users at once.
+     */
+    public static final String BULK_USERS = "/users/bulk";
+
+    /**
+     * Endpoint for deleting several users at once.
+     */
+    public static final String BULK_DELETE_USERS = "/users/bulk/delete";
+
     /**
      * Endpoint for uploading a CSV file with user data.
      */
     public static final String UPLOAD_USER_CSV = "/upload-user-csv";
 
+    /**
+     * Endpoint for uploading a CSV file with user data, imported in the background.
+     */
+    public static final String UPLOAD_USER_CSV_ASYNC = "/upload-user-csv/async";
+
+    /**
+     * Endpoint for listing the asynchronous CSV import jobs.
+     */
+    public static final String IMPORT_JOBS = "/import-jobs";
+
+    /**
+     * Endpoint for retrieving the progress of an asynchronous CSV import job by ID.
+     */
+    public static final String IMPORT_JOB = "/import-jobs/{jobId}";
+
     /**
      * URL allowed for CORS requests from the frontend application.
      */
@@ -0,0 +1,233 @@
+package com.example.fcgusersapp.controller;
+
+import com.example.fcgusersapp.constants.Endpoint;
+import com.example.fcgusersapp.entity.User;
+import com.example.fcgusersapp.exceptions.CsvImportException;
+import com.example.fcgusersapp.repository.UserField;
+import com.example.fcgusersapp.service.ImportMode;
+import com.example.fcgusersapp.service.ReactiveUserService;
+import com.example.fcgusersapp.utils.ApiResponse;
+import com.example.fcgusersapp.utils.CountedPage;
+import com.example.fcgusersapp.utils.VersionETags;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.multipart.FilePartEvent;
+import org.springframework.http.codec.multipart.PartEvent;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Non-blocking variant of {@link UserController}, served by WebFlux when the application runs
+ * as a reactive web application ({@code reactive} profile), for deployments holding many
+ * concurrent connections on a few event-loop threads.
+ * <p>
+ * Exposes the same paths and responses for creating, reading, updating, deleting, searching
+ * and importing users; the keyset pagination, export, change feed, bulk and asynchronous
+ * import endpoints are only served by {@link UserController}. CSV uploads, and search results requested
+ * as {@code application/x-ndjson}, are streamed with backpressure instead of being held in memory.
+ */
+@CrossOrigin(origins = Endpoint.CORS_URL_FE, exposedHeaders = HttpHeaders.ETAG)
+@RestController
+@RequestMapping(Endpoint.USERS_ENDPOINT_ROOT)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserController {
+
+    /**
+     * Maximum number of users returned by a single search page.
+     */
+    private static final int MAX_SEARCH_SIZE = 10_000;
+
+    /**
+     * Name of the multipart part holding the uploaded CSV file.
+     */
+    private static final String CSV_FILE_PART = "file";
+
+    private final ReactiveUserService reactiveUserService;
+
+    public ReactiveUserController(ReactiveUserService reactiveUserService) {
+        this.reactiveUserService = reactiveUserService;
+    }
+
+    /**
+     * Creates a new user.
+     *
+     * @param user the user payload to persist
+     * @return {@code 200 OK} with a success {@link ApiResponse} containing the created user;
+     * {@code 409 Conflict} with an error {@link ApiResponse} if a unique constraint (email) is violated
+     * or a generic error occurs.
+     */
+    @PostMapping(Endpoint.ADD_USER)
+    public Mono<ResponseEntity<Object>> saveUser(@RequestBody User user) {
+        return reactiveUserService.saveUser(user)
+                .map(saved -> response(200, ApiResponse.successResponse("Utente inserito con successo", saved)))
+                .onErrorResume(DataIntegrityViolationException.class, e -> Mono.just(response(409,
+                        ApiResponse.errorResponse("Utente con e-mail " + user.getEmail() + " già presente", e.getMessage()))))
+                .onErrorResume(e -> Mono.just(response(409,
+                        ApiResponse.errorResponse("Errore nell'inserimento dell'utente", e.getMessage()))));
+    }
+
+    /**
+     * Updates an existing user identified by ID.
+     *
+     * @param user    the new data to apply to the user
+     * @param id      the ID of the user to update
+     * @param ifMatch optional {@code ETag}s of the user, as in {@link UserController#updateUser}
+     * @return {@code 200 OK} with a success {@link ApiResponse} containing the updated user, and its new {@code ETag};
+     * {@code 409 Conflict} with an error {@link ApiResponse} if the email is already used
+     * or the provided arguments are invalid;
+     * {@code 412 Precondition Failed} with an error {@link ApiResponse} if the user no longer matches {@code If-Match}.
+     */
+    @PutMapping(Endpoint.FIND_OR_UPDATE_USER)
+    public Mono<ResponseEntity<Object>> updateUser(@RequestBody User user, @PathVariable("id") Long id,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return reactiveUserService.editUser(user, id, VersionETags.parseIfMatch(ifMatch))
+                .map(updated -> ResponseEntity.status(200).eTag(VersionETags.format(updated.getVersion()))
+                        .body((Object) ApiResponse.successResponse("Utente modificato con successo", updated)))
+                .onErrorResume(OptimisticLockingFailureException.class, e -> Mono.just(response(412,
+                        ApiResponse.errorResponse("Utente modificato o cancellato nel frattempo", e.getMessage()))))
+                .onErrorResume(e -> e instanceof IllegalArgumentException || e instanceof DataIntegrityViolationException,
+                        e -> Mono.just(response(409, ApiResponse.errorResponse(
+                                "Utente con e-mail " + user.getEmail() + " già presente", e.getMessage()))));
+    }
+
+    /**
+     * Retrieves a user by ID, with its version as {@code ETag}; a request whose
+     * {@code If-None-Match} holds it is answered with {@code 304 Not Modified} and no body.
+     *
+     * @param id the user ID
+     * @return {@code 200 OK} with the {@link User} if found;
+     * {@code 404 NOT FOUND} if no user exists with the given ID
+     */
+    @GetMapping(Endpoint.FIND_OR_UPDATE_USER)
+    public Mono<ResponseEntity<User>> findUserById(@PathVariable("id") Long id) {
+        return reactiveUserService.findUserById(id)
+                .map(user -> ResponseEntity.ok().eTag(VersionETags.format(user.getVersion())).body(user))
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found")));
+    }
+
+    /**
+     * Searches users with optional filters and pagination, as {@link UserController#findAllUsers}.
+     * <p>
+     * Large totals are planner estimates rather than exact counts, flagged by {@code totalExact: false}.
+     *
+     * @param page    the zero-based page number; defaults to 0
+     * @param size    the page size, between 1 and {@value #MAX_SEARCH_SIZE}; defaults to 50
+     * @param name    optional filter to match (part of) the user's first name; may be {@code null}
+     * @param surname optional filter to match (part of) the user's last name; may be {@code null}
+     * @param fields  optional comma-separated fields to return, as in {@link UserController#findAllUsers}
+     * @return {@code 200 OK} with a {@link CountedPage} of users matching the criteria, sorted by {@code id} DESC
+     * and holding only the requested fields;
+     * {@code 400 BAD REQUEST} with an error {@link ApiResponse} if a field is invalid.
+     */
+    @GetMapping(path = Endpoint.GET_USERS, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Object>> findAllUsers(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String surname,
+            @RequestParam(required = false) String fields
+    ) {
+        return Mono.fromCallable(() -> UserField.parse(fields))
+                .flatMap(selected -> reactiveUserService.searchUsers(name, surname, selected, searchPage(page, size)))
+                .map(found -> response(200, found))
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(response(400,
+                        ApiResponse.errorResponse("Parametri di ricerca non validi", e.getMessage()))));
+    }
+
+    /**
+     * Searches users as {@link #findAllUsers}, streaming the page as one JSON user per line,
+     * as it is read and without a total count, for clients accepting {@code application/x-ndjson}.
+     *
+     * @return {@code 200 OK} with the users of the page matching the criteria, sorted by {@code id} DESC
+     * and holding only the requested fields;
+     * {@code 400 BAD REQUEST} with an error {@link ApiResponse} if a field is invalid.
+     */
+    @GetMapping(path = Endpoint.GET_USERS, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<Object>> streamAllUsers(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String surname,
+            @RequestParam(required = false) String fields
+    ) {
+        return Mono.fromCallable(() -> UserField.parse(fields))
+                .map(selected -> response(200, reactiveUserService.streamUsers(name, surname, selected, searchPage(page, size))))
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.status(400)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(ApiResponse.errorResponse("Parametri di ricerca non validi", e.getMessage()))));
+    }
+
+    /**
+     * Deletes a user by ID.
+     *
+     * @param id the ID of the user to delete
+     * @return {@code 200 OK} with a success {@link ApiResponse} if deletion succeeds;
+     * {@code 404 NOT FOUND} with an error {@link ApiResponse} if the user does not exist
+     * or the input is invalid.
+     */
+    @DeleteMapping(Endpoint.DELETE_USER)
+    public Mono<ResponseEntity<Object>> deleteUser(@PathVariable("id") Long id) {
+        return reactiveUserService.deleteUser(id)
+                .then(Mono.fromSupplier(() -> response(200, ApiResponse.successResponse("Utente  cancellato con successo"))))
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(response(404,
+                        ApiResponse.errorResponse("Errore nella cancellazione dell'utente", e.getMessage()))));
+    }
+
+    /**
+     * Imports users from a CSV file, reading it as it is uploaded.
+     *
+     * @param parts the multipart/form-data request, whose {@value #CSV_FILE_PART} part holds the CSV file
+     * @param mode  query parameter telling how rows whose email already exists are treated, as in
+     *              {@link UserController#uploadUsersCsv}
+     * @return {@code 200 OK} with an import report map (e.g., counts, errors);
+     * {@code 400 BAD REQUEST} with an error {@link ApiResponse} if the file is missing, the CSV or the mode is invalid;
+     * {@code 500 INTERNAL SERVER ERROR} with an error {@link ApiResponse} for unexpected failures.
+     */
+    @PostMapping(path = Endpoint.UPLOAD_USER_CSV, consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Mono<ResponseEntity<Object>> uploadUsersCsv(@RequestBody Flux<PartEvent> parts,
+                                                  @RequestParam(defaultValue = "insert_only") String mode) {
+        return Mono.fromCallable(() -> ImportMode.fromParameter(mode))
+                .flatMap(importMode -> parts
+                        .windowUntil(PartEvent::isLast)
+                        .concatMap(part -> part.switchOnFirst((first, events) -> {
+                            if (first.get() instanceof FilePartEvent file && CSV_FILE_PART.equals(file.name())) {
+                                return reactiveUserService.importUsersFromCsv(file.filename(),
+                                        events.map(PartEvent::content), importMode);
+                            }
+                            return events.doOnNext(event -> DataBufferUtils.release(event.content()))
+                                    .then(Mono.<Map<String, Object>>empty());
+                        }))
+                        .next()
+                        .switchIfEmpty(Mono.error(() -> new CsvImportException("File CSV mancante"))))
+                .map(report -> response(200, report))
+                .onErrorResume(CsvImportException.class, e -> Mono.just(response(400,
+                        ApiResponse.errorResponse("CSV non valido", e.getMessage()))))
+                .onErrorResume(e -> Mono.just(response(500,
+                        ApiResponse.errorResponse("Errore interno ", e.getMessage()))));
+    }
+
+    /**
+     * The requested search page, sorted by {@code id} DESC as the default of {@link UserController#findAllUsers}.
+     */
+    private static Pageable searchPage(int page, int size) {
+        return PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_SEARCH_SIZE),
+                Sort.by(Sort.Direction.DESC, "id"));
+    }
+
+    private static ResponseEntity<Object> response(int status, Object body) {
+        return ResponseEntity.status(status).body(body);
+    }
+}
@@ -3,36 +3,88 @@ package com.example.fcgusersapp.controller;
 import com.example.fcgusersapp.constants.Endpoint;
 import com.example.fcgusersapp.entity.User;
 import com.example.fcgusersapp.exceptions.CsvImportException;
+import com.example.fcgusersapp.exceptions.ImportTooLargeException;
+import com.example.fcgusersapp.exceptions.InvalidCursorException;
+import com.example.fcgusersapp.repository.UserField;
+import com.example.fcgusersapp.service.CsvImportJob;
+import com.example.fcgusersapp.service.CsvImportJobService;
+import com.example.fcgusersapp.service.CsvImportProgress;
+import com.example.fcgusersapp.service.ExportFormat;
+import com.example.fcgusersapp.service.ImportMode;
+import com.example.fcgusersapp.service.UserChangeFeedService;
+import com.example.fcgusersapp.service.UserExportService;
 import com.example.fcgusersapp.service.UserService;
 import com.example.fcgusersapp.utils.ApiResponse;
+import com.example.fcgusersapp.utils.CountedPage;
+import com.example.fcgusersapp.utils.CursorPage;
+import com.example.fcgusersapp.utils.VersionETags;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.data.domain.Page;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.data.web.SortDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * REST controller exposing CRUD and CSV-import endpoints for {@link User} resources.
  * All endpoints are rooted at {@link Endpoint#USERS_ENDPOINT_ROOT} and allow CORS
  * from {@link Endpoint#CORS_URL_FE}.
+ * <p>
+ * Served by Spring MVC; the {@code reactive} profile replaces it with {@link ReactiveUserController}.
  */
-@CrossOrigin(origins = Endpoint.CORS_URL_FE)
+@CrossOrigin(origins = Endpoint.CORS_URL_FE, exposedHeaders = HttpHeaders.ETAG)
 @RestController
 @RequestMapping(Endpoint.USERS_ENDPOINT_ROOT)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class UserController {
 
+    /**
+     * Maximum number of users returned by a single keyset page.
+     */
+    private static final int MAX_SCROLL_SIZE = 1000;
+
+    /**
+     * Maximum number of items accepted by a single bulk request.
+     */
+    private static final int MAX_BULK_ITEMS = 10_000;
+
+    /**
+     * Async timeout of the streamed responses: none, since an export or a change feed takes as
+     * long as the client needs to read it. Other async requests keep {@code spring.mvc.async.request-timeout}.
+     */
+    private static final long STREAMING_TIMEOUT_MILLIS = -1;
+
     private final UserService userService;
+    private final CsvImportJobService csvImportJobService;
+    private final UserExportService userExportService;
+    private final UserChangeFeedService userChangeFeedService;
 
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, CsvImportJobService csvImportJobService,
+                          UserExportService userExportService, UserChangeFeedService userChangeFeedService) {
         this.userService = userService;
+        this.csvImportJobService = csvImportJobService;
+        this.userExportService = userExportService;
+        this.userChangeFeedService = userChangeFeedService;
     }
 
     /**
@@ -60,19 +112,33 @@ public class UserController {
     /**
      * Updates an existing user identified by ID.
      *
-     * @param user the new data to apply to the user
-     * @param id   the ID of the user to update
-     * @return {@code 200 OK} with a success {@link ApiResponse} containing the updated user;
+     * @param user    the new data to apply to the user
+     * @param id      the ID of the user to update
+     * @param ifMatch optional {@code ETag}s of the user, as returned by {@link #findUserById}: the update
+     *                only applies if the user has not been modified since
+     * @return {@code 200 OK} with a success {@link ApiResponse} containing the updated user, and its new {@code ETag};
+     * {@code 202 ACCEPTED} with a success {@link ApiResponse} containing the user as it will be, without
+     * {@code ETag}, if the update is queued for a write-behind ({@code app.write-behind.enabled}, no {@code If-Match});
      * {@code 409 Conflict} with an error {@link ApiResponse} if the email is already used
-     * or the provided arguments are invalid.
+     * or the provided arguments are invalid;
+     * {@code 412 Precondition Failed} with an error {@link ApiResponse} if the user no longer matches {@code If-Match}.
      */
     @PutMapping(Endpoint.FIND_OR_UPDATE_USER)
-    public ResponseEntity<?> updateUser(@RequestBody User user, @PathVariable("id") Long id) {
+    public ResponseEntity<?> updateUser(@RequestBody User user, @PathVariable("id") Long id,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            User updateUser = this.userService.editUser(user, id);
-            return ResponseEntity.status(200).body(
+            if (ifMatch == null && userService.isWriteBehindEnabled()) {
+                return ResponseEntity.status(202).body(
+                        ApiResponse.successResponse("Modifica dell'utente accettata", userService.queueUserEdit(user, id))
+                );
+            }
+            userService.flushQueuedEdits(List.of(id));
+            User updateUser = this.userService.editUser(user, id, VersionETags.parseIfMatch(ifMatch));
+            return ResponseEntity.status(200).eTag(VersionETags.format(updateUser.getVersion())).body(
                     ApiResponse.successResponse("Utente modificato con successo", updateUser)
             );
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(412).body(ApiResponse.errorResponse("Utente modificato o cancellato nel frattempo", e.getMessage()));
         } catch (IllegalArgumentException | DataIntegrityViolationException e) {
             return ResponseEntity.status(409).body(ApiResponse.errorResponse("Utente con e-mail " + user.getEmail() + " già presente", e.getMessage()));
         }
@@ -80,34 +146,107 @@ public class UserController {
     }
 
     /**
-     * Retrieves a user by ID.
+     * Retrieves a user by ID, with its version as {@code ETag}.
+     * <p>
+     * A request whose {@code If-None-Match} holds the current {@code ETag} is answered with
+     * {@code 304 Not Modified} from the version alone, without loading nor serializing the user.
+     * A user whose update is still queued for a write-behind is returned with it, without {@code ETag}.
      *
-     * @param id the user ID
-     * @return {@code 200 OK} with the {@link User} if found
+     * @param id      the user ID
+     * @param request the current request, for its conditional headers
+     * @return {@code 200 OK} with the {@link User} if found; {@code 304 NOT MODIFIED} if it has not changed
      * @throws ResponseStatusException {@code 404 NOT FOUND} if no user exists with the given ID
      */
     @GetMapping(Endpoint.FIND_OR_UPDATE_USER)
-    public ResponseEntity<User> findUserById(@PathVariable("id") Long id) {
+    public ResponseEntity<User> findUserById(@PathVariable("id") Long id, WebRequest request) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<Long> version = userService.findUserVersion(id);
+            if (version.isPresent() && request.checkNotModified(VersionETags.format(version.get()))) {
+                return null;
+            }
+        }
         return userService.findUserById(id)
-                .map(ResponseEntity::ok)
+                .map(user -> user.getVersion() == null ? ResponseEntity.ok().body(user)
+                        : ResponseEntity.ok().eTag(VersionETags.format(user.getVersion())).body(user))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+    }
+
+    /**
+     * Retrieves a user by email, with its version as {@code ETag}.
+     * <p>
+     * Unused emails are mostly answered from memory, see {@link com.example.fcgusersapp.service.UserEmailIndex};
+     * an email just written by another backend instance may only be found after
+     * {@code app.email-index.refresh-interval}.
+     *
+     * @param email the email of the user, matched exactly
+     * @return {@code 200 OK} with the {@link User} if found
+     * @throws ResponseStatusException {@code 404 NOT FOUND} if no user has the given email
+     */
+    @GetMapping(path = Endpoint.FIND_USER_BY_EMAIL, params = "email")
+    public ResponseEntity<User> findUserByEmail(@RequestParam String email) {
+        return userService.findUserByEmail(email)
+                .map(user -> ResponseEntity.ok().eTag(VersionETags.format(user.getVersion())).body(user))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
     }
 
     /**
      * Searches users with optional filters and pagination.
+     * <p>
+     * Large totals are planner estimates rather than exact counts, flagged by {@code totalExact: false}.
      *
-     * @param pageable Spring Data paging/sorting information. Defaults to page size 50, sorted by {@code id} DESC.
+     * @param pageable Spring Data paging/sorting information, on any of the {@code fields}.
+     *                 Defaults to page size 50, sorted by {@code id} DESC.
      * @param name     optional filter to match (part of) the user's first name; may be {@code null}
      * @param surname  optional filter to match (part of) the user's last name; may be {@code null}
-     * @return a {@link Page} of users matching the criteria
+     * @param fields   optional comma-separated fields to return among {@code id}, {@code email}, {@code name},
+     *                 {@code surname}, {@code address}, {@code createdAt} and {@code updatedAt};
+     *                 defaults to all but the timestamps
+     * @return {@code 200 OK} with a {@link CountedPage} of users matching the criteria, holding only the requested fields;
+     * {@code 400 BAD REQUEST} with an error {@link ApiResponse} if a field or the sort is invalid.
      */
     @GetMapping(Endpoint.GET_USERS)
-    public Page<User> findAllUsers(
+    public ResponseEntity<?> findAllUsers(
             @PageableDefault(size = 50, sort = "id", direction = Sort.Direction.DESC) Pageable pageable,
             @RequestParam(required = false) String name,
+            @RequestParam(required = false) String surname,
+            @RequestParam(required = false) String fields
+    ) {
+        try {
+            return ResponseEntity.ok(userService.searchUsers(name, surname, UserField.parse(fields), pageable));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(ApiResponse.errorResponse("Parametri di ricerca non validi", e.getMessage()));
+        }
+    }
+
+    /**
+     * Searches users with optional filters and keyset (cursor) pagination.
+     * <p>
+     * No total count is computed and every page costs the same regardless of its depth;
+     * the next page is requested by passing back the {@code next} cursor of the previous one.
+     *
+     * @param sort    sorting on {@code id}, {@code email}, {@code name}, {@code surname} or {@code address}.
+     *                Defaults to {@code id} DESC; {@code id} is always used as the last sort key.
+     * @param size    maximum number of users in the page, between 1 and {@value #MAX_SCROLL_SIZE}; defaults to 50
+     * @param after   optional cursor returned as {@code next} by the previous page
+     * @param name    optional filter to match (part of) the user's first name; may be {@code null}
+     * @param surname optional filter to match (part of) the user's last name; may be {@code null}
+     * @return {@code 200 OK} with a {@link CursorPage} of users matching the criteria;
+     * {@code 400 BAD REQUEST} with an error {@link ApiResponse} if the sort or the cursor is invalid.
+     */
+    @GetMapping(Endpoint.SCROLL_USERS)
+    public ResponseEntity<?> scrollUsers(
+            @SortDefault(sort = "id", direction = Sort.Direction.DESC) Sort sort,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String name,
             @RequestParam(required = false) String surname
     ) {
-        return userService.searchUsers(name, surname, pageable);
+        try {
+            int pageSize = Math.min(Math.max(size, 1), MAX_SCROLL_SIZE);
+            return ResponseEntity.ok(userService.scrollUsers(name, surname, sort, pageSize, after));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(ApiResponse.errorResponse("Parametri di paginazione non validi", e.getMessage()));
+        }
     }
 
     /**
@@ -121,6 +260,7 @@ public class UserController {
     @DeleteMapping(Endpoint.DELETE_USER)
     public ResponseEntity<?> deleteUser(@PathVariable("id") Long id) {
         try {
+            userService.flushQueuedEdits(List.of(id));
             this.userService.deleteUser(id);
             return ResponseEntity.status(200).body(
                     ApiResponse.successResponse("Utente  cancellato con successo")
@@ -130,23 +270,294 @@ public class UserController {
         }
     }
 
+    /**
+     * Exports the users, optionally filtered, streaming them as they are read from the database.
+     *
+     * @param format  {@code csv} (default), in the format accepted by {@link Endpoint#UPLOAD_USER_CSV},
+     *                or {@code ndjson}, one JSON user per line
+     * @param name    optional filter to match (part of) the user's first name; may be {@code null}
+     * @param surname optional filter to match (part of) the user's last name; may be {@code null}
+     * @return {@code 200 OK} with the users ordered by ID, as an attachment
+     * @throws ResponseStatusException {@code 400 BAD REQUEST} if the format is not supported
+     */
+    @GetMapping(Endpoint.EXPORT_USERS)
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String surname,
+            WebRequest request
+    ) {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Export format not supported");
+        }
+        StreamingResponseBody body = out -> userExportService.exportUsers(name, surname, exportFormat, out);
+        disableAsyncTimeout(request);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=users." + exportFormat.getExtension())
+                .body(body);
+    }
+
+    /**
+     * Streams the changes of the users made after a cursor, for incremental synchronization.
+     * <p>
+     * Changes are written as NDJSON in the order they were made, as described by
+     * {@link UserChangeFeedService#streamChanges}; the {@code cursor} of the last change
+     * processed is passed back as {@code since} to resume the feed right after it.
+     *
+     * @param since optional cursor of the last change seen; without it, the feed starts from the
+     *              first change, i.e. all the users and the retained deletions
+     * @param limit optional maximum number of changes to return; all of them by default
+     * @return {@code 200 OK} with the changes following the cursor
+     * @throws ResponseStatusException {@code 400 BAD REQUEST} if the cursor or the limit is invalid;
+     *                                 {@code 410 GONE} if the cursor is older than the retained deletions,
+     *                                 so that a full synchronization is needed
+     */
+    @GetMapping(Endpoint.USER_CHANGES)
+    public ResponseEntity<StreamingResponseBody> streamUserChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) Long limit,
+            WebRequest request
+    ) {
+        if (limit != null && limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid limit");
+        }
+        UserChangeFeedService.Position position;
+        try {
+            position = userChangeFeedService.position(since);
+        } catch (InvalidCursorException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (userChangeFeedService.isExpired(position)) {
+            throw new ResponseStatusException(HttpStatus.GONE, "Cursor expired, a full synchronization is needed");
+        }
+        StreamingResponseBody body = out -> userChangeFeedService.streamChanges(position,
+                limit == null ? Long.MAX_VALUE : limit, out);
+        disableAsyncTimeout(request);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Lifts the async timeout of the current request only, before its streamed response starts.
+     */
+    private static void disableAsyncTimeout(WebRequest request) {
+        AsyncWebRequest asyncWebRequest = WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest();
+        if (asyncWebRequest != null) {
+            asyncWebRequest.setTimeout(STREAMING_TIMEOUT_MILLIS);
+        }
+    }
+
+    /**
+     * Creates several users in one transaction.
+     *
+     * @param users the users to create, at most {@value #MAX_BULK_ITEMS}
+     * @return {@code 200 OK} with a bulk {@link ApiResponse} holding the outcome of every item
+     * (created, conflict, invalid); {@code 400 BAD REQUEST} with an error {@link ApiResponse}
+     * if the request holds too many items.
+     */
+    @PostMapping(Endpoint.BULK_USERS)
+    public ResponseEntity<?> saveUsers(@RequestBody List<User> users) {
+        if (users.size() > MAX_BULK_ITEMS) {
+            return tooManyBulkItems();
+        }
+        return ResponseEntity.ok(ApiResponse.bulkResponse(userService.createUsers(users)));
+    }
+
+    /**
+     * Updates several users, identified by their IDs, in one transaction.
+     *
+     * @param users the new data of the users, at most {@value #MAX_BULK_ITEMS}
+     * @return {@code 200 OK} with a bulk {@link ApiResponse} holding the outcome of every item
+     * (updated, conflict, not found, invalid); {@code 400 BAD REQUEST} with an error {@link ApiResponse}
+     * if the request holds too many items; {@code 409 Conflict} with an error {@link ApiResponse}
+     * if another request takes one of the new emails meanwhile, in which case nothing is updated.
+     * Users swapping their emails within the request are reported as conflicts, and left unchanged.
+     */
+    @PutMapping(Endpoint.BULK_USERS)
+    public ResponseEntity<?> updateUsers(@RequestBody List<User> users) {
+        if (users.size() > MAX_BULK_ITEMS) {
+            return tooManyBulkItems();
+        }
+        userService.flushQueuedEdits(users.stream().filter(Objects::nonNull).map(User::getId).toList());
+        try {
+            return ResponseEntity.ok(ApiResponse.bulkResponse(userService.updateUsers(users)));
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.status(409).body(ApiResponse.errorResponse("E-mail già presente, nessun utente modificato", e.getMessage()));
+        }
+    }
+
+    /**
+     * Deletes several users, identified by their IDs, in one transaction.
+     *
+     * @param ids the IDs of the users to delete, at most {@value #MAX_BULK_ITEMS}
+     * @return {@code 200 OK} with a bulk {@link ApiResponse} holding the outcome of every item
+     * (deleted, conflict, not found, invalid); {@code 400 BAD REQUEST} with an error {@link ApiResponse}
+     * if the request holds too many items.
+     */
+    @PostMapping(Endpoint.BULK_DELETE_USERS)
+    public ResponseEntity<?> deleteUsers(@RequestBody List<Long> ids) {
+        if (ids.size() > MAX_BULK_ITEMS) {
+            return tooManyBulkItems();
+        }
+        userService.flushQueuedEdits(ids);
+        return ResponseEntity.ok(ApiResponse.bulkResponse(userService.deleteUsers(ids)));
+    }
+
+    private ResponseEntity<?> tooManyBulkItems() {
+        return ResponseEntity.status(400).body(ApiResponse.errorResponse("Richiesta non valida",
+                "Al massimo " + MAX_BULK_ITEMS + " elementi per richiesta"));
+    }
+
     /**
      * Imports users from a CSV file.
+     * <p>
+     * Multipart uploads are spooled to a temporary file before being imported, up to
+     * {@code app.import.max-upload-size}; very large files are better sent as the request body,
+     * see {@link #uploadUsersCsvBody}.
      *
-     * @param file the uploaded CSV file (multipart/form-data) containing user records
+     * @param file the uploaded CSV file (multipart/form-data) containing user records, plain or gzip-compressed
+     * @param mode how rows whose email already exists are treated: {@code insert_only} (reported as duplicates),
+     *             {@code upsert} (existing users updated) or {@code skip_existing} (silently skipped)
      * @return {@code 200 OK} with an import report map (e.g., counts, errors);
-     * {@code 400 BAD REQUEST} with an error {@link ApiResponse} if the CSV is invalid;
+     * {@code 400 BAD REQUEST} with an error {@link ApiResponse} if the CSV or the mode is invalid;
+     * {@code 413 PAYLOAD TOO LARGE} with an error {@link ApiResponse} if the decompressed file exceeds
+     * {@code app.import.max-csv-size}, the rows read before being stored anyway;
      * {@code 500 INTERNAL SERVER ERROR} with an error {@link ApiResponse} for unexpected failures.
      */
     @PostMapping(path = Endpoint.UPLOAD_USER_CSV, consumes = "multipart/form-data")
-    public ResponseEntity<?> uploadUsersCsv(@RequestPart("file") MultipartFile file) {
+    public ResponseEntity<?> uploadUsersCsv(@RequestPart("file") MultipartFile file,
+                                            @RequestParam(defaultValue = "insert_only") String mode) {
+        try {
+            Map<String, Object> report = userService.importUsersFromCsv(file, ImportMode.fromParameter(mode));
+            return ResponseEntity.ok(report);
+        } catch (ImportTooLargeException e) {
+            return importTooLarge(e);
+        } catch (CsvImportException e) {
+            return ResponseEntity.status(400).body(ApiResponse.errorResponse("CSV non valido", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(ApiResponse.errorResponse("Errore interno ", e.getMessage()));
+        }
+    }
+
+    /**
+     * Imports users from a CSV file sent as the request body, plain or gzip-compressed.
+     * <p>
+     * The body is imported as it is received, without being buffered in memory or spooled to a
+     * temporary file as multipart uploads are, so this is the way to import very large files.
+     *
+     * @param body          the request body, holding the CSV file
+     * @param contentLength the declared length of the body, absent for a chunked upload
+     * @param mode          how rows whose email already exists are treated, as in {@link #uploadUsersCsv}
+     * @return {@code 200 OK} with an import report map (e.g., counts, errors);
+     * {@code 400 BAD REQUEST} with an error {@link ApiResponse} if the CSV or the mode is invalid;
+     * {@code 413 PAYLOAD TOO LARGE} with an error {@link ApiResponse} if the file exceeds the import limits,
+     * the rows read before being stored anyway;
+     * {@code 500 INTERNAL SERVER ERROR} with an error {@link ApiResponse} for unexpected failures.
+     */
+    @PostMapping(path = Endpoint.UPLOAD_USER_CSV, consumes = {"text/csv", "application/gzip", "application/octet-stream"})
+    public ResponseEntity<?> uploadUsersCsvBody(InputStream body,
+                                                @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength,
+                                                @RequestParam(defaultValue = "insert_only") String mode) {
         try {
-            Map<String, Object> report = userService.importUsersFromCsv(file);
+            Map<String, Object> report = userService.importUsersFromCsv(body, contentLength, ImportMode.fromParameter(mode));
             return ResponseEntity.ok(report);
+        } catch (ImportTooLargeException e) {
+            return importTooLarge(e);
         } catch (CsvImportException e) {
             return ResponseEntity.status(400).body(ApiResponse.errorResponse("CSV non valido", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(ApiResponse.errorResponse("Errore interno ", e.getMessage()));
         }
     }
+
+    /**
+     * Imports users from a CSV file in the background.
+     *
+     * @param file the uploaded CSV file (multipart/form-data) containing user records
+     * @param mode how rows whose email already exists are treated, as in {@link #uploadUsersCsv}
+     * @return {@code 202 ACCEPTED} with the queued job, to be polled on {@link Endpoint#IMPORT_JOB};
+     * {@code 400 BAD REQUEST} with an error {@link ApiResponse} if the file is not a CSV or the mode is invalid;
+     * {@code 503 SERVICE UNAVAILABLE} with an error {@link ApiResponse} if too many imports are pending.
+     */
+    @PostMapping(path = Endpoint.UPLOAD_USER_CSV_ASYNC, consumes = "multipart/form-data")
+    public ResponseEntity<?> uploadUsersCsvAsync(@RequestPart("file") MultipartFile file,
+                                                 @RequestParam(defaultValue = "insert_only") String mode) {
+        try {
+            CsvImportJob job = csvImportJobService.submit(file, ImportMode.fromParameter(mode));
+            return ResponseEntity.status(202).body(importJobResponse(job));
+        } catch (CsvImportException e) {
+            return ResponseEntity.status(400).body(ApiResponse.errorResponse("CSV non valido", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(503).body(ApiResponse.errorResponse("Troppi import in corso, riprovare più tardi", e.getMessage()));
+        }
+    }
+
+    /**
+     * Imports users from a CSV file sent as the request body in the background, the body being
+     * written to the spool directory as it is received, compressed or not.
+     *
+     * @param body          the request body, holding the CSV file, plain or gzip-compressed
+     * @param contentLength the declared length of the body, absent for a chunked upload
+     * @param mode          how rows whose email already exists are treated, as in {@link #uploadUsersCsv}
+     * @return {@code 202 ACCEPTED} with the queued job, to be polled on {@link Endpoint#IMPORT_JOB};
+     * {@code 400 BAD REQUEST} with an error {@link ApiResponse} if the mode is invalid or the upload fails;
+     * {@code 413 PAYLOAD TOO LARGE} with an error {@link ApiResponse} if the file exceeds the upload limit;
+     * {@code 503 SERVICE UNAVAILABLE} with an error {@link ApiResponse} if too many imports are pending.
+     */
+    @PostMapping(path = Endpoint.UPLOAD_USER_CSV_ASYNC, consumes = {"text/csv", "application/gzip", "application/octet-stream"})
+    public ResponseEntity<?> uploadUsersCsvBodyAsync(InputStream body,
+                                                     @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength,
+                                                     @RequestParam(defaultValue = "insert_only") String mode) {
+        try {
+            CsvImportJob job = csvImportJobService.submit(body, contentLength, ImportMode.fromParameter(mode));
+            return ResponseEntity.status(202).body(importJobResponse(job));
+        } catch (ImportTooLargeException e) {
+            return importTooLarge(e);
+        } catch (CsvImportException e) {
+            return ResponseEntity.status(400).body(ApiResponse.errorResponse("CSV non valido", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(503).body(ApiResponse.errorResponse("Troppi import in corso, riprovare più tardi", e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<?> importTooLarge(ImportTooLargeException e) {
+        return ResponseEntity.status(413).body(ApiResponse.errorResponse("File CSV troppo grande", e.getMessage()));
+    }
+
+    private static Map<String, Object> importJobResponse(CsvImportJob job) {
+        CsvImportProgress progress = job.getProgress();
+        return ApiResponse.importJobResponse(job.getId(), job.getStatus().name(), job.getFilename(), job.getMode().name(),
+                job.getSubmittedAt(), job.getFinishedAt(), progress.getRowsParsed(), progress.getUsersInserted(),
+                progress.getUsersUpdated(), progress.getUsersUnchanged(), progress.getUsersRejected(),
+                progress.getRowsPerSecond(), job.getReport(), job.getError());
+    }
+
+    /**
+     * Lists the asynchronous CSV import jobs still known to the server.
+     *
+     * @return {@code 200 OK} with the progress of every job, oldest first
+     */
+    @GetMapping(Endpoint.IMPORT_JOBS)
+    public List<Map<String, Object>> findAllImportJobs() {
+        return csvImportJobService.findAllJobs().stream()
+                .map(UserController::importJobResponse)
+                .toList();
+    }
+
+    /**
+     * Retrieves the progress, and once finished the report, of an asynchronous CSV import job.
+     *
+     * @param jobId the job ID returned by {@link Endpoint#UPLOAD_USER_CSV_ASYNC}
+     * @return {@code 200 OK} with the job progress
+     * @throws ResponseStatusException {@code 404 NOT FOUND} if the job is unknown or no longer retained
+     */
+    @GetMapping(Endpoint.IMPORT_JOB)
+    public Map<String, Object> findImportJob(@PathVariable("jobId") String jobId) {
+        return csvImportJobService.findJob(jobId)
+                .map(UserController::importJobResponse)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Import job not found"));
+    }
 }
@@ -1,12 +1,17 @@
 package com.example.fcgusersapp.entity;
 
 import com.example.fcgusersapp.constants.DatabaseTableColumns;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.OffsetDateTime;
+
 /**
  * JPA entity representing an application user.
  * <p>
@@ -23,10 +28,15 @@ public class User {
 
     /**
      * Primary key of the user.
-     * Generated automatically with identity strategy.
+     * <p>
+     * Allocated by Hibernate from blocks of {@link DatabaseTableColumns#USERS_ID_ALLOCATION_SIZE}
+     * values of {@link DatabaseTableColumns#USERS_ID_SEQUENCE}, before the insert: unlike an
+     * identity column, this lets inserts be batched.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = DatabaseTableColumns.USERS_ID_SEQUENCE)
+    @SequenceGenerator(name = DatabaseTableColumns.USERS_ID_SEQUENCE, schema = DatabaseTableColumns.USERS_TABLE_SCHEMA,
+            sequenceName = DatabaseTableColumns.USERS_ID_SEQUENCE, allocationSize = DatabaseTableColumns.USERS_ID_ALLOCATION_SIZE)
     private Long id;
 
     /**
@@ -60,4 +70,36 @@ public class User {
      */
     @Column(name = DatabaseTableColumns.USER_ADDRESS_COLUMN, nullable = false)
     private String address;
+
+    /**
+     * Creation time of the user.
+     * <p>
+     * Set by the database on insert and never written by the application; only
+     * present in the responses of the reads that load it.
+     */
+    @Column(name = DatabaseTableColumns.USER_CREATED_AT_COLUMN, insertable = false, updatable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private OffsetDateTime createdAt;
+
+    /**
+     * Last modification time of the user.
+     * <p>
+     * Set by the database on insert and update and never written by the application;
+     * only present in the responses of the reads that load it.
+     */
+    @Column(name = DatabaseTableColumns.USER_UPDATED_AT_COLUMN, insertable = false, updatable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private OffsetDateTime updatedAt;
+
+    /**
+     * Version of the user, bumped by the database on every update.
+     * <p>
+     * Never written by the application; sent as the {@code ETag} of the user
+     * rather than in its JSON payload.
+     */
+    @Column(name = DatabaseTableColumns.USER_VERSION_COLUMN, insertable = false, updatable = false)
+    @JsonIgnore
+    private Long version;
 }
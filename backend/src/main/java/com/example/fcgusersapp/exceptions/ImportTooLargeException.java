@@ -0,0 +1,14 @@
+package com.example.fcgusersapp.exceptions;
+
+/**
+ * Exception thrown when an uploaded CSV file exceeds the import limits, either as
+ * received or once decompressed.
+ * <p>
+ * It is a {@link CsvImportException}, so callers not telling it apart report it as an
+ * invalid file.
+ */
+public class ImportTooLargeException extends CsvImportException {
+    public ImportTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.fcgusersapp.exceptions;
+
+/**
+ * Exception thrown when a pagination or synchronization cursor sent by a client cannot be used.
+ * <p>
+ * Cursors are opaque to clients but not signed, so a malformed, truncated or forged token,
+ * or one issued for another query, is reported with this exception rather than reaching the query.
+ */
+public class InvalidCursorException extends IllegalArgumentException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+
+    public InvalidCursorException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.fcgusersapp.repository;
+
+import com.example.fcgusersapp.constants.DatabaseTableColumns;
+import com.example.fcgusersapp.entity.User;
+import io.r2dbc.spi.Readable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Function;
+
+/**
+ * Non-blocking repository of the users table, on R2DBC, for the reactive variant of the API.
+ * <p>
+ * Statements are the same as those of {@link UserJdbcRepository}, with named parameters; the
+ * multi-row insert and upsert are its own, formatted with named parameters.
+ * Results are streamed as the rows arrive, with backpressure: a slow subscriber makes the
+ * driver stop reading from the connection instead of buffering rows.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserRepository {
+
+    private static final String INSERT_SQL = """
+            insert into public.users (email, name, surname, address)
+            values (:email, :name, :surname, :address)
+            returning id, email, name, surname, address, version
+            """;
+
+    private static final String ALLOCATE_ID_BLOCKS_SQL = """
+            select nextval('public.%s') from generate_series(1, :blocks)
+            """.formatted(DatabaseTableColumns.USERS_ID_SEQUENCE);
+
+    /**
+     * Named array parameters of the multi-row statements of {@link UserJdbcRepository}.
+     */
+    private static final String COLUMN_ARRAY_PARAMETERS = """
+            cast(:ids as bigint[]), cast(:emails as varchar[]), cast(:names as text[]), \
+            cast(:surnames as text[]), cast(:addresses as text[])""";
+
+    private static final String INSERT_IGNORING_DUPLICATES_SQL =
+            UserJdbcRepository.INSERT_IGNORING_DUPLICATES_TEMPLATE.formatted(COLUMN_ARRAY_PARAMETERS);
+
+    private static final String UPSERT_SQL = UserJdbcRepository.UPSERT_TEMPLATE.formatted(COLUMN_ARRAY_PARAMETERS);
+
+    private static final String UPDATE_SQL = """
+            update public.users
+            set email = :email, name = :name, surname = :surname, address = :address
+            where id = :id %s
+            returning id, email, name, surname, address, version
+            """;
+
+    private static final String DELETE_SQL = """
+            delete from public.users
+            where id = :id
+            """;
+
+    private static final String FIND_ALL_SQL = """
+            select id, email, name, surname, address, version
+            from public.users
+            """;
+
+    private static final String BOUNDED_COUNT_SQL = """
+            select count(*)
+            from (select 1 from public.users%s limit :limit) matches
+            """;
+
+    private static final String ESTIMATE_COUNT_SQL = """
+            explain (format json) select 1 from public.users%s
+            """;
+
+    private static final String NOTIFY_SQL = "select pg_notify(:channel, :payload)";
+
+    /**
+     * Number of rows requested per round trip when streaming search results.
+     */
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private static final Function<Readable, User> USER_ROW_MAPPER = row -> User.builder()
+            .id(row.get("id", Long.class))
+            .email(row.get("email", String.class))
+            .name(row.get("name", String.class))
+            .surname(row.get("surname", String.class))
+            .address(row.get("address", String.class))
+            .version(row.get("version", Long.class))
+            .build();
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveUserRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Inserts a new user; any ID it carries is ignored.
+     *
+     * @param user the user to insert
+     * @return the inserted user, with its generated ID
+     * @throws org.springframework.dao.DuplicateKeyException (signalled) if the email is already present
+     */
+    public Mono<User> insert(User user) {
+        return databaseClient.sql(INSERT_SQL)
+                .bind("email", user.getEmail())
+                .bind("name", user.getName())
+                .bind("surname", user.getSurname())
+                .bind("address", user.getAddress())
+                .map(USER_ROW_MAPPER)
+                .one();
+    }
+
+    /**
+     * @param id the user ID
+     * @return the user, or empty if no user with the given ID exists
+     */
+    public Mono<User> findById(Long id) {
+        return databaseClient.sql(FIND_ALL_SQL + " where id = :id")
+                .bind("id", id)
+                .map(USER_ROW_MAPPER)
+                .one();
+    }
+
+    /**
+     * Overwrites the data of a user with a single statement, without reading it first.
+     *
+     * @param id               the ID of the user to update
+     * @param user             the new data of the user
+     * @param expectedVersions the versions the user may currently have for the update to apply,
+     *                         {@code null} to update it whatever its version
+     * @return the updated user, with its new version; empty if no user with the given ID exists
+     * or its version is not one of the expected ones
+     * @throws org.springframework.dao.DuplicateKeyException (signalled) if the new email belongs to another user
+     */
+    public Mono<User> update(Long id, User user, Collection<Long> expectedVersions) {
+        DatabaseClient.GenericExecuteSpec statement = databaseClient
+                .sql(UPDATE_SQL.formatted(expectedVersions == null ? "" : "and version = any(cast(:versions as bigint[]))"))
+                .bind("email", user.getEmail())
+                .bind("name", user.getName())
+                .bind("surname", user.getSurname())
+                .bind("address", user.getAddress())
+                .bind("id", id);
+        if (expectedVersions != null) {
+            statement = statement.bind("versions", expectedVersions.toArray(Long[]::new));
+        }
+        return statement.map(USER_ROW_MAPPER).one();
+    }
+
+    /**
+     * @param id the ID of the user to delete
+     * @return {@code true} if the user existed and was deleted
+     */
+    public Mono<Boolean> delete(Long id) {
+        return databaseClient.sql(DELETE_SQL)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated()
+                .map(rows -> rows > 0);
+    }
+
+    /**
+     * Reads a page of the users matching a filter, most recent first, selecting only the
+     * requested columns and streaming them {@value #STREAM_FETCH_SIZE} rows per round trip.
+     *
+     * @param filter the users to read
+     * @param fields the fields to read, at least one
+     * @param offset the number of matching users to skip
+     * @param limit  the maximum number of users to read
+     * @return the users, ordered by ID descending
+     */
+    public Flux<UserView> findAll(UserSearchFilter filter, Set<UserField> fields, long offset, int limit) {
+        Map<String, Object> args = new HashMap<>();
+        StringJoiner columns = new StringJoiner(", ", "select ", " from public.users");
+        fields.forEach(field -> columns.add(field.column()));
+        String sql = columns + filter.toNamedSqlWhereClause(args) + " order by id desc limit :limit offset :offset";
+        args.put("limit", limit);
+        args.put("offset", offset);
+        return databaseClient.sql(sql)
+                .bindValues(args)
+                .filter(statement -> statement.fetchSize(STREAM_FETCH_SIZE))
+                .map(row -> toView(row, fields))
+                .all();
+    }
+
+    /**
+     * Counts the users matching a filter, reading at most {@code limit} of them,
+     * as {@link UserJdbcRepository#count}.
+     *
+     * @param filter the users to count
+     * @param limit  the maximum number of users to count
+     * @return the number of matching users, at most {@code limit}
+     */
+    public Mono<Long> count(UserSearchFilter filter, long limit) {
+        Map<String, Object> args = new HashMap<>();
+        String sql = BOUNDED_COUNT_SQL.formatted(filter.toNamedSqlWhereClause(args));
+        args.put("limit", limit);
+        return databaseClient.sql(sql)
+                .bindValues(args)
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .defaultIfEmpty(0L);
+    }
+
+    /**
+     * Estimates the number of users matching a filter from the planner statistics,
+     * as {@link UserJdbcRepository#estimateCount}.
+     *
+     * @param filter the users to count
+     * @return the planner estimate of the number of matching users
+     */
+    public Mono<Long> estimateCount(UserSearchFilter filter) {
+        Map<String, Object> args = new HashMap<>();
+        String sql = ESTIMATE_COUNT_SQL.formatted(filter.toNamedSqlWhereClause(args));
+        return databaseClient.sql(sql)
+                .bindValues(args)
+                .map(row -> UserJdbcRepository.planRows(row.get(0, String.class)))
+                .one()
+                .defaultIfEmpty(0L);
+    }
+
+    private static UserView toView(Readable row, Set<UserField> fields) {
+        return new UserView(
+                fields.contains(UserField.ID) ? row.get(UserField.ID.column(), Long.class) : null,
+                fields.contains(UserField.EMAIL) ? row.get(UserField.EMAIL.column(), String.class) : null,
+                fields.contains(UserField.NAME) ? row.get(UserField.NAME.column(), String.class) : null,
+                fields.contains(UserField.SURNAME) ? row.get(UserField.SURNAME.column(), String.class) : null,
+                fields.contains(UserField.ADDRESS) ? row.get(UserField.ADDRESS.column(), String.class) : null,
+                fields.contains(UserField.CREATED_AT) ? row.get(UserField.CREATED_AT.column(), OffsetDateTime.class) : null,
+                fields.contains(UserField.UPDATED_AT) ? row.get(UserField.UPDATED_AT.column(), OffsetDateTime.class) : null);
+    }
+
+    /**
+     * Inserts all the given users with a single statement, skipping the ones
+     * whose email is already present in the table.
+     *
+     * @param users the users to insert; emails are expected to be distinct
+     * @return the generated IDs of the inserted users, keyed by email
+     */
+    public Mono<Map<String, Long>> insertIgnoringDuplicates(List<User> users) {
+        return allocateIds(users.size())
+                .flatMap(ids -> bindColumns(databaseClient.sql(INSERT_IGNORING_DUPLICATES_SQL), ids, users)
+                        .map(row -> Map.entry(row.get("email", String.class), row.get("id", Long.class)))
+                        .all()
+                        .collectMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    /**
+     * Inserts all the given users with a single statement, overwriting the name, surname
+     * and address of the ones whose email is already present, when they differ.
+     *
+     * @param users the users to insert or update; emails are expected to be distinct
+     * @return the IDs of the inserted and of the updated users, keyed by email;
+     * users found identical in the table appear in neither
+     */
+    public Mono<UserJdbcRepository.UpsertResult> upsert(List<User> users) {
+        return allocateIds(users.size())
+                .flatMap(ids -> bindColumns(databaseClient.sql(UPSERT_SQL), ids, users)
+                        .map(row -> new UpsertedRow(row.get("id", Long.class), row.get("email", String.class),
+                                Boolean.TRUE.equals(row.get("inserted", Boolean.class))))
+                        .all()
+                        .collect(() -> new UserJdbcRepository.UpsertResult(new HashMap<>(), new HashMap<>()),
+                                (result, row) -> (row.inserted() ? result.inserted() : result.updated()).put(row.email(), row.id())));
+    }
+
+    /**
+     * Reserves IDs for new users, as {@link UserJdbcRepository#allocateIds}.
+     *
+     * @param count the number of IDs to reserve, at least one
+     * @return the reserved IDs
+     */
+    private Mono<Long[]> allocateIds(int count) {
+        return databaseClient.sql(ALLOCATE_ID_BLOCKS_SQL)
+                .bind("blocks", UserJdbcRepository.idBlockCount(count))
+                .map(row -> row.get(0, Long.class))
+                .all()
+                .collectList()
+                .map(blocks -> UserJdbcRepository.idsFromBlocks(blocks, count));
+    }
+
+    private record UpsertedRow(Long id, String email, boolean inserted) {
+    }
+
+    /**
+     * Sends a notification on a PostgreSQL channel; within a transaction,
+     * it is only delivered once the transaction commits.
+     *
+     * @param channel the channel name
+     * @param payload the notification payload
+     */
+    public Mono<Void> notify(String channel, String payload) {
+        return databaseClient.sql(NOTIFY_SQL)
+                .bind("channel", channel)
+                .bind("payload", payload)
+                .then();
+    }
+
+    /**
+     * Binds one array parameter per column of the users.
+     */
+    private static DatabaseClient.GenericExecuteSpec bindColumns(DatabaseClient.GenericExecuteSpec spec, Long[] ids,
+                                                                 List<User> users) {
+        return spec.bind("ids", ids)
+                .bind("emails", users.stream().map(User::getEmail).toArray(String[]::new))
+                .bind("names", users.stream().map(User::getName).toArray(String[]::new))
+                .bind("surnames", users.stream().map(User::getSurname).toArray(String[]::new))
+                .bind("addresses", users.stream().map(User::getAddress).toArray(String[]::new));
+    }
+}
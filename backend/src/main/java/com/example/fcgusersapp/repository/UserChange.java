@@ -0,0 +1,18 @@
+package com.example.fcgusersapp.repository;
+
+import java.time.OffsetDateTime;
+
+/**
+ * A change of the users table, as read by {@link UserJdbcRepository#streamChanges}.
+ *
+ * @param id        the ID of the changed user
+ * @param changedAt when the user was last inserted or updated, or when it was deleted
+ * @param deleted   whether the user was deleted, in which case only the ID is known
+ * @param email     the current email of the user, {@code null} if deleted
+ * @param name      the current first name of the user, {@code null} if deleted
+ * @param surname   the current surname of the user, {@code null} if deleted
+ * @param address   the current address of the user, {@code null} if deleted
+ */
+public record UserChange(long id, OffsetDateTime changedAt, boolean deleted,
+                         String email, String name, String surname, String address) {
+}
@@ -0,0 +1,83 @@
+package com.example.fcgusersapp.repository;
+
+import com.example.fcgusersapp.constants.DatabaseTableColumns;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Fields of a user that list responses can select, with the column of the users table
+ * each one is read from.
+ */
+public enum UserField {
+    ID("id", "id"),
+    EMAIL("email", DatabaseTableColumns.USERS_MAIL_NAME),
+    NAME("name", DatabaseTableColumns.USERS_NAME_COLUMN),
+    SURNAME("surname", DatabaseTableColumns.USER_SURNAME_COLUMN),
+    ADDRESS("address", DatabaseTableColumns.USER_ADDRESS_COLUMN),
+    CREATED_AT("createdAt", DatabaseTableColumns.USER_CREATED_AT_COLUMN),
+    UPDATED_AT("updatedAt", DatabaseTableColumns.USER_UPDATED_AT_COLUMN);
+
+    /**
+     * Fields returned when none are requested: the ones of the {@code User} JSON payload.
+     */
+    public static final Set<UserField> DEFAULT = EnumSet.of(ID, EMAIL, NAME, SURNAME, ADDRESS);
+
+    private final String property;
+    private final String column;
+
+    UserField(String property, String column) {
+        this.property = property;
+        this.column = column;
+    }
+
+    /**
+     * @return the name of the field in the JSON responses and in the {@code sort} parameter
+     */
+    public String property() {
+        return property;
+    }
+
+    /**
+     * @return the column of the users table holding the field
+     */
+    public String column() {
+        return column;
+    }
+
+    /**
+     * Finds a field by its property name, or by its column name.
+     *
+     * @param name the property or column name, case-insensitive
+     * @return the field
+     * @throws IllegalArgumentException if no field has that name
+     */
+    public static UserField fromName(String name) {
+        for (UserField field : values()) {
+            if (field.property.equalsIgnoreCase(name) || field.column.equalsIgnoreCase(name)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown user field: " + name);
+    }
+
+    /**
+     * Parses a {@code fields} request parameter.
+     *
+     * @param fields comma-separated field names, see {@link #fromName}; {@code null} or blank for {@link #DEFAULT}
+     * @return the selected fields
+     * @throws IllegalArgumentException if a field name is unknown
+     */
+    public static Set<UserField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return DEFAULT;
+        }
+        Set<UserField> selected = EnumSet.noneOf(UserField.class);
+        for (String name : fields.split(",")) {
+            if (!name.isBlank()) {
+                selected.add(fromName(name.strip()));
+            }
+        }
+        return selected.isEmpty() ? DEFAULT : selected;
+    }
+}
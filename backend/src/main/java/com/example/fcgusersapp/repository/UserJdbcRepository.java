@@ -0,0 +1,701 @@
+package com.example.fcgusersapp.repository;
+
+import com.example.fcgusersapp.constants.DatabaseTableColumns;
+import com.example.fcgusersapp.entity.User;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Plain JDBC repository for set-based operations on the users table that
+ * are too expensive to run entity by entity through {@link UserRepository}.
+ * <p>
+ * Every method is timed, like the Spring Data repositories are by Actuator.
+ */
+@Repository
+@Timed(value = "user.jdbc.repository.invocations", description = "Duration of UserJdbcRepository invocations")
+public class UserJdbcRepository {
+
+    /**
+     * Blocks of {@value DatabaseTableColumns#USERS_ID_ALLOCATION_SIZE} IDs from the users sequence,
+     * as many as requested, each starting at the returned value.
+     */
+    private static final String ALLOCATE_ID_BLOCKS_SQL = """
+            select nextval('public.%s') from generate_series(1, ?)
+            """.formatted(DatabaseTableColumns.USERS_ID_SEQUENCE);
+
+    /**
+     * Multi-row insert fed by one array parameter per column, IDs included, given by the {@code %s}
+     * placeholder. The emails are claimed first in the {@code users_emails} table (see V6), where
+     * the {@code on conflict} clause skips the ones already used, and only the users whose email
+     * was claimed are inserted, instead of failing the whole statement.
+     * <p>
+     * Also run by {@link ReactiveUserRepository}, with named parameters.
+     */
+    static final String INSERT_IGNORING_DUPLICATES_TEMPLATE = """
+            with input as (select *
+                           from unnest(%s)
+                                    as t(id, email, name, surname, address)),
+                 claimed as (insert into public.users_emails (email, id)
+                             select email, id from input
+                             on conflict (email) do nothing
+                             returning id)
+            insert into public.users (id, email, name, surname, address)
+            select input.* from input join claimed using (id)
+            returning id, email
+            """;
+
+    /**
+     * Multi-row upsert fed by one array parameter per column, IDs included, given by the {@code %s}
+     * placeholder. Unused emails are claimed and their users inserted, as by
+     * {@link #INSERT_IGNORING_DUPLICATES_TEMPLATE}; the owners of the used ones are found in
+     * {@code users_emails} and only rewritten when their data differs, so unchanged rows produce
+     * no new row version and are not returned. An email claimed by a concurrent transaction after
+     * the statement started is neither inserted nor updated.
+     * <p>
+     * Also run by {@link ReactiveUserRepository}, with named parameters.
+     */
+    static final String UPSERT_TEMPLATE = """
+            with input as (select *
+                           from unnest(%s)
+                                    as t(id, email, name, surname, address)),
+                 claimed as (insert into public.users_emails (email, id)
+                             select email, id from input
+                             on conflict (email) do nothing
+                             returning id),
+                 inserted as (insert into public.users (id, email, name, surname, address)
+                              select input.* from input join claimed using (id)
+                              returning id, email),
+                 updated as (update public.users u
+                             set name = t.name, surname = t.surname, address = t.address
+                             from input t join public.users_emails e on e.email = t.email
+                             where u.id = e.id
+                               and (u.name, u.surname, u.address) is distinct from (t.name, t.surname, t.address)
+                             returning u.id, u.email)
+            select id, email, true as inserted from inserted
+            union all
+            select id, email, false from updated
+            """;
+
+    /**
+     * Array parameters of the templates above: IDs, emails, names, surnames and addresses.
+     */
+    private static final String COLUMN_ARRAY_PARAMETERS = "?::bigint[], ?::varchar[], ?::text[], ?::text[], ?::text[]";
+
+    private static final String INSERT_IGNORING_DUPLICATES_SQL =
+            INSERT_IGNORING_DUPLICATES_TEMPLATE.formatted(COLUMN_ARRAY_PARAMETERS);
+
+    private static final String UPSERT_SQL = UPSERT_TEMPLATE.formatted(COLUMN_ARRAY_PARAMETERS);
+
+    /**
+     * Single-row update, optionally conditioned on the current version of the row
+     * ({@code and version = any(?::bigint[])}).
+     */
+    private static final String UPDATE_SQL = """
+            update public.users
+            set email = ?, name = ?, surname = ?, address = ?
+            where id = ? %s
+            returning id, email, name, surname, address, version
+            """;
+
+    /**
+     * Multi-row update fed by one array parameter per column. Rows whose new email
+     * already belongs to another user are left untouched instead of failing the
+     * whole statement.
+     */
+    private static final String UPDATE_ALL_SQL = """
+            update public.users u
+            set email = t.email, name = t.name, surname = t.surname, address = t.address
+            from unnest(?::bigint[], ?::varchar[], ?::text[], ?::text[], ?::text[])
+                     as t(id, email, name, surname, address)
+            where u.id = t.id
+              and not exists (select 1 from public.users_emails o where o.email = t.email and o.id <> t.id)
+            returning u.id
+            """;
+
+    private static final String DELETE_ALL_SQL = """
+            delete from public.users
+            where id = any(?::bigint[])
+            returning id
+            """;
+
+    private static final String FIND_EXISTING_IDS_SQL = """
+            select id from public.users
+            where id = any(?::bigint[])
+            """;
+
+    private static final String FIND_IDS_BY_EMAIL_SQL = """
+            select id, email from public.users_emails
+            where email = any(?::varchar[])
+            """;
+
+    /**
+     * Emails of the users, all of them or those inserted or updated since a time
+     * ({@code where updated_at >= ?}), through the change feed index.
+     */
+    private static final String FIND_EMAILS_SQL = """
+            select email from public.users %s
+            """;
+
+    private static final String FIND_ALL_SQL = """
+            select id, email, name, surname, address, version
+            from public.users
+            """;
+
+    private static final String FIND_VERSION_SQL = """
+            select version from public.users
+            where id = ?
+            """;
+
+    /**
+     * Counts the matches of a filter, up to a limit: only as many rows as the limit are read.
+     */
+    private static final String BOUNDED_COUNT_SQL = """
+            select count(*)
+            from (select 1 from public.users%s limit ?) matches
+            """;
+
+    /**
+     * Asks the planner how many users match a filter, without running the query.
+     */
+    private static final String ESTIMATE_COUNT_SQL = """
+            explain (format json) select 1 from public.users%s
+            """;
+
+    /**
+     * Row estimate of the top plan node, the first one of the JSON plan.
+     */
+    private static final Pattern PLAN_ROWS = Pattern.compile("\"Plan Rows\":\\s*(\\d+)");
+
+    /**
+     * Changes after a keyset position, merged from the users (inserts and updates) and from
+     * their tombstones (deletes): each branch reads its {@code (time, id)} index in order,
+     * up to the limit, only returning changes older than the settle delay.
+     */
+    private static final String FIND_CHANGES_SQL = """
+            select id, changed_at, deleted, email, name, surname, address
+            from ((select id, updated_at as changed_at, false as deleted, email, name, surname, address
+                   from public.users
+                   where updated_at < statement_timestamp() - ? * interval '1 millisecond' %1$s
+                   order by updated_at, id
+                   limit ?)
+                  union all
+                  (select id, deleted_at, true, null, null, null, null
+                   from public.users_tombstones
+                   where deleted_at < statement_timestamp() - ? * interval '1 millisecond' %2$s
+                   order by deleted_at, id
+                   limit ?)) changes
+            order by changed_at, id, deleted
+            limit ?
+            """;
+
+    private static final String DELETE_TOMBSTONES_SQL = """
+            delete from public.users_tombstones
+            where deleted_at < statement_timestamp() - ? * interval '1 millisecond'
+            """;
+
+    /**
+     * Creates the partitions of the users table missing up to some partitions ahead of the
+     * sequence, see {@code create_users_partitions} in V6.
+     */
+    private static final String CREATE_PARTITIONS_SQL = """
+            select * from public.create_users_partitions(?)
+            """;
+
+    /**
+     * Number of rows fetched per round trip when streaming the table.
+     */
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private static final RowMapper<User> USER_ROW_MAPPER = (rs, rowNum) -> User.builder()
+            .id(rs.getLong("id"))
+            .email(rs.getString("email"))
+            .name(rs.getString("name"))
+            .surname(rs.getString("surname"))
+            .address(rs.getString("address"))
+            .version(rs.getLong("version"))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts all the given users with a single statement, skipping the ones
+     * whose email is already present in the table.
+     * <p>
+     * IDs are allocated beforehand in blocks, see {@link #allocateIds}; the ones
+     * of the skipped users are left unused.
+     *
+     * @param users the users to insert; emails are expected to be distinct
+     * @return the generated IDs of the inserted users, keyed by email
+     */
+    public Map<String, Long> insertIgnoringDuplicates(List<User> users) {
+        Map<String, Long> inserted = new HashMap<>();
+        if (users.isEmpty()) {
+            return inserted;
+        }
+        Long[] ids = allocateIds(users.size());
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_IGNORING_DUPLICATES_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            ps.setArray(2, toArray(con, "varchar", users, User::getEmail));
+            ps.setArray(3, toArray(con, "text", users, User::getName));
+            ps.setArray(4, toArray(con, "text", users, User::getSurname));
+            ps.setArray(5, toArray(con, "text", users, User::getAddress));
+            return ps;
+        }, rs -> {
+            inserted.put(rs.getString("email"), rs.getLong("id"));
+        });
+        return inserted;
+    }
+
+    /**
+     * Inserts all the given users with a single statement, overwriting the name, surname
+     * and address of the ones whose email is already present, when they differ.
+     *
+     * @param users the users to insert or update; emails are expected to be distinct
+     * @return the IDs of the inserted and of the updated users, keyed by email;
+     * users found identical in the table appear in neither
+     */
+    public UpsertResult upsert(List<User> users) {
+        UpsertResult result = new UpsertResult(new HashMap<>(), new HashMap<>());
+        if (users.isEmpty()) {
+            return result;
+        }
+        Long[] ids = allocateIds(users.size());
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(UPSERT_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            ps.setArray(2, toArray(con, "varchar", users, User::getEmail));
+            ps.setArray(3, toArray(con, "text", users, User::getName));
+            ps.setArray(4, toArray(con, "text", users, User::getSurname));
+            ps.setArray(5, toArray(con, "text", users, User::getAddress));
+            return ps;
+        }, rs -> {
+            (rs.getBoolean("inserted") ? result.inserted() : result.updated())
+                    .put(rs.getString("email"), rs.getLong("id"));
+        });
+        return result;
+    }
+
+    /**
+     * Reserves IDs for new users, in blocks of {@value DatabaseTableColumns#USERS_ID_ALLOCATION_SIZE}
+     * taken from the users sequence with a single statement, as Hibernate does for the entities it
+     * persists, instead of drawing a whole block per row through the column default.
+     *
+     * @param count the number of IDs to reserve, at least one
+     * @return the reserved IDs
+     */
+    public Long[] allocateIds(int count) {
+        List<Long> blocks = jdbcTemplate.queryForList(ALLOCATE_ID_BLOCKS_SQL, Long.class, idBlockCount(count));
+        return idsFromBlocks(blocks, count);
+    }
+
+    /**
+     * @param count a number of IDs
+     * @return the number of blocks holding that many IDs
+     */
+    static int idBlockCount(int count) {
+        return (count + DatabaseTableColumns.USERS_ID_ALLOCATION_SIZE - 1) / DatabaseTableColumns.USERS_ID_ALLOCATION_SIZE;
+    }
+
+    /**
+     * Expands blocks of IDs, given by their first ID, into the requested number of IDs.
+     */
+    static Long[] idsFromBlocks(List<Long> blocks, int count) {
+        Long[] ids = new Long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = blocks.get(i / DatabaseTableColumns.USERS_ID_ALLOCATION_SIZE)
+                    + i % DatabaseTableColumns.USERS_ID_ALLOCATION_SIZE;
+        }
+        return ids;
+    }
+
+    /**
+     * Outcome of {@link #upsert(List)}.
+     *
+     * @param inserted IDs of the inserted users, keyed by email
+     * @param updated  IDs of the updated users, keyed by email
+     */
+    public record UpsertResult(Map<String, Long> inserted, Map<String, Long> updated) {
+    }
+
+    /**
+     * Overwrites the data of a user with a single statement, without reading it first.
+     *
+     * @param id               the ID of the user to update
+     * @param user             the new data of the user
+     * @param expectedVersions the versions the user may currently have for the update to apply,
+     *                         {@code null} to update it whatever its version
+     * @return the updated user, with its new version; empty if no user with the given ID exists
+     * or its version is not one of the expected ones
+     * @throws org.springframework.dao.DuplicateKeyException if the new email belongs to another user
+     */
+    public Optional<User> update(Long id, User user, Collection<Long> expectedVersions) {
+        if (expectedVersions == null) {
+            return jdbcTemplate.query(UPDATE_SQL.formatted(""), USER_ROW_MAPPER,
+                    user.getEmail(), user.getName(), user.getSurname(), user.getAddress(), id).stream().findFirst();
+        }
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(UPDATE_SQL.formatted("and version = any(?::bigint[])"));
+            ps.setString(1, user.getEmail());
+            ps.setString(2, user.getName());
+            ps.setString(3, user.getSurname());
+            ps.setString(4, user.getAddress());
+            ps.setLong(5, id);
+            ps.setArray(6, con.createArrayOf("bigint", expectedVersions.toArray()));
+            return ps;
+        }, USER_ROW_MAPPER).stream().findFirst();
+    }
+
+    /**
+     * Reads the version of a user, without the rest of the row.
+     *
+     * @param id the user ID
+     * @return the current version of the user, or empty if no user with the given ID exists
+     */
+    public Optional<Long> findVersion(Long id) {
+        return jdbcTemplate.queryForList(FIND_VERSION_SQL, Long.class, id).stream().findFirst();
+    }
+
+    /**
+     * Overwrites the data of all the given users with a single statement, skipping
+     * the ones whose new email already belongs to another user.
+     *
+     * @param users the new data of the users, identified by their IDs; IDs and emails are expected to be distinct
+     * @return the IDs of the updated users
+     */
+    public Set<Long> updateAll(List<User> users) {
+        Set<Long> updated = new HashSet<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(UPDATE_ALL_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", users.stream().map(User::getId).toArray()));
+            ps.setArray(2, toArray(con, "varchar", users, User::getEmail));
+            ps.setArray(3, toArray(con, "text", users, User::getName));
+            ps.setArray(4, toArray(con, "text", users, User::getSurname));
+            ps.setArray(5, toArray(con, "text", users, User::getAddress));
+            return ps;
+        }, rs -> {
+            updated.add(rs.getLong("id"));
+        });
+        return updated;
+    }
+
+    /**
+     * Deletes all the given users with a single statement.
+     *
+     * @param ids the IDs of the users to delete
+     * @return the IDs of the users actually deleted
+     */
+    public Set<Long> deleteAll(Collection<Long> ids) {
+        return queryIds(DELETE_ALL_SQL, ids);
+    }
+
+    /**
+     * Checks which of the given IDs belong to an existing user.
+     *
+     * @param ids the IDs to look for
+     * @return the IDs found in the table
+     */
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        return queryIds(FIND_EXISTING_IDS_SQL, ids);
+    }
+
+    /**
+     * Finds the users owning the given emails.
+     *
+     * @param emails the emails to look for
+     * @return the IDs of the users found, keyed by email
+     */
+    public Map<String, Long> findIdsByEmail(Collection<String> emails) {
+        Map<String, Long> found = new HashMap<>();
+        if (emails.isEmpty()) {
+            return found;
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(FIND_IDS_BY_EMAIL_SQL);
+            ps.setArray(1, con.createArrayOf("varchar", emails.toArray()));
+            return ps;
+        }, rs -> {
+            found.put(rs.getString("email"), rs.getLong("id"));
+        });
+        return found;
+    }
+
+    /**
+     * Reads the emails of the users one by one, through a server-side cursor as {@link #streamAll}:
+     * callers must run in a transaction.
+     * <p>
+     * The start time of the transaction is read first: it is the {@code updated_at} of the rows
+     * written by the transactions starting after it, which the emails may miss.
+     *
+     * @param changedSince the minimum {@code updated_at} of the users to read, {@code null} to read them all
+     * @param consumer     receives every email, in no particular order
+     * @return the start time of the current transaction
+     */
+    public OffsetDateTime streamEmails(OffsetDateTime changedSince, Consumer<String> consumer) {
+        OffsetDateTime transactionStart = jdbcTemplate.queryForObject("select now()", OffsetDateTime.class);
+        String sql = FIND_EMAILS_SQL.formatted(changedSince == null ? "" : "where updated_at >= ?");
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            if (changedSince != null) {
+                ps.setObject(1, changedSince);
+            }
+            return ps;
+        }, rs -> {
+            consumer.accept(rs.getString("email"));
+        });
+        return transactionStart;
+    }
+
+    /**
+     * Reads the users matching a filter one by one, ordered by ID.
+     * <p>
+     * Rows are fetched {@value #STREAM_FETCH_SIZE} at a time through a server-side cursor,
+     * which the PostgreSQL driver only opens within a transaction: callers must run in one
+     * for the memory usage to stay constant.
+     *
+     * @param filter   the users to read
+     * @param consumer receives every user, in order
+     */
+    public void streamAll(UserSearchFilter filter, UserConsumer consumer) {
+        List<Object> args = new ArrayList<>();
+        String sql = FIND_ALL_SQL + filter.toSqlWhereClause(args) + " order by id";
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            for (int i = 0; i < args.size(); i++) {
+                ps.setObject(i + 1, args.get(i));
+            }
+            return ps;
+        }, rs -> {
+            try {
+                consumer.accept(USER_ROW_MAPPER.mapRow(rs, 0));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Reads a page of the users matching a filter, selecting only the requested columns.
+     * <p>
+     * Rows are mapped straight to {@link UserView}s, without going through the persistence
+     * context. One row more than the page size is read to tell whether another page follows,
+     * so that no count is needed for that.
+     *
+     * @param filter   the users to read
+     * @param fields   the fields to read, at least one
+     * @param pageable the page and its sort, on any {@link UserField}; unsorted pages are ordered by ID
+     * @return the page of users
+     * @throws org.springframework.dao.InvalidDataAccessApiUsageException if the sort is on an unknown field
+     */
+    public Slice<UserView> findSlice(UserSearchFilter filter, Set<UserField> fields, Pageable pageable) {
+        List<Object> args = new ArrayList<>();
+        StringJoiner columns = new StringJoiner(", ", "select ", " from public.users");
+        fields.forEach(field -> columns.add(field.column()));
+        StringBuilder sql = new StringBuilder(columns.toString())
+                .append(filter.toSqlWhereClause(args))
+                .append(orderBy(pageable.getSort()));
+        if (pageable.isPaged()) {
+            sql.append(" limit ? offset ?");
+            args.add(pageable.getPageSize() + 1);
+            args.add(pageable.getOffset());
+        }
+        List<UserView> content = jdbcTemplate.query(sql.toString(),
+                (rs, rowNum) -> toView(rs, fields), args.toArray());
+        boolean hasNext = pageable.isPaged() && content.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+    }
+
+    /**
+     * Counts the users matching a filter, reading at most {@code limit} of them.
+     *
+     * @param filter the users to count
+     * @param limit  the maximum number of users to read
+     * @return the number of matching users, or {@code limit} if there are at least as many
+     */
+    public long count(UserSearchFilter filter, long limit) {
+        List<Object> args = new ArrayList<>();
+        String sql = BOUNDED_COUNT_SQL.formatted(filter.toSqlWhereClause(args));
+        args.add(limit);
+        Long count = jdbcTemplate.queryForObject(sql, Long.class, args.toArray());
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Estimates the number of users matching a filter from the planner statistics, which
+     * costs the same whatever the number of matches. The estimate is only as accurate as the
+     * statistics gathered by {@code ANALYZE}, and rougher for filters than for the whole table.
+     *
+     * @param filter the users to count
+     * @return the planner estimate of the number of matching users
+     */
+    public long estimateCount(UserSearchFilter filter) {
+        List<Object> args = new ArrayList<>();
+        String plan = jdbcTemplate.queryForObject(ESTIMATE_COUNT_SQL.formatted(filter.toSqlWhereClause(args)),
+                String.class, args.toArray());
+        return planRows(plan);
+    }
+
+    /**
+     * @param plan a query plan, as returned by {@code explain (format json)}; may be {@code null}
+     * @return the number of rows the planner expects the query to return, 0 if unknown
+     */
+    public static long planRows(String plan) {
+        Matcher matcher = PLAN_ROWS.matcher(plan == null ? "" : plan);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : 0;
+    }
+
+    /**
+     * Renders a sort as a SQL {@code order by} clause, {@code id} being used when it is unsorted.
+     */
+    private static String orderBy(Sort sort) {
+        if (sort.isUnsorted()) {
+            return " order by id";
+        }
+        StringJoiner orders = new StringJoiner(", ", " order by ", "");
+        for (Sort.Order order : sort) {
+            orders.add(UserField.fromName(order.getProperty()).column() + (order.isAscending() ? " asc" : " desc"));
+        }
+        return orders.toString();
+    }
+
+    private static UserView toView(ResultSet rs, Set<UserField> fields) throws SQLException {
+        return new UserView(
+                fields.contains(UserField.ID) ? rs.getLong(UserField.ID.column()) : null,
+                fields.contains(UserField.EMAIL) ? rs.getString(UserField.EMAIL.column()) : null,
+                fields.contains(UserField.NAME) ? rs.getString(UserField.NAME.column()) : null,
+                fields.contains(UserField.SURNAME) ? rs.getString(UserField.SURNAME.column()) : null,
+                fields.contains(UserField.ADDRESS) ? rs.getString(UserField.ADDRESS.column()) : null,
+                fields.contains(UserField.CREATED_AT) ? rs.getObject(UserField.CREATED_AT.column(), OffsetDateTime.class) : null,
+                fields.contains(UserField.UPDATED_AT) ? rs.getObject(UserField.UPDATED_AT.column(), OffsetDateTime.class) : null);
+    }
+
+    /**
+     * Reads the changes of the users table after a position, in the order they were made.
+     * <p>
+     * Rows are fetched {@value #STREAM_FETCH_SIZE} at a time, as by {@link #streamAll}: callers
+     * must run in a transaction for the memory usage to stay constant.
+     *
+     * @param afterTime   the change time of the position, or {@code null} to read from the first change
+     * @param afterId     the user ID of the position, ignored if {@code afterTime} is {@code null}
+     * @param settleDelay the minimum age of the changes to read
+     * @param limit       the maximum number of changes to read
+     * @param consumer    receives every change, ordered by time then user ID
+     */
+    public void streamChanges(OffsetDateTime afterTime, long afterId, Duration settleDelay, long limit,
+                              UserChangeConsumer consumer) {
+        String sql = afterTime == null
+                ? FIND_CHANGES_SQL.formatted("", "")
+                : FIND_CHANGES_SQL.formatted("and (updated_at, id) > (?, ?)", "and (deleted_at, id) > (?, ?)");
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            int i = 0;
+            for (int branch = 0; branch < 2; branch++) {
+                ps.setLong(++i, settleDelay.toMillis());
+                if (afterTime != null) {
+                    ps.setObject(++i, afterTime);
+                    ps.setLong(++i, afterId);
+                }
+                ps.setLong(++i, limit);
+            }
+            ps.setLong(++i, limit);
+            return ps;
+        }, rs -> {
+            try {
+                consumer.accept(new UserChange(rs.getLong("id"), rs.getObject("changed_at", OffsetDateTime.class),
+                        rs.getBoolean("deleted"), rs.getString("email"), rs.getString("name"),
+                        rs.getString("surname"), rs.getString("address")));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Removes the tombstones of the users deleted before the given age.
+     *
+     * @param retention the age of the oldest tombstones to keep
+     * @return the number of removed tombstones
+     */
+    public int deleteTombstones(Duration retention) {
+        return jdbcTemplate.update(DELETE_TOMBSTONES_SQL, retention.toMillis());
+    }
+
+    /**
+     * Creates the partitions of the users table that the next IDs of the sequence need, so that
+     * inserts never miss one. Creating a partition briefly locks the table; it is given up if
+     * statements hold the table for more than a second, to be retried later.
+     *
+     * @param ahead the number of partitions to create after the one holding the next IDs
+     * @return the names of the created partitions, usually none
+     */
+    public List<String> createPartitions(int ahead) {
+        return jdbcTemplate.queryForList(CREATE_PARTITIONS_SQL, String.class, ahead);
+    }
+
+    /**
+     * Receives the changes read by {@link #streamChanges}, typically to write them out.
+     */
+    @FunctionalInterface
+    public interface UserChangeConsumer {
+        void accept(UserChange change) throws IOException;
+    }
+
+    /**
+     * Receives the users read by {@link #streamAll}, typically to write them out.
+     */
+    @FunctionalInterface
+    public interface UserConsumer {
+        void accept(User user) throws IOException;
+    }
+
+    private Set<Long> queryIds(String sql, Collection<Long> ids) {
+        Set<Long> found = new HashSet<>();
+        if (ids.isEmpty()) {
+            return found;
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("bigint", ids.toArray()));
+            return ps;
+        }, rs -> {
+            found.add(rs.getLong("id"));
+        });
+        return found;
+    }
+
+    /**
+     * Builds a SQL array of the given type out of one column of the users.
+     */
+    private static Array toArray(Connection con, String type, List<User> users,
+                                 Function<User, String> column) throws SQLException {
+        return con.createArrayOf(type, users.stream().map(column).toArray());
+    }
+}
@@ -1,14 +1,32 @@
 package com.example.fcgusersapp.repository;
 
 import com.example.fcgusersapp.entity.User;
-import org.springframework.data.domain.Page;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface UserRepository extends JpaRepository<User, Long> {
+import java.util.Optional;
+
+/**
+ * Spring Data repository for {@link User} entities.
+ * <p>
+ * Searches are expressed as {@link UserSearchFilter} specifications, so that only the
+ * requested columns are filtered and the trigram indexes on them can be used. The table is
+ * partitioned by ID: queries on the ID only read the partitions holding the requested IDs.
+ */
+public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User> {
 
     /**
-     * Perform the search by name and surname ignoring case with pagination
+     * Finds the owner of the email in the {@code users_emails} table, then the user by ID in its
+     * partition, instead of searching every partition for the email.
+     *
+     * @param email the email of the user, matched exactly
+     * @return the user owning the email, or empty if not present
      */
-    Page<User> findByNameContainingIgnoreCaseAndSurnameContainingIgnoreCase(String name, String surname, Pageable pageable);
+    @Query(value = """
+            select * from public.users
+            where id = (select id from public.users_emails where email = :email)
+            """, nativeQuery = true)
+    Optional<User> findByEmail(@Param("email") String email);
 }
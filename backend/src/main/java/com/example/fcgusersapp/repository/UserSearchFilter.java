@@ -0,0 +1,117 @@
+package com.example.fcgusersapp.repository;
+
+import com.example.fcgusersapp.entity.User;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Case-insensitive "contains" filter on the user's first name and surname.
+ * <p>
+ * Empty values are dropped instead of becoming {@code like '%%'} predicates, so the
+ * generated query only contains {@code lower(column) like '%value%'} conditions on the
+ * requested columns, which are served by the trigram indexes created in {@code V2}.
+ *
+ * @param name    lower-cased value to look for in the first name, or {@code null} for any
+ * @param surname lower-cased value to look for in the surname, or {@code null} for any
+ */
+public record UserSearchFilter(String name, String surname) {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    /**
+     * Builds a filter from raw request values.
+     *
+     * @param name    optional filter for the user's first name; {@code null} or empty for any
+     * @param surname optional filter for the user's surname; {@code null} or empty for any
+     * @return the normalized filter
+     */
+    public static UserSearchFilter of(String name, String surname) {
+        return new UserSearchFilter(normalize(name), normalize(surname));
+    }
+
+    /**
+     * @return {@code true} if the filter matches every user
+     */
+    public boolean isEmpty() {
+        return name == null && surname == null;
+    }
+
+    /**
+     * @return the JPA specification matching the users selected by this filter
+     */
+    public Specification<User> toSpecification() {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>(2);
+            if (name != null) {
+                predicates.add(cb.like(cb.lower(root.get("name")), containsPattern(name), LIKE_ESCAPE));
+            }
+            if (surname != null) {
+                predicates.add(cb.like(cb.lower(root.get("surname")), containsPattern(surname), LIKE_ESCAPE));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    /**
+     * Renders the filter as a SQL {@code where} clause on the users table, for the queries
+     * that do not go through JPA.
+     *
+     * @param args list receiving the values of the clause parameters
+     * @return the clause, starting with a space, or an empty string if the filter is empty
+     */
+    public String toSqlWhereClause(List<Object> args) {
+        List<String> conditions = new ArrayList<>(2);
+        if (name != null) {
+            conditions.add("lower(name) like ? escape '" + LIKE_ESCAPE + "'");
+            args.add(containsPattern(name));
+        }
+        if (surname != null) {
+            conditions.add("lower(surname) like ? escape '" + LIKE_ESCAPE + "'");
+            args.add(containsPattern(surname));
+        }
+        return conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions);
+    }
+
+    /**
+     * Renders the filter as a SQL {@code where} clause on the users table with named
+     * parameters, as used by the R2DBC {@code DatabaseClient}.
+     *
+     * @param args map receiving the values of the clause parameters, by name
+     * @return the clause, starting with a space, or an empty string if the filter is empty
+     */
+    public String toNamedSqlWhereClause(Map<String, Object> args) {
+        List<String> conditions = new ArrayList<>(2);
+        if (name != null) {
+            conditions.add("lower(name) like :name escape '" + LIKE_ESCAPE + "'");
+            args.put("name", containsPattern(name));
+        }
+        if (surname != null) {
+            conditions.add("lower(surname) like :surname escape '" + LIKE_ESCAPE + "'");
+            args.put("surname", containsPattern(surname));
+        }
+        return conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions);
+    }
+
+    private static String normalize(String value) {
+        return value == null || value.isEmpty() ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Wraps a value in {@code %} wildcards, escaping the LIKE metacharacters it contains.
+     */
+    private static String containsPattern(String value) {
+        StringBuilder pattern = new StringBuilder(value.length() + 2).append('%');
+        for (char c : value.toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                pattern.append(LIKE_ESCAPE);
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.fcgusersapp.repository;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Read-only projection of a user, as returned by list responses.
+ * <p>
+ * Only the {@link UserField}s selected by the request are read from the table; the
+ * others are {@code null} and left out of the JSON, so a page selecting all the default
+ * fields serializes like a page of {@code User} entities.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UserView(Long id, String email, String name, String surname, String address,
+                       OffsetDateTime createdAt, OffsetDateTime updatedAt) {
+}
@@ -0,0 +1,31 @@
+package com.example.fcgusersapp.service;
+
+/**
+ * Outcome of a single item of a bulk request.
+ */
+public enum BulkItemStatus {
+    /**
+     * The user has been inserted.
+     */
+    CREATED,
+    /**
+     * The user has been updated.
+     */
+    UPDATED,
+    /**
+     * The user has been deleted.
+     */
+    DELETED,
+    /**
+     * The email, or the ID, is already used by another user or by an earlier item of the request.
+     */
+    CONFLICT,
+    /**
+     * No user exists with the given ID.
+     */
+    NOT_FOUND,
+    /**
+     * The item lacks a required field.
+     */
+    INVALID
+}
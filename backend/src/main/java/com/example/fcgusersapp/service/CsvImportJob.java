@@ -0,0 +1,67 @@
+package com.example.fcgusersapp.service;
+
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * An asynchronous CSV import submitted through {@link CsvImportJobService}.
+ * <p>
+ * The job owns the spooled copy of the uploaded file and exposes its
+ * {@link CsvImportProgress} while running and the final import report once completed.
+ */
+@Getter
+public class CsvImportJob {
+
+    /**
+     * Lifecycle of an import job.
+     */
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id;
+    private final String filename;
+    private final ImportMode mode;
+    private final Instant submittedAt = Instant.now();
+    private final CsvImportProgress progress = new CsvImportProgress();
+    private final Path spoolFile;
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant finishedAt;
+    private volatile Map<String, Object> report;
+    private volatile String error;
+
+    CsvImportJob(String id, String filename, ImportMode mode, Path spoolFile) {
+        this.id = id;
+        this.filename = filename;
+        this.mode = mode;
+        this.spoolFile = spoolFile;
+    }
+
+    void running() {
+        status = Status.RUNNING;
+        progress.start();
+    }
+
+    void completed(Map<String, Object> report) {
+        this.report = report;
+        finish(Status.COMPLETED);
+    }
+
+    void failed(String error) {
+        this.error = error;
+        finish(Status.FAILED);
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    private void finish(Status status) {
+        progress.finish();
+        this.finishedAt = Instant.now();
+        this.status = status;
+    }
+}
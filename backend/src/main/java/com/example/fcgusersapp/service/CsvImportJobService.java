@@ -0,0 +1,207 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.config.ImportProperties;
+import com.example.fcgusersapp.exceptions.CsvImportException;
+import com.example.fcgusersapp.exceptions.ImportTooLargeException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs CSV imports in the background so that the upload request returns immediately.
+ * <p>
+ * Uploaded files, compressed or not, are spooled to {@link ImportProperties.Async#spoolDirectory()} and
+ * imported by a bounded pool of {@link ImportProperties.Async#maxConcurrentJobs()} workers;
+ * at most {@link ImportProperties.Async#maxQueuedJobs()} further jobs may wait for a worker, uploads
+ * beyond them being refused before anything is spooled.
+ * Jobs stay available for progress polling until {@link ImportProperties.Async#retainedJobs()}
+ * newer jobs have finished. Workers are virtual threads when {@code spring.threads.virtual.enabled}
+ * is set, the parsing itself being done by the platform threads of {@link UserCsvImporter}.
+ * The pool is monitored by the {@code executor.*} metrics tagged
+ * {@code name=csv.import}.
+ */
+@Slf4j
+@Service
+public class CsvImportJobService {
+
+    private final UserCsvImporter userCsvImporter;
+    private final ImportProperties.Async properties;
+    private final long maxUploadSize;
+    private final ThreadPoolExecutor executor;
+    /**
+     * Places of the jobs being spooled, queued or running, taken before an upload is spooled.
+     */
+    private final Semaphore slots;
+    private final Map<String, CsvImportJob> jobs = new LinkedHashMap<>();
+
+    public CsvImportJobService(UserCsvImporter userCsvImporter, ImportProperties importProperties,
+                               MeterRegistry meterRegistry, Environment environment) {
+        this.userCsvImporter = userCsvImporter;
+        this.properties = importProperties.async();
+        this.maxUploadSize = importProperties.maxUploadSize().toBytes();
+        Thread.Builder threads = Threading.VIRTUAL.isActive(environment) ? Thread.ofVirtual() : Thread.ofPlatform();
+        int maxQueuedJobs = Math.max(1, properties.maxQueuedJobs());
+        this.executor = new ThreadPoolExecutor(
+                properties.maxConcurrentJobs(), properties.maxConcurrentJobs(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueuedJobs),
+                threads.name("csv-import-", 1).factory());
+        this.slots = new Semaphore(properties.maxConcurrentJobs() + maxQueuedJobs);
+        new ExecutorServiceMetrics(executor, "csv.import", List.of()).bindTo(meterRegistry);
+    }
+
+    /**
+     * Spools the uploaded file to disk and schedules its import.
+     *
+     * @param file the uploaded CSV file
+     * @param mode how rows whose email already exists are treated
+     * @return the queued job
+     * @throws CsvImportException         if the file extension is not CSV or the file cannot be spooled
+     * @throws RejectedExecutionException if too many jobs are already waiting
+     */
+    public CsvImportJob submit(MultipartFile file, ImportMode mode) {
+        UserCsvImporter.checkFilename(file.getOriginalFilename());
+        return submit(file.getOriginalFilename(), mode, file::transferTo);
+    }
+
+    /**
+     * Spools a CSV file sent as the request body to disk, as it is received, and schedules its import.
+     * <p>
+     * The body is written to the spool file as is, compressed or not, without going through
+     * a temporary file first.
+     *
+     * @param body          the request body, plain or gzip-compressed CSV
+     * @param contentLength the declared length of the body, {@code null} if unknown
+     * @param mode          how rows whose email already exists are treated
+     * @return the queued job
+     * @throws ImportTooLargeException    if the body exceeds {@link ImportProperties#maxUploadSize()}
+     * @throws CsvImportException         if the file cannot be spooled
+     * @throws RejectedExecutionException if too many jobs are already waiting
+     */
+    public CsvImportJob submit(InputStream body, Long contentLength, ImportMode mode) {
+        InputStream input = CsvUploadStreams.limitUpload(body, contentLength, maxUploadSize);
+        return submit(null, mode, spoolFile -> Files.copy(input, spoolFile));
+    }
+
+    private CsvImportJob submit(String filename, ImportMode mode, Spooler spooler) {
+        if (!slots.tryAcquire()) {
+            throw new RejectedExecutionException("Al massimo " + properties.maxConcurrentJobs() + " import in corso e "
+                    + Math.max(1, properties.maxQueuedJobs()) + " in attesa");
+        }
+        String id = UUID.randomUUID().toString();
+        Path spoolFile = properties.spoolDirectory().resolve(id + ".csv");
+        try {
+            Files.createDirectories(properties.spoolDirectory());
+            spooler.spool(spoolFile);
+        } catch (IOException e) {
+            deleteSpoolFile(spoolFile);
+            slots.release();
+            throw new CsvImportException("Errore durante il salvataggio del file CSV");
+        } catch (RuntimeException e) {
+            deleteSpoolFile(spoolFile);
+            slots.release();
+            throw e;
+        }
+        CsvImportJob job = new CsvImportJob(id, filename, mode, spoolFile);
+        synchronized (jobs) {
+            jobs.put(id, job);
+        }
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            synchronized (jobs) {
+                jobs.remove(id);
+            }
+            deleteSpoolFile(spoolFile);
+            slots.release();
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Finds a job by its ID.
+     *
+     * @param id the job ID
+     * @return an {@link Optional} containing the job, or empty if unknown or already evicted
+     */
+    public Optional<CsvImportJob> findJob(String id) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(id));
+        }
+    }
+
+    /**
+     * @return the known jobs, oldest first
+     */
+    public List<CsvImportJob> findAllJobs() {
+        synchronized (jobs) {
+            return new ArrayList<>(jobs.values());
+        }
+    }
+
+    private void run(CsvImportJob job) {
+        job.running();
+        try (InputStream input = Files.newInputStream(job.getSpoolFile())) {
+            job.completed(userCsvImporter.importUsers(input, job.getProgress(), job.getMode()));
+        } catch (CsvImportException e) {
+            job.failed(e.getMessage());
+        } catch (Exception e) {
+            log.error("CSV import job {} failed", job.getId(), e);
+            job.failed("Errore durante l'import CSV");
+        } finally {
+            deleteSpoolFile(job.getSpoolFile());
+            slots.release();
+            evictFinishedJobs();
+        }
+    }
+
+    /**
+     * Drops the oldest finished jobs beyond the retention limit.
+     */
+    private void evictFinishedJobs() {
+        synchronized (jobs) {
+            long finished = jobs.values().stream().filter(CsvImportJob::isFinished).count();
+            Iterator<CsvImportJob> it = jobs.values().iterator();
+            while (finished > properties.retainedJobs() && it.hasNext()) {
+                if (it.next().isFinished()) {
+                    it.remove();
+                    finished--;
+                }
+            }
+        }
+    }
+
+    private void deleteSpoolFile(Path spoolFile) {
+        try {
+            Files.deleteIfExists(spoolFile);
+        } catch (IOException e) {
+            log.warn("Unable to delete spooled CSV file {}", spoolFile, e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Writes an upload to its spool file.
+     */
+    @FunctionalInterface
+    private interface Spooler {
+        void spool(Path spoolFile) throws IOException;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.fcgusersapp.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live counters of a running CSV import, updated by {@link UserCsvImporter}
+ * and safe to read from other threads while the import is in progress.
+ */
+public class CsvImportProgress {
+
+    private final AtomicLong rowsParsed = new AtomicLong();
+    private final AtomicLong usersInserted = new AtomicLong();
+    private final AtomicLong usersUpdated = new AtomicLong();
+    private final AtomicLong usersUnchanged = new AtomicLong();
+    private final AtomicLong usersRejected = new AtomicLong();
+    private volatile long startedAtNanos = System.nanoTime();
+    private volatile long finishedAtNanos;
+
+    /**
+     * Resets the clock used for the throughput, when the import actually starts.
+     */
+    public void start() {
+        startedAtNanos = System.nanoTime();
+    }
+
+    /**
+     * Stops the clock used for the throughput.
+     */
+    public void finish() {
+        finishedAtNanos = System.nanoTime();
+    }
+
+    void rowsParsed(int rows) {
+        rowsParsed.addAndGet(rows);
+    }
+
+    void batchWritten(int inserted, int updated, int unchanged, int rejected) {
+        usersInserted.addAndGet(inserted);
+        usersUpdated.addAndGet(updated);
+        usersUnchanged.addAndGet(unchanged);
+        usersRejected.addAndGet(rejected);
+    }
+
+    public long getRowsParsed() {
+        return rowsParsed.get();
+    }
+
+    public long getUsersInserted() {
+        return usersInserted.get();
+    }
+
+    public long getUsersUpdated() {
+        return usersUpdated.get();
+    }
+
+    public long getUsersUnchanged() {
+        return usersUnchanged.get();
+    }
+
+    public long getUsersRejected() {
+        return usersRejected.get();
+    }
+
+    /**
+     * @return the average number of rows parsed per second since the import started
+     */
+    public double getRowsPerSecond() {
+        long end = finishedAtNanos == 0 ? System.nanoTime() : finishedAtNanos;
+        double seconds = (end - startedAtNanos) / 1_000_000_000d;
+        return seconds <= 0 ? 0 : getRowsParsed() / seconds;
+    }
+}
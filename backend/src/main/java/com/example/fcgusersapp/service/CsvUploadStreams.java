@@ -0,0 +1,127 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.exceptions.ImportTooLargeException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Wrappers applied to the streams of uploaded CSV files: size limits and transparent
+ * gzip decompression, both working as the content is read, without buffering it.
+ * <p>
+ * This is a utility class and cannot be instantiated.
+ */
+final class CsvUploadStreams {
+
+    /**
+     * First two bytes of a gzip stream, which no CSV file starts with.
+     */
+    private static final int GZIP_MAGIC_FIRST = 0x1f;
+    private static final int GZIP_MAGIC_SECOND = 0x8b;
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Private constructor to prevent instantiation.
+     *
+     * @throws IllegalStateException always, since this class is a utility
+     *                               class and should not be instantiated.
+     */
+    private CsvUploadStreams() {
+        throw new IllegalStateException("This class is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Limits the size of an upload, rejecting it upfront when its declared length is already too large.
+     *
+     * @param upload         the uploaded content
+     * @param declaredLength the {@code Content-Length} of the upload, {@code null} or negative if unknown
+     * @param maxBytes       the maximum number of bytes to read
+     * @return the content, failing with an {@link ImportTooLargeException} once more than {@code maxBytes} are read
+     * @throws ImportTooLargeException if the declared length exceeds {@code maxBytes}
+     */
+    static InputStream limitUpload(InputStream upload, Long declaredLength, long maxBytes) {
+        if (declaredLength != null && declaredLength > maxBytes) {
+            throw uploadTooLarge(maxBytes);
+        }
+        return new LimitedInputStream(upload, maxBytes, () -> uploadTooLarge(maxBytes));
+    }
+
+    /**
+     * Decompresses gzip content, recognized by its first bytes, and limits the size of the CSV content.
+     *
+     * @param input    the uploaded content, plain or gzip-compressed
+     * @param maxBytes the maximum number of bytes of CSV content, once decompressed
+     * @return the CSV content, failing with an {@link ImportTooLargeException} once more than {@code maxBytes} are read
+     * @throws IOException if the content cannot be read, or is not valid gzip
+     */
+    static InputStream decompress(InputStream input, long maxBytes) throws IOException {
+        PushbackInputStream pushback = new PushbackInputStream(input, 2);
+        byte[] magic = pushback.readNBytes(2);
+        pushback.unread(magic);
+        boolean gzip = magic.length == 2
+                && (magic[0] & 0xff) == GZIP_MAGIC_FIRST && (magic[1] & 0xff) == GZIP_MAGIC_SECOND;
+        return new LimitedInputStream(gzip ? new GZIPInputStream(pushback, GZIP_BUFFER_SIZE) : pushback, maxBytes,
+                () -> new ImportTooLargeException("Il contenuto CSV supera il limite di " + maxBytes + " byte"));
+    }
+
+    private static ImportTooLargeException uploadTooLarge(long maxBytes) {
+        return new ImportTooLargeException("Il file caricato supera il limite di " + maxBytes + " byte");
+    }
+
+    /**
+     * Counts the bytes read, failing once there are more than allowed.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+        private final long maxBytes;
+        private final Supplier<ImportTooLargeException> tooLarge;
+        private long read;
+
+        private LimitedInputStream(InputStream in, long maxBytes, Supplier<ImportTooLargeException> tooLarge) {
+            super(in);
+            this.maxBytes = maxBytes;
+            this.tooLarge = tooLarge;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void count(long n) {
+            read += n;
+            if (read > maxBytes) {
+                throw tooLarge.get();
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.entity.User;
+import com.example.fcgusersapp.utils.CsvChunkReader;
+import com.example.fcgusersapp.utils.CsvFormat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses and validates the user rows of a CSV chunk, for the CSV importers.
+ * Chunks are parsed independently, typically on a pool of threads.
+ */
+final class CsvUserChunkParser implements CsvFormat.RecordHandler {
+
+    /**
+     * A user read from the CSV content, with the line it starts on.
+     */
+    record ParsedRow(long line, User user) {
+    }
+
+    /**
+     * The valid rows of a chunk, up to the first invalid one.
+     *
+     * @param invalidLine the line of the first invalid row, or 0 if there is none
+     */
+    record ParsedChunk(List<ParsedRow> rows, long invalidLine) {
+    }
+
+    private final List<ParsedRow> rows = new ArrayList<>();
+    private boolean skipRecord;
+    private long invalidLine;
+
+    private CsvUserChunkParser(boolean header) {
+        this.skipRecord = header;
+    }
+
+    /**
+     * Parses the rows of a chunk, formatted as {@code email,name,surname,address}.
+     *
+     * @param chunk  the chunk to parse
+     * @param header whether the chunk starts with the header line, to be skipped
+     * @return the users read, up to the first row without the expected number of columns
+     */
+    static ParsedChunk parse(CsvChunkReader.Chunk chunk, boolean header) {
+        CsvUserChunkParser parser = new CsvUserChunkParser(header);
+        CsvFormat.parseRecords(chunk.data(), 0, chunk.length(), chunk.firstLine(), parser);
+        return new ParsedChunk(parser.rows, parser.invalidLine);
+    }
+
+    @Override
+    public void record(long line, List<String> fields) {
+        if (skipRecord || invalidLine > 0) {
+            skipRecord = false;
+            return;
+        }
+        if (fields.size() < 4) {
+            invalidLine = line;
+            return;
+        }
+        rows.add(new ParsedRow(line, User.builder()
+                .email(fields.get(0))
+                .name(fields.get(1))
+                .surname(fields.get(2))
+                .address(fields.get(3))
+                .build()));
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.utils.CsvFormat;
+import lombok.Getter;
+import org.springframework.http.MediaType;
+
+/**
+ * Formats supported by the users export.
+ */
+@Getter
+public enum ExportFormat {
+    /**
+     * CSV with a header line, readable back by the CSV import, see {@link CsvFormat}.
+     */
+    CSV(new MediaType("text", "csv"), "csv"),
+    /**
+     * One JSON object per line (newline-delimited JSON).
+     */
+    NDJSON(MediaType.APPLICATION_NDJSON, "ndjson");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    ExportFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+}
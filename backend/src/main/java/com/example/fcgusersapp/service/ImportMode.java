@@ -0,0 +1,38 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.exceptions.CsvImportException;
+
+import java.util.Locale;
+
+/**
+ * How the CSV import treats rows whose email already exists.
+ */
+public enum ImportMode {
+    /**
+     * Existing emails are left untouched and reported as duplicates.
+     */
+    INSERT_ONLY,
+    /**
+     * Existing users are overwritten with the row data, only when it differs from the stored one.
+     */
+    UPSERT,
+    /**
+     * Existing emails are left untouched and counted as unchanged, without being reported.
+     */
+    SKIP_EXISTING;
+
+    /**
+     * Parses a mode from a request parameter, ignoring case.
+     *
+     * @param value the parameter value, e.g. {@code upsert}
+     * @return the matching mode
+     * @throws CsvImportException if the value does not name a mode
+     */
+    public static ImportMode fromParameter(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new CsvImportException("Modalità di import non valida: " + value);
+        }
+    }
+}
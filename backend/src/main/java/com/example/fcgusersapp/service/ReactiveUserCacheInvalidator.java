@@ -0,0 +1,59 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.config.UserCacheProperties;
+import com.example.fcgusersapp.repository.ReactiveUserRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Counterpart of {@link UserCacheInvalidator} for the reactive variant of the API.
+ * <p>
+ * The reactive endpoints do not cache users, so there is nothing to evict locally; when
+ * {@link UserCacheProperties#notifyEnabled()} is set, the modified IDs are still sent to the
+ * other instances, within the transaction of the change so that they are only delivered
+ * once it commits.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserCacheInvalidator {
+
+    private final ReactiveUserRepository reactiveUserRepository;
+    private final UserCacheProperties properties;
+
+    public ReactiveUserCacheInvalidator(ReactiveUserRepository reactiveUserRepository, UserCacheProperties properties) {
+        this.reactiveUserRepository = reactiveUserRepository;
+        this.properties = properties;
+    }
+
+    /**
+     * Notifies the other instances that users were modified.
+     *
+     * @param ids the IDs of the modified users
+     * @return completes once the notifications are sent
+     */
+    public Mono<Void> evictAll(Collection<Long> ids) {
+        if (!properties.notifyEnabled() || ids.isEmpty()) {
+            return Mono.empty();
+        }
+        return Flux.fromIterable(UserCacheInvalidator.notificationPayloads(List.copyOf(ids)))
+                .concatMap(payload -> reactiveUserRepository.notify(properties.notifyChannel(), payload))
+                .then();
+    }
+
+    /**
+     * Notifies the other instances that users were inserted, so that they clear their search totals.
+     *
+     * @return completes once the notification is sent
+     */
+    public Mono<Void> evictCounts() {
+        if (!properties.notifyEnabled()) {
+            return Mono.empty();
+        }
+        return reactiveUserRepository.notify(properties.notifyChannel(), UserCacheInvalidator.COUNTS_PAYLOAD);
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.config.ImportProperties;
+import com.example.fcgusersapp.entity.User;
+import com.example.fcgusersapp.exceptions.CsvImportException;
+import com.example.fcgusersapp.repository.ReactiveUserRepository;
+import com.example.fcgusersapp.repository.UserJdbcRepository;
+import com.example.fcgusersapp.service.CsvUserChunkParser.ParsedChunk;
+import com.example.fcgusersapp.service.CsvUserChunkParser.ParsedRow;
+import com.example.fcgusersapp.utils.ApiResponse;
+import com.example.fcgusersapp.utils.CsvChunkReader;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.*;
+
+/**
+ * Non-blocking counterpart of {@link UserCsvImporter}, for the reactive variant of the API.
+ * <p>
+ * The content is consumed as it is received, with backpressure: it is cut into chunks by
+ * {@link CsvChunkReader}, which are parsed in parallel on {@link ImportProperties#parserThreads()}
+ * threads, a few chunks ahead, then buffered into batches of {@link ImportProperties#batchSize()}
+ * users, each written with a single statement in its own transaction. The upload is only read
+ * as fast as the batches are written, so neither the file nor its rows are held in memory and
+ * no thread waits on the database. Rows are treated as by {@link UserCsvImporter}, with the
+ * same report and metrics.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserCsvImporter {
+
+    private final ReactiveUserRepository reactiveUserRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final ImportProperties importProperties;
+    private final ReactiveUserCacheInvalidator reactiveUserCacheInvalidator;
+    private final UserImportMetrics metrics;
+    private final int parserThreads;
+    private final Scheduler parserScheduler;
+
+    public ReactiveUserCsvImporter(ReactiveUserRepository reactiveUserRepository,
+                                   TransactionalOperator transactionalOperator,
+                                   ImportProperties importProperties,
+                                   ReactiveUserCacheInvalidator reactiveUserCacheInvalidator,
+                                   UserImportMetrics metrics) {
+        this.reactiveUserRepository = reactiveUserRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.importProperties = importProperties;
+        this.reactiveUserCacheInvalidator = reactiveUserCacheInvalidator;
+        this.metrics = metrics;
+        this.parserThreads = importProperties.parserThreads() > 0
+                ? importProperties.parserThreads() : Runtime.getRuntime().availableProcessors();
+        this.parserScheduler = Schedulers.newParallel("csv-parser", parserThreads);
+    }
+
+    /**
+     * Checks that the name of an uploaded file has the CSV extension; unlike
+     * {@link UserCsvImporter}, this importer does not read compressed files.
+     *
+     * @param filename the original name of the uploaded file, may be {@code null}
+     * @throws CsvImportException if the extension is not CSV
+     */
+    public static void checkFilename(String filename) {
+        if (filename != null && !filename.toLowerCase().endsWith(".csv")) {
+            throw new CsvImportException("Estensione file non valida: richiesto .csv");
+        }
+    }
+
+    /**
+     * Reads users from the given CSV content and stores them in batches.
+     * The first line (header) is skipped.
+     *
+     * @param content the UTF-8 encoded CSV content, formatted as {@code email,name,surname,address};
+     *                its buffers are released once read
+     * @param mode    how rows whose email already exists are treated
+     * @return a report map {@link ApiResponse}, as returned by {@link UserCsvImporter#importUsers};
+     * a {@link CsvImportException} is signalled if a row does not have the expected number of
+     * columns, the rows preceding it being stored anyway
+     */
+    public Mono<Map<String, Object>> importUsers(Flux<DataBuffer> content, ImportMode mode) {
+        int maxChunksAhead = parserThreads * 2;
+        return batches(chunks(content)
+                .index()
+                .flatMapSequential(chunk -> Mono.fromCallable(() -> CsvUserChunkParser.parse(chunk.getT2(), chunk.getT1() == 0))
+                        .subscribeOn(parserScheduler), maxChunksAhead, 1))
+                .concatMap(batch -> write(batch, mode), 1)
+                .reduceWith(Report::new, Report::add)
+                .map(report -> mode == ImportMode.INSERT_ONLY
+                        ? ApiResponse.csvImportResponse(report.usersInserted, report.errors)
+                        : ApiResponse.csvImportResponse(report.usersInserted, report.usersUpdated,
+                        report.usersUnchanged, report.errors));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        parserScheduler.dispose();
+    }
+
+    /**
+     * Cuts the content into chunks of whole records as its buffers arrive.
+     */
+    private Flux<CsvChunkReader.Chunk> chunks(Flux<DataBuffer> content) {
+        return Flux.defer(() -> {
+            CsvChunkReader chunkReader = new CsvChunkReader((int) importProperties.chunkSize().toBytes());
+            return content
+                    .concatMapIterable(buffer -> {
+                        try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+                            iterator.forEachRemaining(chunkReader::feed);
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                        return readyChunks(chunkReader);
+                    })
+                    .concatWith(Flux.defer(() -> {
+                        chunkReader.finish();
+                        return Flux.fromIterable(readyChunks(chunkReader));
+                    }))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        });
+    }
+
+    private static List<CsvChunkReader.Chunk> readyChunks(CsvChunkReader chunkReader) {
+        List<CsvChunkReader.Chunk> chunks = new ArrayList<>(1);
+        CsvChunkReader.Chunk chunk;
+        while ((chunk = chunkReader.poll()) != null) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /**
+     * Buffers the parsed rows into batches, cutting a batch when it is full or already contains
+     * the same email (a single statement cannot touch a row twice). The rows preceding an invalid
+     * one make up the last batch, which carries its line.
+     * <p>
+     * Parsed chunks are requested one at a time, so that only the ones parsed ahead wait in memory.
+     */
+    private Flux<PendingBatch> batches(Flux<ParsedChunk> chunks) {
+        int size = Math.max(1, importProperties.batchSize());
+        return Flux.defer(() -> {
+            Map<String, ParsedRow> pending = new LinkedHashMap<>(size * 2);
+            return chunks
+                    .concatMapIterable(chunk -> {
+                        List<PendingBatch> ready = new ArrayList<>(1);
+                        for (ParsedRow row : chunk.rows()) {
+                            String email = row.user().getEmail();
+                            if (pending.size() >= size || pending.containsKey(email)) {
+                                ready.add(new PendingBatch(List.copyOf(pending.values()), 0));
+                                pending.clear();
+                            }
+                            pending.put(email, row);
+                        }
+                        if (chunk.invalidLine() > 0) {
+                            ready.add(new PendingBatch(List.copyOf(pending.values()), chunk.invalidLine()));
+                            pending.clear();
+                        }
+                        return ready;
+                    }, 1)
+                    .takeUntil(batch -> batch.invalidLine() > 0)
+                    .concatWith(Mono.fromSupplier(() -> new PendingBatch(List.copyOf(pending.values()), 0))
+                            .filter(batch -> !batch.rows().isEmpty()));
+        });
+    }
+
+    /**
+     * Writes a batch in its own transaction and sorts its rows by outcome.
+     */
+    private Mono<BatchResult> write(PendingBatch batch, ImportMode mode) {
+        Mono<BatchResult> written = Mono.just(BatchResult.EMPTY);
+        if (!batch.rows().isEmpty()) {
+            List<User> users = batch.rows().stream().map(ParsedRow::user).toList();
+            written = Mono.defer(() -> {
+                Timer.Sample sample = Timer.start();
+                return writeUsers(users, mode)
+                        .as(transactionalOperator::transactional)
+                        .doOnSuccess(result -> sample.stop(metrics.batchTimer()));
+            }).map(result -> BatchResult.of(batch.rows(), result, mode))
+                    .doOnNext(result -> metrics.batchWritten(users.size(), result.inserted(),
+                            result.updated(), result.unchanged(), result.errors().size()));
+        }
+        if (batch.invalidLine() > 0) {
+            return written.then(Mono.error(
+                    new CsvImportException("Errore nel formato del file CSV alla riga " + batch.invalidLine())));
+        }
+        return written;
+    }
+
+    private Mono<UserJdbcRepository.UpsertResult> writeUsers(List<User> users, ImportMode mode) {
+        Mono<UserJdbcRepository.UpsertResult> written = mode != ImportMode.UPSERT
+                ? reactiveUserRepository.insertIgnoringDuplicates(users)
+                .map(inserted -> new UserJdbcRepository.UpsertResult(inserted, Map.of()))
+                : reactiveUserRepository.upsert(users);
+        return written.flatMap(result -> (!result.updated().isEmpty()
+                ? reactiveUserCacheInvalidator.evictAll(result.updated().values())
+                : result.inserted().isEmpty() ? Mono.<Void>empty() : reactiveUserCacheInvalidator.evictCounts())
+                .thenReturn(result));
+    }
+
+    /**
+     * Rows to be written together.
+     *
+     * @param invalidLine the line of the invalid row following them, or 0 if there is none
+     */
+    private record PendingBatch(List<ParsedRow> rows, long invalidLine) {
+    }
+
+    /**
+     * Outcome of the rows of a batch; the rejected ones are reported as duplicates.
+     */
+    private record BatchResult(int inserted, int updated, int unchanged, List<Map<String, Object>> errors) {
+
+        private static final BatchResult EMPTY = new BatchResult(0, 0, 0, List.of());
+
+        private static BatchResult of(List<ParsedRow> rows, UserJdbcRepository.UpsertResult result, ImportMode mode) {
+            int inserted = 0;
+            int updated = 0;
+            int unchanged = 0;
+            List<Map<String, Object>> errors = new ArrayList<>();
+            for (ParsedRow row : rows) {
+                String email = row.user().getEmail();
+                if (result.inserted().containsKey(email)) {
+                    inserted++;
+                } else if (result.updated().containsKey(email)) {
+                    updated++;
+                } else if (mode == ImportMode.INSERT_ONLY) {
+                    errors.add(Map.of("email", email, "line", row.line()));
+                } else {
+                    unchanged++;
+                }
+            }
+            return new BatchResult(inserted, updated, unchanged, errors);
+        }
+    }
+
+    /**
+     * Running totals of an import.
+     */
+    private static final class Report {
+        private final List<Map<String, Object>> errors = new ArrayList<>();
+        private int usersInserted;
+        private int usersUpdated;
+        private int usersUnchanged;
+
+        private Report add(BatchResult result) {
+            usersInserted += result.inserted();
+            usersUpdated += result.updated();
+            usersUnchanged += result.unchanged();
+            errors.addAll(result.errors());
+            return this;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.config.SearchProperties;
+import com.example.fcgusersapp.entity.User;
+import com.example.fcgusersapp.exceptions.CsvImportException;
+import com.example.fcgusersapp.repository.ReactiveUserRepository;
+import com.example.fcgusersapp.repository.UserField;
+import com.example.fcgusersapp.repository.UserSearchFilter;
+import com.example.fcgusersapp.repository.UserView;
+import com.example.fcgusersapp.utils.ApiResponse;
+import com.example.fcgusersapp.utils.CountedPage;
+import com.example.fcgusersapp.utils.VersionETags;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Non-blocking counterpart of {@link UserService}, for the reactive variant of the API.
+ * <p>
+ * Covers the single-user operations, the search and the CSV import, on
+ * {@link ReactiveUserRepository}; neither users nor search totals are cached.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserService {
+
+    private final ReactiveUserRepository reactiveUserRepository;
+    private final ReactiveUserCsvImporter reactiveUserCsvImporter;
+    private final ReactiveUserCacheInvalidator reactiveUserCacheInvalidator;
+    private final TransactionalOperator transactionalOperator;
+    private final SearchProperties searchProperties;
+
+    public ReactiveUserService(ReactiveUserRepository reactiveUserRepository,
+                               ReactiveUserCsvImporter reactiveUserCsvImporter,
+                               ReactiveUserCacheInvalidator reactiveUserCacheInvalidator,
+                               TransactionalOperator transactionalOperator,
+                               SearchProperties searchProperties) {
+        this.reactiveUserRepository = reactiveUserRepository;
+        this.reactiveUserCsvImporter = reactiveUserCsvImporter;
+        this.reactiveUserCacheInvalidator = reactiveUserCacheInvalidator;
+        this.transactionalOperator = transactionalOperator;
+        this.searchProperties = searchProperties;
+    }
+
+    /**
+     * Persists a new user; any ID in the payload is ignored.
+     *
+     * @param user the user to save
+     * @return the saved user, with its generated ID
+     */
+    public Mono<User> saveUser(User user) {
+        return reactiveUserRepository.insert(user)
+                .flatMap(saved -> reactiveUserCacheInvalidator.evictCounts().thenReturn(saved))
+                .as(transactionalOperator::transactional);
+    }
+
+    /**
+     * @param id the user ID
+     * @return the user, or empty if not present
+     */
+    public Mono<User> findUserById(Long id) {
+        return reactiveUserRepository.findById(id);
+    }
+
+    /**
+     * Updates an existing user with new data, with a single {@code UPDATE ... RETURNING} statement,
+     * as {@link UserService#editUser}.
+     *
+     * @param user             the updated user data
+     * @param id               the ID of the user to update
+     * @param ifMatch the precondition sent in {@code If-Match}, as in {@link UserService#editUser};
+     *                {@code null} to update the user unconditionally
+     * @return the updated user, with its new version; an {@link IllegalArgumentException} is signalled
+     * if no user with the given ID exists and there is no precondition, an {@link OptimisticLockingFailureException}
+     * if the user does not meet the precondition: it no longer has any of the expected versions, or does not exist
+     */
+    public Mono<User> editUser(User user, Long id, VersionETags.IfMatch ifMatch) {
+        return reactiveUserRepository.update(id, user, ifMatch == null ? null : ifMatch.versions())
+                .switchIfEmpty(Mono.error(() -> ifMatch == null
+                        ? new IllegalArgumentException("User " + id + " not found")
+                        : new OptimisticLockingFailureException("User " + id + " was modified or deleted")))
+                .flatMap(edited -> reactiveUserCacheInvalidator.evictAll(List.of(id)).thenReturn(edited))
+                .as(transactionalOperator::transactional);
+    }
+
+    /**
+     * Deletes a user by its ID, with a single {@code DELETE} statement.
+     *
+     * @param id the ID of the user to delete
+     * @return completes once deleted; an {@link IllegalArgumentException} is signalled
+     * if no user with the given ID exists
+     */
+    public Mono<Void> deleteUser(Long id) {
+        return reactiveUserRepository.delete(id)
+                .flatMap(deleted -> deleted
+                        ? reactiveUserCacheInvalidator.evictAll(List.of(id))
+                        : Mono.error(new IllegalArgumentException("User " + id + " not found")))
+                .as(transactionalOperator::transactional);
+    }
+
+    /**
+     * Searches users by first name and surname, as {@link UserService#searchUsers}: the page is
+     * returned with the same totals, exact or estimated, though they are not cached.
+     *
+     * @param name     optional filter for the user's first name (any if {@code null} or empty)
+     * @param surname  optional filter for the user's surname (any if {@code null} or empty)
+     * @param fields   the fields to return, see {@link UserField#parse}
+     * @param pageable the page, whose users are sorted by ID descending
+     * @return a {@link CountedPage} of users matching the criteria
+     */
+    public Mono<CountedPage<UserView>> searchUsers(String name, String surname, Set<UserField> fields, Pageable pageable) {
+        UserSearchFilter filter = UserSearchFilter.of(name, surname);
+        int size = pageable.getPageSize();
+        return reactiveUserRepository.findAll(filter, fields, pageable.getOffset(), size + 1)
+                .collectList()
+                .flatMap(users -> {
+                    boolean hasNext = users.size() > size;
+                    List<UserView> content = hasNext ? users.subList(0, size) : users;
+                    long read = pageable.getOffset() + content.size();
+                    if (!hasNext && (!content.isEmpty() || read == 0)) {
+                        return Mono.just(new CountedPage<>(content, pageable, read, true));
+                    }
+                    return countUsers(filter).map(count -> {
+                        long total = hasNext ? Math.max(count.total(), read + 1) : Math.min(count.total(), read);
+                        return new CountedPage<>(content, pageable, total, count.exact() && total == count.total());
+                    });
+                });
+    }
+
+    /**
+     * Streams the users of a search page as they are read, instead of materializing the page;
+     * no total count is computed.
+     *
+     * @param name     optional filter for the user's first name (any if {@code null} or empty)
+     * @param surname  optional filter for the user's surname (any if {@code null} or empty)
+     * @param fields   the fields to return, see {@link UserField#parse}
+     * @param pageable the page, whose users are sorted by ID descending
+     * @return the users of the page, most recent first
+     */
+    public Flux<UserView> streamUsers(String name, String surname, Set<UserField> fields, Pageable pageable) {
+        return reactiveUserRepository.findAll(UserSearchFilter.of(name, surname), fields,
+                pageable.getOffset(), pageable.getPageSize());
+    }
+
+    /**
+     * Counts the users matching a search filter, exactly up to
+     * {@link SearchProperties#exactCountThreshold()} and from the planner estimate beyond,
+     * as {@link UserService} does: the estimate is only read first without a filter.
+     */
+    private Mono<UserCount> countUsers(UserSearchFilter filter) {
+        long threshold = searchProperties.exactCountThreshold();
+        Mono<Long> estimate = filter.isEmpty() ? reactiveUserRepository.estimateCount(filter) : Mono.just(0L);
+        return estimate.flatMap(tableEstimate -> tableEstimate > threshold
+                ? Mono.just(new UserCount(tableEstimate, false))
+                : reactiveUserRepository.count(filter, threshold + 1)
+                .flatMap(count -> count <= threshold
+                        ? Mono.just(new UserCount(count, true))
+                        : reactiveUserRepository.estimateCount(filter)
+                        .map(filterEstimate -> new UserCount(Math.max(filterEstimate, threshold + 1), false))));
+    }
+
+    /**
+     * Imports users from a CSV file as it is uploaded, see {@link ReactiveUserCsvImporter}.
+     *
+     * @param filename the original name of the uploaded file, may be {@code null}
+     * @param content  the file content
+     * @param mode     how rows whose email already exists are treated
+     * @return a report map {@link ApiResponse} with the number of inserted users and any errors encountered;
+     * a {@link CsvImportException} is signalled if the file extension is not CSV or the format is invalid
+     */
+    public Mono<Map<String, Object>> importUsersFromCsv(String filename, Flux<DataBuffer> content, ImportMode mode) {
+        return Mono.fromRunnable(() -> ReactiveUserCsvImporter.checkFilename(filename))
+                .then(reactiveUserCsvImporter.importUsers(content, mode));
+    }
+}
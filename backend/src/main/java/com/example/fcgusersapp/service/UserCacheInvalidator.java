@@ -0,0 +1,199 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.config.ReplicaProperties;
+import com.example.fcgusersapp.config.UserCacheProperties;
+import com.example.fcgusersapp.constants.CacheNames;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Removes modified users from the {@link CacheNames#USERS} cache, and the search totals
+ * they may have changed from the {@link CacheNames#USER_COUNTS} cache.
+ * <p>
+ * Entries are evicted immediately and once more after the surrounding transaction commits,
+ * so that a concurrent read cannot put back the state preceding the commit. When
+ * {@link UserCacheProperties#notifyEnabled()} is set, the evicted IDs are also sent on a
+ * PostgreSQL channel with {@code pg_notify}: notifications are transactional, so the other
+ * instances, listening through {@link UserCacheNotificationListener}, only receive them
+ * once the change is committed.
+ * <p>
+ * With {@link ReplicaProperties read replicas}, a read served by a replica that has not replayed the
+ * change yet may put the previous state back once evicted, so every eviction is repeated once the
+ * replicas may have caught up, {@link ReplicaProperties#maxStaleness()} later.
+ */
+@Component
+public class UserCacheInvalidator {
+
+    /**
+     * Notification payload asking to clear the whole cache.
+     */
+    static final String CLEAR_ALL_PAYLOAD = "*";
+
+    /**
+     * Notification payload asking to clear the search totals only, after users were inserted.
+     */
+    static final String COUNTS_PAYLOAD = "counts";
+
+    /**
+     * Maximum number of IDs sent in a single notification, to stay well below
+     * the 8000 bytes limit of a PostgreSQL notification payload.
+     */
+    private static final int MAX_IDS_PER_NOTIFICATION = 400;
+
+    private final CacheManager cacheManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final UserCacheProperties properties;
+    private final ReplicaProperties replicaProperties;
+    private final TaskScheduler taskScheduler;
+
+    public UserCacheInvalidator(CacheManager cacheManager, JdbcTemplate jdbcTemplate, UserCacheProperties properties,
+                                ReplicaProperties replicaProperties, TaskScheduler taskScheduler) {
+        this.cacheManager = cacheManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.replicaProperties = replicaProperties;
+        this.taskScheduler = taskScheduler;
+    }
+
+    /**
+     * Evicts a user from the cache.
+     *
+     * @param id the ID of the modified user; ignored if {@code null}
+     */
+    public void evict(Long id) {
+        if (id != null) {
+            evictAll(List.of(id));
+        }
+    }
+
+    /**
+     * Evicts several users from the cache.
+     *
+     * @param ids the IDs of the modified users
+     */
+    public void evictAll(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Long> evicted = List.copyOf(ids);
+        evictLocally(evicted);
+        afterCommit(() -> evictLocally(evicted));
+        if (properties.notifyEnabled()) {
+            notificationPayloads(evicted).forEach(this::publish);
+        }
+    }
+
+    /**
+     * Builds the notifications asking the other instances to evict users.
+     *
+     * @param ids the IDs of the modified users
+     * @return the notification payloads, each holding at most {@value #MAX_IDS_PER_NOTIFICATION} IDs
+     */
+    static List<String> notificationPayloads(List<Long> ids) {
+        List<String> payloads = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += MAX_IDS_PER_NOTIFICATION) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IDS_PER_NOTIFICATION));
+            payloads.add(chunk.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        }
+        return payloads;
+    }
+
+    /**
+     * Clears the whole cache, for changes touching an unknown set of users.
+     */
+    public void clear() {
+        clearLocally();
+        afterCommit(this::clearLocally);
+        if (properties.notifyEnabled()) {
+            publish(CLEAR_ALL_PAYLOAD);
+        }
+    }
+
+    /**
+     * Clears the search totals, for changes that only add users: no cached user is stale,
+     * but any total may be.
+     */
+    public void evictCounts() {
+        clearCountsLocally();
+        afterCommit(this::clearCountsLocally);
+        if (properties.notifyEnabled()) {
+            publish(COUNTS_PAYLOAD);
+        }
+    }
+
+    /**
+     * Evicts users from the cache of this instance only, along with the search totals.
+     *
+     * @param ids the IDs of the modified users
+     */
+    void evictLocally(Collection<Long> ids) {
+        Runnable eviction = () -> {
+            Cache cache = cache(CacheNames.USERS);
+            ids.forEach(cache::evict);
+            cache(CacheNames.USER_COUNTS).clear();
+        };
+        eviction.run();
+        repeatOnceReplicasCaughtUp(eviction);
+    }
+
+    /**
+     * Clears the cache and the search totals of this instance only.
+     */
+    void clearLocally() {
+        Runnable eviction = () -> {
+            cache(CacheNames.USERS).clear();
+            cache(CacheNames.USER_COUNTS).clear();
+        };
+        eviction.run();
+        repeatOnceReplicasCaughtUp(eviction);
+    }
+
+    /**
+     * Clears the search totals of this instance only.
+     */
+    void clearCountsLocally() {
+        Runnable eviction = () -> cache(CacheNames.USER_COUNTS).clear();
+        eviction.run();
+        repeatOnceReplicasCaughtUp(eviction);
+    }
+
+    private void repeatOnceReplicasCaughtUp(Runnable eviction) {
+        if (replicaProperties.enabled()) {
+            taskScheduler.schedule(eviction, Instant.now().plus(replicaProperties.maxStaleness()));
+        }
+    }
+
+    private Cache cache(String name) {
+        Cache cache = cacheManager.getCache(name);
+        if (cache == null) {
+            throw new IllegalStateException("Cache " + name + " is not configured");
+        }
+        return cache;
+    }
+
+    private void publish(String payload) {
+        jdbcTemplate.query("select pg_notify(?, ?)", rs -> null, properties.notifyChannel(), payload);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+}
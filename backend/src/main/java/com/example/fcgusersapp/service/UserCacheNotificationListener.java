@@ -0,0 +1,114 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.config.UserCacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Applies the cache invalidations published by the other backend instances through
+ * PostgreSQL {@code LISTEN/NOTIFY}, see {@link UserCacheInvalidator}.
+ * <p>
+ * The listener keeps its own connection, outside the pool, and polls it from a dedicated
+ * thread. Since notifications sent while disconnected are lost, the whole cache is cleared
+ * every time the connection is (re)established.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.cache.users", name = "notify-enabled", havingValue = "true")
+public class UserCacheNotificationListener implements SmartLifecycle {
+
+    private static final int POLL_TIMEOUT_MILLIS = 5_000;
+    private static final long RECONNECT_DELAY_MILLIS = 5_000;
+
+    private final UserCacheInvalidator userCacheInvalidator;
+    private final DataSourceProperties dataSourceProperties;
+    private final UserCacheProperties properties;
+    private volatile Thread thread;
+
+    public UserCacheNotificationListener(UserCacheInvalidator userCacheInvalidator,
+                                         DataSourceProperties dataSourceProperties,
+                                         UserCacheProperties properties) {
+        this.userCacheInvalidator = userCacheInvalidator;
+        this.dataSourceProperties = dataSourceProperties;
+        this.properties = properties;
+    }
+
+    @Override
+    public void start() {
+        // assigned before it runs, as the thread listens as long as it is the current one
+        Thread listener = Thread.ofPlatform().name("users-cache-listener").daemon().unstarted(this::listen);
+        thread = listener;
+        listener.start();
+    }
+
+    @Override
+    public void stop() {
+        Thread running = thread;
+        thread = null;
+        if (running != null) {
+            running.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return thread != null;
+    }
+
+    private void listen() {
+        while (thread == Thread.currentThread()) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+                 Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN \"" + properties.notifyChannel().replace("\"", "\"\"") + "\"");
+                userCacheInvalidator.clearLocally();
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (thread == Thread.currentThread()) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications != null) {
+                        Arrays.stream(notifications).map(PGNotification::getParameter).forEach(this::apply);
+                    }
+                }
+            } catch (SQLException e) {
+                if (thread != Thread.currentThread()) {
+                    return;
+                }
+                log.warn("Cache invalidation listener disconnected, retrying in {} ms", RECONNECT_DELAY_MILLIS, e);
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void apply(String payload) {
+        if (UserCacheInvalidator.CLEAR_ALL_PAYLOAD.equals(payload)) {
+            userCacheInvalidator.clearLocally();
+            return;
+        }
+        if (UserCacheInvalidator.COUNTS_PAYLOAD.equals(payload)) {
+            userCacheInvalidator.clearCountsLocally();
+            return;
+        }
+        try {
+            List<Long> ids = Arrays.stream(payload.split(",")).map(Long::valueOf).toList();
+            userCacheInvalidator.evictLocally(ids);
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed cache invalidation {}", payload);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.config.ChangeFeedProperties;
+import com.example.fcgusersapp.config.ReadRouting;
+import com.example.fcgusersapp.exceptions.InvalidCursorException;
+import com.example.fcgusersapp.repository.UserChange;
+import com.example.fcgusersapp.repository.UserJdbcRepository;
+import com.example.fcgusersapp.utils.CursorCodec;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+/**
+ * Service streaming the changes of the users table, for consumers keeping a copy of it in sync.
+ * <p>
+ * Inserted and updated users are found by their {@code updated_at} time, maintained by the
+ * database, and deleted users by the tombstones a trigger records, both through a
+ * {@code (time, id)} index. Every change carries the cursor to resume the feed right after it.
+ * Tombstones are kept for {@link ChangeFeedProperties#tombstoneRetention()}: consumers must
+ * come back within that time, or start over from a full sync.
+ * <p>
+ * Changes are always read from the primary: a lagging replica could let a cursor move past
+ * changes it has not replayed yet.
+ */
+@Slf4j
+@Service
+public class UserChangeFeedService {
+
+    /**
+     * Query of the change feed cursors, see {@link CursorCodec}.
+     */
+    private static final String CURSOR_QUERY = "changes";
+    private static final String CURSOR_TIME_KEY = "t";
+    private static final String CURSOR_ID_KEY = "id";
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final UserJdbcRepository userJdbcRepository;
+    private final ChangeFeedProperties properties;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public UserChangeFeedService(UserJdbcRepository userJdbcRepository, ChangeFeedProperties properties,
+                                 ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.userJdbcRepository = userJdbcRepository;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Decodes a change feed cursor.
+     *
+     * @param cursor the cursor of the last change seen, {@code null} or empty to start from the first change
+     * @return the position of the cursor, or {@code null} for the first change
+     * @throws InvalidCursorException if the cursor is invalid
+     */
+    public Position position(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        Map<String, Object> keys = CursorCodec.decode(CURSOR_QUERY, cursor);
+        if (!(keys.get(CURSOR_TIME_KEY) instanceof String time)
+                || !(keys.get(CURSOR_ID_KEY) instanceof Number id) || !(id instanceof Integer || id instanceof Long)) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+        try {
+            return new Position(OffsetDateTime.parse(time), id.longValue());
+        } catch (DateTimeParseException e) {
+            throw new InvalidCursorException("Invalid cursor", e);
+        }
+    }
+
+    /**
+     * @param position a position returned by {@link #position}
+     * @return {@code true} if deletions following the position may have been purged already
+     */
+    public boolean isExpired(Position position) {
+        return position != null
+                && position.time().isBefore(OffsetDateTime.now().minus(properties.tombstoneRetention()));
+    }
+
+    /**
+     * Writes the changes following a position as NDJSON, one object per line, ordered by
+     * change time then user ID: {@code op} ({@code upsert} or {@code delete}), {@code id},
+     * {@code changedAt}, the current {@code email}, {@code name}, {@code surname} and
+     * {@code address} of upserted users, and the {@code cursor} of the change.
+     * <p>
+     * Only the last change of a user is returned, since earlier ones are overwritten in the table.
+     *
+     * @param position the position to start after, {@code null} for the first change
+     * @param limit    the maximum number of changes to write
+     * @param out      the destination, left open
+     * @throws IOException if the changes cannot be written, e.g. because the client went away
+     */
+    public void streamChanges(Position position, long limit, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        try (JsonGenerator generator = objectMapper.createGenerator(writer);
+             ReadRouting.Scope primary = ReadRouting.primary()) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            readOnlyTransaction.executeWithoutResult(status -> userJdbcRepository.streamChanges(
+                    position == null ? null : position.time(), position == null ? 0 : position.id(),
+                    properties.settleDelay(), limit, change -> writeChange(generator, change)));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private static void writeChange(JsonGenerator generator, UserChange change) throws IOException {
+        String changedAt = change.changedAt().toString();
+        generator.writeStartObject();
+        generator.writeStringField("op", change.deleted() ? "delete" : "upsert");
+        generator.writeNumberField("id", change.id());
+        generator.writeStringField("changedAt", changedAt);
+        if (!change.deleted()) {
+            generator.writeStringField("email", change.email());
+            generator.writeStringField("name", change.name());
+            generator.writeStringField("surname", change.surname());
+            generator.writeStringField("address", change.address());
+        }
+        generator.writeStringField("cursor", CursorCodec.encode(CURSOR_QUERY,
+                Map.of(CURSOR_TIME_KEY, changedAt, CURSOR_ID_KEY, change.id())));
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    /**
+     * Removes the tombstones older than {@link ChangeFeedProperties#tombstoneRetention()},
+     * every {@link ChangeFeedProperties#purgeInterval()}.
+     */
+    @Scheduled(fixedDelayString = "${app.changes.purge-interval:1h}", initialDelayString = "${app.changes.purge-interval:1h}")
+    public void purgeTombstones() {
+        int purged = userJdbcRepository.deleteTombstones(properties.tombstoneRetention());
+        if (purged > 0) {
+            log.info("Purged {} user tombstones older than {}", purged, properties.tombstoneRetention());
+        }
+    }
+
+    /**
+     * Position in the change feed: the last change seen.
+     *
+     * @param time the change time
+     * @param id   the ID of the changed user
+     */
+    public record Position(OffsetDateTime time, long id) {
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.fcgusersapp.service;
+
+/**
+ * Number of users matching a search filter, as kept in the
+ * {@link com.example.fcgusersapp.constants.CacheNames#USER_COUNTS} cache.
+ *
+ * @param total the number of matching users
+ * @param exact {@code false} if {@code total} is the planner estimate
+ */
+public record UserCount(long total, boolean exact) {
+}
@@ -0,0 +1,276 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.config.ImportProperties;
+import com.example.fcgusersapp.entity.User;
+import com.example.fcgusersapp.exceptions.CsvImportException;
+import com.example.fcgusersapp.exceptions.ImportTooLargeException;
+import com.example.fcgusersapp.repository.UserJdbcRepository;
+import com.example.fcgusersapp.service.CsvUserChunkParser.ParsedChunk;
+import com.example.fcgusersapp.service.CsvUserChunkParser.ParsedRow;
+import com.example.fcgusersapp.utils.ApiResponse;
+import com.example.fcgusersapp.utils.CsvChunkReader;
+import com.example.fcgusersapp.utils.CsvFormat;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+
+/**
+ * Streaming import engine for user CSV files.
+ * <p>
+ * The content is cut into chunks of {@link ImportProperties#chunkSize()} bytes at record
+ * boundaries by {@link CsvChunkReader}; chunks are parsed and validated in parallel on a pool
+ * of {@link ImportProperties#parserThreads()} threads, a few chunks ahead of the importing
+ * thread, which takes them back in file order. Their rows are buffered into batches of
+ * {@link ImportProperties#batchSize()} users; each batch is written with a single
+ * statement in its own transaction, so memory usage does not depend on the file size
+ * and a duplicate email only rejects its own row, or updates the existing user
+ * depending on the {@link ImportMode}. Gzip-compressed content is decompressed as it is read,
+ * up to {@link ImportProperties#maxCsvSize()} bytes.
+ * <p>
+ * New rows get new IDs and the user cache does not hold misses, so only the users
+ * updated by an {@link ImportMode#UPSERT} import are evicted from it; such an import first
+ * writes the updates pending in the {@link UserWriteBehindQueue}, so that they do not
+ * overwrite its own.
+ * <p>
+ * Unless the mode is {@link ImportMode#UPSERT}, the emails of a batch found used through the
+ * {@link UserEmailIndex} are left out of its insert: re-importing a file costs one lookup
+ * per batch rather than the insert attempt of every row, and allocates no ID.
+ * <p>
+ * Rows and users are also counted across all imports in {@link UserImportMetrics}.
+ */
+@Component
+public class UserCsvImporter {
+
+    private final UserJdbcRepository userJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ImportProperties importProperties;
+    private final UserCacheInvalidator userCacheInvalidator;
+    private final UserImportMetrics metrics;
+    private final UserWriteBehindQueue userWriteBehindQueue;
+    private final UserEmailIndex userEmailIndex;
+    private final ForkJoinPool parserPool;
+
+    public UserCsvImporter(UserJdbcRepository userJdbcRepository,
+                           PlatformTransactionManager transactionManager,
+                           ImportProperties importProperties,
+                           UserCacheInvalidator userCacheInvalidator,
+                           UserImportMetrics metrics,
+                           UserWriteBehindQueue userWriteBehindQueue,
+                           UserEmailIndex userEmailIndex) {
+        this.userJdbcRepository = userJdbcRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.importProperties = importProperties;
+        this.userCacheInvalidator = userCacheInvalidator;
+        this.metrics = metrics;
+        this.userWriteBehindQueue = userWriteBehindQueue;
+        this.userEmailIndex = userEmailIndex;
+        int parserThreads = importProperties.parserThreads() > 0
+                ? importProperties.parserThreads() : Runtime.getRuntime().availableProcessors();
+        this.parserPool = new ForkJoinPool(parserThreads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("csv-parser-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Checks that the name of an uploaded file has the CSV extension, possibly gzip-compressed.
+     *
+     * @param filename the original name of the uploaded file, may be {@code null}
+     * @throws CsvImportException if the extension is neither CSV nor compressed CSV
+     */
+    public static void checkFilename(String filename) {
+        String lowerCase = filename == null ? null : filename.toLowerCase();
+        if (lowerCase != null && !lowerCase.endsWith(".csv") && !lowerCase.endsWith(".csv.gz")) {
+            throw new CsvImportException("Estensione file non valida: richiesto .csv o .csv.gz");
+        }
+    }
+
+    /**
+     * Reads users from the given CSV content and stores them in batches.
+     *
+     * @see #importUsers(InputStream, CsvImportProgress, ImportMode)
+     */
+    public Map<String, Object> importUsers(InputStream input, ImportMode mode) throws IOException {
+        return importUsers(input, new CsvImportProgress(), mode);
+    }
+
+    /**
+     * Reads users from the given CSV content and stores them in batches.
+     * The first line (header) is skipped.
+     *
+     * @param input    the UTF-8 encoded CSV content, formatted as {@code email,name,surname,address}
+     *                 as described in {@link CsvFormat}, possibly gzip-compressed
+     * @param progress counters updated as rows are parsed and batches are written
+     * @param mode     how rows whose email already exists are treated
+     * @return a report map {@link ApiResponse} with the number of inserted users and the duplicates found
+     * with their line numbers, in file order, plus the number of updated and unchanged users unless the mode
+     * is {@link ImportMode#INSERT_ONLY}
+     * @throws IOException        if the content cannot be read
+     * @throws CsvImportException if a row does not have the expected number of columns;
+     *                            the rows preceding it are stored anyway; an {@link ImportTooLargeException}
+     *                            if the CSV content exceeds {@link ImportProperties#maxCsvSize()}
+     */
+    public Map<String, Object> importUsers(InputStream input, CsvImportProgress progress,
+                                           ImportMode mode) throws IOException {
+        if (mode == ImportMode.UPSERT) {
+            userWriteBehindQueue.flushPending();
+        }
+        Batch batch = new Batch(Math.max(1, importProperties.batchSize()), progress, mode);
+        CsvChunkReader chunkReader = new CsvChunkReader(
+                CsvUploadStreams.decompress(input, importProperties.maxCsvSize().toBytes()),
+                (int) importProperties.chunkSize().toBytes());
+        int maxChunksAhead = parserPool.getParallelism() * 2;
+        Deque<Future<ParsedChunk>> parsing = new ArrayDeque<>(maxChunksAhead);
+        boolean header = true;
+        try {
+            while (true) {
+                while (parsing.size() < maxChunksAhead) {
+                    CsvChunkReader.Chunk chunk = chunkReader.next();
+                    if (chunk == null) {
+                        break;
+                    }
+                    boolean withHeader = header;
+                    parsing.add(parserPool.submit(() -> CsvUserChunkParser.parse(chunk, withHeader)));
+                    header = false;
+                }
+                if (parsing.isEmpty()) {
+                    break;
+                }
+                ParsedChunk parsed = await(parsing.poll());
+                for (ParsedRow row : parsed.rows()) {
+                    batch.add(row);
+                }
+                progress.rowsParsed(parsed.rows().size());
+                if (parsed.invalidLine() > 0) {
+                    batch.flush();
+                    throw new CsvImportException("Errore nel formato del file CSV alla riga " + parsed.invalidLine());
+                }
+            }
+        } finally {
+            parsing.forEach(future -> future.cancel(true));
+        }
+        batch.flush();
+        if (mode == ImportMode.INSERT_ONLY) {
+            return ApiResponse.csvImportResponse(batch.usersInserted, batch.errors);
+        }
+        return ApiResponse.csvImportResponse(batch.usersInserted, batch.usersUpdated, batch.usersUnchanged,
+                batch.errors);
+    }
+
+    private static ParsedChunk await(Future<ParsedChunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("CSV import interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        parserPool.shutdownNow();
+    }
+
+    /**
+     * Rows waiting to be written, together with the running totals of the import.
+     */
+    private final class Batch {
+        private final int size;
+        private final CsvImportProgress progress;
+        private final ImportMode mode;
+        private final Map<String, ParsedRow> pending;
+        private final List<Map<String, Object>> errors = new ArrayList<>();
+        private int usersInserted;
+        private int usersUpdated;
+        private int usersUnchanged;
+
+        private Batch(int size, CsvImportProgress progress, ImportMode mode) {
+            this.size = size;
+            this.progress = progress;
+            this.mode = mode;
+            this.pending = new LinkedHashMap<>(size * 2);
+        }
+
+        /**
+         * Queues a user, writing the current batch first when it is full or already
+         * contains the same email (a single statement cannot touch a row twice).
+         */
+        private void add(ParsedRow row) {
+            String email = row.user().getEmail();
+            if (pending.size() >= size || pending.containsKey(email)) {
+                flush();
+            }
+            pending.put(email, row);
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<ParsedRow> rows = new ArrayList<>(pending.values());
+            List<User> users = rows.stream().map(ParsedRow::user).toList();
+            pending.clear();
+            UserJdbcRepository.UpsertResult result = metrics.batchTimer().record(
+                    () -> transactionTemplate.execute(status -> write(users)));
+            int inserted = 0;
+            int updated = 0;
+            int unchanged = 0;
+            int rejected = 0;
+            for (ParsedRow row : rows) {
+                String email = row.user().getEmail();
+                if (result.inserted().containsKey(email)) {
+                    inserted++;
+                } else if (result.updated().containsKey(email)) {
+                    updated++;
+                } else if (mode == ImportMode.INSERT_ONLY) {
+                    errors.add(Map.of("email", email, "line", row.line()));
+                    rejected++;
+                } else {
+                    unchanged++;
+                }
+            }
+            usersInserted += inserted;
+            usersUpdated += updated;
+            usersUnchanged += unchanged;
+            progress.batchWritten(inserted, updated, unchanged, rejected);
+            metrics.batchWritten(users.size(), inserted, updated, unchanged, rejected);
+        }
+
+        /**
+         * Writes the users with a single statement; runs within the batch transaction.
+         */
+        private UserJdbcRepository.UpsertResult write(List<User> users) {
+            UserJdbcRepository.UpsertResult result = mode != ImportMode.UPSERT
+                    ? new UserJdbcRepository.UpsertResult(userJdbcRepository.insertIgnoringDuplicates(withoutUsedEmails(users)), Map.of())
+                    : userJdbcRepository.upsert(users);
+            userEmailIndex.addAll(result.inserted().keySet());
+            if (!result.updated().isEmpty()) {
+                userCacheInvalidator.evictAll(result.updated().values());
+            } else if (!result.inserted().isEmpty()) {
+                userCacheInvalidator.evictCounts();
+            }
+            return result;
+        }
+
+        private List<User> withoutUsedEmails(List<User> users) {
+            Set<String> used = userEmailIndex.findUsed(users.stream().map(User::getEmail).toList()).keySet();
+            return used.isEmpty() ? users : users.stream().filter(user -> !used.contains(user.getEmail())).toList();
+        }
+    }
+}
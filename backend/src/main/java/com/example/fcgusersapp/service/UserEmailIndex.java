@@ -0,0 +1,183 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.config.ChangeFeedProperties;
+import com.example.fcgusersapp.config.EmailIndexProperties;
+import com.example.fcgusersapp.config.ReadRouting;
+import com.example.fcgusersapp.repository.UserJdbcRepository;
+import com.example.fcgusersapp.repository.UserSearchFilter;
+import com.example.fcgusersapp.utils.BloomFilter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory index of the emails of the users, used by {@link UserService} and {@link UserCsvImporter}
+ * when {@link EmailIndexProperties#enabled()} is set, so that unused emails are recognized
+ * without querying the database.
+ * <p>
+ * The emails are held in a {@link BloomFilter}, loaded in the background at startup: an email
+ * it rules out is certainly unused, while the database is still asked about the others, which
+ * may be false positives or no longer used. The emails written through this instance are added
+ * as they are written, those written by the other instances are read every
+ * {@link EmailIndexProperties#refreshInterval()} by their {@code updated_at}, going back by the
+ * {@link ChangeFeedProperties#settleDelay()} to catch the transactions committed late, and the
+ * index is rebuilt every {@link EmailIndexProperties#rebuildInterval()}, or as soon as it holds
+ * more emails than it is sized for. Emails are read from the primary, which has all the
+ * committed ones.
+ * <p>
+ * Until the index is loaded, every email is reported as possibly used.
+ */
+@Slf4j
+@Component
+public class UserEmailIndex {
+
+    private final UserJdbcRepository userJdbcRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final EmailIndexProperties properties;
+    private final ChangeFeedProperties changeFeedProperties;
+    private final ScheduledExecutorService refresher;
+    private volatile BloomFilter filter;
+    private volatile BloomFilter building;
+    private OffsetDateTime refreshedAt;
+    private OffsetDateTime builtAt;
+
+    public UserEmailIndex(UserJdbcRepository userJdbcRepository, PlatformTransactionManager transactionManager,
+                          EmailIndexProperties properties, ChangeFeedProperties changeFeedProperties,
+                          MeterRegistry meterRegistry) {
+        this.userJdbcRepository = userJdbcRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.properties = properties;
+        this.changeFeedProperties = changeFeedProperties;
+        if (!properties.enabled()) {
+            this.refresher = null;
+            return;
+        }
+        Gauge.builder("users.email.index.size", this, index -> index.filter == null ? 0 : index.filter.sizeInBytes())
+                .description("Memory taken by the index of the user emails")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        long interval = properties.refreshInterval().toMillis();
+        this.refresher = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("users-email-index").daemon().factory());
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return {@code true} once the index is loaded, and as long as it is enabled
+     */
+    public boolean isReady() {
+        return filter != null;
+    }
+
+    /**
+     * @param email the email to look for
+     * @return {@code false} if no user has the email, {@code true} if one may have it
+     * or the index is not {@link #isReady() ready}
+     */
+    public boolean mightContain(String email) {
+        BloomFilter current = filter;
+        return current == null || current.mightContain(email);
+    }
+
+    /**
+     * Finds which of the given emails are used, only asking the database about those
+     * the index does not rule out, with a single statement.
+     *
+     * @param emails the emails to look for; {@code null}s are ignored
+     * @return the IDs of the users owning the emails, keyed by email; empty while the index is
+     * not {@link #isReady() ready}, leaving the unique constraint to detect the duplicates
+     */
+    public Map<String, Long> findUsed(Collection<String> emails) {
+        BloomFilter current = filter;
+        if (current == null) {
+            return Map.of();
+        }
+        List<String> candidates = emails.stream().filter(Objects::nonNull).filter(current::mightContain).toList();
+        return candidates.isEmpty() ? Map.of() : userJdbcRepository.findIdsByEmail(candidates);
+    }
+
+    /**
+     * Adds the email of a user written through this instance. It must be added before the
+     * write is committed, so that no lookup can miss it once the user is visible.
+     *
+     * @param email the email; ignored if {@code null}
+     */
+    public void add(String email) {
+        if (email == null) {
+            return;
+        }
+        // The index being built is read first: once it is null, the current one is the new one
+        BloomFilter next = building;
+        BloomFilter current = filter;
+        if (next != null) {
+            next.put(email);
+        }
+        if (current != null) {
+            current.put(email);
+        }
+    }
+
+    /**
+     * Adds the emails of several users written through this instance, as {@link #add}.
+     *
+     * @param emails the emails
+     */
+    public void addAll(Collection<String> emails) {
+        emails.forEach(this::add);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    private void refreshQuietly() {
+        try (ReadRouting.Scope primary = ReadRouting.primary()) {
+            BloomFilter current = filter;
+            if (current == null || current.insertions() > current.capacity()
+                    || builtAt.plus(properties.rebuildInterval()).isBefore(refreshedAt)) {
+                rebuild(current == null ? 0 : current.insertions());
+            } else {
+                refreshedAt = readOnlyTransaction.execute(status -> userJdbcRepository.streamEmails(
+                        refreshedAt.minus(changeFeedProperties.settleDelay()), current::put));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Email index refresh failed, retrying in {}", properties.refreshInterval(), e);
+        }
+    }
+
+    /**
+     * Builds a new index out of all the emails, sized for the estimated number of users, while
+     * the current one keeps answering; the emails written meanwhile are added to both.
+     *
+     * @param emails the number of emails in the current index, in case the estimate is lower
+     */
+    private void rebuild(long emails) {
+        long users = Math.max(emails, userJdbcRepository.estimateCount(UserSearchFilter.of(null, null)));
+        BloomFilter next = new BloomFilter(Math.max(properties.minCapacity(), users + users / 2),
+                properties.falsePositiveRate());
+        building = next;
+        try {
+            OffsetDateTime startedAt = readOnlyTransaction.execute(status -> userJdbcRepository.streamEmails(null, next::put));
+            filter = next;
+            refreshedAt = startedAt;
+            builtAt = startedAt;
+            log.info("Email index built with {} emails in {} bytes", next.insertions(), next.sizeInBytes());
+        } finally {
+            building = null;
+        }
+    }
+}
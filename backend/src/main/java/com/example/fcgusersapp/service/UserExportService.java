@@ -0,0 +1,81 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.entity.User;
+import com.example.fcgusersapp.repository.UserJdbcRepository;
+import com.example.fcgusersapp.repository.UserSearchFilter;
+import com.example.fcgusersapp.utils.CsvFormat;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Service streaming the users table out as CSV or NDJSON.
+ * <p>
+ * Users are read through a server-side cursor in a read-only transaction and written
+ * straight to the output stream as they arrive, so memory usage does not depend on the
+ * number of exported users.
+ */
+@Service
+public class UserExportService {
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final UserJdbcRepository userJdbcRepository;
+    private final ObjectWriter userWriter;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public UserExportService(UserJdbcRepository userJdbcRepository, ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager) {
+        this.userJdbcRepository = userJdbcRepository;
+        this.userWriter = objectMapper.writerFor(User.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Writes the users matching the filters, ordered by ID, in the given format.
+     *
+     * @param name    optional filter for the user's first name (any if {@code null} or empty)
+     * @param surname optional filter for the user's surname (any if {@code null} or empty)
+     * @param format  the output format
+     * @param out     the destination, left open
+     * @throws IOException if the users cannot be written, e.g. because the client went away
+     */
+    public void exportUsers(String name, String surname, ExportFormat format, OutputStream out) throws IOException {
+        UserSearchFilter filter = UserSearchFilter.of(name, surname);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        try {
+            switch (format) {
+                case CSV -> exportCsv(filter, writer);
+                case NDJSON -> exportNdjson(filter, writer);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private void exportCsv(UserSearchFilter filter, Writer writer) throws IOException {
+        writer.write(CsvFormat.USERS_HEADER);
+        writer.write('\n');
+        readOnlyTransaction.executeWithoutResult(status -> userJdbcRepository.streamAll(filter, user ->
+                CsvFormat.writeRecord(writer, user.getEmail(), user.getName(), user.getSurname(), user.getAddress())));
+    }
+
+    private void exportNdjson(UserSearchFilter filter, Writer writer) throws IOException {
+        try (JsonGenerator generator = userWriter.createGenerator(writer)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            readOnlyTransaction.executeWithoutResult(status -> userJdbcRepository.streamAll(filter, user -> {
+                userWriter.writeValue(generator, user);
+                generator.writeRaw('\n');
+            }));
+        }
+    }
+}
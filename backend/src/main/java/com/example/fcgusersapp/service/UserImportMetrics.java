@@ -0,0 +1,61 @@
+package com.example.fcgusersapp.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Metrics of the CSV importers: rows and users are counted across all imports in the
+ * {@code users.import.*} metrics, whose rate gives the pipeline throughput, and batch
+ * writes are timed.
+ */
+@Component
+class UserImportMetrics {
+
+    private final Counter rowsCounter;
+    private final Counter insertedCounter;
+    private final Counter updatedCounter;
+    private final Counter unchangedCounter;
+    private final Counter rejectedCounter;
+    private final Timer batchTimer;
+
+    UserImportMetrics(MeterRegistry meterRegistry) {
+        this.rowsCounter = Counter.builder("users.import.rows")
+                .description("CSV rows written by the user imports")
+                .register(meterRegistry);
+        this.insertedCounter = usersCounter(meterRegistry, "inserted");
+        this.updatedCounter = usersCounter(meterRegistry, "updated");
+        this.unchangedCounter = usersCounter(meterRegistry, "unchanged");
+        this.rejectedCounter = usersCounter(meterRegistry, "rejected");
+        this.batchTimer = Timer.builder("users.import.batches")
+                .description("Duration of the batch writes of the user imports")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static Counter usersCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("users.import.users")
+                .description("Users processed by the user imports, by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the timer of the batch writes
+     */
+    Timer batchTimer() {
+        return batchTimer;
+    }
+
+    /**
+     * Counts the rows of a written batch.
+     */
+    void batchWritten(int rows, int inserted, int updated, int unchanged, int rejected) {
+        rowsCounter.increment(rows);
+        insertedCounter.increment(inserted);
+        updatedCounter.increment(updated);
+        unchangedCounter.increment(unchanged);
+        rejectedCounter.increment(rejected);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.config.PartitionProperties;
+import com.example.fcgusersapp.repository.UserJdbcRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Keeps partitions of the users table ready for the users to come.
+ * <p>
+ * The table is partitioned by ranges of IDs (see V6), and an insert whose ID falls past the last
+ * partition fails: every {@link PartitionProperties#checkInterval()}, and at startup, the
+ * partitions are created up to {@link PartitionProperties#ahead()} partitions after the one
+ * holding the next IDs of the sequence. Instances may run it concurrently.
+ */
+@Slf4j
+@Component
+public class UserPartitionMaintainer {
+
+    private final UserJdbcRepository userJdbcRepository;
+    private final PartitionProperties properties;
+
+    public UserPartitionMaintainer(UserJdbcRepository userJdbcRepository, PartitionProperties properties) {
+        this.userJdbcRepository = userJdbcRepository;
+        this.properties = properties;
+    }
+
+    /**
+     * Creates the missing partitions; a failure is logged and the creation retried at the next check.
+     */
+    @Scheduled(fixedDelayString = "${app.partitions.check-interval:1h}")
+    public void createPartitions() {
+        try {
+            List<String> created = userJdbcRepository.createPartitions(properties.ahead());
+            if (!created.isEmpty()) {
+                log.info("Created users partitions {}", created);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Users partitions not created, retrying in {}: {}", properties.checkInterval(), e.getMessage());
+        }
+    }
+}
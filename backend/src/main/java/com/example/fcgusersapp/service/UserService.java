@@ -1,87 +1,411 @@
 package com.example.fcgusersapp.service;
 
+import com.example.fcgusersapp.config.ImportProperties;
+import com.example.fcgusersapp.config.ReadRouting;
+import com.example.fcgusersapp.config.SearchProperties;
+import com.example.fcgusersapp.constants.CacheNames;
 import com.example.fcgusersapp.entity.User;
 import com.example.fcgusersapp.exceptions.CsvImportException;
+import com.example.fcgusersapp.exceptions.ImportTooLargeException;
+import com.example.fcgusersapp.exceptions.InvalidCursorException;
+import com.example.fcgusersapp.repository.UserField;
+import com.example.fcgusersapp.repository.UserJdbcRepository;
 import com.example.fcgusersapp.repository.UserRepository;
+import com.example.fcgusersapp.repository.UserSearchFilter;
+import com.example.fcgusersapp.repository.UserView;
 import com.example.fcgusersapp.utils.ApiResponse;
-import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import com.example.fcgusersapp.utils.CountedPage;
+import com.example.fcgusersapp.utils.CursorCodec;
+import com.example.fcgusersapp.utils.CursorPage;
+import com.example.fcgusersapp.utils.VersionETags;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.time.OffsetDateTime;
 import java.util.*;
 
 /**
  * Service layer providing operations for managing {@link User} entities,
  * including CRUD actions and CSV import functionality.
  * <p>
- * This service interacts with the {@link UserRepository} for persistence
- * and contains transactional boundaries where required.
+ * This service interacts with the {@link UserRepository} for persistence,
+ * and with the {@link UserJdbcRepository} for statements touching several rows
+ * at once, and contains transactional boundaries where required.
  */
 @Service
 public class UserService {
+    /**
+     * Properties of {@link User} the keyset pagination can sort on.
+     */
+    private static final Set<String> SCROLL_SORT_PROPERTIES = Set.of("id", "email", "name", "surname", "address");
+
     private final UserRepository userRepository;
+    private final UserJdbcRepository userJdbcRepository;
+    private final UserCsvImporter userCsvImporter;
+    private final UserCacheInvalidator userCacheInvalidator;
+    private final CacheManager cacheManager;
+    private final SearchProperties searchProperties;
+    private final ImportProperties importProperties;
+    private final UserWriteBehindQueue userWriteBehindQueue;
+    private final UserEmailIndex userEmailIndex;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, UserJdbcRepository userJdbcRepository,
+                       UserCsvImporter userCsvImporter, UserCacheInvalidator userCacheInvalidator,
+                       CacheManager cacheManager, SearchProperties searchProperties,
+                       ImportProperties importProperties, UserWriteBehindQueue userWriteBehindQueue,
+                       UserEmailIndex userEmailIndex) {
         this.userRepository = userRepository;
+        this.userJdbcRepository = userJdbcRepository;
+        this.userCsvImporter = userCsvImporter;
+        this.userCacheInvalidator = userCacheInvalidator;
+        this.cacheManager = cacheManager;
+        this.searchProperties = searchProperties;
+        this.importProperties = importProperties;
+        this.userWriteBehindQueue = userWriteBehindQueue;
+        this.userEmailIndex = userEmailIndex;
     }
 
     /**
      * Persists a new user in the database.
+     * <p>
+     * A payload carrying the ID of an existing user overwrites it, so the
+     * cached copy of that ID is evicted.
+     * <p>
+     * An email already used by another user is detected through the {@link UserEmailIndex}
+     * when possible, without attempting the insert.
      *
      * @param user the user entity to be saved
+     * @throws org.springframework.dao.DataIntegrityViolationException if the email is already used
      */
     @Transactional
     public void saveUser(User user) {
+        String email = user.getEmail();
+        Long owner = email == null ? null : userEmailIndex.findUsed(List.of(email)).get(email);
+        if (owner != null && !owner.equals(user.getId())) {
+            throw new DuplicateKeyException("Email " + email + " already used by user " + owner);
+        }
         this.userRepository.save(user);
+        userEmailIndex.add(email);
+        userCacheInvalidator.evict(user.getId());
     }
 
     /**
      * Finds a user by its ID.
+     * <p>
+     * Found users are kept in the {@link CacheNames#USERS} cache until they are
+     * modified through this service or the cache entry expires; misses are not cached.
+     * The cache holds an immutable {@link CachedUser}, so every call returns a new
+     * {@link User} that the caller is free to modify.
+     * <p>
+     * Misses are read from the primary database, see {@link ReadRouting#primary()}: a replica
+     * lagging behind could return a previous state, which would then be cached, and its version
+     * served by {@link #findUserVersion} to conditional requests, until the entry expires.
+     * <p>
+     * An update still in the {@link UserWriteBehindQueue} is applied to the stored user,
+     * whose version is then unknown and left {@code null}.
      *
      * @param id the user ID
      * @return an {@link Optional} containing the {@link User} if found,
      * or empty if not present
      */
     public Optional<User> findUserById(Long id) {
-        return userRepository.findById(id);
+        Cache cache = cacheManager.getCache(CacheNames.USERS);
+        CachedUser cached = cache == null ? null : cache.get(id, CachedUser.class);
+        if (cached == null) {
+            try (ReadRouting.Scope primary = ReadRouting.primary()) {
+                cached = userRepository.findById(id)
+                        .map(user -> userWriteBehindQueue.findPending(id)
+                                .map(pending -> User.builder()
+                                        .id(id)
+                                        .email(pending.getEmail())
+                                        .name(pending.getName())
+                                        .surname(pending.getSurname())
+                                        .address(pending.getAddress())
+                                        .createdAt(user.getCreatedAt())
+                                        .build())
+                                .orElse(user))
+                        .map(CachedUser::of)
+                        .orElse(null);
+            }
+            if (cached != null && cache != null) {
+                cache.put(id, cached);
+            }
+        }
+        return Optional.ofNullable(cached).map(CachedUser::toUser);
+    }
+
+    /**
+     * Finds a user by its email, matched exactly.
+     * <p>
+     * Emails ruled out by the {@link UserEmailIndex} are answered without querying the
+     * database. Users are not cached, and updates still in the {@link UserWriteBehindQueue}
+     * are not applied.
+     *
+     * @param email the email of the user
+     * @return an {@link Optional} containing the {@link User} if found, or empty if not present
+     */
+    @Transactional(readOnly = true)
+    public Optional<User> findUserByEmail(String email) {
+        if (!userEmailIndex.mightContain(email)) {
+            return Optional.empty();
+        }
+        return userRepository.findByEmail(email);
+    }
+
+    /**
+     * Reads the current version of a user, e.g. to answer a conditional request
+     * without loading the user.
+     * <p>
+     * The version of the cached user is used when present, as {@link #findUserById} would
+     * return it; otherwise only the version column is read.
+     *
+     * @param id the user ID
+     * @return the version of the user, or empty if not present or while an update of the user
+     * is in the {@link UserWriteBehindQueue}
+     */
+    public Optional<Long> findUserVersion(Long id) {
+        if (userWriteBehindQueue.findPending(id).isPresent()) {
+            return Optional.empty();
+        }
+        Cache cache = cacheManager.getCache(CacheNames.USERS);
+        CachedUser cached = cache == null ? null : cache.get(id, CachedUser.class);
+        if (cached != null && cached.version() != null) {
+            return Optional.of(cached.version());
+        }
+        return userJdbcRepository.findVersion(id);
     }
 
     /**
      * Updates an existing user with new data.
+     * <p>
+     * The user is overwritten with a single {@code UPDATE ... RETURNING} statement,
+     * without reading it first; when versions are expected, the statement only applies
+     * if the user still has one of them.
+     *
+     * @param user             the updated user data
+     * @param id               the ID of the user to update
+     * @param ifMatch the precondition sent in {@code If-Match}: the versions the user may
+     *                currently have, or any as long as it exists; {@code null} to update it unconditionally
+     * @return the updated {@link User}, with its new version
+     * @throws IllegalArgumentException          if no user with the given ID exists and there is no precondition
+     * @throws OptimisticLockingFailureException if the user does not meet the precondition: it no longer
+     *                                           has any of the expected versions, or does not exist
+     */
+    @Transactional
+    public User editUser(User user, Long id, VersionETags.IfMatch ifMatch) {
+        User editedUser = userJdbcRepository.update(id, user, ifMatch == null ? null : ifMatch.versions())
+                .orElseThrow(() -> ifMatch == null
+                        ? new IllegalArgumentException("User " + id + " not found")
+                        : new OptimisticLockingFailureException("User " + id + " was modified or deleted"));
+        userEmailIndex.add(editedUser.getEmail());
+        userCacheInvalidator.evict(id);
+        return editedUser;
+    }
+
+    /**
+     * Writes the updates queued for a write-behind, if some concern the given users, so that
+     * {@link #editUser}, {@link #deleteUser}, {@link #updateUsers} and {@link #deleteUsers} do not
+     * get overwritten by an older queued update. To be called before them, outside of their
+     * transaction, see {@link UserWriteBehindQueue#flushPending(Collection)}.
+     *
+     * @param ids the IDs of the users about to be changed; {@code null} elements are ignored
+     */
+    public void flushQueuedEdits(Collection<Long> ids) {
+        userWriteBehindQueue.flushPending(ids.stream().filter(Objects::nonNull).toList());
+    }
+
+    /**
+     * @return {@code true} if updates without expected versions are to go through
+     * {@link #queueUserEdit} rather than {@link #editUser}
+     */
+    public boolean isWriteBehindEnabled() {
+        return userWriteBehindQueue.isEnabled();
+    }
+
+    /**
+     * Queues an update of an existing user in the {@link UserWriteBehindQueue}, to be written
+     * within {@link com.example.fcgusersapp.config.WriteBehindProperties#flushInterval()}.
+     * <p>
+     * Repeated updates of the same user are merged, and {@link #findUserById} returns the
+     * queued data until it is written. The existence of the user is checked without reading the
+     * database if the user has a pending update or is cached, and an email already used by another
+     * user is rejected as {@link #saveUser} does, through the {@link UserEmailIndex}, or the database
+     * while the index is not ready.
+     * <p>
+     * Both checks only see the committed state: the user may still be deleted, or the email taken
+     * by another write, including another queued update, before the update is written. Such an
+     * update is then dropped by the queue, which counts it in the {@code users.write.behind.dropped}
+     * metric, although the caller was told it was accepted.
      *
      * @param user the updated user data
      * @param id   the ID of the user to update
-     * @return the updated {@link User}
-     * @throws IllegalArgumentException if no user with the given ID exists
+     * @return the user as it will be once written, without version
+     * @throws IllegalArgumentException if a field is missing or no user with the given ID exists
+     * @throws DuplicateKeyException    if the email is already used by another user
      */
-    @Transactional
-    public User editUser(User user, Long id) {
-        User userToEdit = userRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("User " + id + " not found"));
-        userToEdit.setEmail(user.getEmail());
-        userToEdit.setName(user.getName());
-        userToEdit.setSurname(user.getSurname());
-        userToEdit.setAddress(user.getAddress());
-        return userRepository.save(userToEdit);
+    public User queueUserEdit(User user, Long id) {
+        if (!hasRequiredFields(user)) {
+            throw new IllegalArgumentException("User " + id + " has missing fields");
+        }
+        if (userWriteBehindQueue.findPending(id).isEmpty() && findUserVersion(id).isEmpty()) {
+            throw new IllegalArgumentException("User " + id + " not found");
+        }
+        String email = user.getEmail();
+        Long owner = (userEmailIndex.isReady()
+                ? userEmailIndex.findUsed(List.of(email))
+                : userJdbcRepository.findIdsByEmail(List.of(email))).get(email);
+        if (owner != null && !owner.equals(id)) {
+            throw new DuplicateKeyException("Email " + email + " already used by user " + owner);
+        }
+        User update = User.builder()
+                .id(id)
+                .email(user.getEmail())
+                .name(user.getName())
+                .surname(user.getSurname())
+                .address(user.getAddress())
+                .build();
+        userEmailIndex.add(update.getEmail());
+        userWriteBehindQueue.enqueue(update);
+        userCacheInvalidator.evict(id);
+        return update;
     }
 
     /**
-     * Deletes a user by its ID.
+     * Deletes a user by its ID, with a single {@code DELETE} statement.
      *
      * @param id the ID of the user to delete
      * @throws IllegalArgumentException if no user with the given ID exists
      */
     @Transactional
     public void deleteUser(Long id) {
-        User userToEdit = userRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("User " + id + " not found"));
-        this.userRepository.deleteById(userToEdit.getId());
+        if (userJdbcRepository.deleteAll(List.of(id)).isEmpty()) {
+            throw new IllegalArgumentException("User " + id + " not found");
+        }
+        userCacheInvalidator.evict(id);
+    }
+
+    /**
+     * Inserts several users in one transaction, with a single statement.
+     * <p>
+     * Items with a missing field are {@link BulkItemStatus#INVALID}; items whose email
+     * already exists, or appears earlier in the request, are {@link BulkItemStatus#CONFLICT}.
+     * Any ID in the payload is ignored. Emails found used through the {@link UserEmailIndex}
+     * are left out of the insert, which thus allocates no ID for them.
+     *
+     * @param users the users to insert
+     * @return the result of every item, in request order, see {@link ApiResponse#bulkItemResult}
+     */
+    @Transactional
+    public List<Map<String, Object>> createUsers(List<User> users) {
+        List<Map<String, Object>> results = new ArrayList<>(Collections.nCopies(users.size(), null));
+        Map<String, Integer> indexesByEmail = new LinkedHashMap<>();
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (!hasRequiredFields(user)) {
+                results.set(i, bulkItemResult(i, null, user == null ? null : user.getEmail(), BulkItemStatus.INVALID));
+            } else if (indexesByEmail.putIfAbsent(user.getEmail(), i) != null) {
+                results.set(i, bulkItemResult(i, null, user.getEmail(), BulkItemStatus.CONFLICT));
+            }
+        }
+        Set<String> used = userEmailIndex.findUsed(indexesByEmail.keySet()).keySet();
+        Map<String, Long> inserted = userJdbcRepository.insertIgnoringDuplicates(indexesByEmail.entrySet().stream()
+                .filter(entry -> !used.contains(entry.getKey())).map(entry -> users.get(entry.getValue())).toList());
+        userEmailIndex.addAll(inserted.keySet());
+        indexesByEmail.forEach((email, i) -> {
+            Long id = inserted.get(email);
+            results.set(i, bulkItemResult(i, id, email, id != null ? BulkItemStatus.CREATED : BulkItemStatus.CONFLICT));
+        });
+        if (!inserted.isEmpty()) {
+            userCacheInvalidator.evictCounts();
+        }
+        return results;
+    }
+
+    /**
+     * Updates several users in one transaction, with a single statement, without reading them first.
+     * <p>
+     * Items without an ID or with a missing field are {@link BulkItemStatus#INVALID}; items whose
+     * ID or new email appears earlier in the request, or whose new email belongs to another user,
+     * are {@link BulkItemStatus#CONFLICT}; items whose ID does not exist are {@link BulkItemStatus#NOT_FOUND}.
+     * The owners of the emails are those before the statement, so users swapping their emails within
+     * the request are all {@link BulkItemStatus#CONFLICT}, and left unchanged.
+     *
+     * @param users the new data of the users, identified by their IDs
+     * @return the result of every item, in request order, see {@link ApiResponse#bulkItemResult}
+     * @throws org.springframework.dao.DataIntegrityViolationException if another transaction commits one of the
+     *                                                                 new emails while the statement runs; nothing
+     *                                                                 is updated then
+     */
+    @Transactional
+    public List<Map<String, Object>> updateUsers(List<User> users) {
+        List<Map<String, Object>> results = new ArrayList<>(Collections.nCopies(users.size(), null));
+        Map<Long, Integer> indexesById = new LinkedHashMap<>();
+        Set<String> emails = new HashSet<>();
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (!hasRequiredFields(user) || user.getId() == null) {
+                results.set(i, bulkItemResult(i, user == null ? null : user.getId(),
+                        user == null ? null : user.getEmail(), BulkItemStatus.INVALID));
+            } else if (indexesById.containsKey(user.getId()) || !emails.add(user.getEmail())) {
+                results.set(i, bulkItemResult(i, user.getId(), user.getEmail(), BulkItemStatus.CONFLICT));
+            } else {
+                indexesById.put(user.getId(), i);
+            }
+        }
+        Set<Long> updated = userJdbcRepository.updateAll(indexesById.values().stream().map(users::get).toList());
+        Set<Long> notUpdated = new HashSet<>(indexesById.keySet());
+        notUpdated.removeAll(updated);
+        Set<Long> existing = userJdbcRepository.findExistingIds(notUpdated);
+        indexesById.forEach((id, i) -> {
+            BulkItemStatus status = updated.contains(id) ? BulkItemStatus.UPDATED
+                    : existing.contains(id) ? BulkItemStatus.CONFLICT : BulkItemStatus.NOT_FOUND;
+            results.set(i, bulkItemResult(i, id, users.get(i).getEmail(), status));
+        });
+        updated.forEach(id -> userEmailIndex.add(users.get(indexesById.get(id)).getEmail()));
+        userCacheInvalidator.evictAll(updated);
+        return results;
+    }
+
+    /**
+     * Deletes several users in one transaction, with a single statement.
+     * <p>
+     * Items whose ID does not exist are {@link BulkItemStatus#NOT_FOUND}; items whose ID appears earlier
+     * in the request are {@link BulkItemStatus#CONFLICT}, as in {@link #updateUsers}.
+     *
+     * @param ids the IDs of the users to delete
+     * @return the result of every item, in request order, see {@link ApiResponse#bulkItemResult}
+     */
+    @Transactional
+    public List<Map<String, Object>> deleteUsers(List<Long> ids) {
+        Set<Long> deleted = userJdbcRepository.deleteAll(ids.stream().filter(Objects::nonNull).distinct().toList());
+        Set<Long> seen = new HashSet<>();
+        List<Map<String, Object>> results = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            BulkItemStatus status = id == null ? BulkItemStatus.INVALID
+                    : !seen.add(id) ? BulkItemStatus.CONFLICT
+                    : deleted.contains(id) ? BulkItemStatus.DELETED : BulkItemStatus.NOT_FOUND;
+            results.add(bulkItemResult(i, id, null, status));
+        }
+        userCacheInvalidator.evictAll(deleted);
+        return results;
+    }
+
+    private static Map<String, Object> bulkItemResult(int index, Long id, String email, BulkItemStatus status) {
+        return ApiResponse.bulkItemResult(index, id, email, status.name().toLowerCase(Locale.ROOT));
+    }
+
+    private static boolean hasRequiredFields(User user) {
+        return user != null && user.getEmail() != null && user.getName() != null
+                && user.getSurname() != null && user.getAddress() != null;
     }
 
     /**
@@ -89,74 +413,200 @@ public class UserService {
      * <pre>
      * email,name,surname,address
      * </pre>
-     * The first line (header) is skipped.
+     * The first line (header) is skipped. The file is read as UTF-8, possibly gzip-compressed,
+     * parsed in parallel chunks and written in batches by {@link UserCsvImporter}.
      *
      * @param file the uploaded CSV file
+     * @param mode how rows whose email already exists are treated
      * @return a report map {@link ApiResponse}  with the number of inserted users and any errors encountered
      * @throws CsvImportException if the file extension is not CSV, if the format is invalid, or if an I/O error occurs
      */
-    public Map<String, Object> importUsersFromCsv(MultipartFile file) {
-        String filename = file.getOriginalFilename();
-        if (filename != null && !filename.toLowerCase().endsWith(".csv")) {
-            throw new CsvImportException("Estensione file non valida: richiesto .csv");
-        }
-        int usersInserted = 0;
-        List<Map<String, Object>> errors = new ArrayList<>();
-        try (var reader = new BufferedReader(getFileInputStream(file))) {
-            String line;
-            boolean firstLine = true;
-            while ((line = reader.readLine()) != null) {
-                if (firstLine) {
-                    firstLine = false;
-                    continue;
-                }
-                String[] cols = line.split(",", -1);
-                if (cols.length < 4) {
-                    throw new CsvImportException("Errore nel formato del file CSV");
-                }
-                User userToSave = User.builder()
-                        .email(cols[0].trim())
-                        .name(cols[1].trim())
-                        .surname(cols[2].trim())
-                        .address(cols[3].trim())
-                        .build();
-                try {
-                    userRepository.save(userToSave);
-                    usersInserted++;
-                } catch (DataIntegrityViolationException e) {
-                    errors.add(Map.of("email", userToSave.getEmail()));
-                }
-            }
+    public Map<String, Object> importUsersFromCsv(MultipartFile file, ImportMode mode) {
+        UserCsvImporter.checkFilename(file.getOriginalFilename());
+        try (InputStream input = file.getInputStream()) {
+            return userCsvImporter.importUsers(input, mode);
         } catch (IOException e) {
             throw new CsvImportException("Errore durante l'import CSV");
         }
-
-        return ApiResponse.csvImportResponse(usersInserted, errors);
     }
 
     /**
-     * Opens an {@link InputStreamReader} for the uploaded CSV file.
+     * Imports users from a CSV file sent as the request body, as {@link #importUsersFromCsv(MultipartFile, ImportMode)}.
+     * <p>
+     * The body is parsed as it is received: unlike a multipart upload, it is neither held in
+     * memory nor copied to a temporary file first, so memory usage stays flat whatever its size.
      *
-     * @param file the uploaded multipart file
-     * @return an {@link InputStreamReader} for reading the file contents
-     * @throws IOException if the file stream cannot be opened
+     * @param body          the request body, plain or gzip-compressed CSV
+     * @param contentLength the declared length of the body, {@code null} if unknown
+     * @param mode          how rows whose email already exists are treated
+     * @return a report map {@link ApiResponse} with the number of inserted users and any errors encountered
+     * @throws ImportTooLargeException if the body exceeds {@link ImportProperties#maxUploadSize()},
+     *                                 or its content {@link ImportProperties#maxCsvSize()}
+     * @throws CsvImportException      if the format is invalid, or if an I/O error occurs
      */
-    private InputStreamReader getFileInputStream(MultipartFile file) throws IOException {
-        return new InputStreamReader(file.getInputStream());
+    public Map<String, Object> importUsersFromCsv(InputStream body, Long contentLength, ImportMode mode) {
+        InputStream input = CsvUploadStreams.limitUpload(body, contentLength, importProperties.maxUploadSize().toBytes());
+        try {
+            return userCsvImporter.importUsers(input, mode);
+        } catch (IOException e) {
+            throw new CsvImportException("Errore durante l'import CSV");
+        }
     }
 
     /**
      * Searches users by first name and surname with pagination.
      * The search is case-insensitive and matches partial values.
+     * <p>
+     * Only the requested fields are read, straight into {@link UserView}s: no entity is
+     * loaded, and the read-only transaction keeps Hibernate from flushing.
+     * <p>
+     * The total is only counted when it cannot be deduced from the page, e.g. not for the
+     * last one, see {@link #countUsers}.
+     *
+     * @param name     optional filter for the user's first name (any if {@code null} or empty)
+     * @param surname  optional filter for the user's surname (any if {@code null} or empty)
+     * @param fields   the fields to return, see {@link UserField#parse}
+     * @param pageable pagination and sorting configuration, on any {@link UserField}
+     * @return a {@link CountedPage} of users matching the criteria, whose total may be an estimate
+     * @throws IllegalArgumentException if the sort is on an unknown field
+     */
+    @Transactional(readOnly = true)
+    public CountedPage<UserView> searchUsers(String name, String surname, Set<UserField> fields, Pageable pageable) {
+        for (Sort.Order order : pageable.getSort()) {
+            UserField.fromName(order.getProperty());
+        }
+        UserSearchFilter filter = UserSearchFilter.of(name, surname);
+        Slice<UserView> slice = userJdbcRepository.findSlice(filter, fields, pageable);
+        long read = (pageable.isPaged() ? pageable.getOffset() : 0) + slice.getNumberOfElements();
+        if (!slice.hasNext() && (slice.hasContent() || read == 0)) {
+            return new CountedPage<>(slice.getContent(), pageable, read, true);
+        }
+        UserCount count = countUsers(filter);
+        // An empty page past the last match bounds an overestimated total by the users skipped
+        long total = slice.hasNext() ? Math.max(count.total(), read + 1) : Math.min(count.total(), read);
+        return new CountedPage<>(slice.getContent(), pageable, total, count.exact() && total == count.total());
+    }
+
+    /**
+     * Counts the users matching a search filter.
+     * <p>
+     * The users are counted exactly up to {@link SearchProperties#exactCountThreshold()}, reading at
+     * most one user more than the threshold, and larger totals are left to the planner estimate,
+     * which costs the same whatever the number of users. Without a filter, the estimate comes from
+     * the table statistics and is read first, to count only when it is within the threshold. The
+     * estimate of a filter combines the statistics of each condition and may be far off either
+     * way, so filtered searches are always counted up to the threshold, and an overestimate is
+     * only returned when more users than the threshold match. Totals are kept
+     * in the {@link CacheNames#USER_COUNTS} cache until users are added, modified or removed
+     * through this application, see {@link UserCacheInvalidator}, or the cache entry expires.
      *
-     * @param name     optional filter for the user's first name (empty string if {@code null})
-     * @param surname  optional filter for the user's surname (empty string if {@code null})
-     * @param pageable pagination and sorting configuration
-     * @return a {@link Page} of users matching the criteria
+     * @param filter the users to count
+     * @return the number of matching users, exact or estimated
      */
-    public Page<User> searchUsers(String name, String surname, Pageable pageable) {
-        String nameToSearch = name == null ? "" : name;
-        String surnameToSearch = surname == null ? "" : surname;
-        return userRepository.findByNameContainingIgnoreCaseAndSurnameContainingIgnoreCase(nameToSearch, surnameToSearch, pageable);
+    private UserCount countUsers(UserSearchFilter filter) {
+        Cache cache = cacheManager.getCache(CacheNames.USER_COUNTS);
+        return cache == null ? computeCount(filter) : cache.get(filter, () -> computeCount(filter));
+    }
+
+    private UserCount computeCount(UserSearchFilter filter) {
+        long threshold = searchProperties.exactCountThreshold();
+        long estimate = filter.isEmpty() ? userJdbcRepository.estimateCount(filter) : 0;
+        if (estimate <= threshold) {
+            long count = userJdbcRepository.count(filter, threshold + 1);
+            if (count <= threshold) {
+                return new UserCount(count, true);
+            }
+            if (!filter.isEmpty()) {
+                estimate = userJdbcRepository.estimateCount(filter);
+            }
+        }
+        return new UserCount(Math.max(estimate, threshold + 1), false);
+    }
+
+    /**
+     * Searches users by first name and surname with keyset pagination.
+     * <p>
+     * Rather than skipping {@code OFFSET} rows and counting the matches, each page starts
+     * right after the sort keys of the previous one, so its cost does not depend on its depth.
+     * The {@code id} is always appended to the sort to make the order total. Users are loaded
+     * read-only, so Hibernate keeps no snapshot of them for dirty checking.
+     *
+     * @param name    optional filter for the user's first name (any if {@code null} or empty)
+     * @param surname optional filter for the user's surname (any if {@code null} or empty)
+     * @param sort    the order of the results, on any of {@link #SCROLL_SORT_PROPERTIES}
+     * @param size    the maximum number of users to return
+     * @param after   the {@link CursorPage#next()} cursor of the previous page, {@code null} for the first page
+     * @return a {@link CursorPage} of users matching the criteria
+     * @throws IllegalArgumentException if the sort is not supported; an {@link InvalidCursorException}
+     *                                  if the cursor is invalid
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<User> scrollUsers(String name, String surname, Sort sort, int size, String after) {
+        Sort keysetSort = withIdTieBreaker(sort);
+        String cursorQuery = keysetSort.toString();
+        ScrollPosition position = after == null || after.isEmpty()
+                ? ScrollPosition.keyset()
+                : ScrollPosition.forward(toKeyTypes(keysetSort, CursorCodec.decode(cursorQuery, after)));
+        Window<User> window = userRepository.findBy(UserSearchFilter.of(name, surname).toSpecification(),
+                query -> query.sortBy(keysetSort).limit(size).scroll(position));
+        String next = null;
+        if (window.hasNext() && !window.isEmpty()) {
+            KeysetScrollPosition last = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+            next = CursorCodec.encode(cursorQuery, last.getKeys());
+        }
+        return new CursorPage<>(window.getContent(), next);
+    }
+
+    /**
+     * Validates the requested sort and appends the {@code id} to it, unless already present.
+     */
+    private static Sort withIdTieBreaker(Sort sort) {
+        for (Sort.Order order : sort) {
+            if (!SCROLL_SORT_PROPERTIES.contains(order.getProperty())) {
+                throw new IllegalArgumentException("Sort on " + order.getProperty() + " is not supported");
+            }
+        }
+        return sort.getOrderFor("id") != null ? sort : sort.and(Sort.by(Sort.Direction.DESC, "id"));
+    }
+
+    /**
+     * Checks that a decoded cursor holds exactly the keys of the sort, with the types of the entity
+     * attributes, and converts the {@code id} back to a {@code Long}.
+     *
+     * @throws InvalidCursorException if a key is missing, unexpected or of the wrong type
+     */
+    private static Map<String, Object> toKeyTypes(Sort sort, Map<String, Object> keys) {
+        Map<String, Object> typed = new LinkedHashMap<>();
+        for (Sort.Order order : sort) {
+            Object value = keys.get(order.getProperty());
+            if ("id".equals(order.getProperty()) && (value instanceof Integer || value instanceof Long)) {
+                typed.put(order.getProperty(), ((Number) value).longValue());
+            } else if (!"id".equals(order.getProperty()) && value instanceof String) {
+                typed.put(order.getProperty(), value);
+            } else {
+                throw new InvalidCursorException("Invalid cursor");
+            }
+        }
+        if (typed.size() != keys.size()) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+        return typed;
+    }
+
+    /**
+     * Immutable copy of a {@link User}, as kept in the {@link CacheNames#USERS} cache: the entity
+     * itself is mutable, and would be shared by every request reading the same user.
+     */
+    private record CachedUser(Long id, String email, String name, String surname, String address,
+                              OffsetDateTime createdAt, OffsetDateTime updatedAt, Long version) {
+
+        private static CachedUser of(User user) {
+            return new CachedUser(user.getId(), user.getEmail(), user.getName(), user.getSurname(),
+                    user.getAddress(), user.getCreatedAt(), user.getUpdatedAt(), user.getVersion());
+        }
+
+        private User toUser() {
+            return new User(id, email, name, surname, address, createdAt, updatedAt, version);
+        }
     }
 }
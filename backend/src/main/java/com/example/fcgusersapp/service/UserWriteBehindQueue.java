@@ -0,0 +1,458 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.config.WriteBehindProperties;
+import com.example.fcgusersapp.entity.User;
+import com.example.fcgusersapp.repository.UserJdbcRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Write-behind queue of user updates, used by {@link UserService} when
+ * {@link WriteBehindProperties#enabled()} is set.
+ * <p>
+ * Updates are kept in memory in {@link WriteBehindProperties#stripes()} independently locked
+ * maps, a newer update of a user replacing the pending one, and written every
+ * {@link WriteBehindProperties#flushInterval()}, or as soon as {@link WriteBehindProperties#flushSize()}
+ * users are pending, with a single {@code UPDATE} statement in its own transaction. A burst of
+ * updates of the same users thus costs one row update per user and flush.
+ * <p>
+ * Every update is appended to a journal before being queued. The journal is made of segments:
+ * a new one is started by each flush, and the older ones are deleted once their updates are
+ * committed, so that those left at startup hold the updates still pending at the time of a
+ * crash, which are queued again.
+ * <p>
+ * {@link UserService} rejects the updates setting an email known to be used when they are queued,
+ * but the database is only checked again when they are written: those of users deleted meanwhile,
+ * or setting an email taken meanwhile by another user, are dropped, logged and counted by the
+ * {@code users.write.behind.dropped} metric. The queue is local to the instance, so the other
+ * instances only see an update once written.
+ */
+@Slf4j
+@Component
+public class UserWriteBehindQueue {
+
+    private static final String SEGMENT_PREFIX = "users-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final UserJdbcRepository userJdbcRepository;
+    private final UserCacheInvalidator userCacheInvalidator;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final WriteBehindProperties properties;
+    private final Stripe[] stripes;
+    private final AtomicInteger pendingUsers = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ReadWriteLock rotationLock = new ReentrantReadWriteLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher;
+    private final Counter droppedUpdates;
+    private volatile Map<Long, User> inFlight = Map.of();
+    private Journal journal;
+
+    public UserWriteBehindQueue(UserJdbcRepository userJdbcRepository, UserCacheInvalidator userCacheInvalidator,
+                                PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                                WriteBehindProperties properties, MeterRegistry meterRegistry) throws IOException {
+        this.userJdbcRepository = userJdbcRepository;
+        this.userCacheInvalidator = userCacheInvalidator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.droppedUpdates = Counter.builder("users.write.behind.dropped")
+                .description("Queued user updates dropped because they could not be written")
+                .register(meterRegistry);
+        if (!properties.enabled()) {
+            this.stripes = new Stripe[0];
+            this.flusher = null;
+            return;
+        }
+        if (properties.journalDirectory() == null) {
+            throw new IllegalStateException("app.write-behind.journal-directory must be set when app.write-behind.enabled is");
+        }
+        this.stripes = new Stripe[Math.max(1, properties.stripes())];
+        Arrays.setAll(stripes, i -> new Stripe());
+        this.journal = Journal.open(properties.journalDirectory(), replayJournal() + 1, properties.journalSync());
+        if (pendingUsers.get() == 0) {
+            deleteSegmentsBefore(journal.number());
+        }
+        Gauge.builder("users.write.behind.pending", pendingUsers, AtomicInteger::get)
+                .description("Users whose update is waiting in the write-behind queue")
+                .register(meterRegistry);
+        long interval = properties.flushInterval().toMillis();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("users-write-behind").daemon().factory());
+        flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return {@code true} if updates are to be queued
+     */
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    /**
+     * Queues an update, replacing the one pending for the same user if any.
+     *
+     * @param update the new data of the user, identified by its ID
+     * @throws IllegalStateException if the queue is not enabled
+     * @throws UncheckedIOException  if the update cannot be written to the journal
+     */
+    public void enqueue(User update) {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Write-behind is not enabled");
+        }
+        int pending = 0;
+        rotationLock.readLock().lock();
+        try {
+            journal.append(objectMapper.writeValueAsBytes(JournalEntry.of(update)));
+            Stripe stripe = stripe(update.getId());
+            synchronized (stripe) {
+                if (stripe.updates.put(update.getId(), update) == null) {
+                    pending = pendingUsers.incrementAndGet();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+        if (pending >= properties.flushSize() && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flushQuietly();
+            });
+        }
+    }
+
+    /**
+     * Finds the update pending for a user, including one being written.
+     *
+     * @param id the user ID
+     * @return the latest data of the user not written yet, or empty if there is none
+     */
+    public Optional<User> findPending(Long id) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        rotationLock.readLock().lock();
+        try {
+            Stripe stripe = stripe(id);
+            synchronized (stripe) {
+                User update = stripe.updates.get(id);
+                if (update != null) {
+                    return Optional.of(update);
+                }
+            }
+            return Optional.ofNullable(inFlight.get(id));
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the pending updates if some concern the given users, so that a change made
+     * without the queue is not overwritten by an older queued one.
+     * <p>
+     * It is to be called before the transaction of the change starts: the updates are written
+     * in a transaction of their own, which would need a second connection while the caller holds
+     * one, and could wait for the pool forever once every connection is held by such callers.
+     *
+     * @param ids the IDs of the users about to be changed
+     * @throws IllegalStateException if called within a transaction
+     */
+    public void flushPending(Collection<Long> ids) {
+        if (!isEnabled()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Queued user updates must be written before the transaction starts");
+        }
+        if (ids.stream().anyMatch(id -> findPending(id).isPresent())) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the pending updates if there are any, see {@link #flushPending(Collection)}.
+     */
+    public void flushPending() {
+        if (isEnabled() && (pendingUsers.get() > 0 || !inFlight.isEmpty())) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes all the pending updates, then deletes the journal segments they came from.
+     * If the write fails, the updates are queued again, behind any newer update of the same
+     * users, and their segments are kept until a later flush succeeds. If the next segment
+     * cannot be started, nothing is taken from the queue.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<Long, User> batch = new HashMap<>();
+            long segment;
+            rotationLock.writeLock().lock();
+            try {
+                if (pendingUsers.get() == 0) {
+                    return;
+                }
+                // The next segment is started before the updates leave the stripes: if it cannot
+                // be opened, they stay queued and the current segment keeps being written.
+                Journal previous = journal;
+                journal = Journal.open(properties.journalDirectory(), previous.number() + 1, properties.journalSync());
+                previous.close();
+                for (Stripe stripe : stripes) {
+                    synchronized (stripe) {
+                        batch.putAll(stripe.updates);
+                        stripe.updates.clear();
+                    }
+                }
+                pendingUsers.set(0);
+                inFlight = batch;
+                segment = journal.number();
+            } finally {
+                rotationLock.writeLock().unlock();
+            }
+            try {
+                write(batch);
+            } catch (RuntimeException e) {
+                requeue(batch);
+                throw e;
+            } finally {
+                inFlight = Map.of();
+            }
+            deleteSegmentsBefore(segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Write-behind flush failed, retrying in {}", properties.flushInterval(), e);
+        }
+    }
+
+    /**
+     * Writes updates with a single statement, or one by one if it violates the uniqueness of the
+     * emails, i.e. another transaction took one of them while it ran, so that only the updates
+     * concerned are dropped. The statement skips the updates whose email belongs to another user
+     * beforehand, including those of users swapping their emails within the batch.
+     */
+    private void write(Map<Long, User> batch) {
+        List<User> users = List.copyOf(batch.values());
+        try {
+            report(users, transactionTemplate.execute(status -> update(users)));
+        } catch (DataIntegrityViolationException e) {
+            for (User user : users) {
+                try {
+                    report(List.of(user), transactionTemplate.execute(status -> update(List.of(user))));
+                } catch (DataIntegrityViolationException conflict) {
+                    droppedUpdates.increment();
+                    log.warn("Dropped the queued update of user {}: {}", user.getId(), conflict.getMessage());
+                }
+            }
+        }
+    }
+
+    private Set<Long> update(List<User> users) {
+        Set<Long> updated = userJdbcRepository.updateAll(users);
+        userCacheInvalidator.evictAll(users.stream().map(User::getId).toList());
+        return updated;
+    }
+
+    private void report(List<User> users, Set<Long> updated) {
+        for (User user : users) {
+            if (!updated.contains(user.getId())) {
+                droppedUpdates.increment();
+                log.warn("Dropped the queued update of user {}: user deleted or email {} already used",
+                        user.getId(), user.getEmail());
+            }
+        }
+    }
+
+    private void requeue(Map<Long, User> batch) {
+        rotationLock.readLock().lock();
+        try {
+            batch.forEach((id, update) -> {
+                Stripe stripe = stripe(id);
+                synchronized (stripe) {
+                    if (stripe.updates.putIfAbsent(id, update) == null) {
+                        pendingUsers.incrementAndGet();
+                    }
+                }
+            });
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Queues the updates of the segments left by the previous run, oldest first.
+     *
+     * @return the number of the newest segment, or 0 if there is none
+     */
+    private long replayJournal() throws IOException {
+        Files.createDirectories(properties.journalDirectory());
+        long last = 0;
+        for (long number : segmentNumbers()) {
+            try (BufferedReader reader = Files.newBufferedReader(segmentPath(properties.journalDirectory(), number))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    try {
+                        User update = objectMapper.readValue(line, JournalEntry.class).toUser();
+                        if (stripe(update.getId()).updates.put(update.getId(), update) == null) {
+                            pendingUsers.incrementAndGet();
+                        }
+                    } catch (JsonProcessingException e) {
+                        log.warn("Skipping a truncated write-behind journal entry in segment {}", number);
+                    }
+                }
+            }
+            last = number;
+        }
+        if (pendingUsers.get() > 0) {
+            log.info("Replayed {} queued user updates from the write-behind journal", pendingUsers.get());
+        }
+        return last;
+    }
+
+    private List<Long> segmentNumbers() throws IOException {
+        try (Stream<Path> files = Files.list(properties.journalDirectory())) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))
+                    .filter(number -> !number.isEmpty() && number.chars().allMatch(Character::isDigit))
+                    .map(Long::valueOf)
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private void deleteSegmentsBefore(long segment) throws IOException {
+        for (long number : segmentNumbers()) {
+            if (number < segment) {
+                Files.deleteIfExists(segmentPath(properties.journalDirectory(), number));
+            }
+        }
+    }
+
+    private static Path segmentPath(Path directory, long number) {
+        return directory.resolve(SEGMENT_PREFIX + String.format("%019d", number) + SEGMENT_SUFFIX);
+    }
+
+    private Stripe stripe(Long id) {
+        return stripes[Math.floorMod(Long.hashCode(id), stripes.length)];
+    }
+
+    @PreDestroy
+    void shutdown() throws IOException, InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        flusher.awaitTermination(properties.flushInterval().toMillis() * 10, TimeUnit.MILLISECONDS);
+        flushQuietly();
+        rotationLock.writeLock().lock();
+        try {
+            journal.close();
+        } finally {
+            rotationLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Part of the queue, holding the updates of the users whose ID hashes to it.
+     */
+    private static final class Stripe {
+        private final Map<Long, User> updates = new HashMap<>();
+    }
+
+    /**
+     * Segment of the journal being written, one JSON update per line.
+     */
+    private static final class Journal {
+        private final long number;
+        private final FileChannel channel;
+        private final boolean sync;
+
+        private Journal(long number, FileChannel channel, boolean sync) {
+            this.number = number;
+            this.channel = channel;
+            this.sync = sync;
+        }
+
+        static Journal open(Path directory, long number, boolean sync) throws IOException {
+            return new Journal(number, FileChannel.open(segmentPath(directory, number),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND), sync);
+        }
+
+        long number() {
+            return number;
+        }
+
+        synchronized void append(byte[] entry) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(entry.length + 1).put(entry).put((byte) '\n').flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (sync) {
+                channel.force(false);
+            }
+        }
+
+        synchronized void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Journal form of an update.
+     */
+    private record JournalEntry(long id, String email, String name, String surname, String address) {
+
+        static JournalEntry of(User user) {
+            return new JournalEntry(user.getId(), user.getEmail(), user.getName(), user.getSurname(), user.getAddress());
+        }
+
+        User toUser() {
+            return User.builder().id(id).email(email).name(name).surname(surname).address(address).build();
+        }
+    }
+}
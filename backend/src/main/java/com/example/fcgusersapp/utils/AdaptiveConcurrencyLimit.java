@@ -0,0 +1,122 @@
+package com.example.fcgusersapp.utils;
+
+/**
+ * Thread-safe limit on concurrent operations that adapts to the latency they measure.
+ * <p>
+ * The limit follows the gradient between a long-term average of the latency, the baseline, and a
+ * short-term one: it shrinks as soon as operations get slower than usual, which is the sign
+ * of a queue building up downstream, and grows back a fraction of its square root per sample
+ * while the latency stays near the baseline and at least half of the limit is in use. Operations also report whether
+ * they found the downstream resource congested, which cuts the limit by a tenth right away.
+ * The limit stays between its minimum and maximum.
+ */
+public final class AdaptiveConcurrencyLimit {
+
+    /**
+     * Weight of a sample in the short-term average, about the last 10 samples.
+     */
+    private static final double SHORT_WEIGHT = 2 / 11d;
+
+    /**
+     * Weight of a sample in the baseline, about the last 600 samples.
+     */
+    private static final double LONG_WEIGHT = 2 / 601d;
+
+    /**
+     * Ratio of the short-term average to the baseline tolerated before the limit shrinks.
+     */
+    private static final double TOLERANCE = 1.5;
+
+    /**
+     * Weight of a new limit against the current one.
+     */
+    private static final double SMOOTHING = 0.2;
+
+    private static final double CONGESTION_BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private double limit;
+    private int inFlight;
+    private double shortLatency;
+    private double longLatency;
+
+    /**
+     * Creates a limit starting at its maximum.
+     *
+     * @param minLimit the lowest limit, at least 1
+     * @param maxLimit the highest limit, at least {@code minLimit}
+     * @throws IllegalArgumentException if an argument is out of range
+     */
+    public AdaptiveConcurrencyLimit(int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid concurrency limits");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = maxLimit;
+    }
+
+    /**
+     * Starts an operation if fewer than the limit are in progress.
+     *
+     * @return {@code true} if the operation may start, in which case it must be
+     * {@link #release(long, boolean) released} once done
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Ends an operation and adapts the limit to what it measured.
+     *
+     * @param latencyNanos the latency measured by the operation, 0 if it measured none
+     * @param congested    whether the operation found the downstream resource congested
+     */
+    public synchronized void release(long latencyNanos, boolean congested) {
+        int wasInFlight = inFlight--;
+        if (congested) {
+            limit = Math.max(minLimit, limit * CONGESTION_BACKOFF);
+            return;
+        }
+        if (latencyNanos <= 0) {
+            return;
+        }
+        if (longLatency == 0) {
+            shortLatency = latencyNanos;
+            longLatency = latencyNanos;
+            return;
+        }
+        shortLatency += (latencyNanos - shortLatency) * SHORT_WEIGHT;
+        longLatency += (latencyNanos - longLatency) * LONG_WEIGHT;
+        // after a slow period, the baseline comes down faster to the latency now measured
+        if (longLatency > 2 * shortLatency) {
+            longLatency *= 0.95;
+        }
+        // a limit far from being reached tells nothing about how far it could grow
+        if (wasInFlight < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1, TOLERANCE * longLatency / shortLatency));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+    }
+
+    /**
+     * @return the current limit
+     */
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return the number of operations in progress
+     */
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+}
@@ -1,8 +1,7 @@
 package com.example.fcgusersapp.utils;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.time.Instant;
+import java.util.*;
 
 /**
  * Utility class for building standard API response objects
@@ -18,7 +17,28 @@ public class ApiResponse {
     private static final String USER_KEY = "user";
     private static final String USERS_SAVED_BY_CSV_KEY = "numero utenti inseriti";
     private static final String USERS_NOT_SAVED_BY_CSV_KEY = "numero utenti non inseriti";
+    private static final String USERS_UPDATED_BY_CSV_KEY = "numero utenti aggiornati";
+    private static final String USERS_UNCHANGED_BY_CSV_KEY = "numero utenti invariati";
     private static final String USERS_DUPLICATE_KEY = "duplicates";
+    private static final String JOB_ID_KEY = "job_id";
+    private static final String JOB_STATUS_KEY = "job_status";
+    private static final String JOB_FILENAME_KEY = "filename";
+    private static final String JOB_SUBMITTED_AT_KEY = "submitted_at";
+    private static final String JOB_FINISHED_AT_KEY = "finished_at";
+    private static final String JOB_ROWS_PARSED_KEY = "rows_parsed";
+    private static final String JOB_USERS_INSERTED_KEY = "users_inserted";
+    private static final String JOB_USERS_UPDATED_KEY = "users_updated";
+    private static final String JOB_USERS_UNCHANGED_KEY = "users_unchanged";
+    private static final String JOB_USERS_REJECTED_KEY = "users_rejected";
+    private static final String JOB_MODE_KEY = "mode";
+    private static final String JOB_ROWS_PER_SECOND_KEY = "rows_per_second";
+    private static final String JOB_REPORT_KEY = "report";
+    private static final String BULK_INDEX_KEY = "index";
+    private static final String BULK_ID_KEY = "id";
+    private static final String BULK_EMAIL_KEY = "email";
+    private static final String BULK_RESULT_KEY = "result";
+    private static final String BULK_SUMMARY_KEY = "summary";
+    private static final String BULK_RESULTS_KEY = "results";
 
 
     private ApiResponse() {
@@ -84,4 +104,108 @@ public class ApiResponse {
                 USERS_DUPLICATE_KEY, errors
         );
     }
+
+    /**
+     * Builds a response summarizing the results of a CSV import operation that may also
+     * update existing users.
+     *
+     * @param usersInserted  number of successfully inserted users
+     * @param usersUpdated   number of existing users overwritten with different data
+     * @param usersUnchanged number of existing users left untouched
+     * @param errors         list of errors encountered (duplicates)
+     * @return a map containing status = "ok", counts of inserted, updated, unchanged and
+     * not-inserted users, and a list of duplicates or errors
+     */
+    public static Map<String, Object> csvImportResponse(int usersInserted, int usersUpdated, int usersUnchanged,
+                                                        List<Map<String, Object>> errors) {
+        Map<String, Object> response = new HashMap<>(csvImportResponse(usersInserted, errors));
+        response.put(USERS_UPDATED_BY_CSV_KEY, usersUpdated);
+        response.put(USERS_UNCHANGED_BY_CSV_KEY, usersUnchanged);
+        return response;
+    }
+
+    /**
+     * Builds a response describing the state of an asynchronous CSV import job.
+     * <p>
+     * A failed job is reported as an error, with status = "ko" and the error that stopped it.
+     *
+     * @param id             the job ID
+     * @param jobStatus      the job status, e.g. {@code RUNNING}
+     * @param filename       the name of the uploaded file, {@code null} for a request body
+     * @param mode           how rows whose email already exists are treated, e.g. {@code UPSERT}
+     * @param submittedAt    when the job was submitted
+     * @param finishedAt     when the job finished, {@code null} while it is queued or running
+     * @param rowsParsed     number of rows parsed so far
+     * @param usersInserted  number of users inserted so far
+     * @param usersUpdated   number of existing users updated so far
+     * @param usersUnchanged number of existing users left untouched so far
+     * @param usersRejected  number of rows not stored so far (duplicates)
+     * @param rowsPerSecond  average number of rows parsed per second
+     * @param report         the import report once completed, {@code null} otherwise
+     * @param error          the error that stopped the job if it failed, {@code null} otherwise
+     * @return a map containing status = "ok", or "ko" with the error if the job failed,
+     * the job identity and status, its progress counters and, once completed, the import report
+     */
+    public static Map<String, Object> importJobResponse(String id, String jobStatus, String filename, String mode,
+                                                        Instant submittedAt, Instant finishedAt,
+                                                        long rowsParsed, long usersInserted, long usersUpdated,
+                                                        long usersUnchanged, long usersRejected, double rowsPerSecond,
+                                                        Map<String, Object> report, String error) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        if (error == null) {
+            response.put(STATUS_KEY, "ok");
+        } else {
+            response.put(STATUS_KEY, "ko");
+            response.put(DESCRIPTION_KEY, "Import CSV fallito");
+            response.put(ERROR_KEY, error);
+        }
+        response.put(JOB_ID_KEY, id);
+        response.put(JOB_STATUS_KEY, jobStatus);
+        response.put(JOB_FILENAME_KEY, filename);
+        response.put(JOB_MODE_KEY, mode);
+        response.put(JOB_SUBMITTED_AT_KEY, submittedAt);
+        response.put(JOB_FINISHED_AT_KEY, finishedAt);
+        response.put(JOB_ROWS_PARSED_KEY, rowsParsed);
+        response.put(JOB_USERS_INSERTED_KEY, usersInserted);
+        response.put(JOB_USERS_UPDATED_KEY, usersUpdated);
+        response.put(JOB_USERS_UNCHANGED_KEY, usersUnchanged);
+        response.put(JOB_USERS_REJECTED_KEY, usersRejected);
+        response.put(JOB_ROWS_PER_SECOND_KEY, Math.round(rowsPerSecond));
+        response.put(JOB_REPORT_KEY, report);
+        return response;
+    }
+
+    /**
+     * Builds the result of a single item of a bulk request.
+     *
+     * @param index   position of the item in the request
+     * @param id      ID of the user the item refers to, may be {@code null}
+     * @param email   email of the user the item refers to, may be {@code null}
+     * @param outcome outcome of the item, e.g. {@code created}
+     * @return a map containing the item position, the user identity and the outcome
+     */
+    public static Map<String, Object> bulkItemResult(int index, Long id, String email, String outcome) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put(BULK_INDEX_KEY, index);
+        result.put(BULK_ID_KEY, id);
+        result.put(BULK_EMAIL_KEY, email);
+        result.put(BULK_RESULT_KEY, outcome);
+        return result;
+    }
+
+    /**
+     * Builds a response summarizing the results of a bulk request.
+     *
+     * @param results the result of every item, as built by {@link #bulkItemResult}, in request order
+     * @return a map containing status = "ok", the number of items per outcome and the result of every item
+     */
+    public static Map<String, Object> bulkResponse(List<Map<String, Object>> results) {
+        Map<Object, Long> summary = new TreeMap<>();
+        results.forEach(result -> summary.merge(result.get(BULK_RESULT_KEY), 1L, Long::sum));
+        return Map.of(
+                STATUS_KEY, "ok",
+                BULK_SUMMARY_KEY, summary,
+                BULK_RESULTS_KEY, results
+        );
+    }
 }
@@ -0,0 +1,139 @@
+package com.example.fcgusersapp.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Compact, thread-safe set of strings answering membership queries with false positives
+ * but no false negatives: a string that was {@link #put} is always reported as possibly
+ * present, one that was not is reported as absent except with the configured probability.
+ * <p>
+ * Each string sets a few bits of a fixed-size bit array, chosen by double hashing of a
+ * 64-bit hash of its characters; strings cannot be removed. Memory usage only depends on
+ * the capacity and the false positive probability, about 1.2 bytes per string at 1%.
+ */
+public final class BloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray words;
+    private final long bitSize;
+    private final int hashCount;
+    private final long capacity;
+    private final AtomicLong insertions = new AtomicLong();
+
+    /**
+     * Creates an empty filter.
+     *
+     * @param capacity          the number of strings the filter is sized for; beyond it,
+     *                          false positives become more frequent than requested
+     * @param falsePositiveRate the probability of a false positive once full, between 0 and 1 exclusive
+     * @throws IllegalArgumentException if an argument is out of range, or the filter would exceed 16 GB
+     */
+    public BloomFilter(long capacity, double falsePositiveRate) {
+        if (capacity <= 0 || !(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("Invalid Bloom filter capacity or false positive rate");
+        }
+        // in double, as the bit count of a huge capacity does not fit a long
+        double wordCount = Math.max(1, Math.ceil(-capacity * Math.log(falsePositiveRate) / (LN2 * LN2) / 64));
+        if (wordCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bloom filter too large");
+        }
+        this.words = new AtomicLongArray((int) wordCount);
+        this.bitSize = (long) wordCount * 64;
+        this.hashCount = (int) Math.max(1, Math.round((double) bitSize / capacity * LN2));
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds a string.
+     *
+     * @param value the string to add
+     * @return {@code true} if the filter changed, i.e. the string was certainly not added before
+     */
+    public boolean put(String value) {
+        long hash = hash(value);
+        long step = step(hash);
+        boolean changed = false;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash + i * step, bitSize);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((words.get(word) & mask) == 0
+                    && (words.getAndAccumulate(word, mask, (current, added) -> current | added) & mask) == 0) {
+                changed = true;
+            }
+        }
+        if (changed) {
+            insertions.incrementAndGet();
+        }
+        return changed;
+    }
+
+    /**
+     * @param value the string to look for
+     * @return {@code false} if the string was certainly never added, {@code true} if it may have been
+     */
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        long step = step(hash);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash + i * step, bitSize);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of strings the filter is sized for
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of strings added so far, strings added more than once counted once; slightly
+     * underestimated, since a string whose bits were all set by other strings is not counted
+     */
+    public long insertions() {
+        return insertions.get();
+    }
+
+    /**
+     * @return the memory taken by the bit array, in bytes
+     */
+    public long sizeInBytes() {
+        return bitSize / 8;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the characters, finalized with the MurmurHash3 mix so that
+     * all its bits depend on all the characters.
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Second hash of the double hashing, never zero so that the bits of a string differ.
+     */
+    private static long step(long hash) {
+        return mix(hash + 0x9e3779b97f4a7c15L) | 1;
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
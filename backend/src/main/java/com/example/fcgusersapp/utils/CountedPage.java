@@ -0,0 +1,37 @@
+package com.example.fcgusersapp.utils;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * A {@link PageImpl} whose total may be an estimate.
+ * <p>
+ * It is serialized as a regular page, with an extra {@code totalExact} property telling
+ * whether {@code totalElements} and {@code totalPages} are exact.
+ *
+ * @param <T> type of the rows
+ */
+public class CountedPage<T> extends PageImpl<T> {
+
+    private final boolean totalExact;
+
+    /**
+     * @param content    the rows of the page
+     * @param pageable   the requested page
+     * @param total      the number of rows of all pages, exact or estimated
+     * @param totalExact {@code false} if {@code total} is an estimate
+     */
+    public CountedPage(List<T> content, Pageable pageable, long total, boolean totalExact) {
+        super(content, pageable, total);
+        this.totalExact = totalExact;
+    }
+
+    /**
+     * @return {@code true} if the total is exact, {@code false} if it is an estimate
+     */
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+}
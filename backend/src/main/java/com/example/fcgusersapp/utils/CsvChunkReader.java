@@ -0,0 +1,249 @@
+package com.example.fcgusersapp.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Splits UTF-8 encoded CSV content into chunks of whole records, so that they can be
+ * parsed independently with {@link CsvFormat#parseRecords}.
+ * <p>
+ * Chunks are cut at the last record boundary within {@code chunkSize} bytes, growing
+ * beyond it only for a record that does not fit. Finding the boundaries takes a single
+ * pass that only tracks quoting and line breaks, much cheaper than the parsing itself,
+ * and also yields the line number each chunk starts on. A UTF-8 byte order mark is skipped.
+ * <p>
+ * The content is either pulled from an {@link InputStream} with {@link #next()}, or pushed
+ * with {@link #feed} and {@link #finish()} as it arrives, taking the chunks ready so far
+ * with {@link #poll()}: the latter never blocks, for non-blocking I/O.
+ */
+public class CsvChunkReader {
+
+    /**
+     * A run of whole records.
+     *
+     * @param data      the content, from index 0 and possibly followed by unrelated bytes
+     * @param length    the number of bytes of the records
+     * @param firstLine the line number of the first record
+     */
+    public record Chunk(byte[] data, int length, long firstLine) {
+    }
+
+    private enum State {
+        /**
+         * At the start of a field, having seen only blanks.
+         */
+        FIELD_START,
+        UNQUOTED,
+        QUOTED,
+        /**
+         * Right after the closing quote of a field, where a second quote is an escaped one.
+         */
+        QUOTE_CLOSED,
+        /**
+         * After a quoted field, where everything up to the next separator is ignored.
+         */
+        AFTER_QUOTED
+    }
+
+    private final InputStream input;
+    private final int chunkSize;
+    private byte[] buf;
+    private int length;
+    private boolean bomChecked;
+    private boolean eof;
+    /*
+     * Progress of the scan of buf: the state after its first "scanned" bytes, the line breaks
+     * met so far and the end of the last whole record found, with the line breaks before it.
+     */
+    private State state = State.FIELD_START;
+    private int scanned;
+    private long lines;
+    private int boundary;
+    private long linesAtBoundary;
+    private long nextLine = 1;
+
+    /**
+     * Creates a reader pulling the content from a stream with {@link #next()}.
+     *
+     * @param input     the CSV content
+     * @param chunkSize the target size of a chunk, in bytes
+     */
+    public CsvChunkReader(InputStream input, int chunkSize) {
+        this.input = input;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.buf = new byte[this.chunkSize];
+    }
+
+    /**
+     * Creates a reader whose content is pushed with {@link #feed} and {@link #finish()}.
+     *
+     * @param chunkSize the target size of a chunk, in bytes
+     */
+    public CsvChunkReader(int chunkSize) {
+        this(null, chunkSize);
+    }
+
+    /**
+     * Reads the next chunk from the stream, blocking until it is complete.
+     *
+     * @return the next chunk, or {@code null} at the end of the content
+     * @throws IOException if the content cannot be read
+     */
+    public Chunk next() throws IOException {
+        while (true) {
+            Chunk chunk = poll();
+            if (chunk != null || eof) {
+                return chunk;
+            }
+            ensureCapacity(length + 1);
+            int read = input.read(buf, length, buf.length - length);
+            if (read < 0) {
+                eof = true;
+            } else {
+                length += read;
+            }
+        }
+    }
+
+    /**
+     * Appends content received so far.
+     *
+     * @param content the next bytes of the content; consumed entirely
+     */
+    public void feed(ByteBuffer content) {
+        ensureCapacity(length + content.remaining());
+        int count = content.remaining();
+        content.get(buf, length, count);
+        length += count;
+    }
+
+    /**
+     * Signals that all the content has been {@linkplain #feed fed}, so that the last
+     * record no longer needs to be followed by a line break to make a chunk.
+     */
+    public void finish() {
+        eof = true;
+    }
+
+    /**
+     * Takes the next chunk, if enough content has been received to complete it.
+     *
+     * @return the next chunk, or {@code null} if more content is needed or none is left
+     */
+    public Chunk poll() {
+        if (length == 0 || (!eof && length < chunkSize)) {
+            return null;
+        }
+        if (!bomChecked) {
+            if (length < 3 && !eof) {
+                return null;
+            }
+            if (length >= 3 && buf[0] == (byte) 0xEF && buf[1] == (byte) 0xBB && buf[2] == (byte) 0xBF) {
+                System.arraycopy(buf, 3, buf, 0, length - 3);
+                length -= 3;
+            }
+            bomChecked = true;
+        }
+        if (eof && length <= chunkSize) {
+            scan(length, false);
+            return cut(length, lines);
+        }
+        // A carriage return can only be told from a CR LF pair once the next byte is known
+        int limit = eof ? length : length - 1;
+        scan(Math.min(limit, chunkSize), false);
+        if (boundary == 0) {
+            // Not a single whole record within the chunk size: grow the chunk up to the first one
+            scan(limit, true);
+        }
+        if (boundary > 0) {
+            return cut(boundary, linesAtBoundary);
+        }
+        return eof ? cut(length, lines) : null;
+    }
+
+    /**
+     * Advances the scan of the buffer up to {@code limit}, recording the record boundaries.
+     *
+     * @param stopAtBoundary whether to stop at the first boundary found
+     */
+    private void scan(int limit, boolean stopAtBoundary) {
+        for (int i = scanned; i < limit; i++) {
+            byte b = buf[i];
+            // Fast path: any byte past the separator, including the multi-byte characters,
+            // can only start an unquoted field or end a quoted one
+            if ((b > CsvFormat.SEPARATOR || b < 0) && state != State.QUOTE_CLOSED) {
+                if (state == State.FIELD_START) {
+                    state = State.UNQUOTED;
+                }
+                continue;
+            }
+            boolean lineBreak = b == '\n' || (b == '\r' && (i + 1 == length || buf[i + 1] != '\n'));
+            if (lineBreak) {
+                lines++;
+            }
+            switch (state) {
+                case FIELD_START -> {
+                    if (b == CsvFormat.QUOTE) {
+                        state = State.QUOTED;
+                    } else if (!CsvFormat.isBlank(b) && b != CsvFormat.SEPARATOR && b != '\n' && b != '\r') {
+                        state = State.UNQUOTED;
+                    }
+                }
+                case QUOTED -> {
+                    if (b == CsvFormat.QUOTE) {
+                        state = State.QUOTE_CLOSED;
+                    }
+                    continue;
+                }
+                case QUOTE_CLOSED -> {
+                    if (b == CsvFormat.QUOTE) {
+                        state = State.QUOTED;
+                        continue;
+                    }
+                    state = State.AFTER_QUOTED;
+                }
+                default -> {
+                }
+            }
+            if (b == CsvFormat.SEPARATOR) {
+                state = State.FIELD_START;
+            } else if (lineBreak) {
+                state = State.FIELD_START;
+                boundary = i + 1;
+                linesAtBoundary = lines;
+                if (stopAtBoundary) {
+                    scanned = i + 1;
+                    return;
+                }
+            }
+        }
+        scanned = Math.max(scanned, limit);
+    }
+
+    /**
+     * Hands out the first {@code end} bytes as a chunk, keeping the rest, already scanned
+     * up to {@link #scanned}, for the next ones.
+     */
+    private Chunk cut(int end, long chunkLines) {
+        Chunk chunk = new Chunk(buf, end, nextLine);
+        nextLine += chunkLines;
+        byte[] rest = new byte[Math.max(chunkSize, (length - end) * 2)];
+        System.arraycopy(buf, end, rest, 0, length - end);
+        buf = rest;
+        length -= end;
+        scanned -= end;
+        lines -= chunkLines;
+        boundary = 0;
+        linesAtBoundary = 0;
+        return chunk;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buf.length) {
+            byte[] grown = new byte[Math.max(capacity, buf.length * 2)];
+            System.arraycopy(buf, 0, grown, 0, length);
+            buf = grown;
+        }
+    }
+}
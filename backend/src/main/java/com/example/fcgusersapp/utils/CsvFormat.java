@@ -0,0 +1,221 @@
+package com.example.fcgusersapp.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utility class reading and writing CSV records, as exchanged by the user import and export.
+ * <p>
+ * Fields are separated by commas. A field containing a comma, a double quote, a line break or
+ * leading/trailing spaces is written between double quotes, with its double quotes doubled;
+ * when reading, quoted fields are taken verbatim (and may span several lines) while unquoted
+ * fields are trimmed. Content is read as UTF-8.
+ * This class cannot be instantiated.
+ */
+public class CsvFormat {
+
+    /**
+     * Header line of the users CSV files.
+     */
+    public static final String USERS_HEADER = "email,name,surname,address";
+
+    static final byte SEPARATOR = ',';
+    static final byte QUOTE = '"';
+
+    private CsvFormat() {
+        throw new IllegalStateException("This class is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Parses the UTF-8 encoded records found between two record boundaries, such as the
+     * chunks cut by {@link CsvChunkReader}.
+     * <p>
+     * Fields are decoded straight from the bytes, without building the lines first: as
+     * separators, quotes and line breaks are ASCII, they never occur within a multi-byte
+     * character. A line break is {@code \n}, {@code \r\n} or a lone {@code \r}; the ones
+     * within quoted fields are read as {@code \n}. Unquoted fields are trimmed of spaces
+     * and control characters.
+     *
+     * @param buf       the content
+     * @param from      the index of the first byte of a record
+     * @param to        the index following the last byte of a record, or the end of the content
+     * @param firstLine the line number of the record starting at {@code from}
+     * @param handler   receives every record, in order
+     */
+    public static void parseRecords(byte[] buf, int from, int to, long firstLine, RecordHandler handler) {
+        List<String> fields = new ArrayList<>(4);
+        byte[] scratch = null;
+        long line = firstLine;
+        int i = from;
+        while (i < to) {
+            long recordLine = line;
+            fields.clear();
+            while (true) {
+                while (i < to && isBlank(buf[i])) {
+                    i++;
+                }
+                if (i < to && buf[i] == QUOTE) {
+                    int start = ++i;
+                    boolean copy = false;
+                    while (i < to) {
+                        byte b = buf[i];
+                        if (b == QUOTE) {
+                            if (i + 1 < to && buf[i + 1] == QUOTE) {
+                                copy = true;
+                                i += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        if (b == '\n') {
+                            line++;
+                        } else if (b == '\r') {
+                            copy = true;
+                            if (i + 1 >= to || buf[i + 1] != '\n') {
+                                line++;
+                            }
+                        }
+                        i++;
+                    }
+                    int end = i;
+                    if (end == to) {
+                        // Unterminated quoted field: the line break ending the content is not part of it
+                        if (end > start && buf[end - 1] == '\n') {
+                            end--;
+                        }
+                        if (end > start && buf[end - 1] == '\r') {
+                            end--;
+                        }
+                    }
+                    if (!copy) {
+                        fields.add(new String(buf, start, end - start, StandardCharsets.UTF_8));
+                    } else {
+                        if (scratch == null || scratch.length < end - start) {
+                            scratch = new byte[Math.max(end - start, 256)];
+                        }
+                        fields.add(unescape(buf, start, end, scratch));
+                    }
+                    // Anything between the closing quote and the next separator is dropped
+                    while (i < to && buf[i] != SEPARATOR && buf[i] != '\n' && buf[i] != '\r') {
+                        i++;
+                    }
+                } else {
+                    int start = i;
+                    while (i < to && buf[i] != SEPARATOR && buf[i] != '\n' && buf[i] != '\r') {
+                        i++;
+                    }
+                    int end = i;
+                    while (end > start && isBlank(buf[end - 1])) {
+                        end--;
+                    }
+                    fields.add(new String(buf, start, end - start, StandardCharsets.UTF_8));
+                }
+                if (i < to && buf[i] == SEPARATOR) {
+                    i++;
+                    continue;
+                }
+                if (i < to) {
+                    if (buf[i] == '\r' && i + 1 < to && buf[i + 1] == '\n') {
+                        i++;
+                    }
+                    i++;
+                    line++;
+                }
+                break;
+            }
+            handler.record(recordLine, fields);
+        }
+    }
+
+    /**
+     * Receives the records parsed by {@link #parseRecords}.
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+        /**
+         * @param line   the line number the record starts on
+         * @param fields the fields of the record; the list is reused for the next record
+         */
+        void record(long line, List<String> fields);
+    }
+
+    /**
+     * Decodes a quoted field containing doubled quotes or carriage returns.
+     */
+    private static String unescape(byte[] buf, int from, int to, byte[] scratch) {
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            byte b = buf[i];
+            if (b == QUOTE) {
+                i++;
+            } else if (b == '\r') {
+                if (i + 1 < to && buf[i + 1] == '\n') {
+                    i++;
+                }
+                b = '\n';
+            }
+            scratch[length++] = b;
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Whether a byte is a space or a control character other than a line break,
+     * as removed by {@link String#trim()}.
+     */
+    static boolean isBlank(byte b) {
+        return b >= 0 && b <= ' ' && b != '\n' && b != '\r';
+    }
+
+    /**
+     * Writes a record, terminated by a line break.
+     *
+     * @param writer the destination
+     * @param fields the fields of the record
+     * @throws IOException if the record cannot be written
+     */
+    public static void writeRecord(Writer writer, String... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.write(SEPARATOR);
+            }
+            writeField(writer, fields[i] == null ? "" : fields[i]);
+        }
+        writer.write('\n');
+    }
+
+    private static void writeField(Writer writer, String field) throws IOException {
+        if (!needsQuotes(field)) {
+            writer.write(field);
+            return;
+        }
+        writer.write(QUOTE);
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == QUOTE) {
+                writer.write(QUOTE);
+            }
+            writer.write(c);
+        }
+        writer.write(QUOTE);
+    }
+
+    private static boolean needsQuotes(String field) {
+        if (field.isEmpty()) {
+            return false;
+        }
+        if (Character.isWhitespace(field.charAt(0)) || Character.isWhitespace(field.charAt(field.length() - 1))) {
+            return true;
+        }
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == SEPARATOR || c == QUOTE || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.fcgusersapp.utils;
+
+import com.example.fcgusersapp.exceptions.InvalidCursorException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Utility class encoding pagination cursors as opaque URL-safe tokens.
+ * <p>
+ * A cursor is a map of the sort keys of the last returned row, stored together with the
+ * query it belongs to (typically its sort), so that a token cannot be replayed against a
+ * differently ordered query. Tokens are encoded, not signed: a client can read and forge them,
+ * so callers must check the type of every decoded key before using it.
+ * This class cannot be instantiated.
+ */
+public class CursorCodec {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+    private static final String QUERY_KEY = "s";
+    private static final String KEYS_KEY = "k";
+
+    private CursorCodec() {
+        throw new IllegalStateException("This class is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Encodes the keys of a cursor into an opaque token.
+     *
+     * @param query identifies the query the cursor belongs to
+     * @param keys  values of the sort keys of the last returned row
+     * @return a URL-safe token
+     */
+    public static String encode(String query, Map<String, ?> keys) {
+        try {
+            byte[] json = MAPPER.writeValueAsBytes(Map.of(QUERY_KEY, query, KEYS_KEY, keys));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to encode cursor", e);
+        }
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode(String, Map)}.
+     *
+     * @param query identifies the query the cursor is used with
+     * @param token the token received from the client
+     * @return the keys of the cursor, as plain JSON values, not validated
+     * @throws InvalidCursorException if the token is malformed or belongs to another query
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> decode(String query, String token) {
+        Map<String, Object> cursor;
+        try {
+            cursor = MAPPER.readValue(Base64.getUrlDecoder().decode(token), MAP_TYPE);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new InvalidCursorException("Invalid cursor", e);
+        }
+        if (!query.equals(cursor.get(QUERY_KEY)) || !(cursor.get(KEYS_KEY) instanceof Map<?, ?>)) {
+            throw new InvalidCursorException("Cursor does not match the requested query");
+        }
+        return (Map<String, Object>) cursor.get(KEYS_KEY);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.fcgusersapp.utils;
+
+import java.util.List;
+
+/**
+ * A page of results fetched with keyset pagination.
+ * <p>
+ * Unlike a Spring Data {@code Page} it carries no total count: the next page is
+ * requested by passing {@link #next()} back as the {@code after} parameter.
+ *
+ * @param content the rows of the page
+ * @param size    the number of rows in the page
+ * @param hasNext {@code true} if more rows follow
+ * @param next    opaque cursor of the next page, {@code null} if this is the last one
+ * @param <T>     type of the rows
+ */
+public record CursorPage<T>(List<T> content, int size, boolean hasNext, String next) {
+
+    public CursorPage(List<T> content, String next) {
+        this(content, content.size(), next != null, next);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.fcgusersapp.utils;
+
+/**
+ * Thread-safe rate limiter letting through a sustained rate of events, with bursts.
+ * <p>
+ * The bucket holds up to {@code capacity} tokens and gains {@code rate} tokens per second;
+ * each event takes one token, and is refused when the bucket is empty. It starts full.
+ */
+public final class TokenBucket {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long refilledAt;
+
+    /**
+     * @param rate     the sustained number of events per second, greater than 0
+     * @param capacity the number of events allowed in a burst, at least 1
+     * @throws IllegalArgumentException if an argument is out of range
+     */
+    public TokenBucket(double rate, double capacity) {
+        if (!(rate > 0) || !(capacity >= 1)) {
+            throw new IllegalArgumentException("Invalid token bucket rate or capacity");
+        }
+        this.tokensPerNano = rate / NANOS_PER_SECOND;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @return 0 if a token was taken, otherwise how long until the next one is available, in nanoseconds
+     */
+    public synchronized long tryConsume() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+}
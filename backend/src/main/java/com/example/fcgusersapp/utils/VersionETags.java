@@ -0,0 +1,71 @@
+package com.example.fcgusersapp.utils;
+
+import org.springframework.http.ETag;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utility class mapping row versions to HTTP entity tags.
+ * <p>
+ * A row version is bumped by the database on every update, so its tag is a strong validator
+ * of the resource: it changes whenever the row does, and only then.
+ * This class cannot be instantiated.
+ */
+public class VersionETags {
+
+    private VersionETags() {
+        throw new IllegalStateException("This class is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * @param version the row version
+     * @return the quoted strong entity tag of the version
+     */
+    public static String format(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Parses an {@code If-Match} header into the row versions it accepts.
+     * <p>
+     * Weak tags never match, as required by the strong comparison of {@code If-Match}, and
+     * tags that are not versions cannot match either.
+     *
+     * @param ifMatch the header value, may be {@code null}
+     * @return the precondition of the header; {@code null} if it is absent
+     */
+    public static IfMatch parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return null;
+        }
+        List<Long> versions = new ArrayList<>();
+        for (ETag tag : ETag.parse(ifMatch)) {
+            if (tag.isWildcard()) {
+                return IfMatch.ANY_VERSION;
+            }
+            if (!tag.weak()) {
+                try {
+                    versions.add(Long.parseLong(tag.tag()));
+                } catch (NumberFormatException e) {
+                    // not one of our tags, so it cannot match
+                }
+            }
+        }
+        return new IfMatch(versions);
+    }
+
+    /**
+     * The precondition of an {@code If-Match} header: the resource must exist and, unless the
+     * header is {@code *}, have one of the listed versions.
+     *
+     * @param versions the accepted versions, possibly none; {@code null} for {@code *}, i.e. any version
+     */
+    public record IfMatch(List<Long> versions) {
+
+        /**
+         * {@code If-Match: *}, met by any existing resource.
+         */
+        public static final IfMatch ANY_VERSION = new IfMatch(null);
+    }
+}
@@ -0,0 +1,10 @@
+-- Trigram matching, used to serve "contains" searches from an index instead of a sequential scan.
+create extension if not exists pg_trgm;
+
+-- GIN trigram indexes on the lower-cased search columns: they match the
+-- "lower(column) like '%value%'" predicates built by UserSearchFilter.
+create index if not exists idx_users_name_trgm
+    on public.users using gin (lower(name) gin_trgm_ops);
+
+create index if not exists idx_users_surname_trgm
+    on public.users using gin (lower(surname) gin_trgm_ops);
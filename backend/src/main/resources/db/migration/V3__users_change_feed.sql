@@ -0,0 +1,37 @@
+-- Keyset index of the change feed: users changed after a given (updated_at, id) position, in order.
+create index if not exists idx_users_updated_at_id
+    on public.users (updated_at, id);
+
+-- Tombstones of the deleted users, so that the change feed can report deletions.
+create table if not exists public.users_tombstones
+(
+    id         bigint primary key,
+    deleted_at timestamptz not null default now()
+);
+
+create index if not exists idx_users_tombstones_deleted_at_id
+    on public.users_tombstones (deleted_at, id);
+
+-- Tombstone writer: records every row removed by a DELETE statement, with one insert per statement.
+create or replace function record_users_tombstones()
+    returns trigger
+    language plpgsql as
+$$
+begin
+    insert into public.users_tombstones (id, deleted_at)
+    select id, now()
+    from deleted_users
+    on conflict (id) do update set deleted_at = excluded.deleted_at;
+    return null;
+end;
+$$;
+
+drop trigger if exists trg_users_tombstones on public.users;
+
+-- trigger after delete for each statement on "public.users", reading the deleted rows from a transition table.
+create trigger trg_users_tombstones
+    after delete
+    on public.users
+    referencing old table as deleted_users
+    for each statement
+execute function record_users_tombstones();
@@ -0,0 +1,15 @@
+-- Row version, bumped by every update: the strong validator (ETag) of a user.
+alter table public.users
+    add column if not exists version bigint not null default 0;
+
+-- Updater trigger function: also bumps "version" before every UPDATE.
+create or replace function set_updated_at()
+    returns trigger
+    language plpgsql as
+$$
+begin
+    new.updated_at = now();
+    new.version = old.version + 1;
+    return new;
+end;
+$$;
@@ -0,0 +1,9 @@
+-- User IDs are allocated in blocks of 50 values from "users_id_seq": a call to nextval()
+-- returns the first ID of a block, the next 49 IDs being reserved to the caller
+-- (Hibernate "pooled-lo" optimizer). Writers using the column default still get one
+-- ID per call, which never collides with a block but leaves the rest of it unused.
+
+-- Restart the sequence right after the IDs already handed out, so the existing rows are kept.
+select setval('public.users_id_seq', nextval('public.users_id_seq'), false);
+
+alter sequence public.users_id_seq increment by 50;
@@ -0,0 +1,282 @@
+-- The users table is range-partitioned by ID. IDs come from a sequence, so every partition holds
+-- the users created over a period of time: lookups by ID and the pages ordered by ID only read
+-- the partitions covering the requested IDs, and the older partitions, no longer written but
+-- by updates and deletes, are vacuumed and indexed on their own.
+--
+-- The table is converted online, without the migration transaction (see the .conf file): the
+-- partitioned table is created next to it and kept in sync by a trigger, the rows are copied in
+-- batches of their own transactions, and the tables are swapped under a short exclusive lock.
+-- Reads and writes go on meanwhile, also from the instances still running the previous version.
+-- Every step can run again: after a failure, run "flyway repair" and start the application again.
+
+-- Emails of the users, one row per email: a unique index on the partitioned table would have to
+-- include the partition key, so the uniqueness of the emails across the partitions is enforced
+-- here, by the triggers of the partitioned table. Also serves the lookups by email, with a single index probe.
+create table if not exists public.users_emails
+(
+    email varchar primary key,
+    id    bigint not null
+);
+
+-- Partition creator: partitions of 10 000 000 IDs named after their rank ("users_p0" holds the
+-- IDs below 10 000 000), up to the one holding the next IDs of the sequence and as many as
+-- "ahead" after it. Inserting an ID without a partition fails, so the application calls it
+-- periodically to stay ahead of the sequence. Returns the names of the created partitions.
+-- The parent table is only given by this migration, before the swap below.
+create or replace function create_users_partitions(ahead integer, parent text default 'users')
+    returns setof text
+    language plpgsql as
+$$
+declare
+    width constant bigint := 10000000;
+    next_id        bigint;
+    rank           bigint;
+    partition      text;
+begin
+    select coalesce(last_value, start_value) + increment_by
+    into next_id
+    from pg_sequences
+    where schemaname = 'public'
+      and sequencename = 'users_id_seq';
+    -- one creator at a time; creating a partition locks the whole table, so give up rather than
+    -- queue behind a long statement and block every query queued behind the creation
+    perform pg_advisory_xact_lock(hashtext('create_users_partitions'));
+    perform set_config('lock_timeout', '1s', true);
+    for rank in 0 .. next_id / width + ahead
+        loop
+            partition := 'users_p' || rank;
+            if to_regclass('public.' || partition) is null then
+                execute format('create table public.%I partition of public.%I for values from (%s) to (%s)',
+                               partition, parent, rank * width, (rank + 1) * width);
+                return next partition;
+            end if;
+        end loop;
+end;
+$$;
+
+-- Email claim: records the email of an inserted or updated user, failing with a unique violation
+-- if another user owns it. Statements claiming the emails themselves beforehand, to skip the used
+-- ones with "on conflict", find their own claim and go on.
+create or replace function claim_user_email()
+    returns trigger
+    language plpgsql as
+$$
+begin
+    insert into public.users_emails (email, id)
+    values (new.email, new.id)
+    on conflict (email) do nothing;
+    if not found and not exists (select 1 from public.users_emails where email = new.email and id = new.id) then
+        -- owned by another user: raises the unique violation
+        insert into public.users_emails (email, id) values (new.email, new.id);
+    end if;
+    if tg_op = 'UPDATE' then
+        delete from public.users_emails where email = old.email and id = old.id;
+    end if;
+    return new;
+end;
+$$;
+
+-- Email release: frees the emails of the rows removed by a DELETE statement, with one delete per statement.
+create or replace function release_users_emails()
+    returns trigger
+    language plpgsql as
+$$
+begin
+    delete from public.users_emails e
+    using deleted_users d
+    where e.email = d.email
+      and e.id = d.id;
+    return null;
+end;
+$$;
+
+-- Mirror: applies every change of the unpartitioned table to the rows already copied, and inserts the
+-- new rows. The updated_at and version columns are copied, so the partitioned table has
+-- no trigger of its own for them until the swap; nor for the tombstones, still written by the
+-- unpartitioned table.
+create or replace function mirror_users_partitioned()
+    returns trigger
+    language plpgsql as
+$$
+begin
+    if tg_op = 'INSERT' then
+        insert into public.users_partitioned (id, email, name, surname, address, created_at, updated_at, version)
+        values (new.id, new.email, new.name, new.surname, new.address, new.created_at, new.updated_at, new.version)
+        on conflict (id) do nothing;
+    elsif tg_op = 'UPDATE' then
+        update public.users_partitioned
+        set email      = new.email,
+            name       = new.name,
+            surname    = new.surname,
+            address    = new.address,
+            created_at = new.created_at,
+            updated_at = new.updated_at,
+            version    = new.version
+        where id = new.id;
+    else
+        delete from public.users_partitioned where id = old.id;
+    end if;
+    return null;
+end;
+$$;
+
+-- Backfill: copies the rows in batches of their own transactions, in ID order. The rows of a batch
+-- are locked while copied: a concurrent update or delete waits for the batch to commit, then finds
+-- the copy and mirrors itself on it; one made before is seen by the batch, which copies the new row
+-- or skips the deleted one. Rows already there, inserted meanwhile or by an interrupted run, are kept.
+create or replace procedure backfill_users_partitioned(batch_size integer)
+    language plpgsql as
+$$
+declare
+    last_id bigint := -1;
+    copied  bigint;
+begin
+    loop
+        with batch as (
+            select id, email, name, surname, address, created_at, updated_at, version
+            from public.users
+            where id > last_id
+            order by id
+            limit batch_size
+            for share
+        ),
+        copy as (
+            insert into public.users_partitioned (id, email, name, surname, address, created_at, updated_at, version)
+            select id, email, name, surname, address, created_at, updated_at, version
+            from batch
+            on conflict (id) do nothing
+        )
+        select max(id)
+        into copied
+        from batch;
+        exit when copied is null;
+        last_id := copied;
+        commit;
+    end loop;
+end;
+$$;
+
+-- Partitioned table, named "users" by the swap below, with its partitions, indexes and email triggers,
+-- and the mirror trigger keeping it in sync, unless the swap is done already. Indexes are built while
+-- the table is still empty, as they cannot be built concurrently on a partitioned table.
+do
+$$
+begin
+    if (select relkind from pg_class where oid = 'public.users'::regclass) = 'p' then
+        return;
+    end if;
+
+    create table if not exists public.users_partitioned
+    (
+        id         bigint      not null default nextval('public.users_id_seq'),
+        email      varchar     not null,
+        name       text        not null,
+        surname    text        not null,
+        address    text        not null,
+        created_at timestamptz not null default now(),
+        updated_at timestamptz not null default now(),
+        version    bigint      not null default 0,
+        constraint users_partitioned_pkey primary key (id)
+    ) partition by range (id);
+
+    perform create_users_partitions(2, 'users_partitioned');
+
+    create index if not exists idx_users_partitioned_name_trgm
+        on public.users_partitioned using gin (lower(name) gin_trgm_ops);
+
+    create index if not exists idx_users_partitioned_surname_trgm
+        on public.users_partitioned using gin (lower(surname) gin_trgm_ops);
+
+    create index if not exists idx_users_partitioned_updated_at_id
+        on public.users_partitioned (updated_at, id);
+
+    create or replace trigger trg_users_email_insert
+        before insert
+        on public.users_partitioned
+        for each row
+    execute function claim_user_email();
+
+    create or replace trigger trg_users_email_update
+        before update of email
+        on public.users_partitioned
+        for each row
+        when (old.email is distinct from new.email)
+    execute function claim_user_email();
+
+    create or replace trigger trg_users_email_delete
+        after delete
+        on public.users_partitioned
+        referencing old table as deleted_users
+        for each statement
+    execute function release_users_emails();
+
+    create or replace trigger trg_users_mirror_partitioned
+        after insert or update or delete
+        on public.users
+        for each row
+    execute function mirror_users_partitioned();
+end;
+$$;
+
+do
+$$
+begin
+    if to_regclass('public.users_partitioned') is not null then
+        call backfill_users_partitioned(10000);
+    end if;
+end;
+$$;
+
+-- Swap: the partitioned table takes the name, the sequence, the remaining triggers and the index names
+-- of the unpartitioned one, which is dropped. The exclusive lock is only waited for a few seconds at a
+-- time, so that the queries arriving meanwhile are not blocked behind a long query holding the table.
+do
+$$
+begin
+    if to_regclass('public.users_partitioned') is null then
+        return;
+    end if;
+    loop
+        begin
+            perform set_config('lock_timeout', '5s', true);
+            lock table public.users in access exclusive mode;
+            exit;
+        exception
+            when lock_not_available then
+                perform pg_sleep(1);
+        end;
+    end loop;
+    perform set_config('lock_timeout', '0', true);
+
+    alter table public.users rename to users_unpartitioned;
+    alter table public.users_partitioned rename to users;
+    alter sequence public.users_id_seq owned by public.users.id;
+
+    -- Also drops its indexes and triggers.
+    drop table public.users_unpartitioned;
+
+    alter table public.users rename constraint users_partitioned_pkey to users_pkey;
+    alter index public.idx_users_partitioned_name_trgm rename to idx_users_name_trgm;
+    alter index public.idx_users_partitioned_surname_trgm rename to idx_users_surname_trgm;
+    alter index public.idx_users_partitioned_updated_at_id rename to idx_users_updated_at_id;
+
+    create trigger trg_users_updated_at
+        before update
+        on public.users
+        for each row
+    execute function set_updated_at();
+
+    create trigger trg_users_tombstones
+        after delete
+        on public.users
+        referencing old table as deleted_users
+        for each statement
+    execute function record_users_tombstones();
+end;
+$$;
+
+drop procedure if exists backfill_users_partitioned(integer);
+drop function if exists mirror_users_partitioned();
+
+analyze public.users;
+analyze public.users_emails;
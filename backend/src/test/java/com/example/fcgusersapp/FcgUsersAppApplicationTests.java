@@ -1,10 +1,8 @@
 package com.example.fcgusersapp;
 
 import org.junit.jupiter.api.Test;
-import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
-class FcgUsersAppApplicationTests {
+class FcgUsersAppApplicationTests extends PostgresIntegrationTest {
 
     @Test
     void contextLoads() {
@@ -0,0 +1,44 @@
+package com.example.fcgusersapp;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.Objects;
+
+/**
+ * Base of the tests running the application against the PostgreSQL database of {@link PostgresTestDatabase},
+ * migrated by Flyway, with a {@code MockMvc} to call the API. Subclasses without properties of their own
+ * share the same application context.
+ * <p>
+ * Every test starts with no user, no tombstone and empty caches. The change feed has no settle
+ * delay, so that the changes of a test are returned as soon as committed.
+ */
+@SpringBootTest(properties = "app.changes.settle-delay=0s")
+@AutoConfigureMockMvc
+public abstract class PostgresIntegrationTest {
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", PostgresTestDatabase::url);
+        registry.add("spring.datasource.username", PostgresTestDatabase::username);
+        registry.add("spring.datasource.password", PostgresTestDatabase::password);
+    }
+
+    @BeforeEach
+    void deleteAllUsers() {
+        jdbcTemplate.execute("truncate table public.users, public.users_emails, public.users_tombstones");
+        cacheManager.getCacheNames().forEach(name -> Objects.requireNonNull(cacheManager.getCache(name)).clear());
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.fcgusersapp;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * PostgreSQL server of the integration tests, started once per run.
+ * <p>
+ * A Testcontainers container when Docker is available. Otherwise, as where the tests run next
+ * to the database service of the development environment without Docker, the server of the
+ * application properties, on which every database of the tests is dropped and created again
+ * at its first use, so that each run starts from an empty schema migrated by Flyway.
+ */
+public final class PostgresTestDatabase {
+
+    private static final String IMAGE = "postgres:16-alpine";
+    private static final String DATABASE = "appusersdb_test";
+
+    private static Server server;
+
+    private PostgresTestDatabase() {
+        throw new IllegalStateException("This class is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * @return the JDBC URL of the database of the tests
+     */
+    public static String url() {
+        return createDatabase(DATABASE);
+    }
+
+    public static String username() {
+        return server().username();
+    }
+
+    public static String password() {
+        return server().password();
+    }
+
+    /**
+     * Creates an empty database on the server of the tests, unless already created by this run.
+     *
+     * @param name the name of the database
+     * @return its JDBC URL
+     */
+    public static synchronized String createDatabase(String name) {
+        Server current = server();
+        if (current.databases().add(name)) {
+            try (Connection connection = DriverManager.getConnection(current.url(current.administrationDatabase()),
+                    current.username(), current.password());
+                 Statement statement = connection.createStatement()) {
+                statement.execute("drop database if exists " + name + " with (force)");
+                statement.execute("create database " + name);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Cannot create the test database " + name, e);
+            }
+        }
+        return current.url(name);
+    }
+
+    private static synchronized Server server() {
+        if (server == null) {
+            server = DockerClientFactory.instance().isDockerAvailable() ? startContainer() : configuredServer();
+        }
+        return server;
+    }
+
+    private static Server startContainer() {
+        PostgreSQLContainer<?> container = new PostgreSQLContainer<>(IMAGE);
+        container.start();
+        String url = container.getJdbcUrl();
+        return new Server(url.substring(0, url.lastIndexOf('/') + 1), container.getDatabaseName(),
+                container.getUsername(), container.getPassword());
+    }
+
+    private static Server configuredServer() {
+        try {
+            Properties properties = PropertiesLoaderUtils.loadProperties(new ClassPathResource("application.properties"));
+            String url = properties.getProperty("spring.datasource.url");
+            int database = url.lastIndexOf('/') + 1;
+            return new Server(url.substring(0, database), url.substring(database),
+                    properties.getProperty("spring.datasource.username"),
+                    properties.getProperty("spring.datasource.password"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param baseUrl                the JDBC URL of the server, up to the database name
+     * @param administrationDatabase the existing database the others are created from
+     */
+    private record Server(String baseUrl, String administrationDatabase, String username, String password,
+                          Set<String> databases) {
+
+        private Server(String baseUrl, String administrationDatabase, String username, String password) {
+            this(baseUrl, administrationDatabase, username, password, new HashSet<>());
+        }
+
+        private String url(String database) {
+            return baseUrl + database;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.fcgusersapp.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionControlFilterTest {
+
+    private static final String PROXY = "10.0.0.1";
+    private static final FilterChain PASSING = (request, response) -> {
+    };
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch inFlight = new CountDownLatch(1);
+    private final CountDownLatch released = new CountDownLatch(1);
+
+    @AfterEach
+    void releaseRequests() {
+        released.countDown();
+    }
+
+    @Test
+    void ignoresClientHeaderFromUntrustedAddresses() throws SQLException {
+        AdmissionControlFilter filter = filter("X-Forwarded-For", List.of(PROXY));
+        assertThat(filter.clientOf(request("192.168.1.7", "1.2.3.4"))).isEqualTo("192.168.1.7");
+    }
+
+    @Test
+    void usesLastAddressAddedBeforeTrustedProxies() throws SQLException {
+        AdmissionControlFilter filter = filter("X-Forwarded-For", List.of(PROXY, "10.0.0.2"));
+        assertThat(filter.clientOf(request(PROXY, "6.6.6.6, 1.2.3.4, 10.0.0.2"))).isEqualTo("1.2.3.4");
+        assertThat(filter.clientOf(request(PROXY, "10.0.0.2"))).isEqualTo("10.0.0.2");
+        assertThat(filter.clientOf(request(PROXY, null))).isEqualTo(PROXY);
+    }
+
+    @Test
+    void usesRemoteAddressWithoutClientHeader() throws SQLException {
+        AdmissionControlFilter filter = filter(null, List.of(PROXY));
+        assertThat(filter.clientOf(request(PROXY, "1.2.3.4"))).isEqualTo(PROXY);
+    }
+
+    @Test
+    void refusesTheRequestsOfAClientOverItsRate() throws Exception {
+        AdmissionControlFilter filter = filter(Map.of("lookup",
+                new AdmissionProperties.EndpointLimits(List.of("get"), List.of("/user/{id}"), 1, 2, 1, 0)));
+
+        assertThat(serve(filter, "GET", "/api/v1/user/1", "192.168.1.7", PASSING).getStatus()).isEqualTo(200);
+        assertThat(serve(filter, "GET", "/api/v1/user/2", "192.168.1.7", PASSING).getStatus()).isEqualTo(200);
+        MockHttpServletResponse refused = serve(filter, "GET", "/api/v1/user/1", "192.168.1.7", PASSING);
+
+        assertThat(refused.getStatus()).isEqualTo(429);
+        assertThat(refused.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(refused.getContentAsString()).contains("\"status\":\"ko\"");
+        assertThat(meterRegistry.get(AdmissionControlFilter.REJECTED_METRIC)
+                .tags("endpoint", "lookup", "reason", "rate").counter().count()).isEqualTo(1);
+        // other clients, and the requests of other endpoints, keep their own rate
+        assertThat(serve(filter, "GET", "/api/v1/user/1", "192.168.1.8", PASSING).getStatus()).isEqualTo(200);
+        assertThat(serve(filter, "PUT", "/api/v1/user/1", "192.168.1.7", PASSING).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void refusesTheRequestsBeyondTheConcurrencyOfTheEndpoint() throws Exception {
+        AdmissionControlFilter filter = filter(Map.of("search",
+                new AdmissionProperties.EndpointLimits(List.of(), List.of("/users"), 0, 0, 1, 1)));
+        CompletableFuture<MockHttpServletResponse> first =
+                CompletableFuture.supplyAsync(() -> serve(filter, "GET", "/api/v1/users", "192.168.1.7", holding()));
+        assertThat(inFlight.await(5, TimeUnit.SECONDS)).isTrue();
+
+        MockHttpServletResponse refused = serve(filter, "GET", "/api/v1/users", "192.168.1.8", PASSING);
+
+        assertThat(refused.getStatus()).isEqualTo(429);
+        assertThat(refused.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(meterRegistry.get(AdmissionControlFilter.REJECTED_METRIC)
+                .tags("endpoint", "search", "reason", "concurrency").counter().count()).isEqualTo(1);
+        assertThat(serve(filter, "GET", "/api/v1/user/1", "192.168.1.8", PASSING).getStatus()).isEqualTo(200);
+
+        released.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(200);
+        assertThat(serve(filter, "GET", "/api/v1/users", "192.168.1.8", PASSING).getStatus()).isEqualTo(200);
+    }
+
+    private AdmissionControlFilter filter(Map<String, AdmissionProperties.EndpointLimits> endpoints) throws SQLException {
+        AdmissionProperties properties = new AdmissionProperties(true, null, List.of(),
+                Duration.ofMinutes(10), 1000, endpoints);
+        return new AdmissionControlFilter(properties, new HikariDataSource(), new ObjectMapper(), meterRegistry);
+    }
+
+    /**
+     * @return a chain holding its request until the end of the test
+     */
+    private FilterChain holding() {
+        return (request, response) -> {
+            inFlight.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    private static MockHttpServletResponse serve(AdmissionControlFilter filter, String method, String uri,
+                                                 String remoteAddress, FilterChain chain) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr(remoteAddress);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return response;
+    }
+
+    private static AdmissionControlFilter filter(String clientHeader, List<String> trustedProxies) throws SQLException {
+        AdmissionProperties properties = new AdmissionProperties(true, clientHeader, trustedProxies,
+                Duration.ofMinutes(10), 1000, Map.of());
+        return new AdmissionControlFilter(properties, new HikariDataSource(), new ObjectMapper(),
+                new SimpleMeterRegistry());
+    }
+
+    private static MockHttpServletRequest request(String remoteAddress, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/user/1");
+        request.setRemoteAddr(remoteAddress);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.fcgusersapp.config;
+
+import com.example.fcgusersapp.PostgresIntegrationTest;
+import com.example.fcgusersapp.PostgresTestDatabase;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.Cookie;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Routes the reads to a "replica" that is another database of the test server, migrated
+ * separately: not in recovery, it is always available and tells the reads it served apart.
+ */
+@TestPropertySource(properties = {"app.replicas.check-interval=100ms", "app.replicas.max-lag=1s"})
+class ReplicaRoutingTest extends PostgresIntegrationTest {
+
+    private static final String REPLICA_DATABASE = "appusersdb_test_replica";
+
+    private static String replicaDatabaseUrl;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(
+            replicaUrl(), PostgresTestDatabase.username(), PostgresTestDatabase.password()));
+
+    @DynamicPropertySource
+    static void replicas(DynamicPropertyRegistry registry) {
+        registry.add("app.replicas.urls", ReplicaRoutingTest::replicaUrl);
+    }
+
+    private static synchronized String replicaUrl() {
+        if (replicaDatabaseUrl == null) {
+            String url = PostgresTestDatabase.createDatabase(REPLICA_DATABASE);
+            Flyway.configure().dataSource(url, PostgresTestDatabase.username(), PostgresTestDatabase.password())
+                    .load().migrate();
+            replicaDatabaseUrl = url;
+        }
+        return replicaDatabaseUrl;
+    }
+
+    @BeforeEach
+    void awaitTheReplica() throws InterruptedException {
+        replica.execute("truncate table public.users, public.users_emails, public.users_tombstones");
+        Instant deadline = Instant.now().plus(Duration.ofSeconds(30));
+        while (meterRegistry.get("db.replicas.available").gauge().value() < 1) {
+            assertThat(Instant.now()).as("replica available").isBefore(deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void sendsOnlyTheReadOnlyTransactionsToTheReplicas() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+
+        assertThat(database(readOnly)).isEqualTo(REPLICA_DATABASE);
+        assertThat(database(readWrite)).isEqualTo("appusersdb_test");
+        try (ReadRouting.Scope primary = ReadRouting.primary()) {
+            assertThat(database(readOnly)).isEqualTo("appusersdb_test");
+        }
+        assertThat(ReadRouting.isPrimaryRequired()).isFalse();
+    }
+
+    @Test
+    void readsThePrimaryWithoutAvailableReplica() throws SQLException {
+        HikariDataSource primary = new HikariDataSource();
+        primary.setJdbcUrl(PostgresTestDatabase.url());
+        primary.setUsername(PostgresTestDatabase.username());
+        primary.setPassword(PostgresTestDatabase.password());
+        HikariDataSource down = new HikariDataSource();
+        down.setJdbcUrl(PostgresTestDatabase.url() + "_missing");
+        down.setUsername(PostgresTestDatabase.username());
+        down.setPassword(PostgresTestDatabase.password());
+        down.setConnectionTimeout(250);
+        down.setInitializationFailTimeout(-1);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        try (ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, List.of(down),
+                new ReplicaProperties(List.of("unused"), null, null, 1, Duration.ofSeconds(1), Duration.ofMillis(100),
+                        Duration.ofSeconds(60), true), registry);
+             Connection connection = routing.getConnection()) {
+            connection.setReadOnly(true);
+
+            assertThat(new JdbcTemplate(new SingleConnectionDataSource(connection, true))
+                    .queryForObject("select current_database()", String.class)).isEqualTo("appusersdb_test");
+            assertThat(registry.get("db.replicas.available").gauge().value()).isZero();
+            assertThat(routing.getMaximumPoolSize()).isEqualTo(primary.getMaximumPoolSize());
+        }
+    }
+
+    @Test
+    void readsThePrimaryRightAfterTheWritesOfTheClient() throws Exception {
+        insert(jdbcTemplate, "primary@x.it", "Primo");
+        insert(replica, "replica@x.it", "Replica");
+
+        mockMvc.perform(get("/api/v1/users").param("surname", "Rossi"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].name", contains("Replica")));
+
+        Cookie cookie = mockMvc.perform(post("/api/v1/user").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"new@x.it\",\"name\":\"Nuovo\",\"surname\":\"Rossi\",\"address\":\"Via Roma 1\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getCookie(ReadYourWritesFilter.COOKIE_NAME);
+
+        assertThat(cookie).isNotNull();
+        assertThat(cookie.getMaxAge()).isEqualTo(2);
+        mockMvc.perform(get("/api/v1/users").param("surname", "Rossi").cookie(cookie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].name", containsInAnyOrder("Primo", "Nuovo")));
+        Cookie expired = new Cookie(ReadYourWritesFilter.COOKIE_NAME, String.valueOf(System.currentTimeMillis() - 1));
+        mockMvc.perform(get("/api/v1/users").param("surname", "Rossi").cookie(expired))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].name", contains("Replica")));
+    }
+
+    private String database(TransactionTemplate transaction) {
+        return transaction.execute(status -> jdbcTemplate.queryForObject("select current_database()", String.class));
+    }
+
+    private static void insert(JdbcTemplate database, String email, String name) {
+        database.update("insert into public.users (email, name, surname, address) values (?, ?, 'Rossi', 'Via Roma 1')",
+                email, name);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.fcgusersapp.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestConcurrencyFilterTest {
+
+    private static final FilterChain PASSING = (request, response) -> {
+    };
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HikariDataSource dataSource = new HikariDataSource();
+    private final CountDownLatch inFlight = new CountDownLatch(1);
+    private final CountDownLatch released = new CountDownLatch(1);
+
+    @AfterEach
+    void releaseRequests() {
+        released.countDown();
+        dataSource.close();
+    }
+
+    @Test
+    void refusesTheRequestsBeyondTheLimitOnceTheirTimeoutElapses() throws Exception {
+        RequestConcurrencyFilter filter = filter(1);
+        CompletableFuture<MockHttpServletResponse> first =
+                CompletableFuture.supplyAsync(() -> serve(filter, "/api/v1/users", holding()));
+        assertThat(inFlight.await(5, TimeUnit.SECONDS)).isTrue();
+
+        MockHttpServletResponse refused = serve(filter, "/api/v1/users", PASSING);
+
+        assertThat(refused.getStatus()).isEqualTo(503);
+        assertThat(refused.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(refused.getContentAsString()).contains("\"status\":\"ko\"");
+        assertThat(meterRegistry.get("http.server.requests.rejected").counter().count()).isEqualTo(1);
+
+        released.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(200);
+        assertThat(serve(filter, "/api/v1/users", PASSING).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void boundsTheRequestsByTheConnectionPoolWithoutExplicitLimit() throws Exception {
+        dataSource.setMaximumPoolSize(1);
+        RequestConcurrencyFilter filter = filter(0);
+        CompletableFuture.supplyAsync(() -> serve(filter, "/api/v1/users", holding()));
+        assertThat(inFlight.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(serve(filter, "/api/v1/users", PASSING).getStatus()).isEqualTo(503);
+    }
+
+    @Test
+    void leavesTheRequestsOutsideTheApiUnbounded() throws Exception {
+        RequestConcurrencyFilter filter = filter(1);
+        CompletableFuture.supplyAsync(() -> serve(filter, "/api/v1/users", holding()));
+        assertThat(inFlight.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(serve(filter, "/actuator/health", PASSING).getStatus()).isEqualTo(200);
+    }
+
+    private RequestConcurrencyFilter filter(int maxInFlight) throws Exception {
+        return new RequestConcurrencyFilter(new RequestConcurrencyProperties(true, maxInFlight, Duration.ofMillis(50)),
+                dataSource, new ObjectMapper(), meterRegistry);
+    }
+
+    /**
+     * @return a chain holding its request until the end of the test
+     */
+    private FilterChain holding() {
+        return (request, response) -> {
+            inFlight.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    private static MockHttpServletResponse serve(RequestConcurrencyFilter filter, String uri, FilterChain chain) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.fcgusersapp.config;
+
+import com.example.fcgusersapp.PostgresIntegrationTest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class SqlStatementMetricsTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void recordsTheStatementsOfEachRequestByEndpoint() throws Exception {
+        createUsers(0, 1);
+        DistributionSummary summary = meterRegistry.get("http.server.requests.sql.statements")
+                .tag("method", "POST").tag("uri", "/api/v1/users/bulk").summary();
+        long requests = summary.count();
+        double statements = summary.totalAmount();
+
+        createUsers(1, 2);
+        double singleUserStatements = summary.totalAmount() - statements;
+        createUsers(2, 52);
+        double fiftyUsersStatements = summary.totalAmount() - statements - singleUserStatements;
+
+        assertThat(summary.count()).isEqualTo(requests + 2);
+        // set-based: the same statements whatever the number of users
+        assertThat(singleUserStatements).isPositive();
+        assertThat(fiftyUsersStatements).isEqualTo(singleUserStatements);
+    }
+
+    @Test
+    void countsTheStatementsByType() throws Exception {
+        Counter selects = meterRegistry.get("db.sql.statements").tag("type", "select").counter();
+        double before = selects.count();
+
+        mockMvc.perform(get("/api/v1/user/1")).andExpect(status().isNotFound());
+
+        assertThat(selects.count()).isGreaterThan(before);
+    }
+
+    @Test
+    void timesTheJdbcRepositoryInvocations() throws Exception {
+        createUsers(0, 1);
+
+        Timer timer = meterRegistry.get("user.jdbc.repository.invocations").tag("method", "insertIgnoringDuplicates").timer();
+
+        assertThat(timer.count()).isPositive();
+    }
+
+    private void createUsers(int from, int to) throws Exception {
+        String users = IntStream.range(from, to)
+                .mapToObj(i -> "{\"email\": \"user%d@x.it\", \"name\": \"Mario\", \"surname\": \"Rossi\", \"address\": \"Via Roma 1\"}".formatted(i))
+                .collect(Collectors.joining(",", "[", "]"));
+        mockMvc.perform(post("/api/v1/users/bulk").contentType(MediaType.APPLICATION_JSON).content(users))
+                .andExpect(status().isOk());
+    }
+}
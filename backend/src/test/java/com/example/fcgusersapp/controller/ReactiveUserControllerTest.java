@@ -0,0 +1,131 @@
+package com.example.fcgusersapp.controller;
+
+import com.example.fcgusersapp.PostgresIntegrationTest;
+import com.example.fcgusersapp.PostgresTestDatabase;
+import com.example.fcgusersapp.entity.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.BodyInserters;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+@ActiveProfiles("reactive")
+@AutoConfigureWebTestClient
+class ReactiveUserControllerTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @DynamicPropertySource
+    static void r2dbc(DynamicPropertyRegistry registry) {
+        registry.add("spring.r2dbc.url", () -> PostgresTestDatabase.url().replaceFirst("^jdbc:", "r2dbc:"));
+    }
+
+    @Test
+    void createsAndFindsUsers() {
+        webTestClient.post().uri("/api/v1/user")
+                .bodyValue(user("a@x.it", "Mario", "Rossi"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo("ok")
+                .jsonPath("$.user.email").isEqualTo("a@x.it");
+        Long id = jdbcTemplate.queryForObject("select id from public.users where email = 'a@x.it'", Long.class);
+
+        webTestClient.get().uri("/api/v1/user/{id}", id)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.ETAG)
+                .expectBody()
+                .jsonPath("$.surname").isEqualTo("Rossi");
+        webTestClient.get().uri("/api/v1/user/{id}", id + 1000)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void refusesAUsedEmail() {
+        webTestClient.post().uri("/api/v1/user").bodyValue(user("a@x.it", "Mario", "Rossi"))
+                .exchange().expectStatus().isOk();
+
+        webTestClient.post().uri("/api/v1/user").bodyValue(user("a@x.it", "Anna", "Bianchi"))
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody().jsonPath("$.status").isEqualTo("ko");
+    }
+
+    @Test
+    void searchesUsersWithTheirTotal() {
+        webTestClient.post().uri("/api/v1/user").bodyValue(user("a@x.it", "Mario", "Rossi")).exchange();
+        webTestClient.post().uri("/api/v1/user").bodyValue(user("b@x.it", "Anna", "Rossini")).exchange();
+        webTestClient.post().uri("/api/v1/user").bodyValue(user("c@x.it", "Luca", "Verdi")).exchange();
+
+        webTestClient.get().uri("/api/v1/users?surname=ross&fields=email")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content[*].email").value(contains("b@x.it", "a@x.it"))
+                .jsonPath("$.content[0].name").doesNotExist()
+                .jsonPath("$.totalElements").isEqualTo(2)
+                .jsonPath("$.totalExact").isEqualTo(true);
+        webTestClient.get().uri("/api/v1/users?fields=password")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void streamsTheUsersAsNdjson() {
+        webTestClient.post().uri("/api/v1/user").bodyValue(user("a@x.it", "Mario", "Rossi")).exchange();
+        webTestClient.post().uri("/api/v1/user").bodyValue(user("b@x.it", "Anna", "Bianchi")).exchange();
+
+        webTestClient.get().uri("/api/v1/users?fields=email")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(User.class)
+                .value(users -> assertThat(users)
+                        .extracting(User::getEmail).containsExactly("b@x.it", "a@x.it"));
+    }
+
+    @Test
+    void importsTheUploadedCsv() {
+        MultipartBodyBuilder body = new MultipartBodyBuilder();
+        body.part("file", new ByteArrayResource(("email,name,surname,address\n"
+                + "a@x.it,Mario,Rossi,Via Roma 1\n"
+                + "b@x.it,Anna,Bianchi,Via Po 2\n"
+                + "a@x.it,Mario,Neri,Via Roma 2\n").getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public String getFilename() {
+                return "users.csv";
+            }
+        });
+
+        webTestClient.post().uri("/api/v1/upload-user-csv")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(BodyInserters.fromMultipartData(body.build()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$['numero utenti inseriti']").isEqualTo(2)
+                .jsonPath("$.duplicates[0].email").isEqualTo("a@x.it")
+                .jsonPath("$.duplicates[0].line").isEqualTo(4);
+    }
+
+    private static User user(String email, String name, String surname) {
+        return User.builder().email(email).name(name).surname(surname).address("Via Roma 1").build();
+    }
+}
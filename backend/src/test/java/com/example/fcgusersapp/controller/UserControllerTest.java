@@ -0,0 +1,286 @@
+package com.example.fcgusersapp.controller;
+
+import com.example.fcgusersapp.PostgresIntegrationTest;
+import com.example.fcgusersapp.constants.CacheNames;
+import com.example.fcgusersapp.entity.User;
+import com.example.fcgusersapp.service.UserService;
+import com.example.fcgusersapp.utils.CursorCodec;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class UserControllerTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Test
+    void scrollsThroughTheUsersWithTheNextCursor() throws Exception {
+        createUsers("a@x.it", "b@x.it", "c@x.it");
+
+        String next = JsonPath.read(mockMvc.perform(get("/api/v1/users/scroll").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].email", contains("c@x.it", "b@x.it")))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andReturn().getResponse().getContentAsString(), "$.next");
+
+        mockMvc.perform(get("/api/v1/users/scroll").param("size", "2").param("after", next))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].email", contains("a@x.it")))
+                .andExpect(jsonPath("$.hasNext").value(false));
+    }
+
+    @Test
+    void rejectsInvalidCursorsAndSorts() throws Exception {
+        mockMvc.perform(get("/api/v1/users/scroll").param("after", "bm90IGpzb24"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value("ko"))
+                .andExpect(jsonPath("$.error").value("Invalid cursor"));
+        mockMvc.perform(get("/api/v1/users/scroll").param("sort", "createdAt"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value("ko"));
+        mockMvc.perform(get("/api/v1/users/scroll").param("size", "0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(0)));
+    }
+
+    @Test
+    void returnsOnlyTheSelectedFieldsOfTheUsers() throws Exception {
+        createUsers("a@x.it", "b@x.it");
+
+        mockMvc.perform(get("/api/v1/users").param("fields", "email,updatedAt").param("sort", "email,asc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].email", contains("a@x.it", "b@x.it")))
+                .andExpect(jsonPath("$.content[0].updatedAt").isString())
+                .andExpect(jsonPath("$.content[0].id").doesNotExist())
+                .andExpect(jsonPath("$.content[0].name").doesNotExist())
+                .andExpect(jsonPath("$.totalElements").value(2));
+        mockMvc.perform(get("/api/v1/users"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].email", contains("b@x.it", "a@x.it")))
+                .andExpect(jsonPath("$.content[0].id").isNumber())
+                .andExpect(jsonPath("$.content[0].address").value("Via Roma 1"))
+                .andExpect(jsonPath("$.content[0].createdAt").doesNotExist());
+    }
+
+    @Test
+    void rejectsUnknownFieldsAndSorts() throws Exception {
+        mockMvc.perform(get("/api/v1/users").param("fields", "email,password"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value("ko"));
+        mockMvc.perform(get("/api/v1/users").param("sort", "password"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value("ko"));
+    }
+
+    @Test
+    void summarizesTheOutcomesOfABulkRequest() throws Exception {
+        String created = mockMvc.perform(post("/api/v1/users/bulk").contentType(MediaType.APPLICATION_JSON).content("""
+                        [{"email": "a@x.it", "name": "Mario", "surname": "Rossi", "address": "Via Roma 1"},
+                         {"email": "b@x.it", "name": "Anna"},
+                         {"email": "a@x.it", "name": "Marta", "surname": "Rossi", "address": "Via Roma 2"}]
+                        """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("ok"))
+                .andExpect(jsonPath("$.summary.created").value(1))
+                .andExpect(jsonPath("$.summary.invalid").value(1))
+                .andExpect(jsonPath("$.summary.conflict").value(1))
+                .andExpect(jsonPath("$.results[*].result", contains("created", "invalid", "conflict")))
+                .andReturn().getResponse().getContentAsString();
+        Number id = JsonPath.read(created, "$.results[0].id");
+
+        mockMvc.perform(post("/api/v1/users/bulk/delete").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + id + ", " + id + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[*].result", contains("deleted", "conflict")));
+    }
+
+    @Test
+    void rejectsBulkRequestsWithTooManyItems() throws Exception {
+        String ids = LongStream.rangeClosed(1, 10_001).mapToObj(String::valueOf).collect(Collectors.joining(",", "[", "]"));
+
+        mockMvc.perform(post("/api/v1/users/bulk/delete").contentType(MediaType.APPLICATION_JSON).content(ids))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value("ko"));
+    }
+
+    @Test
+    void streamsTheExportAsAnAttachment() throws Exception {
+        createUsers("a@x.it");
+
+        MvcResult result = mockMvc.perform(get("/api/v1/users/export").param("format", "ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=users.ndjson"))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(containsString("\"email\":\"a@x.it\"")));
+        mockMvc.perform(get("/api/v1/users/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void streamsTheChangesFollowingTheCursor() throws Exception {
+        createUsers("a@x.it");
+
+        MvcResult result = mockMvc.perform(get("/api/v1/users/changes").param("limit", "10"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(containsString("\"op\":\"upsert\"")))
+                .andExpect(content().string(containsString("\"email\":\"a@x.it\"")));
+    }
+
+    @Test
+    void rejectsInvalidAndExpiredChangeCursors() throws Exception {
+        mockMvc.perform(get("/api/v1/users/changes").param("since", "bm90IGpzb24"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/users/changes").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/users/changes").param("since", CursorCodec.encode("changes",
+                        Map.of("t", OffsetDateTime.now().minusDays(31).toString(), "id", 1))))
+                .andExpect(status().isGone());
+    }
+
+    @Test
+    void answersUnchangedUsersWithNotModifiedWithoutLoadingThem() throws Exception {
+        createUsers("a@x.it");
+        Long id = jdbcTemplate.queryForObject("select id from public.users", Long.class);
+
+        String eTag = mockMvc.perform(get("/api/v1/user/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        Objects.requireNonNull(cacheManager.getCache(CacheNames.USERS)).clear();
+
+        mockMvc.perform(get("/api/v1/user/{id}", id).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        assertThat(Objects.requireNonNull(cacheManager.getCache(CacheNames.USERS)).get(id)).isNull();
+        mockMvc.perform(get("/api/v1/user/{id}", id).header(HttpHeaders.IF_NONE_MATCH, "\"other\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag));
+    }
+
+    @Test
+    void updatesUsersOnlyIfTheyStillMatch() throws Exception {
+        createUsers("a@x.it");
+        Long id = jdbcTemplate.queryForObject("select id from public.users", Long.class);
+        String eTag = mockMvc.perform(get("/api/v1/user/{id}", id))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String update = """
+                {"email": "a@x.it", "name": "Luigi", "surname": "Rossi", "address": "Via Roma 1"}""";
+
+        String newETag = mockMvc.perform(put("/api/v1/user/{id}", id).header(HttpHeaders.IF_MATCH, eTag)
+                        .contentType(MediaType.APPLICATION_JSON).content(update))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.user.name").value("Luigi"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(newETag).isNotEqualTo(eTag);
+
+        mockMvc.perform(put("/api/v1/user/{id}", id).header(HttpHeaders.IF_MATCH, eTag)
+                        .contentType(MediaType.APPLICATION_JSON).content(update))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.status").value("ko"));
+        mockMvc.perform(put("/api/v1/user/{id}", id + 1000).header(HttpHeaders.IF_MATCH, "*")
+                        .contentType(MediaType.APPLICATION_JSON).content(update))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void answersUnchangedPagesWithNotModified() throws Exception {
+        createUsers("a@x.it");
+
+        String eTag = mockMvc.perform(get("/api/v1/users"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/v1/users").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+        createUsers("b@x.it");
+        mockMvc.perform(get("/api/v1/users").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void importsTheCsvSentAsTheRequestBody() throws Exception {
+        mockMvc.perform(post("/api/v1/upload-user-csv").contentType("text/csv")
+                        .content("email,name,surname,address\na@x.it,Mario,Rossi,Via Roma 1\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['numero utenti inseriti']").value(1));
+
+        mockMvc.perform(post("/api/v1/upload-user-csv").param("mode", "upsert").contentType("application/gzip")
+                        .content(gzip("email,name,surname,address\na@x.it,Mario,Neri,Via Roma 1\nb@x.it,Anna,Bianchi,Via Po 2\n")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['numero utenti inseriti']").value(1))
+                .andExpect(jsonPath("$['numero utenti aggiornati']").value(1));
+        mockMvc.perform(post("/api/v1/upload-user-csv").contentType("text/csv").content("email,name\na@x.it,Mario\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value("ko"));
+    }
+
+    @Test
+    void refusesBodiesDeclaredLargerThanTheUploadLimit() throws Exception {
+        mockMvc.perform(post("/api/v1/upload-user-csv").contentType("text/csv")
+                        .header(HttpHeaders.CONTENT_LENGTH, DataSize.ofGigabytes(11).toBytes())
+                        .content("email,name,surname,address\n"))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(jsonPath("$.status").value("ko"));
+    }
+
+    private static byte[] gzip(String content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private void createUsers(String... emails) {
+        userService.createUsers(Arrays.stream(emails)
+                .map(email -> User.builder().email(email).name("Mario").surname("Rossi").address("Via Roma 1").build())
+                .toList());
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.fcgusersapp.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class UserFieldTest {
+
+    @Test
+    void selectsTheFieldsOfTheUserPayloadByDefault() {
+        assertThat(UserField.parse(null)).isEqualTo(UserField.DEFAULT);
+        assertThat(UserField.parse(" ")).isEqualTo(UserField.DEFAULT);
+        assertThat(UserField.parse(", ,")).isEqualTo(UserField.DEFAULT);
+        assertThat(UserField.DEFAULT).doesNotContain(UserField.CREATED_AT, UserField.UPDATED_AT);
+    }
+
+    @Test
+    void findsTheFieldsByPropertyOrColumnName() {
+        assertThat(UserField.parse("email, createdAt,UPDATED_AT,,Id"))
+                .containsExactly(UserField.ID, UserField.EMAIL, UserField.CREATED_AT, UserField.UPDATED_AT);
+        assertThat(UserField.fromName("created_at")).isEqualTo(UserField.CREATED_AT);
+        assertThat(UserField.CREATED_AT.property()).isEqualTo("createdAt");
+    }
+
+    @Test
+    void rejectsUnknownFields() {
+        assertThatIllegalArgumentException().isThrownBy(() -> UserField.parse("email,password"))
+                .withMessage("Unknown user field: password");
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.fcgusersapp.repository;
+
+import com.example.fcgusersapp.PostgresIntegrationTest;
+import com.example.fcgusersapp.entity.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserJdbcRepositoryTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private UserJdbcRepository userJdbcRepository;
+
+    @Test
+    void insertsAllTheUsersWithAStatement() {
+        Map<String, Long> inserted = userJdbcRepository.insertIgnoringDuplicates(List.of(
+                user("a@x.it", "Mario"), user("b@x.it", "Anna"), user("c@x.it", "Luca")));
+
+        assertThat(inserted).containsOnlyKeys("a@x.it", "b@x.it", "c@x.it");
+        assertThat(inserted.values()).doesNotHaveDuplicates();
+        assertThat(jdbcTemplate.queryForMap("select id, name from public.users where email = 'b@x.it'"))
+                .containsEntry("id", inserted.get("b@x.it"))
+                .containsEntry("name", "Anna");
+        assertThat(emails()).isEqualTo(inserted);
+    }
+
+    @Test
+    void skipsTheUsersWhoseEmailIsUsed() {
+        Long existing = userJdbcRepository.insertIgnoringDuplicates(List.of(user("a@x.it", "Mario"))).get("a@x.it");
+
+        Map<String, Long> inserted = userJdbcRepository.insertIgnoringDuplicates(List.of(
+                user("a@x.it", "Giuseppe"), user("b@x.it", "Anna")));
+
+        assertThat(inserted).containsOnlyKeys("b@x.it");
+        assertThat(jdbcTemplate.queryForList("select id, name from public.users where email = 'a@x.it'"))
+                .containsExactly(Map.of("id", existing, "name", "Mario"));
+        assertThat(count()).isEqualTo(2);
+    }
+
+    @Test
+    void insertsNothingFromAnEmptyBatch() {
+        assertThat(userJdbcRepository.insertIgnoringDuplicates(List.of())).isEmpty();
+        assertThat(count()).isZero();
+    }
+
+    @Test
+    void upsertsOnlyTheNewAndChangedUsers() {
+        Map<String, Long> existing = userJdbcRepository.insertIgnoringDuplicates(List.of(
+                user("a@x.it", "Mario"), user("b@x.it", "Anna")));
+        String unchangedRowVersion = rowVersion("b@x.it");
+
+        UserJdbcRepository.UpsertResult result = userJdbcRepository.upsert(List.of(
+                user("a@x.it", "Giuseppe"), user("b@x.it", "Anna"), user("c@x.it", "Luca")));
+
+        assertThat(result.updated()).isEqualTo(Map.of("a@x.it", existing.get("a@x.it")));
+        assertThat(result.inserted()).containsOnlyKeys("c@x.it");
+        assertThat(rowVersion("b@x.it")).isEqualTo(unchangedRowVersion);
+        assertThat(jdbcTemplate.queryForList("select name from public.users order by email", String.class))
+                .containsExactly("Giuseppe", "Anna", "Luca");
+        assertThat(jdbcTemplate.queryForObject("select id from public.users_emails where email = 'c@x.it'", Long.class))
+                .isEqualTo(result.inserted().get("c@x.it"));
+    }
+
+    @Test
+    void expandsTheIdBlocksIntoTheRequestedIds() {
+        assertThat(UserJdbcRepository.idBlockCount(1)).isEqualTo(1);
+        assertThat(UserJdbcRepository.idBlockCount(50)).isEqualTo(1);
+        assertThat(UserJdbcRepository.idBlockCount(51)).isEqualTo(2);
+
+        Long[] ids = UserJdbcRepository.idsFromBlocks(List.of(101L, 501L), 52);
+
+        assertThat(ids).hasSize(52).startsWith(101L, 102L).contains(150L).endsWith(150L, 501L, 502L);
+    }
+
+    @Test
+    void allocatesTheIdsInBlocksFromTheSequence() {
+        long before = nextSequenceValue();
+
+        Long[] ids = userJdbcRepository.allocateIds(120);
+
+        assertThat(ids).doesNotHaveDuplicates().allMatch(id -> id >= before);
+        // the block drawn above, then three blocks of 50 for the 120 IDs
+        assertThat(nextSequenceValue()).isEqualTo(before + 4 * 50);
+        Long[] next = userJdbcRepository.allocateIds(1);
+        assertThat(ids).doesNotContain(next);
+    }
+
+    @Test
+    void keepsTheColumnDefaultClearOfTheAllocatedIds() {
+        Long[] ids = userJdbcRepository.allocateIds(50);
+
+        jdbcTemplate.update("insert into public.users (email, name, surname, address)"
+                + " values ('a@x.it', 'Mario', 'Rossi', 'Via Roma 1')");
+
+        assertThat(jdbcTemplate.queryForObject("select id from public.users", Long.class)).isNotIn((Object[]) ids);
+    }
+
+    @Test
+    void servesTheSearchFiltersFromTheTrigramIndexes() {
+        List<Object> args = new ArrayList<>();
+        String where = UserSearchFilter.of("ari", "oss").toSqlWhereClause(args);
+
+        String plan = jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement();
+                 PreparedStatement explain = connection.prepareStatement("explain select id from public.users" + where)) {
+                statement.execute("set local enable_seqscan = off");
+                for (int i = 0; i < args.size(); i++) {
+                    explain.setObject(i + 1, args.get(i));
+                }
+                StringBuilder lines = new StringBuilder();
+                try (ResultSet rs = explain.executeQuery()) {
+                    while (rs.next()) {
+                        lines.append(rs.getString(1)).append('\n');
+                    }
+                }
+                return lines.toString();
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        });
+
+        assertThat(plan).contains("Bitmap Index Scan").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void keepsTheEmailsUniqueAcrossThePartitions() {
+        insert(1L, "a@x.it");
+        insert(10_000_001L, "b@x.it");
+        assertThat(jdbcTemplate.queryForList("select tableoid::regclass::text from public.users order by id", String.class))
+                .containsExactly("users_p0", "users_p1");
+
+        assertThatThrownBy(() -> insert(10_000_002L, "a@x.it")).isInstanceOf(DuplicateKeyException.class);
+        assertThatThrownBy(() -> jdbcTemplate.update("update public.users set email = 'a@x.it' where id = 10000001"))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(emails()).isEqualTo(Map.of("a@x.it", 1L, "b@x.it", 10_000_001L));
+    }
+
+    @Test
+    void releasesTheEmailsOfTheUpdatedAndDeletedUsers() {
+        insert(1L, "a@x.it");
+        insert(10_000_001L, "b@x.it");
+
+        jdbcTemplate.update("update public.users set email = 'c@x.it' where id = 1");
+        assertThat(emails()).isEqualTo(Map.of("c@x.it", 1L, "b@x.it", 10_000_001L));
+        jdbcTemplate.update("update public.users set name = 'Luigi' where id = 1");
+        assertThat(emails()).isEqualTo(Map.of("c@x.it", 1L, "b@x.it", 10_000_001L));
+        jdbcTemplate.update("delete from public.users");
+        assertThat(emails()).isEmpty();
+
+        insert(10_000_002L, "c@x.it");
+        assertThat(emails()).isEqualTo(Map.of("c@x.it", 10_000_002L));
+    }
+
+    @Test
+    void createsThePartitionsAheadOfTheSequence() {
+        jdbcTemplate.queryForObject("select setval('public.users_id_seq', greatest(last_value, 25000000))"
+                + " from public.users_id_seq", Long.class);
+        long rank = (nextSequenceValue() + 50) / 10_000_000;
+
+        List<String> created = userJdbcRepository.createPartitions(2);
+
+        assertThat(userJdbcRepository.createPartitions(2)).isEmpty();
+        assertThat(partitions()).contains("users_p" + (rank + 2)).doesNotContain("users_p" + (rank + 3));
+        assertThat(created).allMatch(partitions()::contains);
+        insert((rank + 3) * 10_000_000 - 1, "a@x.it");
+        assertThatThrownBy(() -> insert((rank + 3) * 10_000_000, "b@x.it"))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    private String rowVersion(String email) {
+        return jdbcTemplate.queryForObject("select xmin::text from public.users where email = ?", String.class, email);
+    }
+
+    private long nextSequenceValue() {
+        return jdbcTemplate.queryForObject("select nextval('public.users_id_seq')", Long.class);
+    }
+
+    private Map<String, Long> emails() {
+        Map<String, Long> emails = new HashMap<>();
+        jdbcTemplate.query("select email, id from public.users_emails",
+                rs -> {
+                    emails.put(rs.getString("email"), rs.getLong("id"));
+                });
+        return emails;
+    }
+
+    private List<String> partitions() {
+        return jdbcTemplate.queryForList("select inhrelid::regclass::text from pg_inherits"
+                + " where inhparent = 'public.users'::regclass", String.class);
+    }
+
+    private void insert(long id, String email) {
+        jdbcTemplate.update("insert into public.users (id, email, name, surname, address) values (?, ?, 'Mario', 'Rossi', 'Via Roma 1')",
+                id, email);
+    }
+
+    private long count() {
+        return jdbcTemplate.queryForObject("select count(*) from public.users", Long.class);
+    }
+
+    static User user(String email, String name) {
+        return User.builder().email(email).name(name).surname("Rossi").address("Via Roma 1").build();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.fcgusersapp.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserSearchFilterTest {
+
+    @Test
+    void dropsEmptyValuesAndLowerCasesTheOthers() {
+        assertThat(UserSearchFilter.of("", null)).isEqualTo(new UserSearchFilter(null, null));
+        assertThat(UserSearchFilter.of("", null).isEmpty()).isTrue();
+        assertThat(UserSearchFilter.of("MaRiO", "")).isEqualTo(new UserSearchFilter("mario", null));
+    }
+
+    @Test
+    void onlyFiltersTheRequestedColumns() {
+        List<Object> args = new ArrayList<>();
+
+        assertThat(UserSearchFilter.of(null, "Rossi").toSqlWhereClause(args))
+                .isEqualTo(" where lower(surname) like ? escape '\\'");
+        assertThat(args).containsExactly("%rossi%");
+        assertThat(UserSearchFilter.of(null, null).toSqlWhereClause(args)).isEmpty();
+    }
+
+    @Test
+    void escapesTheLikeMetacharacters() {
+        List<Object> args = new ArrayList<>();
+        Map<String, Object> namedArgs = new HashMap<>();
+        UserSearchFilter filter = UserSearchFilter.of("50%_", "a\\b");
+
+        assertThat(filter.toSqlWhereClause(args))
+                .isEqualTo(" where lower(name) like ? escape '\\' and lower(surname) like ? escape '\\'");
+        assertThat(args).containsExactly("%50\\%\\_%", "%a\\\\b%");
+        assertThat(filter.toNamedSqlWhereClause(namedArgs))
+                .isEqualTo(" where lower(name) like :name escape '\\' and lower(surname) like :surname escape '\\'");
+        assertThat(namedArgs).containsEntry("name", "%50\\%\\_%").containsEntry("surname", "%a\\\\b%");
+    }
+}
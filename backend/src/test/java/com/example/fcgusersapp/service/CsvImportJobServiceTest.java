@@ -0,0 +1,72 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.fcgusersapp.service.UserCsvImporterTest.csv;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvImportJobServiceTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private CsvImportJobService csvImportJobService;
+
+    @Test
+    void importsTheSpooledFileInTheBackground() throws InterruptedException {
+        CsvImportJob job = csvImportJobService.submit(csv("a@x.it,Mario,Rossi,Via Roma 1\n"
+                + "b@x.it,Anna,Bianchi,Via Po 2\n"), null, ImportMode.INSERT_ONLY);
+
+        awaitFinished(job);
+
+        assertThat(job.getStatus()).isEqualTo(CsvImportJob.Status.COMPLETED);
+        assertThat(job.getReport()).containsEntry("numero utenti inseriti", 2);
+        assertThat(job.getProgress().getRowsParsed()).isEqualTo(2);
+        assertThat(job.getProgress().getUsersInserted()).isEqualTo(2);
+        assertThat(job.getSpoolFile()).doesNotExist();
+        assertThat(csvImportJobService.findJob(job.getId())).containsSame(job);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from public.users", Long.class)).isEqualTo(2);
+    }
+
+    @Test
+    void failsWithTheLineOfTheInvalidRow() throws InterruptedException {
+        CsvImportJob job = csvImportJobService.submit(csv("a@x.it,Mario,Rossi,Via Roma 1\n"
+                + "b@x.it,Anna\n"), null, ImportMode.UPSERT);
+
+        awaitFinished(job);
+
+        assertThat(job.getStatus()).isEqualTo(CsvImportJob.Status.FAILED);
+        assertThat(job.getError()).isEqualTo("Errore nel formato del file CSV alla riga 3");
+        assertThat(job.getReport()).isNull();
+        assertThat(job.getProgress().getUsersInserted()).isEqualTo(1);
+        assertThat(job.getSpoolFile()).doesNotExist();
+    }
+
+    @Test
+    void listsTheJobsOldestFirst() throws InterruptedException {
+        CsvImportJob first = csvImportJobService.submit(csv(""), null, ImportMode.INSERT_ONLY);
+        CsvImportJob second = csvImportJobService.submit(csv(""), null, ImportMode.SKIP_EXISTING);
+        awaitFinished(first);
+        awaitFinished(second);
+
+        List<CsvImportJob> jobs = csvImportJobService.findAllJobs();
+
+        assertThat(jobs).containsSubsequence(first, second);
+        assertThat(second.getReport()).isEqualTo(Map.of("status", "ok", "numero utenti inseriti", 0,
+                "numero utenti non inseriti", 0, "duplicates", List.of(),
+                "numero utenti aggiornati", 0, "numero utenti invariati", 0));
+    }
+
+    private static void awaitFinished(CsvImportJob job) throws InterruptedException {
+        Instant deadline = Instant.now().plus(Duration.ofSeconds(30));
+        while (!job.isFinished()) {
+            assertThat(Instant.now()).as("job %s finished", job.getId()).isBefore(deadline);
+            Thread.sleep(20);
+        }
+    }
+}
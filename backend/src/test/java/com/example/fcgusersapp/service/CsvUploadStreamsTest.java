@@ -0,0 +1,67 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.exceptions.ImportTooLargeException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvUploadStreamsTest {
+
+    private static final String CSV = "email,name,surname,address\na@x.it,Mario,Rossi,Via Roma 1\n";
+
+    @Test
+    void rejectsUploadsDeclaredLargerThanTheLimitUpfront() {
+        assertThatThrownBy(() -> CsvUploadStreams.limitUpload(InputStream.nullInputStream(), 11L, 10))
+                .isInstanceOf(ImportTooLargeException.class);
+    }
+
+    @Test
+    void failsOnceMoreThanTheLimitIsRead() throws IOException {
+        byte[] content = CSV.getBytes(StandardCharsets.UTF_8);
+
+        assertThat(CsvUploadStreams.limitUpload(new ByteArrayInputStream(content), null, content.length).readAllBytes())
+                .isEqualTo(content);
+        // a chunked upload, or one whose declared length is wrong
+        InputStream limited = CsvUploadStreams.limitUpload(new ByteArrayInputStream(content), 10L, content.length - 1);
+        assertThatThrownBy(limited::readAllBytes).isInstanceOf(ImportTooLargeException.class);
+    }
+
+    @Test
+    void decompressesGzipContentOnly() throws IOException {
+        assertThat(read(CsvUploadStreams.decompress(new ByteArrayInputStream(gzip(CSV)), 1000))).isEqualTo(CSV);
+        assertThat(read(CsvUploadStreams.decompress(new ByteArrayInputStream(CSV.getBytes(StandardCharsets.UTF_8)), 1000)))
+                .isEqualTo(CSV);
+        assertThat(read(CsvUploadStreams.decompress(new ByteArrayInputStream(new byte[]{'a'}), 1000))).isEqualTo("a");
+    }
+
+    @Test
+    void limitsTheContentOnceDecompressed() throws IOException {
+        String large = CSV.repeat(1000);
+        byte[] compressed = gzip(large);
+        assertThat(compressed.length).isLessThan(large.length() / 10);
+
+        InputStream content = CsvUploadStreams.decompress(new ByteArrayInputStream(compressed), large.length() - 1);
+
+        assertThatThrownBy(content::readAllBytes).isInstanceOf(ImportTooLargeException.class);
+    }
+
+    private static String read(InputStream input) throws IOException {
+        return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    static byte[] gzip(String content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
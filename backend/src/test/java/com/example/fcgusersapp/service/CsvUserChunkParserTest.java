@@ -0,0 +1,36 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.utils.CsvChunkReader;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvUserChunkParserTest {
+
+    @Test
+    void skipsHeaderAndReadsUsersWithTheirLines() {
+        CsvUserChunkParser.ParsedChunk parsed = parse("email,name,surname,address\n"
+                + "a@x.it,Mario,Rossi,\"Via Roma 1\nScala B\"\n"
+                + "b@x.it,Anna,Bianchi,Via Po 2\n", 1, true);
+        assertThat(parsed.invalidLine()).isZero();
+        assertThat(parsed.rows()).extracting(CsvUserChunkParser.ParsedRow::line).containsExactly(2L, 4L);
+        assertThat(parsed.rows()).extracting(row -> row.user().getEmail()).containsExactly("a@x.it", "b@x.it");
+        assertThat(parsed.rows().getFirst().user().getAddress()).isEqualTo("Via Roma 1\nScala B");
+    }
+
+    @Test
+    void stopsAtFirstRowWithMissingColumns() {
+        CsvUserChunkParser.ParsedChunk parsed = parse("a@x.it,Mario,Rossi,Via Roma 1\n"
+                + "b@x.it,Anna\n"
+                + "c@x.it,Luca,Verdi,Via Po 3\n", 10, false);
+        assertThat(parsed.invalidLine()).isEqualTo(11);
+        assertThat(parsed.rows()).extracting(row -> row.user().getEmail()).containsExactly("a@x.it");
+    }
+
+    private static CsvUserChunkParser.ParsedChunk parse(String csv, long firstLine, boolean header) {
+        byte[] bytes = csv.getBytes(StandardCharsets.UTF_8);
+        return CsvUserChunkParser.parse(new CsvChunkReader.Chunk(bytes, bytes.length, firstLine), header);
+    }
+}
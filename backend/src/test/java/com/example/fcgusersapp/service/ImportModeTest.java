@@ -0,0 +1,24 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.exceptions.CsvImportException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImportModeTest {
+
+    @Test
+    void parsesTheModesIgnoringCase() {
+        assertThat(ImportMode.fromParameter("insert_only")).isEqualTo(ImportMode.INSERT_ONLY);
+        assertThat(ImportMode.fromParameter("UPSERT")).isEqualTo(ImportMode.UPSERT);
+        assertThat(ImportMode.fromParameter("skip-existing")).isEqualTo(ImportMode.SKIP_EXISTING);
+    }
+
+    @Test
+    void rejectsUnknownModes() {
+        assertThatThrownBy(() -> ImportMode.fromParameter("replace"))
+                .isInstanceOf(CsvImportException.class)
+                .hasMessage("Modalità di import non valida: replace");
+    }
+}
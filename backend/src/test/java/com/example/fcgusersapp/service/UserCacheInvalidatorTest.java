@@ -0,0 +1,24 @@
+package com.example.fcgusersapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserCacheInvalidatorTest {
+
+    @Test
+    void sendsTheIdsInNotificationsOfAtMost400() {
+        List<Long> ids = LongStream.rangeClosed(1, 801).boxed().toList();
+
+        List<String> payloads = UserCacheInvalidator.notificationPayloads(ids);
+
+        assertThat(payloads).hasSize(3);
+        assertThat(payloads.get(0)).startsWith("1,2,").endsWith(",400");
+        assertThat(payloads.get(1)).startsWith("401,").endsWith(",800");
+        assertThat(payloads.get(2)).isEqualTo("801");
+        assertThat(payloads).allSatisfy(payload -> assertThat(payload.length()).isLessThan(8000));
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.PostgresIntegrationTest;
+import com.example.fcgusersapp.constants.CacheNames;
+import com.example.fcgusersapp.entity.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = "app.cache.users.notify-enabled=true")
+class UserCacheNotificationListenerTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Test
+    void evictsTheUsersModifiedByTheOtherInstances() throws InterruptedException {
+        Long id = (Long) userService.createUsers(List.of(User.builder().email("a@x.it").name("Mario")
+                .surname("Rossi").address("Via Roma 1").build())).getFirst().get("id");
+        userService.findUserById(id);
+        Cache users = Objects.requireNonNull(cacheManager.getCache(CacheNames.USERS));
+        assertThat(users.get(id)).isNotNull();
+
+        // as published by another instance updating the user
+        jdbcTemplate.update("update public.users set name = 'Luigi' where id = ?", id);
+        jdbcTemplate.query("select pg_notify('users_cache', ?)", rs -> null, String.valueOf(id));
+
+        awaitEvicted(users, id);
+        assertThat(userService.findUserById(id)).map(User::getName).contains("Luigi");
+    }
+
+    @Test
+    void clearsTheCacheOnRequest() throws InterruptedException {
+        Long id = (Long) userService.createUsers(List.of(User.builder().email("a@x.it").name("Mario")
+                .surname("Rossi").address("Via Roma 1").build())).getFirst().get("id");
+        userService.findUserById(id);
+        Cache users = Objects.requireNonNull(cacheManager.getCache(CacheNames.USERS));
+
+        jdbcTemplate.query("select pg_notify('users_cache', '*')", rs -> null);
+
+        awaitEvicted(users, id);
+    }
+
+    private static void awaitEvicted(Cache cache, Long id) throws InterruptedException {
+        Instant deadline = Instant.now().plus(Duration.ofSeconds(30));
+        while (cache.get(id) != null) {
+            assertThat(Instant.now()).as("user %s evicted", id).isBefore(deadline);
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.PostgresIntegrationTest;
+import com.example.fcgusersapp.config.ChangeFeedProperties;
+import com.example.fcgusersapp.entity.User;
+import com.example.fcgusersapp.exceptions.InvalidCursorException;
+import com.example.fcgusersapp.repository.UserJdbcRepository;
+import com.example.fcgusersapp.utils.CursorCodec;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserChangeFeedServiceTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private UserChangeFeedService userChangeFeedService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserJdbcRepository userJdbcRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void streamsTheLastChangeOfEachUserInOrder() throws IOException {
+        List<Long> ids = createUsers("a@x.it", "b@x.it", "c@x.it");
+        userService.editUser(User.builder().email("a@x.it").name("Luigi").surname("Rossi").address("Via Roma 1").build(),
+                ids.get(0), null);
+        userService.deleteUser(ids.get(1));
+
+        List<JsonNode> changes = changes(userChangeFeedService, null, Long.MAX_VALUE);
+
+        assertThat(changes).extracting(change -> change.get("id").asLong()).containsExactly(ids.get(2), ids.get(0), ids.get(1));
+        assertThat(changes).extracting(change -> change.get("op").asText()).containsExactly("upsert", "upsert", "delete");
+        assertThat(changes.get(1).get("name").asText()).isEqualTo("Luigi");
+        assertThat(changes.get(2).has("email")).isFalse();
+        assertThat(jdbcTemplate.queryForList("select id from public.users_tombstones", Long.class))
+                .containsExactly(ids.get(1));
+    }
+
+    @Test
+    void resumesRightAfterTheCursorOfAChange() throws IOException {
+        List<Long> ids = createUsers("a@x.it", "b@x.it", "c@x.it");
+
+        List<JsonNode> first = changes(userChangeFeedService, null, 1);
+        assertThat(first).extracting(change -> change.get("id").asLong()).containsExactly(ids.get(0));
+        UserChangeFeedService.Position position = userChangeFeedService.position(first.getFirst().get("cursor").asText());
+        assertThat(changes(userChangeFeedService, position, Long.MAX_VALUE))
+                .extracting(change -> change.get("id").asLong()).containsExactly(ids.get(1), ids.get(2));
+
+        userService.deleteUser(ids.get(2));
+        assertThat(changes(userChangeFeedService, position, Long.MAX_VALUE))
+                .extracting(change -> change.get("op").asText() + " " + change.get("id").asLong())
+                .containsExactly("upsert " + ids.get(1), "delete " + ids.get(2));
+    }
+
+    @Test
+    void leavesOutTheChangesYoungerThanTheSettleDelay() throws IOException {
+        createUsers("a@x.it");
+        UserChangeFeedService settling = new UserChangeFeedService(userJdbcRepository,
+                new ChangeFeedProperties(Duration.ofHours(1), Duration.ofDays(30), Duration.ofHours(1)),
+                objectMapper, transactionManager);
+
+        assertThat(changes(settling, null, Long.MAX_VALUE)).isEmpty();
+    }
+
+    @Test
+    void rejectsInvalidAndExpiredCursors() {
+        assertThat(userChangeFeedService.position(null)).isNull();
+        assertThat(userChangeFeedService.isExpired(null)).isFalse();
+        assertThatThrownBy(() -> userChangeFeedService.position(CursorCodec.encode("scroll", Map.of("id", 1))))
+                .isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> userChangeFeedService.position(
+                CursorCodec.encode("changes", Map.of("t", "yesterday", "id", 1))))
+                .isInstanceOf(InvalidCursorException.class);
+
+        UserChangeFeedService.Position old = userChangeFeedService.position(CursorCodec.encode("changes",
+                Map.of("t", OffsetDateTime.now().minusDays(31).toString(), "id", 1)));
+        assertThat(userChangeFeedService.isExpired(old)).isTrue();
+        assertThat(userChangeFeedService.isExpired(new UserChangeFeedService.Position(OffsetDateTime.now(), 1))).isFalse();
+    }
+
+    @Test
+    void purgesTheTombstonesPastTheirRetention() {
+        jdbcTemplate.update("insert into public.users_tombstones (id, deleted_at) values (1, now() - interval '31 days'),"
+                + " (2, now() - interval '29 days')");
+
+        userChangeFeedService.purgeTombstones();
+
+        assertThat(jdbcTemplate.queryForList("select id from public.users_tombstones", Long.class)).containsExactly(2L);
+    }
+
+    private List<Long> createUsers(String... emails) {
+        List<Long> ids = new ArrayList<>();
+        for (String email : emails) {
+            // one transaction each, so that the users change one after the other
+            ids.add((Long) userService.createUsers(List.of(User.builder().email(email).name("Mario")
+                    .surname("Rossi").address("Via Roma 1").build())).getFirst().get("id"));
+        }
+        return ids;
+    }
+
+    private List<JsonNode> changes(UserChangeFeedService service, UserChangeFeedService.Position position,
+                                   long limit) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.streamChanges(position, limit, out);
+        List<JsonNode> changes = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isEmpty()) {
+                changes.add(objectMapper.readTree(line));
+            }
+        }
+        return changes;
+    }
+}
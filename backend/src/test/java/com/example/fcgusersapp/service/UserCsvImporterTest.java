@@ -0,0 +1,148 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.PostgresIntegrationTest;
+import com.example.fcgusersapp.config.ImportProperties;
+import com.example.fcgusersapp.entity.User;
+import com.example.fcgusersapp.exceptions.CsvImportException;
+import com.example.fcgusersapp.repository.UserJdbcRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserCsvImporterTest extends PostgresIntegrationTest {
+
+    private static final String HEADER = "email,name,surname,address\n";
+
+    @Autowired
+    private UserCsvImporter userCsvImporter;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserJdbcRepository userJdbcRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserCacheInvalidator userCacheInvalidator;
+
+    @Autowired
+    private UserImportMetrics userImportMetrics;
+
+    @Autowired
+    private UserWriteBehindQueue userWriteBehindQueue;
+
+    @Autowired
+    private UserEmailIndex userEmailIndex;
+
+    @Test
+    void insertsTheRowsAndReportsTheUsedEmailsWithTheirLines() throws IOException {
+        userCsvImporter.importUsers(csv("c@x.it,Luca,Verdi,Via Po 3\n"), ImportMode.INSERT_ONLY);
+
+        Map<String, Object> report = userCsvImporter.importUsers(csv("a@x.it,Mario,Rossi,Via Roma 1\n"
+                + "b@x.it,Anna,Bianchi,Via Po 2\n"
+                + "a@x.it,Mario,Neri,Via Roma 2\n"
+                + "c@x.it,Luca,Bianchi,Via Po 4\n"), ImportMode.INSERT_ONLY);
+
+        assertThat(report)
+                .containsEntry("status", "ok")
+                .containsEntry("numero utenti inseriti", 2)
+                .containsEntry("numero utenti non inseriti", 2)
+                .containsEntry("duplicates", List.of(Map.of("email", "a@x.it", "line", 4L),
+                        Map.of("email", "c@x.it", "line", 5L)));
+        assertThat(jdbcTemplate.queryForList("select email, surname from public.users order by email"))
+                .containsExactly(Map.of("email", "a@x.it", "surname", "Rossi"),
+                        Map.of("email", "b@x.it", "surname", "Bianchi"),
+                        Map.of("email", "c@x.it", "surname", "Verdi"));
+    }
+
+    @Test
+    void storesTheRowsPrecedingAnInvalidOne() {
+        assertThatThrownBy(() -> userCsvImporter.importUsers(csv("a@x.it,Mario,Rossi,Via Roma 1\n"
+                + "b@x.it,Anna\n"
+                + "c@x.it,Luca,Verdi,Via Po 3\n"), ImportMode.INSERT_ONLY))
+                .isInstanceOf(CsvImportException.class)
+                .hasMessage("Errore nel formato del file CSV alla riga 3");
+
+        assertThat(jdbcTemplate.queryForList("select email from public.users", String.class)).containsExactly("a@x.it");
+    }
+
+    @Test
+    void updatesTheExistingUsersInUpsertMode() throws IOException {
+        userCsvImporter.importUsers(csv("a@x.it,Mario,Rossi,Via Roma 1\n"
+                + "b@x.it,Anna,Bianchi,Via Po 2\n"), ImportMode.INSERT_ONLY);
+        Long id = jdbcTemplate.queryForObject("select id from public.users where email = 'a@x.it'", Long.class);
+        assertThat(userService.findUserById(id)).map(User::getSurname).contains("Rossi");
+
+        Map<String, Object> report = userCsvImporter.importUsers(csv("a@x.it,Mario,Neri,Via Roma 1\n"
+                + "b@x.it,Anna,Bianchi,Via Po 2\n"
+                + "c@x.it,Luca,Verdi,Via Po 3\n"
+                + "a@x.it,Mario,Gialli,Via Roma 1\n"), ImportMode.UPSERT);
+
+        assertThat(report)
+                .containsEntry("numero utenti inseriti", 1)
+                .containsEntry("numero utenti aggiornati", 2)
+                .containsEntry("numero utenti invariati", 1)
+                .containsEntry("duplicates", List.of());
+        assertThat(userService.findUserById(id)).map(User::getSurname).contains("Gialli");
+        assertThat(jdbcTemplate.queryForList("select surname from public.users order by email", String.class))
+                .containsExactly("Gialli", "Bianchi", "Verdi");
+    }
+
+    @Test
+    void leavesTheExistingUsersUnreportedInSkipExistingMode() throws IOException {
+        userCsvImporter.importUsers(csv("a@x.it,Mario,Rossi,Via Roma 1\n"), ImportMode.INSERT_ONLY);
+
+        Map<String, Object> report = userCsvImporter.importUsers(csv("a@x.it,Mario,Neri,Via Roma 1\n"
+                + "b@x.it,Anna,Bianchi,Via Po 2\n"), ImportMode.SKIP_EXISTING);
+
+        assertThat(report)
+                .containsEntry("numero utenti inseriti", 1)
+                .containsEntry("numero utenti aggiornati", 0)
+                .containsEntry("numero utenti invariati", 1)
+                .containsEntry("numero utenti non inseriti", 0);
+        assertThat(jdbcTemplate.queryForList("select surname from public.users order by email", String.class))
+                .containsExactly("Rossi", "Bianchi");
+    }
+
+    @Test
+    void reportsTheLinesInFileOrderAcrossTheChunksParsedInParallel() {
+        UserCsvImporter parallelImporter = new UserCsvImporter(userJdbcRepository, transactionManager,
+                new ImportProperties(7, DataSize.ofBytes(64), 4, DataSize.ofMegabytes(1), DataSize.ofMegabytes(1),
+                        new ImportProperties.Async(null, 1, 1, 1)),
+                userCacheInvalidator, userImportMetrics, userWriteBehindQueue, userEmailIndex);
+        StringBuilder rows = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            // every tenth row repeats the email of the previous one
+            rows.append(i % 10 == 9 ? i - 1 : i).append("@x.it,Mario,Rossi,\"Via Roma ").append(i).append("\"\n");
+        }
+        rows.append("invalid@x.it,Anna\n").append("last@x.it,Luca,Verdi,Via Po 3\n");
+
+        assertThatThrownBy(() -> parallelImporter.importUsers(csv(rows.toString()), ImportMode.INSERT_ONLY))
+                .isInstanceOf(CsvImportException.class)
+                .hasMessage("Errore nel formato del file CSV alla riga 202");
+
+        assertThat(jdbcTemplate.queryForList("select email from public.users order by id", String.class))
+                .hasSize(180)
+                .startsWith("0@x.it", "1@x.it")
+                .endsWith("197@x.it", "198@x.it")
+                .doesNotContain("invalid@x.it", "last@x.it");
+    }
+
+    static InputStream csv(String rows) {
+        return new ByteArrayInputStream((HEADER + rows).getBytes(StandardCharsets.UTF_8));
+    }
+}
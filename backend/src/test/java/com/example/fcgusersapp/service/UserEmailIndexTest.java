@@ -0,0 +1,123 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.PostgresIntegrationTest;
+import com.example.fcgusersapp.config.ChangeFeedProperties;
+import com.example.fcgusersapp.config.EmailIndexProperties;
+import com.example.fcgusersapp.entity.User;
+import com.example.fcgusersapp.repository.UserJdbcRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserEmailIndexTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private UserEmailIndex userEmailIndex;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserJdbcRepository userJdbcRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<UserEmailIndex> indexes = new ArrayList<>();
+
+    @AfterEach
+    void shutdownIndexes() {
+        indexes.forEach(UserEmailIndex::shutdown);
+    }
+
+    @Test
+    void reportsEveryStoredEmailOnceLoaded() throws InterruptedException {
+        insertUsers(IntStream.range(0, 500).mapToObj(i -> "user" + i + "@x.it").toList());
+
+        UserEmailIndex index = index(Duration.ofHours(1));
+        awaitReady(index);
+
+        assertThat(IntStream.range(0, 500).allMatch(i -> index.mightContain("user" + i + "@x.it"))).isTrue();
+        assertThat(IntStream.range(0, 500).filter(i -> index.mightContain("other" + i + "@x.it")).count()).isLessThan(50);
+        Map<String, Long> used = index.findUsed(List.of("user1@x.it", "other1@x.it"));
+        assertThat(used).containsOnlyKeys("user1@x.it");
+        assertThat(used.get("user1@x.it")).isEqualTo(
+                jdbcTemplate.queryForObject("select id from public.users where email = 'user1@x.it'", Long.class));
+    }
+
+    @Test
+    void readsTheEmailsWrittenByOtherInstances() throws InterruptedException {
+        UserEmailIndex index = index(Duration.ofMillis(50));
+        awaitReady(index);
+        assertThat(index.mightContain("late@x.it")).isFalse();
+
+        insertUsers(List.of("late@x.it"));
+
+        Instant deadline = Instant.now().plus(Duration.ofSeconds(30));
+        while (!index.mightContain("late@x.it")) {
+            assertThat(Instant.now()).as("email refreshed").isBefore(deadline);
+            Thread.sleep(20);
+        }
+        assertThat(index.findUsed(List.of("late@x.it"))).containsOnlyKeys("late@x.it");
+    }
+
+    @Test
+    void reportsEveryEmailAsPossiblyUsedUntilLoaded() {
+        UserEmailIndex disabled = new UserEmailIndex(userJdbcRepository, transactionManager,
+                new EmailIndexProperties(false, 0.01, 1000, Duration.ofHours(1), Duration.ofHours(6)),
+                new ChangeFeedProperties(Duration.ZERO, Duration.ofDays(30), Duration.ofHours(1)),
+                new SimpleMeterRegistry());
+
+        assertThat(disabled.isReady()).isFalse();
+        assertThat(disabled.mightContain("any@x.it")).isTrue();
+        assertThat(disabled.findUsed(List.of("any@x.it"))).isEmpty();
+    }
+
+    @Test
+    void holdsTheEmailsWrittenThroughTheServiceOnceCommitted() throws InterruptedException {
+        awaitReady(userEmailIndex);
+
+        userService.createUsers(List.of(User.builder().email("new@x.it").name("Mario").surname("Rossi")
+                .address("Via Roma 1").build()));
+
+        // without waiting for a refresh
+        assertThat(userEmailIndex.mightContain("new@x.it")).isTrue();
+        assertThat(userEmailIndex.findUsed(List.of("new@x.it"))).containsOnlyKeys("new@x.it");
+    }
+
+    private UserEmailIndex index(Duration refreshInterval) {
+        UserEmailIndex index = new UserEmailIndex(userJdbcRepository, transactionManager,
+                new EmailIndexProperties(true, 0.01, 1000, refreshInterval, Duration.ofHours(6)),
+                new ChangeFeedProperties(Duration.ofSeconds(1), Duration.ofDays(30), Duration.ofHours(1)),
+                new SimpleMeterRegistry());
+        indexes.add(index);
+        return index;
+    }
+
+    private void insertUsers(List<String> emails) {
+        // as written by another application, without going through the index
+        for (String email : emails) {
+            jdbcTemplate.update("insert into public.users (email, name, surname, address) values (?, 'Mario', 'Rossi', 'Via Roma 1')",
+                    email);
+        }
+    }
+
+    private static void awaitReady(UserEmailIndex index) throws InterruptedException {
+        Instant deadline = Instant.now().plus(Duration.ofSeconds(30));
+        while (!index.isReady()) {
+            assertThat(Instant.now()).as("email index loaded").isBefore(deadline);
+            Thread.sleep(20);
+        }
+    }
+}
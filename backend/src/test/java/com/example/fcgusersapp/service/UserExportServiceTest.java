@@ -0,0 +1,77 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.PostgresIntegrationTest;
+import com.example.fcgusersapp.entity.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.fcgusersapp.service.UserServiceTest.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserExportServiceTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private UserExportService userExportService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserCsvImporter userCsvImporter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void exportsTheUsersAsCsvReadableByTheImport() throws IOException {
+        userService.createUsers(List.of(user("a@x.it", "Mario", "Rossi"),
+                User.builder().email("b@x.it").name("Anna \"Annina\"").surname("Bianchi, Neri").address("Via Po 2\nScala B").build()));
+        List<Map<String, Object>> exported = jdbcTemplate.queryForList("select email, name, surname, address from public.users order by id");
+
+        String csv = export(null, null, ExportFormat.CSV);
+        jdbcTemplate.execute("truncate table public.users, public.users_emails");
+        Map<String, Object> report = userCsvImporter.importUsers(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ImportMode.INSERT_ONLY);
+
+        assertThat(csv).startsWith("email,name,surname,address\na@x.it,Mario,Rossi,Via Roma 1\n");
+        assertThat(report).containsEntry("numero utenti inseriti", 2);
+        assertThat(jdbcTemplate.queryForList("select email, name, surname, address from public.users order by email"))
+                .isEqualTo(exported);
+    }
+
+    @Test
+    void exportsTheFilteredUsersAsNdjsonInIdOrder() throws IOException {
+        userService.createUsers(List.of(user("b@x.it", "Mario", "Rossi"), user("a@x.it", "Anna", "Rossi"),
+                user("c@x.it", "Mario", "Verdi")));
+
+        String[] lines = export(null, "ross", ExportFormat.NDJSON).split("\n");
+
+        assertThat(lines).hasSize(2);
+        User first = objectMapper.readValue(lines[0], User.class);
+        User second = objectMapper.readValue(lines[1], User.class);
+        assertThat(first.getEmail()).isEqualTo("b@x.it");
+        assertThat(second.getEmail()).isEqualTo("a@x.it");
+        assertThat(first.getId()).isLessThan(second.getId());
+        assertThat(second.getName()).isEqualTo("Anna");
+    }
+
+    @Test
+    void exportsOnlyTheCsvHeaderWithoutUsers() throws IOException {
+        assertThat(export(null, null, ExportFormat.CSV)).isEqualTo("email,name,surname,address\n");
+        assertThat(export(null, null, ExportFormat.NDJSON)).isEmpty();
+    }
+
+    private String export(String name, String surname, ExportFormat format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        userExportService.exportUsers(name, surname, format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.PostgresIntegrationTest;
+import com.example.fcgusersapp.entity.User;
+import com.example.fcgusersapp.repository.UserField;
+import com.example.fcgusersapp.repository.UserView;
+import com.example.fcgusersapp.utils.CountedPage;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = "app.search.exact-count-threshold=5")
+class UserSearchCountTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void countsTheTotalsUpToTheThreshold() {
+        createUsers("Mario", 4);
+
+        // filtered searches are always counted up to the threshold, whatever the estimate
+        CountedPage<UserView> page = search("mar", 0);
+
+        assertThat(page.getContent()).hasSize(2);
+        assertThat(page.getTotalElements()).isEqualTo(4);
+        assertThat(page.isTotalExact()).isTrue();
+    }
+
+    @Test
+    void estimatesTheTotalsBeyondTheThreshold() {
+        createUsers("Mario", 10);
+        jdbcTemplate.execute("analyze public.users");
+
+        CountedPage<UserView> unfiltered = search(null, 0);
+        CountedPage<UserView> filtered = search("mar", 0);
+
+        assertThat(unfiltered.isTotalExact()).isFalse();
+        assertThat(unfiltered.getTotalElements()).isGreaterThan(5);
+        assertThat(filtered.isTotalExact()).isFalse();
+        assertThat(filtered.getTotalElements()).isGreaterThan(5);
+    }
+
+    @Test
+    void boundsTheEstimatesByThePagesRead() {
+        createUsers("Mario", 10);
+
+        CountedPage<UserView> last = search("mar", 4);
+        CountedPage<UserView> pastTheEnd = search("mar", 10);
+
+        // the last page tells the exact total, whatever the threshold
+        assertThat(last.getContent()).hasSize(2);
+        assertThat(last.getTotalElements()).isEqualTo(10);
+        assertThat(last.isTotalExact()).isTrue();
+        assertThat(pastTheEnd.getContent()).isEmpty();
+        assertThat(pastTheEnd.getTotalElements()).isBetween(6L, 20L);
+    }
+
+    @Test
+    void keepsTheTotalsUntilUsersChange() {
+        createUsers("Mario", 3);
+        assertThat(search("mar", 0).getTotalElements()).isEqualTo(3);
+
+        // as written by another application, without invalidation
+        jdbcTemplate.update("insert into public.users (email, name, surname, address)"
+                + " values ('other@x.it', 'Mario', 'Rossi', 'Via Roma 1')");
+        assertThat(search("mar", 0).getTotalElements()).isEqualTo(3);
+
+        createUsers("Maria", 1);
+        assertThat(search("mar", 0).getTotalElements()).isEqualTo(5);
+    }
+
+    private CountedPage<UserView> search(String name, int page) {
+        return userService.searchUsers(name, null, UserField.DEFAULT,
+                PageRequest.of(page, 2, Sort.by(Sort.Direction.DESC, "id")));
+    }
+
+    private void createUsers(String name, int count) {
+        userService.createUsers(IntStream.range(0, count)
+                .mapToObj(i -> User.builder().email(name.toLowerCase() + i + "@x.it").name(name)
+                        .surname("Rossi").address("Via Roma 1").build())
+                .toList());
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.PostgresIntegrationTest;
+import com.example.fcgusersapp.entity.User;
+import com.example.fcgusersapp.exceptions.InvalidCursorException;
+import com.example.fcgusersapp.repository.UserField;
+import com.example.fcgusersapp.repository.UserView;
+import com.example.fcgusersapp.utils.CursorCodec;
+import com.example.fcgusersapp.utils.CursorPage;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserServiceTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void searchesNamesAndSurnamesByPartIgnoringCase() {
+        userService.createUsers(List.of(user("a@x.it", "Mario", "Rossi"), user("b@x.it", "Marta", "Bianchi"),
+                user("c@x.it", "Anna", "Rossini"), user("d@x.it", "Omar", "Verdi")));
+
+        assertThat(searchEmails("MAR", null)).containsExactly("a@x.it", "b@x.it", "d@x.it");
+        assertThat(searchEmails(null, "rossi")).containsExactly("a@x.it", "c@x.it");
+        assertThat(searchEmails("ar", "ROSS")).containsExactly("a@x.it");
+        assertThat(searchEmails("", "")).hasSize(4);
+    }
+
+    @Test
+    void searchesTheLikeMetacharactersLiterally() {
+        userService.createUsers(List.of(user("a@x.it", "Anna_Maria", "Rossi"), user("b@x.it", "Anna", "Bianchi")));
+
+        assertThat(searchEmails("_", null)).containsExactly("a@x.it");
+        assertThat(searchEmails("%", null)).isEmpty();
+    }
+
+    @Test
+    void scrollsThroughTheMatchesWithoutGapsOrRepeats() {
+        userService.createUsers(List.of(user("a@x.it", "Mario", "Rossi"), user("b@x.it", "Anna", "Bianchi"),
+                user("c@x.it", "Luca", "Rossi"), user("d@x.it", "Paolo", "Verdi"), user("e@x.it", "Sara", "Bianchi"),
+                user("f@x.it", "Omar", "Neri")));
+        Sort sort = Sort.by("surname");
+
+        CursorPage<User> first = userService.scrollUsers(null, null, sort, 4, null);
+        // sorts before the cursor: not returned by the next pages, nor shifting them
+        userService.createUsers(List.of(user("g@x.it", "Ugo", "Abate")));
+        CursorPage<User> second = userService.scrollUsers(null, null, sort, 4, first.next());
+
+        assertThat(first.content()).extracting(User::getSurname).containsExactly("Bianchi", "Bianchi", "Neri", "Rossi");
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.content()).extracting(User::getSurname).containsExactly("Rossi", "Verdi");
+        assertThat(second.hasNext()).isFalse();
+        assertThat(second.next()).isNull();
+        // the id breaks the ties, in descending order
+        assertThat(first.content().subList(0, 2)).extracting(User::getEmail).containsExactly("e@x.it", "b@x.it");
+        assertThat(first.content().get(3).getEmail()).isEqualTo("c@x.it");
+        assertThat(second.content().getFirst().getEmail()).isEqualTo("a@x.it");
+    }
+
+    @Test
+    void scrollsThroughTheFilteredUsers() {
+        userService.createUsers(List.of(user("a@x.it", "Mario", "Rossi"), user("b@x.it", "Marta", "Bianchi"),
+                user("c@x.it", "Anna", "Verdi")));
+
+        CursorPage<User> first = userService.scrollUsers("mar", null, Sort.by("email"), 1, null);
+        CursorPage<User> second = userService.scrollUsers("mar", null, Sort.by("email"), 1, first.next());
+
+        assertThat(first.content()).extracting(User::getEmail).containsExactly("a@x.it");
+        assertThat(second.content()).extracting(User::getEmail).containsExactly("b@x.it");
+        assertThat(second.next()).isNull();
+    }
+
+    @Test
+    void rejectsTamperedCursors() {
+        String query = Sort.by("surname").and(Sort.by(Sort.Direction.DESC, "id")).toString();
+        Sort sort = Sort.by("surname");
+
+        assertThatThrownBy(() -> userService.scrollUsers(null, null, sort, 10,
+                CursorCodec.encode(query, Map.of("surname", 5, "id", 1))))
+                .isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> userService.scrollUsers(null, null, sort, 10,
+                CursorCodec.encode(query, Map.of("surname", "Rossi", "id", "1"))))
+                .isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> userService.scrollUsers(null, null, sort, 10,
+                CursorCodec.encode(query, Map.of("surname", "Rossi", "id", 1, "name", "Mario"))))
+                .isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> userService.scrollUsers(null, null, Sort.by("name"), 10,
+                CursorCodec.encode(query, Map.of("surname", "Rossi", "id", 1))))
+                .isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> userService.scrollUsers(null, null, Sort.by("createdAt"), 10, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .isNotInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    void servesFoundUsersFromTheCacheUntilModified() {
+        Long id = createUser("a@x.it", "Mario", "Rossi");
+        assertThat(userService.findUserById(id)).map(User::getName).contains("Mario");
+
+        jdbcTemplate.update("update public.users set name = 'Giuseppe' where id = ?", id);
+        assertThat(userService.findUserById(id)).map(User::getName).contains("Mario");
+
+        userService.editUser(user("a@x.it", "Luigi", "Rossi"), id, null);
+        assertThat(userService.findUserById(id)).map(User::getName).contains("Luigi");
+
+        userService.updateUsers(List.of(user(id, "a@x.it", "Paolo", "Rossi")));
+        assertThat(userService.findUserById(id)).map(User::getName).contains("Paolo");
+
+        userService.deleteUsers(List.of(id));
+        assertThat(userService.findUserById(id)).isEmpty();
+    }
+
+    @Test
+    void doesNotCacheMisses() {
+        assertThat(userService.findUserById(1L)).isEmpty();
+
+        jdbcTemplate.update("insert into public.users (id, email, name, surname, address) "
+                + "values (1, 'a@x.it', 'Mario', 'Rossi', 'Via Roma 1')");
+
+        assertThat(userService.findUserById(1L)).map(User::getEmail).contains("a@x.it");
+    }
+
+    @Test
+    void returnsCopiesOfTheCachedUsers() {
+        Long id = createUser("a@x.it", "Mario", "Rossi");
+
+        userService.findUserById(id).orElseThrow().setName("Giuseppe");
+
+        assertThat(userService.findUserById(id)).map(User::getName).contains("Mario");
+    }
+
+    @Test
+    void evictsUsersAgainOnceTheChangeIsCommitted() throws Exception {
+        Long id = createUser("a@x.it", "Mario", "Rossi");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userService.editUser(user("a@x.it", "Luigi", "Rossi"), id, null);
+            // another request reads the committed state before this transaction ends, and caches it
+            assertThat(CompletableFuture.supplyAsync(() -> userService.findUserById(id)).join())
+                    .map(User::getName).contains("Mario");
+        });
+
+        assertThat(userService.findUserById(id)).map(User::getName).contains("Luigi");
+    }
+
+    @Test
+    void createsTheUsersWithAnOutcomePerItem() {
+        createUser("c@x.it", "Luca", "Verdi");
+
+        List<Map<String, Object>> results = userService.createUsers(List.of(user("a@x.it", "Mario", "Rossi"),
+                user("b@x.it", null, "Bianchi"), user("a@x.it", "Marta", "Rossi"), user("c@x.it", "Carlo", "Neri"),
+                user("d@x.it", "Paolo", "Verdi")));
+
+        assertThat(results).extracting(result -> result.get("result"))
+                .containsExactly("created", "invalid", "conflict", "conflict", "created");
+        assertThat(results).extracting(result -> result.get("index")).containsExactly(0, 1, 2, 3, 4);
+        assertThat(results.get(0).get("id")).isNotNull();
+        assertThat(results.get(2).get("id")).isNull();
+        assertThat(jdbcTemplate.queryForList("select name from public.users order by email", String.class))
+                .containsExactly("Mario", "Luca", "Paolo");
+    }
+
+    @Test
+    void updatesTheUsersWithAnOutcomePerItem() {
+        Long a = createUser("a@x.it", "Mario", "Rossi");
+        Long b = createUser("b@x.it", "Anna", "Bianchi");
+        Long c = createUser("c@x.it", "Luca", "Verdi");
+
+        List<Map<String, Object>> results = userService.updateUsers(List.of(user(a, "a2@x.it", "Mario", "Neri"),
+                user(b, "c@x.it", "Anna", "Bianchi"), user(a, "a3@x.it", "Mario", "Neri"), user(999_999L, "z@x.it", "Ugo", "Abate"),
+                user(null, "y@x.it", "Ugo", "Abate"), user(c, "a@x.it", "Luca", "Verdi"), user(b, "b@x.it", null, "Bianchi")));
+
+        assertThat(results).extracting(result -> result.get("result"))
+                .containsExactly("updated", "conflict", "conflict", "not_found", "invalid", "conflict", "invalid");
+        assertThat(jdbcTemplate.queryForList("select email from public.users order by id", String.class))
+                .containsExactly("a2@x.it", "b@x.it", "c@x.it");
+        assertThat(jdbcTemplate.queryForList("select email from public.users_emails order by email", String.class))
+                .containsExactly("a2@x.it", "b@x.it", "c@x.it");
+    }
+
+    @Test
+    void reportsUsersSwappingTheirEmailsAsConflicts() {
+        Long a = createUser("a@x.it", "Mario", "Rossi");
+        Long b = createUser("b@x.it", "Anna", "Bianchi");
+
+        List<Map<String, Object>> results = userService.updateUsers(List.of(user(a, "b@x.it", "Mario", "Rossi"),
+                user(b, "a@x.it", "Anna", "Bianchi")));
+
+        assertThat(results).extracting(result -> result.get("result")).containsExactly("conflict", "conflict");
+        assertThat(jdbcTemplate.queryForList("select email from public.users order by id", String.class))
+                .containsExactly("a@x.it", "b@x.it");
+    }
+
+    @Test
+    void deletesTheUsersWithAnOutcomePerItem() {
+        Long a = createUser("a@x.it", "Mario", "Rossi");
+        Long b = createUser("b@x.it", "Anna", "Bianchi");
+
+        List<Map<String, Object>> results = userService.deleteUsers(Arrays.asList(a, a, 999_999L, null, b));
+
+        assertThat(results).extracting(result -> result.get("result"))
+                .containsExactly("deleted", "conflict", "not_found", "invalid", "deleted");
+        assertThat(jdbcTemplate.queryForObject("select count(*) from public.users", Long.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject("select count(*) from public.users_emails", Long.class)).isZero();
+    }
+
+    private Long createUser(String email, String name, String surname) {
+        return (Long) userService.createUsers(List.of(user(email, name, surname))).getFirst().get("id");
+    }
+
+    private List<String> searchEmails(String name, String surname) {
+        return userService.searchUsers(name, surname, UserField.DEFAULT, PageRequest.of(0, 10, Sort.by("email")))
+                .map(UserView::email).getContent();
+    }
+
+    static User user(String email, String name, String surname) {
+        return user(null, email, name, surname);
+    }
+
+    static User user(Long id, String email, String name, String surname) {
+        return User.builder().id(id).email(email).name(name).surname(surname).address("Via Roma 1").build();
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.config.WriteBehindProperties;
+import com.example.fcgusersapp.entity.User;
+import com.example.fcgusersapp.repository.UserJdbcRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserWriteBehindQueueTest {
+
+    @TempDir
+    Path journalDirectory;
+
+    private final UserJdbcRepository userJdbcRepository = mock(UserJdbcRepository.class);
+    private final List<List<User>> written = new ArrayList<>();
+    private final List<UserWriteBehindQueue> queues = new ArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void shutdownQueues() throws Exception {
+        for (UserWriteBehindQueue queue : queues) {
+            queue.shutdown();
+        }
+    }
+
+    @Test
+    void keepsUpdatesQueuedWhenTheNextSegmentCannotBeStarted() throws IOException {
+        acceptWrites();
+        UserWriteBehindQueue queue = queue();
+        queue.enqueue(user(1L, "a@x.it"));
+        Path blocker = Files.createDirectory(journalDirectory.resolve(segmentName(2)));
+        Files.writeString(blocker.resolve("file"), "");
+
+        assertThatThrownBy(queue::flush).isInstanceOf(UncheckedIOException.class);
+        assertThat(queue.findPending(1L)).get().extracting(User::getEmail).isEqualTo("a@x.it");
+        assertThat(written).isEmpty();
+
+        Files.delete(blocker.resolve("file"));
+        Files.delete(blocker);
+        queue.enqueue(user(2L, "b@x.it"));
+        queue.flush();
+        assertThat(written).singleElement().satisfies(batch ->
+                assertThat(batch).extracting(User::getId).containsExactlyInAnyOrder(1L, 2L));
+        assertThat(queue.findPending(1L)).isEmpty();
+        assertThat(segments()).containsExactly(segmentName(2));
+    }
+
+    @Test
+    void countsTheUpdatesThatCannotBeWritten() throws IOException {
+        when(userJdbcRepository.updateAll(anyList())).thenReturn(Set.of(1L));
+        UserWriteBehindQueue queue = queue(meterRegistry);
+        queue.enqueue(user(1L, "a@x.it"));
+        queue.enqueue(user(2L, "b@x.it"));
+
+        queue.flush();
+
+        assertThat(meterRegistry.counter("users.write.behind.dropped").count()).isEqualTo(1);
+        assertThat(queue.findPending(2L)).isEmpty();
+    }
+
+    @Test
+    void mergesTheRepeatedUpdatesOfAUser() throws IOException {
+        acceptWrites();
+        UserWriteBehindQueue queue = queue();
+        queue.enqueue(user(1L, "a@x.it"));
+        queue.enqueue(user(1L, "b@x.it"));
+
+        assertThat(queue.findPending(1L)).get().extracting(User::getEmail).isEqualTo("b@x.it");
+        assertThat(queue.findPending(2L)).isEmpty();
+        queue.flush();
+
+        assertThat(written).singleElement().satisfies(batch ->
+                assertThat(batch).extracting(User::getEmail).containsExactly("b@x.it"));
+    }
+
+    @Test
+    void replaysTheUpdatesLeftInTheJournalByAPreviousRun() throws IOException {
+        acceptWrites();
+        UserWriteBehindQueue crashed = queue();
+        // abandoned without a flush, as by a crash
+        queues.remove(crashed);
+        crashed.enqueue(user(1L, "a@x.it"));
+        crashed.enqueue(user(2L, "b@x.it"));
+        crashed.enqueue(user(1L, "c@x.it"));
+        Files.writeString(journalDirectory.resolve(segmentName(1)), "{\"id\":3,\"email\":", StandardOpenOption.APPEND);
+
+        UserWriteBehindQueue queue = queue();
+
+        assertThat(queue.findPending(1L)).get().extracting(User::getEmail).isEqualTo("c@x.it");
+        assertThat(queue.findPending(2L)).get().extracting(User::getEmail).isEqualTo("b@x.it");
+        assertThat(queue.findPending(3L)).isEmpty();
+        assertThat(segments()).containsExactly(segmentName(1), segmentName(2));
+        queue.flush();
+        assertThat(written).singleElement().satisfies(batch ->
+                assertThat(batch).extracting(User::getEmail).containsExactlyInAnyOrder("c@x.it", "b@x.it"));
+        assertThat(segments()).containsExactly(segmentName(3));
+    }
+
+    @Test
+    void replaysNothingOnceTheUpdatesAreWritten() throws Exception {
+        acceptWrites();
+        UserWriteBehindQueue previous = queue();
+        previous.enqueue(user(1L, "a@x.it"));
+        previous.flush();
+        previous.shutdown();
+
+        UserWriteBehindQueue queue = queue();
+
+        assertThat(queue.findPending(1L)).isEmpty();
+        assertThat(segments()).containsExactly(segmentName(3));
+        queue.flush();
+        assertThat(written).hasSize(1);
+    }
+
+    private void acceptWrites() {
+        when(userJdbcRepository.updateAll(anyList())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            written.add(users);
+            Set<Long> ids = new HashSet<>();
+            users.forEach(user -> ids.add(user.getId()));
+            return ids;
+        });
+    }
+
+    private UserWriteBehindQueue queue() throws IOException {
+        return queue(new SimpleMeterRegistry());
+    }
+
+    private UserWriteBehindQueue queue(MeterRegistry meterRegistry) throws IOException {
+        WriteBehindProperties properties = new WriteBehindProperties(true, Duration.ofHours(1), 1000, 4,
+                journalDirectory, false);
+        UserWriteBehindQueue queue = new UserWriteBehindQueue(userJdbcRepository, mock(UserCacheInvalidator.class),
+                mock(PlatformTransactionManager.class), new ObjectMapper(), properties, meterRegistry);
+        queues.add(queue);
+        return queue;
+    }
+
+    private List<String> segments() throws IOException {
+        try (Stream<Path> files = Files.list(journalDirectory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    private static String segmentName(long number) {
+        return "users-" + String.format("%019d", number) + ".journal";
+    }
+
+    private static User user(long id, String email) {
+        return User.builder().id(id).email(email).name("Mario").surname("Rossi").address("Via Roma 1").build();
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.fcgusersapp.service;
+
+import com.example.fcgusersapp.PostgresIntegrationTest;
+import com.example.fcgusersapp.entity.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// flushed by the tests only
+@TestPropertySource(properties = {"app.write-behind.enabled=true", "app.write-behind.flush-interval=1h"})
+class UserWriteBehindTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private UserService userService;
+
+    @DynamicPropertySource
+    static void journal(DynamicPropertyRegistry registry) throws IOException {
+        String directory = Files.createTempDirectory("users-journal").toString();
+        registry.add("app.write-behind.journal-directory", () -> directory);
+    }
+
+    @Test
+    void returnsTheQueuedUpdatesUntilTheyAreWritten() {
+        Long id = createUser("a@x.it");
+
+        userService.queueUserEdit(user("b@x.it", "Luigi"), id);
+
+        assertThat(userService.findUserById(id)).get()
+                .satisfies(user -> assertThat(user.getEmail()).isEqualTo("b@x.it"))
+                .satisfies(user -> assertThat(user.getVersion()).isNull());
+        assertThat(name(id)).isEqualTo("Mario");
+        userService.flushQueuedEdits(List.of(id));
+        assertThat(name(id)).isEqualTo("Luigi");
+        assertThat(jdbcTemplate.queryForObject("select id from public.users_emails where email = 'b@x.it'", Long.class))
+                .isEqualTo(id);
+        assertThat(userService.findUserById(id)).get().extracting(User::getVersion).isNotNull();
+    }
+
+    @Test
+    void rejectsTheEmailsOfOtherUsersAndMissingUsers() {
+        Long id = createUser("a@x.it");
+        createUser("b@x.it");
+
+        assertThatThrownBy(() -> userService.queueUserEdit(user("b@x.it", "Mario"), id))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThatThrownBy(() -> userService.queueUserEdit(user("c@x.it", "Mario"), id + 1000))
+                .isInstanceOf(IllegalArgumentException.class);
+        // its own email is not a conflict
+        userService.queueUserEdit(user("a@x.it", "Luigi"), id);
+        userService.flushQueuedEdits(List.of(id));
+        assertThat(name(id)).isEqualTo("Luigi");
+    }
+
+    private String name(Long id) {
+        return jdbcTemplate.queryForObject("select name from public.users where id = ?", String.class, id);
+    }
+
+    private Long createUser(String email) {
+        return (Long) userService.createUsers(List.of(user(email, "Mario"))).getFirst().get("id");
+    }
+
+    private static User user(String email, String name) {
+        return User.builder().email(email).name(name).surname("Rossi").address("Via Roma 1").build();
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.fcgusersapp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void startsAtTheMaximumAndRefusesBeyondIt() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 3);
+        assertThat(limit.limit()).isEqualTo(3);
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isFalse();
+        assertThat(limit.inFlight()).isEqualTo(3);
+        limit.release(0, false);
+        assertThat(limit.inFlight()).isEqualTo(2);
+        assertThat(limit.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void shrinksByATenthOnCongestionDownToTheMinimum() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(5, 20);
+        limit.tryAcquire();
+        limit.release(MILLI, true);
+        assertThat(limit.limit()).isEqualTo(18);
+        for (int i = 0; i < 50; i++) {
+            limit.tryAcquire();
+            limit.release(MILLI, true);
+        }
+        assertThat(limit.limit()).isEqualTo(5);
+    }
+
+    @Test
+    void shrinksWhenLatencyRisesAboveTheBaseline() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 40);
+        fill(limit, 40);
+        sample(limit, MILLI, 100);
+        assertThat(limit.limit()).isEqualTo(40);
+        sample(limit, 10 * MILLI, 20);
+        assertThat(limit.limit()).isLessThan(40).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void growsBackToTheMaximumOnceLatencyIsBackToNormal() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 40);
+        fill(limit, 40);
+        sample(limit, MILLI, 100);
+        sample(limit, 10 * MILLI, 20);
+        int shrunk = limit.limit();
+        sample(limit, MILLI, 500);
+        assertThat(limit.limit()).isGreaterThan(shrunk).isEqualTo(40);
+    }
+
+    @Test
+    void doesNotGrowWhileLessThanHalfOfTheLimitIsInUse() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 40);
+        fill(limit, 40);
+        limit.release(MILLI, true);
+        int congested = limit.limit();
+        while (limit.inFlight() > 1) {
+            limit.release(0, false);
+        }
+        for (int i = 0; i < 200; i++) {
+            limit.release(MILLI, false);
+            limit.tryAcquire();
+        }
+        assertThat(limit.limit()).isEqualTo(congested);
+    }
+
+    @Test
+    void ignoresOperationsWithoutLatency() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 10);
+        fill(limit, 10);
+        sample(limit, 0, 100);
+        assertThat(limit.limit()).isEqualTo(10);
+    }
+
+    @Test
+    void rejectsInvalidLimits() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new AdaptiveConcurrencyLimit(0, 1));
+        assertThatIllegalArgumentException().isThrownBy(() -> new AdaptiveConcurrencyLimit(3, 2));
+    }
+
+    /**
+     * Starts operations until the limit is reached.
+     */
+    private static void fill(AdaptiveConcurrencyLimit limit, int count) {
+        for (int i = 0; i < count; i++) {
+            limit.tryAcquire();
+        }
+    }
+
+    /**
+     * Ends operations measuring the given latency, starting new ones after each as long as the
+     * limit allows, as under a load exceeding it.
+     */
+    private static void sample(AdaptiveConcurrencyLimit limit, long latencyNanos, int count) {
+        for (int i = 0; i < count; i++) {
+            limit.release(latencyNanos, false);
+            while (limit.tryAcquire()) {
+                // the load takes every place the limit gives
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.fcgusersapp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class BloomFilterTest {
+
+    @Test
+    void reportsEveryAddedStringAsPresent() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+
+        IntStream.range(0, 20_000).forEach(i -> filter.put("user" + i + "@x.it"));
+
+        // twice the capacity: more false positives, still no false negative
+        assertThat(IntStream.range(0, 20_000).allMatch(i -> filter.mightContain("user" + i + "@x.it"))).isTrue();
+    }
+
+    @Test
+    void keepsTheFalsePositivesNearTheRequestedRate() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.put("user" + i + "@x.it"));
+
+        long falsePositives = IntStream.range(0, 100_000).filter(i -> filter.mightContain("other" + i + "@x.it")).count();
+
+        assertThat(falsePositives).isLessThan(2_000);
+        assertThat(filter.insertions()).isBetween(9_900L, 10_000L);
+        assertThat(filter.sizeInBytes()).isBetween(11_000L, 13_000L);
+    }
+
+    @Test
+    void countsTheStringsAddedMoreThanOnceOnce() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+
+        assertThat(filter.mightContain("a@x.it")).isFalse();
+        assertThat(filter.put("a@x.it")).isTrue();
+        assertThat(filter.put("a@x.it")).isFalse();
+        assertThat(filter.insertions()).isEqualTo(1);
+        assertThat(filter.capacity()).isEqualTo(100);
+    }
+
+    @Test
+    void rejectsInvalidSizes() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new BloomFilter(0, 0.01));
+        assertThatIllegalArgumentException().isThrownBy(() -> new BloomFilter(100, 0));
+        assertThatIllegalArgumentException().isThrownBy(() -> new BloomFilter(100, 1));
+        assertThatIllegalArgumentException().isThrownBy(() -> new BloomFilter(Long.MAX_VALUE / 2, 0.01));
+    }
+}
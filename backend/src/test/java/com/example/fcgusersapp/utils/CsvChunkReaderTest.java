@@ -0,0 +1,251 @@
+package com.example.fcgusersapp.utils;
+
+import com.example.fcgusersapp.utils.CsvFormatTest.Row;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvChunkReaderTest {
+
+    @Test
+    void cutsChunksAtRecordBoundaries() throws IOException {
+        List<CsvChunkReader.Chunk> chunks = chunks("a,b\nc,d\ne,f\n", 9, Integer.MAX_VALUE);
+        assertThat(chunks).extracting(CsvChunkReaderTest::text).containsExactly("a,b\nc,d\n", "e,f\n");
+        assertThat(chunks).extracting(CsvChunkReader.Chunk::firstLine).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void growsChunkForRecordLongerThanChunkSize() throws IOException {
+        List<CsvChunkReader.Chunk> chunks = chunks("a,\"long,\nquoted\"\nb\n", 4, Integer.MAX_VALUE);
+        assertThat(chunks).extracting(CsvChunkReaderTest::text).containsExactly("a,\"long,\nquoted\"\n", "b\n");
+        assertThat(chunks).extracting(CsvChunkReader.Chunk::firstLine).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void keepsQuotedLineBreakInsideTheRecordAcrossReads() throws IOException {
+        String csv = "x,\"1\n2\"\ny,\"3\r\n4\"\n";
+        for (int chunkSize = 1; chunkSize <= csv.length(); chunkSize++) {
+            assertThat(parse(chunks(csv, chunkSize, 1)))
+                    .as("chunk size %d", chunkSize)
+                    .containsExactly(
+                            new Row(1, List.of("x", "1\n2")),
+                            new Row(3, List.of("y", "3\n4")));
+        }
+    }
+
+    @Test
+    void doesNotSplitCarriageReturnLineFeedAcrossChunks() throws IOException {
+        List<CsvChunkReader.Chunk> chunks = chunks("ab\r\ncd\r\n", 3, 1);
+        assertThat(chunks).extracting(CsvChunkReaderTest::text).containsExactly("ab\r\n", "cd\r\n");
+        assertThat(chunks).extracting(CsvChunkReader.Chunk::firstLine).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void skipsByteOrderMark() throws IOException {
+        byte[] bom = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+        byte[] csv = "a,b\n".getBytes(StandardCharsets.UTF_8);
+        byte[] content = new byte[bom.length + csv.length];
+        System.arraycopy(bom, 0, content, 0, bom.length);
+        System.arraycopy(csv, 0, content, bom.length, csv.length);
+        CsvChunkReader reader = new CsvChunkReader(new ByteArrayInputStream(content), 2);
+        assertThat(parse(List.of(reader.next()))).containsExactly(new Row(1, List.of("a", "b")));
+        assertThat(reader.next()).isNull();
+    }
+
+    @Test
+    void returnsLastRecordWithoutLineBreak() throws IOException {
+        assertThat(parse(chunks("a\nb", 1, 1))).containsExactly(new Row(1, List.of("a")), new Row(2, List.of("b")));
+    }
+
+    @Test
+    void returnsNoChunkForEmptyContent() throws IOException {
+        assertThat(chunks("", 4, 1)).isEmpty();
+    }
+
+    @Test
+    void pushedContentGivesTheSameChunksAsPulledContent() throws IOException {
+        String csv = "a,\"b\nc\"\r\nd,e\rf\n\"g\"\"h\",i\n";
+        for (int chunkSize = 1; chunkSize <= 8; chunkSize++) {
+            assertThat(pushedChunks(csv, chunkSize, 3).stream().map(CsvChunkReaderTest::text).toList())
+                    .as("chunk size %d", chunkSize)
+                    .isEqualTo(chunks(csv, chunkSize, 2).stream().map(CsvChunkReaderTest::text).toList());
+        }
+    }
+
+    /**
+     * Random content, including quotes, separators and every kind of line break, read in tiny
+     * chunks and reads, gives the same records as the line-based reader the import used before
+     * the byte-level tokenizer.
+     */
+    @Test
+    void parsesRandomContentAsTheLineBasedReader() throws IOException {
+        Random random = new Random(20261018);
+        String alphabet = "aé ,\"\n\r\t";
+        for (int round = 0; round < 5_000; round++) {
+            StringBuilder csv = new StringBuilder();
+            int size = random.nextInt(40);
+            for (int i = 0; i < size; i++) {
+                csv.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String content = csv.toString();
+            int chunkSize = 1 + random.nextInt(8);
+            int readSize = 1 + random.nextInt(5);
+            List<List<String>> expected = readAsBefore(content);
+            assertThat(parse(chunks(content, chunkSize, readSize)).stream().map(Row::fields).toList())
+                    .as("content %s, chunk size %d, read size %d", escape(content), chunkSize, readSize)
+                    .isEqualTo(expected);
+            assertThat(parse(pushedChunks(content, chunkSize, readSize)).stream().map(Row::fields).toList())
+                    .as("pushed content %s, chunk size %d, read size %d", escape(content), chunkSize, readSize)
+                    .isEqualTo(expected);
+        }
+    }
+
+    private static List<CsvChunkReader.Chunk> chunks(String csv, int chunkSize, int readSize) throws IOException {
+        CsvChunkReader reader = new CsvChunkReader(new SlowInputStream(csv.getBytes(StandardCharsets.UTF_8), readSize), chunkSize);
+        List<CsvChunkReader.Chunk> chunks = new ArrayList<>();
+        CsvChunkReader.Chunk chunk;
+        while ((chunk = reader.next()) != null) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    private static List<CsvChunkReader.Chunk> pushedChunks(String csv, int chunkSize, int feedSize) {
+        byte[] bytes = csv.getBytes(StandardCharsets.UTF_8);
+        CsvChunkReader reader = new CsvChunkReader(chunkSize);
+        List<CsvChunkReader.Chunk> chunks = new ArrayList<>();
+        for (int from = 0; from < bytes.length; from += feedSize) {
+            reader.feed(ByteBuffer.wrap(bytes, from, Math.min(feedSize, bytes.length - from)));
+            pollAll(reader, chunks);
+        }
+        reader.finish();
+        pollAll(reader, chunks);
+        return chunks;
+    }
+
+    private static void pollAll(CsvChunkReader reader, List<CsvChunkReader.Chunk> chunks) {
+        CsvChunkReader.Chunk chunk;
+        while ((chunk = reader.poll()) != null) {
+            chunks.add(chunk);
+        }
+    }
+
+    private static List<Row> parse(List<CsvChunkReader.Chunk> chunks) {
+        List<Row> rows = new ArrayList<>();
+        for (CsvChunkReader.Chunk chunk : chunks) {
+            CsvFormat.parseRecords(chunk.data(), 0, chunk.length(), chunk.firstLine(),
+                    (line, fields) -> rows.add(new Row(line, List.copyOf(fields))));
+        }
+        return rows;
+    }
+
+    private static String text(CsvChunkReader.Chunk chunk) {
+        return new String(chunk.data(), 0, chunk.length(), StandardCharsets.UTF_8);
+    }
+
+    private static String escape(String content) {
+        return content.replace("\r", "\\r").replace("\n", "\\n").replace("\t", "\\t");
+    }
+
+    private static List<List<String>> readAsBefore(String csv) throws IOException {
+        BufferedReader reader = new BufferedReader(new StringReader(csv));
+        List<List<String>> records = new ArrayList<>();
+        List<String> record;
+        while ((record = readRecordAsBefore(reader)) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * The record reader of the import before {@link CsvFormat#parseRecords}, reading the lines
+     * of the content decoded beforehand.
+     */
+    private static List<String> readRecordAsBefore(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean inQuotes = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (inQuotes) {
+                    line = reader.readLine();
+                    if (line != null) {
+                        field.append('\n');
+                        i = 0;
+                        continue;
+                    }
+                }
+                fields.add(quoted ? field.toString() : field.toString().trim());
+                return fields;
+            }
+            char c = line.charAt(i++);
+            if (inQuotes) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i < line.length() && line.charAt(i) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    inQuotes = false;
+                }
+            } else if (c == ',') {
+                fields.add(quoted ? field.toString() : field.toString().trim());
+                field.setLength(0);
+                quoted = false;
+            } else if (c == '"' && !quoted && field.toString().isBlank()) {
+                field.setLength(0);
+                quoted = true;
+                inQuotes = true;
+            } else if (!quoted) {
+                field.append(c);
+            }
+        }
+    }
+
+    /**
+     * Returns at most a given number of bytes per read, as a network stream would.
+     */
+    private static final class SlowInputStream extends InputStream {
+        private final byte[] content;
+        private final int readSize;
+        private int position;
+
+        private SlowInputStream(byte[] content, int readSize) {
+            this.content = content;
+            this.readSize = readSize;
+        }
+
+        @Override
+        public int read() {
+            return position < content.length ? content[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position == content.length) {
+                return -1;
+            }
+            int count = Math.min(Math.min(len, readSize), content.length - position);
+            System.arraycopy(content, position, b, off, count);
+            position += count;
+            return count;
+        }
+    }
+}
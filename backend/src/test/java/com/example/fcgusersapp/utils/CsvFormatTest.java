@@ -0,0 +1,116 @@
+package com.example.fcgusersapp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvFormatTest {
+
+    @Test
+    void parsesUnquotedFieldsTrimmed() {
+        assertThat(parse("a@x.it, Mario ,Rossi,\tVia Roma 1 \n"))
+                .containsExactly(new Row(1, List.of("a@x.it", "Mario", "Rossi", "Via Roma 1")));
+    }
+
+    @Test
+    void parsesQuotedFieldsVerbatim() {
+        assertThat(parse("\" a,b \",  \"c\"\n"))
+                .containsExactly(new Row(1, List.of(" a,b ", "c")));
+    }
+
+    @Test
+    void parsesDoubledQuotes() {
+        assertThat(parse("\"Via \"\"Roma\"\"\",\"\"\"\",\"\"\n"))
+                .containsExactly(new Row(1, List.of("Via \"Roma\"", "\"", "")));
+    }
+
+    @Test
+    void parsesQuotedMultiLineFieldsAndCountsTheirLines() {
+        assertThat(parse("a,\"Via Roma 1\nScala B\",c\nd,e,f\n"))
+                .containsExactly(
+                        new Row(1, List.of("a", "Via Roma 1\nScala B", "c")),
+                        new Row(3, List.of("d", "e", "f")));
+    }
+
+    @Test
+    void readsEveryLineBreakAsOne() {
+        List<Row> expected = List.of(
+                new Row(1, List.of("a", "b")),
+                new Row(2, List.of("c", "d")),
+                new Row(3, List.of("e", "f")));
+        assertThat(parse("a,b\nc,d\ne,f")).isEqualTo(expected);
+        assertThat(parse("a,b\r\nc,d\r\ne,f\r\n")).isEqualTo(expected);
+        assertThat(parse("a,b\rc,d\re,f\r")).isEqualTo(expected);
+        assertThat(parse("a,b\r\nc,d\re,f\n")).isEqualTo(expected);
+    }
+
+    @Test
+    void readsLineBreaksWithinQuotesAsLineFeeds() {
+        assertThat(parse("\"1\r\n2\r3\n4\",x\r\ny\n"))
+                .containsExactly(
+                        new Row(1, List.of("1\n2\n3\n4", "x")),
+                        new Row(5, List.of("y")));
+    }
+
+    @Test
+    void dropsCharactersBetweenClosingQuoteAndSeparator() {
+        assertThat(parse("\"a\"b ,c\n"))
+                .containsExactly(new Row(1, List.of("a", "c")));
+    }
+
+    @Test
+    void parsesEmptyLinesAsSingleEmptyField() {
+        assertThat(parse("a\n\nb\n"))
+                .containsExactly(
+                        new Row(1, List.of("a")),
+                        new Row(2, List.of("")),
+                        new Row(3, List.of("b")));
+    }
+
+    @Test
+    void keepsAnUnterminatedQuotedFieldUpToTheEnd() {
+        assertThat(parse("a,\"b\nc"))
+                .containsExactly(new Row(1, List.of("a", "b\nc")));
+        assertThat(parse("a,\"b\nc\r\n"))
+                .containsExactly(new Row(1, List.of("a", "b\nc")));
+    }
+
+    @Test
+    void decodesMultiByteCharacters() {
+        assertThat(parse("é€,\"ü\"\"😀\"\n"))
+                .containsExactly(new Row(1, List.of("é€", "ü\"😀")));
+    }
+
+    @Test
+    void startsLineNumbersAtTheGivenLine() {
+        byte[] csv = "a\nb\n".getBytes(StandardCharsets.UTF_8);
+        List<Row> rows = new ArrayList<>();
+        CsvFormat.parseRecords(csv, 2, csv.length, 42, (line, fields) -> rows.add(new Row(line, List.copyOf(fields))));
+        assertThat(rows).containsExactly(new Row(42, List.of("b")));
+    }
+
+    @Test
+    void writesRecordsThatReadBackUnchanged() throws IOException {
+        StringWriter writer = new StringWriter();
+        CsvFormat.writeRecord(writer, "plain", " spaced ", "a,b", "say \"hi\"", "two\nlines", "", null);
+        assertThat(writer.toString()).isEqualTo("plain,\" spaced \",\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\",,\n");
+        assertThat(parse(writer.toString()))
+                .containsExactly(new Row(1, List.of("plain", " spaced ", "a,b", "say \"hi\"", "two\nlines", "", "")));
+    }
+
+    static List<Row> parse(String csv) {
+        byte[] bytes = csv.getBytes(StandardCharsets.UTF_8);
+        List<Row> rows = new ArrayList<>();
+        CsvFormat.parseRecords(bytes, 0, bytes.length, 1, (line, fields) -> rows.add(new Row(line, List.copyOf(fields))));
+        return rows;
+    }
+
+    record Row(long line, List<String> fields) {
+    }
+}
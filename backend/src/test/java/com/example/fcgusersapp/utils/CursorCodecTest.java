@@ -0,0 +1,42 @@
+package com.example.fcgusersapp.utils;
+
+import com.example.fcgusersapp.exceptions.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CursorCodecTest {
+
+    @Test
+    void decodesTheKeysOfAnEncodedCursor() {
+        String token = CursorCodec.encode("surname: ASC,id: DESC", Map.of("surname", "Rossi", "id", 42L));
+
+        assertThat(token).doesNotContain("=", "+", "/");
+        assertThat(CursorCodec.decode("surname: ASC,id: DESC", token)).isEqualTo(Map.of("surname", "Rossi", "id", 42));
+    }
+
+    @Test
+    void rejectsTheCursorsOfAnotherQuery() {
+        String token = CursorCodec.encode("surname: ASC,id: DESC", Map.of("surname", "Rossi", "id", 42L));
+
+        assertThatThrownBy(() -> CursorCodec.decode("name: ASC,id: DESC", token))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        String withoutKeys = Base64.getUrlEncoder().encodeToString("{\"s\":\"id: DESC\",\"k\":1}".getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> CursorCodec.decode("id: DESC", "not a cursor!"))
+                .isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> CursorCodec.decode("id: DESC", "bm90IGpzb24"))
+                .isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> CursorCodec.decode("id: DESC", withoutKeys))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+}
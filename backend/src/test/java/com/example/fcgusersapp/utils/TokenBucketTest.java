@@ -0,0 +1,53 @@
+package com.example.fcgusersapp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class TokenBucketTest {
+
+    @Test
+    void letsABurstThroughThenRefuses() {
+        TokenBucket bucket = new TokenBucket(0.001, 3);
+        assertThat(bucket.tryConsume()).isZero();
+        assertThat(bucket.tryConsume()).isZero();
+        assertThat(bucket.tryConsume()).isZero();
+        assertThat(bucket.tryConsume()).isPositive();
+    }
+
+    @Test
+    void tellsHowLongUntilTheNextToken() {
+        TokenBucket bucket = new TokenBucket(0.5, 1);
+        assertThat(bucket.tryConsume()).isZero();
+        assertThat(bucket.tryConsume()).isBetween(TimeUnit.SECONDS.toNanos(1), TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    void refillsAtTheRate() throws InterruptedException {
+        // a token every 20 ms: slow enough not to refill between two calls
+        TokenBucket bucket = new TokenBucket(50, 1);
+        assertThat(bucket.tryConsume()).isZero();
+        assertThat(bucket.tryConsume()).isPositive();
+        Thread.sleep(40);
+        assertThat(bucket.tryConsume()).isZero();
+    }
+
+    @Test
+    void doesNotRefillBeyondItsCapacity() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(10, 2);
+        Thread.sleep(500);
+        assertThat(bucket.tryConsume()).isZero();
+        assertThat(bucket.tryConsume()).isZero();
+        assertThat(bucket.tryConsume()).isPositive();
+    }
+
+    @Test
+    void rejectsInvalidRateOrCapacity() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new TokenBucket(0, 1));
+        assertThatIllegalArgumentException().isThrownBy(() -> new TokenBucket(Double.NaN, 1));
+        assertThatIllegalArgumentException().isThrownBy(() -> new TokenBucket(1, 0.5));
+    }
+}
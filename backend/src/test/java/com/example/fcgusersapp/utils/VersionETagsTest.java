@@ -0,0 +1,35 @@
+package com.example.fcgusersapp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VersionETagsTest {
+
+    @Test
+    void formatsVersionsAsStrongTags() {
+        assertThat(VersionETags.format(42)).isEqualTo("\"42\"");
+    }
+
+    @Test
+    void hasNoPreconditionWithoutHeader() {
+        assertThat(VersionETags.parseIfMatch(null)).isNull();
+        assertThat(VersionETags.parseIfMatch(" ")).isNull();
+    }
+
+    @Test
+    void acceptsAnyVersionOfAnExistingResourceForWildcard() {
+        assertThat(VersionETags.parseIfMatch("*")).isEqualTo(VersionETags.IfMatch.ANY_VERSION);
+        assertThat(VersionETags.IfMatch.ANY_VERSION.versions()).isNull();
+    }
+
+    @Test
+    void acceptsTheVersionsOfStrongTags() {
+        assertThat(VersionETags.parseIfMatch("\"3\", W/\"4\", \"5\"").versions()).containsExactly(3L, 5L);
+    }
+
+    @Test
+    void acceptsNoVersionForForeignTags() {
+        assertThat(VersionETags.parseIfMatch("\"abc\", W/\"7\"").versions()).isEmpty();
+    }
+}
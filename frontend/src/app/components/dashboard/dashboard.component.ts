@@ -39,6 +39,11 @@ export class DashboardComponent implements OnInit, AfterViewInit, OnDestroy {
    */
   totalItems: number = 0;
 
+  /**
+   * False when the total number of items is an estimate of the BE.
+   */
+  isTotalExact: boolean = true;
+
   /**
    * True when the current query returns zero results.
    */
@@ -160,6 +165,7 @@ export class DashboardComponent implements OnInit, AfterViewInit, OnDestroy {
           this.isTableEmpty = res.totalElements === 0;
           this.dataSource.data = res.content;
           this.totalItems = res.totalElements;
+          this.isTotalExact = res.totalExact ?? true;
         },
         error: (err) => console.error(err),
         complete: () =>
@@ -1,6 +1,10 @@
 export interface Page<T> {
   content: T[];
   totalElements: number;
+  /**
+   * False when totalElements is an estimate, as for searches matching many users.
+   */
+  totalExact?: boolean;
   totalPages: number;
   number: number;
   size: number;